@@ -0,0 +1,22 @@
+package com.diya.backend.config;
+
+import org.springframework.security.core.AuthenticatedPrincipal;
+
+import java.util.UUID;
+
+/**
+ * Principal stored in the security context by JwtAuthFilter.
+ *
+ * getName() is still the email / phone from the token, so every existing
+ * auth.getName() call keeps working. The wholesaler / retailer id is
+ * resolved once at authentication time (see PrincipalResolver) and is null
+ * when the account has no profile of that kind.
+ */
+public record AuthenticatedUser(String identifier, String role, UUID wholesalerId, UUID retailerId)
+        implements AuthenticatedPrincipal {
+
+    @Override
+    public String getName() {
+        return identifier;
+    }
+}
@@ -0,0 +1,24 @@
+package com.diya.backend.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class JpaConfig {
+
+    /**
+     * JDBC batching for multi-row writes (checkout order items, cart clearing, imports).
+     * UUID ids are generated in memory, so Hibernate can batch inserts safely.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer jdbcBatchingCustomizer(
+            @Value("${diya.jpa.batch-size:50}") int batchSize) {
+        return props -> {
+            props.put("hibernate.jdbc.batch_size", batchSize);
+            props.put("hibernate.order_inserts", true);
+            props.put("hibernate.order_updates", true);
+        };
+    }
+}
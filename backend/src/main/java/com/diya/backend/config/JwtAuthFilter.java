@@ -5,6 +5,7 @@ import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
+import com.diya.backend.service.PrincipalResolver;
 import lombok.RequiredArgsConstructor;
 
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -23,6 +24,7 @@ import java.util.List;
 public class JwtAuthFilter extends OncePerRequestFilter {
 
         private final JwtUtil jwtUtil;
+        private final PrincipalResolver principalResolver;
 
         /**
          * ✅ Enterprise-grade rule:
@@ -57,14 +59,15 @@ public class JwtAuthFilter extends OncePerRequestFilter {
                 final String token = authHeader.substring(7);
 
                 try {
-                        // ✅ Validate first (do not extract claims before validation)
-                        if (!jwtUtil.validateToken(token)) {
+                        // ✅ One verification (or cache hit) gives every claim we need
+                        final JwtUtil.VerifiedToken verified = jwtUtil.verify(token);
+                        if (verified == null) {
                                 filterChain.doFilter(request, response);
                                 return;
                         }
 
-                        final String identifier = jwtUtil.extractIdentifier(token);
-                        final String role = jwtUtil.extractRole(token);
+                        final String identifier = verified.identifier();
+                        final String role = verified.role();
 
                         if (identifier != null
                                         && role != null
@@ -72,8 +75,12 @@ public class JwtAuthFilter extends OncePerRequestFilter {
 
                                 String normalizedRole = role.startsWith("ROLE_") ? role.substring(5) : role;
 
+                                // ✅ wholesaler / retailer id resolved once here, read by services later
+                                AuthenticatedUser principal = principalResolver.authenticate(identifier,
+                                                normalizedRole);
+
                                 UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
-                                                identifier,
+                                                principal,
                                                 null,
                                                 List.of(new SimpleGrantedAuthority("ROLE_" + normalizedRole)));
 
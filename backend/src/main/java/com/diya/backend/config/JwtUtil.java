@@ -1,13 +1,22 @@
 package com.diya.backend.config;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
 import java.util.Date;
-import java.util.Map;
 
 @Component
 public class JwtUtil {
@@ -16,48 +25,144 @@ public class JwtUtil {
     private final Key key = Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8));
     private final long EXP_MS = 1000L * 60 * 60 * 10; // 10 hours
 
+    // ✅ Parsers are immutable and thread-safe: build once, reuse for every request
+    private final JwtParser parser = Jwts.parserBuilder()
+            .setSigningKey(key)
+            .build();
+
+    /**
+     * Recently verified tokens, keyed by SHA-256 of the token.
+     * Each entry is evicted at the token's own expiry, so a cached token can
+     * never outlive its "exp" claim. Null when caching is disabled (size 0).
+     */
+    private final Cache<String, VerifiedToken> verified;
+
+    /**
+     * Everything the app reads from a token, taken from ONE signature check.
+     */
+    public record VerifiedToken(String identifier, String authType, String role, Instant expiresAt) {
+    }
+
+    @Autowired
+    public JwtUtil(@Value("${diya.jwt.cache-size:10000}") long cacheSize) {
+        this.verified = cacheSize <= 0 ? null : Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfter(new Expiry<String, VerifiedToken>() {
+                    @Override
+                    public long expireAfterCreate(String hash, VerifiedToken token, long currentTime) {
+                        return Math.max(0, Duration.between(Instant.now(), token.expiresAt()).toNanos());
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String hash, VerifiedToken token, long currentTime,
+                            long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String hash, VerifiedToken token, long currentTime,
+                            long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
     // Generate token WITH identifier + authType
     public String generateToken(String identifier, String authType, String role) {
+        return generateToken(identifier, authType, role, EXP_MS);
+    }
+
+    String generateToken(String identifier, String authType, String role, long ttlMs) {
 
         return Jwts.builder()
                 .setSubject(identifier) // email OR phone
                 .claim("authType", authType) // EMAIL or PHONE
                 .claim("role", role) // WHOLESALER or RETAILER
                 .setIssuedAt(new Date())
-                .setExpiration(new Date(System.currentTimeMillis() + EXP_MS))
+                .setExpiration(new Date(System.currentTimeMillis() + ttlMs))
                 .signWith(key, SignatureAlgorithm.HS256)
                 .compact();
     }
 
+    /**
+     * Verifies the signature and expiry once and returns all claims.
+     * Returns null for a tampered, malformed or expired token.
+     */
+    public VerifiedToken verify(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        if (verified == null) {
+            return parse(token);
+        }
+
+        String hash = sha256(token);
+        VerifiedToken cached = verified.getIfPresent(hash);
+        if (cached != null) {
+            // eviction is lazy; never hand out an expired token
+            if (cached.expiresAt().isAfter(Instant.now())) {
+                return cached;
+            }
+            verified.invalidate(hash);
+            return null;
+        }
+
+        VerifiedToken fresh = parse(token);
+        if (fresh != null) {
+            verified.put(hash, fresh);
+        }
+        return fresh;
+    }
+
     // Extract identifier (email OR phone)
     public String extractIdentifier(String token) {
-        return getAllClaims(token).getSubject();
+        return required(token).identifier();
     }
 
     // Extract authType
     public String extractAuthType(String token) {
-        return (String) getAllClaims(token).get("authType");
+        return required(token).authType();
     }
 
     // Extract role
     public String extractRole(String token) {
-        return (String) getAllClaims(token).get("role");
+        return required(token).role();
     }
 
     public boolean validateToken(String token) {
+        return verify(token) != null;
+    }
+
+    private VerifiedToken required(String token) {
+        VerifiedToken verifiedToken = verify(token);
+        if (verifiedToken == null) {
+            throw new RuntimeException("Invalid token");
+        }
+        return verifiedToken;
+    }
+
+    private VerifiedToken parse(String token) {
         try {
-            getAllClaims(token);
-            return true;
-        } catch (Exception e) {
-            return false;
+            Claims claims = parser.parseClaimsJws(token).getBody();
+            Date exp = claims.getExpiration();
+            return new VerifiedToken(
+                    claims.getSubject(),
+                    claims.get("authType", String.class),
+                    claims.get("role", String.class),
+                    exp == null ? Instant.now().plusMillis(EXP_MS) : exp.toInstant());
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
         }
     }
 
-    private Claims getAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    private static String sha256(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
     }
 }
@@ -0,0 +1,12 @@
+package com.diya.backend.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Background jobs (ledger reconciliation, ...).
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
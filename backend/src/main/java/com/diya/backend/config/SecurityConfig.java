@@ -1,5 +1,6 @@
 package com.diya.backend.config;
 
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -40,6 +41,9 @@ public class SecurityConfig {
                                     /* STATIC */
                                     .requestMatchers("/uploads/**", "/static/**", "/public/**").permitAll()
 
+                                    /* ASYNC (the request was authorized when it started: event streams, exports) */
+                                    .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+
                                     /* OPTIONS */
                                     .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll()
 
@@ -50,7 +54,8 @@ public class SecurityConfig {
                                                 "/api/wholesaler/products/**",
                                                 "/api/wholesaler/orders/**",
                                                 "/api/wholesaler/connections/**",
-                                                "/api/wholesaler/dashboard/**")
+                                                "/api/wholesaler/dashboard/**",
+                                                "/api/wholesaler/events/**")
                                     .hasRole("WHOLESALER")
 
                                     /* RETAILER */
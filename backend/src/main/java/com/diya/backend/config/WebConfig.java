@@ -0,0 +1,35 @@
+package com.diya.backend.config;
+
+import jakarta.servlet.MultipartConfigElement;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.MultipartConfigFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    // streamed exports (StreamingResponseBody) run as async requests; the container default (30s) is too short
+    @Value("${diya.export.timeout-ms:600000}")
+    private long asyncTimeoutMs;
+
+    // bulk product import uploads (5-20k rows); replaces the 1MB container default
+    @Value("${diya.import.max-file-size:50MB}")
+    private DataSize importMaxFileSize;
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setDefaultTimeout(asyncTimeoutMs);
+    }
+
+    @Bean
+    public MultipartConfigElement multipartConfigElement() {
+        MultipartConfigFactory factory = new MultipartConfigFactory();
+        factory.setMaxFileSize(importMaxFileSize);
+        factory.setMaxRequestSize(importMaxFileSize);
+        return factory.createMultipartConfig();
+    }
+}
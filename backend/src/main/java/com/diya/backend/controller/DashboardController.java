@@ -41,11 +41,16 @@ public class DashboardController {
                 getAuthType(auth));
     }
 
+    // newest first; pass the last item's cursor as ?before= for the next page
     @GetMapping("/activity")
-    public List<ActivityItemDTO> getActivity() {
+    public List<ActivityItemDTO> getActivity(
+            @RequestParam(required = false) String before,
+            @RequestParam(defaultValue = "20") int limit) {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         return dashboardService.getActivityFeed(
                 getIdentifier(auth),
-                getAuthType(auth));
+                getAuthType(auth),
+                before,
+                limit);
     }
 }
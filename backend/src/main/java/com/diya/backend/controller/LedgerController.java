@@ -1,19 +1,24 @@
 package com.diya.backend.controller;
 
+import com.diya.backend.dto.ledger.LedgerPageDTO;
 import com.diya.backend.entity.LedgerEntry;
 import com.diya.backend.entity.Retailer;
 import com.diya.backend.entity.Wholesaler;
 import com.diya.backend.repository.RetailerRepository;
-import com.diya.backend.repository.WholesalerRepository;
+import com.diya.backend.service.PrincipalResolver;
+import com.diya.backend.service.ExportService;
 import com.diya.backend.service.LedgerService;
+import com.diya.backend.util.ExportWriter;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDate;
-import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
@@ -23,63 +28,66 @@ import java.util.UUID;
 public class LedgerController {
 
     private final LedgerService ledgerService;
-    private final WholesalerRepository wholesalerRepository;
+    private final ExportService exportService;
     private final RetailerRepository retailerRepository;
+    private final PrincipalResolver principalResolver;
 
     // ==========================================================
-    // WHOLESALER: ledger view (all entries)
+    // WHOLESALER: ledger view (cursor paged, latest first)
     // ==========================================================
     @GetMapping("/wholesaler")
-    public ResponseEntity<List<LedgerEntry>> getWholesalerLedger(
+    public ResponseEntity<LedgerPageDTO> getWholesalerLedger(
             @RequestParam(required = false) String fromDate,
             @RequestParam(required = false) String toDate,
-            @RequestParam(required = false) String type) {
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size) {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         String identifier = auth.getName();
 
         LocalDate from = fromDate != null ? LocalDate.parse(fromDate) : null;
         LocalDate to = toDate != null ? LocalDate.parse(toDate) : null;
 
-        return ResponseEntity.ok(ledgerService.getWholesalerLedger(identifier, from, to, type));
+        return ResponseEntity.ok(ledgerService.getWholesalerLedger(identifier, from, to, type, cursor, size));
     }
 
     // ==========================================================
-    // RETAILER: ledger view (all entries)
+    // RETAILER: ledger view (cursor paged, latest first)
     // ==========================================================
     @GetMapping("/retailer")
-    public ResponseEntity<List<LedgerEntry>> getRetailerLedger(
+    public ResponseEntity<LedgerPageDTO> getRetailerLedger(
             @RequestParam(required = false) String fromDate,
             @RequestParam(required = false) String toDate,
-            @RequestParam(required = false) String type) {
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size) {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         String identifier = auth.getName();
 
         LocalDate from = fromDate != null ? LocalDate.parse(fromDate) : null;
         LocalDate to = toDate != null ? LocalDate.parse(toDate) : null;
 
-        return ResponseEntity.ok(ledgerService.getRetailerLedger(identifier, from, to, type));
+        return ResponseEntity.ok(ledgerService.getRetailerLedger(identifier, from, to, type, cursor, size));
     }
 
     // ==========================================================
     // WHOLESALER: Retailer statement (kata book)
     // ==========================================================
     @GetMapping("/wholesaler/retailer/{retailerId}/statement")
-    public ResponseEntity<List<LedgerEntry>> getRetailerStatementForWholesaler(
-            @PathVariable UUID retailerId) {
+    public ResponseEntity<LedgerPageDTO> getRetailerStatementForWholesaler(
+            @PathVariable UUID retailerId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size) {
         String identifier = SecurityContextHolder.getContext().getAuthentication().getName();
 
-        Wholesaler wholesaler = identifier.contains("@")
-                ? wholesalerRepository.findByUserEmail(identifier)
-                        .orElseThrow(() -> new RuntimeException("Wholesaler not found"))
-                : wholesalerRepository.findByUserPhone(identifier)
-                        .orElseThrow(() -> new RuntimeException("Wholesaler not found"));
+        Wholesaler wholesaler = principalResolver.wholesaler(identifier);
 
         Retailer retailer = retailerRepository.findById(retailerId)
                 .orElseThrow(() -> new RuntimeException("Retailer not found"));
 
-        // This will show statement latest first (use repository method)
+        // latest first; pass nextCursor back to continue
         return ResponseEntity.ok(
-                ledgerService.getStatementForPair(wholesaler, retailer));
+                ledgerService.getStatementForPair(wholesaler, retailer, cursor, size));
     }
 
     // ==========================================================
@@ -90,11 +98,7 @@ public class LedgerController {
 
         String identifier = SecurityContextHolder.getContext().getAuthentication().getName();
 
-        Wholesaler wholesaler = identifier.contains("@")
-                ? wholesalerRepository.findByUserEmail(identifier)
-                        .orElseThrow(() -> new RuntimeException("Wholesaler not found"))
-                : wholesalerRepository.findByUserPhone(identifier)
-                        .orElseThrow(() -> new RuntimeException("Wholesaler not found"));
+        Wholesaler wholesaler = principalResolver.wholesaler(identifier);
 
         Retailer retailer = retailerRepository.findById(retailerId)
                 .orElseThrow(() -> new RuntimeException("Retailer not found"));
@@ -106,4 +110,47 @@ public class LedgerController {
                         "retailerId", retailerId.toString(),
                         "outstanding", outstanding));
     }
+
+    // ==========================================================
+    // WHOLESALER: full ledger / one retailer's statement as CSV or NDJSON
+    // (streamed from the DB, oldest first)
+    // ==========================================================
+    @GetMapping("/wholesaler/export")
+    public ResponseEntity<StreamingResponseBody> exportWholesalerLedger(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(required = false) UUID retailerId,
+            @RequestParam(required = false) String fromDate,
+            @RequestParam(required = false) String toDate,
+            @RequestParam(required = false) String type) {
+        String identifier = SecurityContextHolder.getContext().getAuthentication().getName();
+
+        Wholesaler wholesaler = principalResolver.wholesaler(identifier);
+
+        ExportWriter.Format exportFormat = ExportWriter.Format.parse(format);
+        LedgerEntry.EntryType entryType = parseEntryType(type);
+        LocalDate from = fromDate != null ? LocalDate.parse(fromDate) : null;
+        LocalDate to = toDate != null ? LocalDate.parse(toDate) : null;
+        UUID wholesalerId = wholesaler.getId();
+
+        StreamingResponseBody body = out -> exportService.writeWholesalerLedger(
+                wholesalerId, retailerId, from, to, entryType, exportFormat, out);
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"ledger-" + LocalDate.now() + "." + exportFormat.getExtension() + "\"")
+                .body(body);
+    }
+
+    // blank = all types; validated here, before the response starts streaming
+    private static LedgerEntry.EntryType parseEntryType(String type) {
+        if (type == null || type.isBlank()) {
+            return null;
+        }
+        try {
+            return LedgerEntry.EntryType.valueOf(type.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Invalid ledger entry type: " + type);
+        }
+    }
 }
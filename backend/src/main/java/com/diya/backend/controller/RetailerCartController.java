@@ -2,12 +2,10 @@ package com.diya.backend.controller;
 
 import com.diya.backend.dto.cart.AddToCartRequest;
 import com.diya.backend.dto.cart.CartDTO;
+import com.diya.backend.dto.cart.CartLinesRequest;
 import com.diya.backend.dto.cart.UpdateCartRequest;
-import com.diya.backend.entity.Product;
-import com.diya.backend.entity.Retailer;
-import com.diya.backend.repository.ProductRepository;
-import com.diya.backend.repository.RetailerRepository;
 import com.diya.backend.service.CartService;
+import com.diya.backend.service.PrincipalResolver;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -21,8 +19,7 @@ import java.util.UUID;
 public class RetailerCartController {
 
     private final CartService cartService;
-    private final RetailerRepository retailerRepository;
-    private final ProductRepository productRepository;
+    private final PrincipalResolver principalResolver;
 
     /*
      * --------------------------------------------------------
@@ -32,20 +29,13 @@ public class RetailerCartController {
     @PostMapping("/add")
     public CartDTO addToCart(@RequestBody AddToCartRequest req) {
 
-        Retailer retailer = getAuthenticatedRetailer();
+        UUID retailerId = getAuthenticatedRetailerId();
 
-        Product product = productRepository.findById(req.getProductId())
-                .orElseThrow(() -> new RuntimeException("Product not found"));
-
-        UUID wholesalerId = product.getWholesaler().getId();
-
-        cartService.addItem(
-                retailer.getId(),
-                wholesalerId,
+        // the product row tells which wholesaler's cart this goes to
+        return cartService.addItem(
+                retailerId,
                 req.getProductId(),
                 req.getQuantity());
-
-        return cartService.getCart(retailer.getId(), wholesalerId);
     }
 
     /*
@@ -56,20 +46,12 @@ public class RetailerCartController {
     @PutMapping("/update")
     public CartDTO updateCart(@RequestBody UpdateCartRequest req) {
 
-        Retailer retailer = getAuthenticatedRetailer();
-
-        Product product = productRepository.findById(req.getProductId())
-                .orElseThrow(() -> new RuntimeException("Product not found"));
+        UUID retailerId = getAuthenticatedRetailerId();
 
-        UUID wholesalerId = product.getWholesaler().getId();
-
-        cartService.updateItem(
-                retailer.getId(),
-                wholesalerId,
+        return cartService.updateItem(
+                retailerId,
                 req.getProductId(),
                 req.getQuantity());
-
-        return cartService.getCart(retailer.getId(), wholesalerId);
     }
 
     /*
@@ -80,19 +62,24 @@ public class RetailerCartController {
     @DeleteMapping("/remove/{productId}")
     public CartDTO removeFromCart(@PathVariable UUID productId) {
 
-        Retailer retailer = getAuthenticatedRetailer();
+        UUID retailerId = getAuthenticatedRetailerId();
 
-        Product product = productRepository.findById(productId)
-                .orElseThrow(() -> new RuntimeException("Product not found"));
+        return cartService.removeItem(
+                retailerId,
+                productId);
+    }
 
-        UUID wholesalerId = product.getWholesaler().getId();
+    /*
+     * --------------------------------------------------------
+     * SET SEVERAL LINES AT ONCE (quantity 0 removes a line)
+     * --------------------------------------------------------
+     */
+    @PutMapping("/lines")
+    public CartDTO setCartLines(@RequestBody CartLinesRequest req) {
 
-        cartService.removeItem(
-                retailer.getId(),
-                wholesalerId,
-                productId);
+        UUID retailerId = getAuthenticatedRetailerId();
 
-        return cartService.getCart(retailer.getId(), wholesalerId);
+        return cartService.setLines(retailerId, req);
     }
 
     /*
@@ -107,9 +94,9 @@ public class RetailerCartController {
             throw new RuntimeException("Wholesaler ID is required");
         }
 
-        Retailer retailer = getAuthenticatedRetailer();
+        UUID retailerId = getAuthenticatedRetailerId();
 
-        return cartService.getCart(retailer.getId(), wholesalerId);
+        return cartService.getCart(retailerId, wholesalerId);
     }
 
     /*
@@ -117,12 +104,11 @@ public class RetailerCartController {
      * AUTH HELPER
      * --------------------------------------------------------
      */
-    private Retailer getAuthenticatedRetailer() {
+    private UUID getAuthenticatedRetailerId() {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         String identifier = auth.getName(); // email or phone
 
-        return retailerRepository.findByUserEmail(identifier)
-                .or(() -> retailerRepository.findByUserPhone(identifier))
-                .orElseThrow(() -> new RuntimeException("Retailer not found for: " + identifier));
+        // resolved once by JwtAuthFilter, no users join here
+        return principalResolver.retailerId(identifier);
     }
 }
@@ -0,0 +1,41 @@
+package com.diya.backend.controller;
+
+import com.diya.backend.service.PrincipalResolver;
+import com.diya.backend.service.WholesalerEventStream;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/wholesaler/events")
+@RequiredArgsConstructor
+public class WholesalerEventsController {
+
+    private final WholesalerEventStream eventStream;
+    private final PrincipalResolver principalResolver;
+
+    // ✅ live dashboard feed: order-placed / order-status / payment-pending (Server-Sent Events)
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter events(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        UUID wholesalerId = principalResolver.wholesalerId(auth.getName());
+
+        return eventStream.subscribe(wholesalerId, parseEventId(lastEventId));
+    }
+
+    private static Long parseEventId(String lastEventId) {
+        if (lastEventId == null || lastEventId.isBlank()) {
+            return null;
+        }
+        try {
+            return Long.parseLong(lastEventId.trim());
+        } catch (NumberFormatException e) {
+            throw new RuntimeException("Invalid Last-Event-ID");
+        }
+    }
+}
@@ -1,15 +1,25 @@
 package com.diya.backend.controller;
 
+import com.diya.backend.dto.order.OrderBulkStatusRequest;
+import com.diya.backend.dto.order.OrderBulkStatusResultDTO;
 import com.diya.backend.dto.order.OrderListItemDTO;
 import com.diya.backend.entity.Order;
+import com.diya.backend.entity.Wholesaler;
+import com.diya.backend.service.PrincipalResolver;
+import com.diya.backend.service.ExportService;
 import com.diya.backend.service.OrderService;
+import com.diya.backend.util.ExportWriter;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.List;
+import java.time.LocalDate;
 import java.util.UUID;
 
 @RestController
@@ -18,23 +28,52 @@ import java.util.UUID;
 public class WholesalerOrderController {
 
     private final OrderService orderService;
+    private final ExportService exportService;
+    private final PrincipalResolver principalResolver;
 
-    // ✅ Fetch wholesaler’s orders (incoming + filters)
+    // ✅ Fetch wholesaler’s orders (incoming + filters), paged in the DB
     @GetMapping
-    public ResponseEntity<List<OrderListItemDTO>> getOrdersForWholesaler(
+    public ResponseEntity<Page<OrderListItemDTO>> getOrdersForWholesaler(
             @RequestParam(required = false) String status,
             @RequestParam(required = false) String search,
             @RequestParam(required = false) String dateRange,
-            @RequestParam(required = false) Integer page,
-            @RequestParam(required = false) Integer size) {
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         String identifier = auth.getName();
         String authType = identifier.contains("@") ? "EMAIL" : "PHONE";
 
-        List<OrderListItemDTO> list = orderService.getOrdersForWholesaler(identifier, authType, status, search,
+        Page<OrderListItemDTO> result = orderService.getOrdersForWholesaler(identifier, authType, status, search,
                 dateRange, page, size);
 
-        return ResponseEntity.ok(list);
+        return ResponseEntity.ok(result);
+    }
+
+    // ✅ Order history as CSV / NDJSON, streamed from the DB (oldest first)
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportOrders(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String fromDate,
+            @RequestParam(required = false) String toDate) {
+        String identifier = SecurityContextHolder.getContext().getAuthentication().getName();
+
+        Wholesaler wholesaler = principalResolver.wholesaler(identifier);
+
+        ExportWriter.Format exportFormat = ExportWriter.Format.parse(format);
+        Order.Status orderStatus = parseStatus(status);
+        LocalDate from = fromDate != null ? LocalDate.parse(fromDate) : null;
+        LocalDate to = toDate != null ? LocalDate.parse(toDate) : null;
+        UUID wholesalerId = wholesaler.getId();
+
+        StreamingResponseBody body = out -> exportService.writeWholesalerOrders(
+                wholesalerId, orderStatus, from, to, exportFormat, out);
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"orders-" + LocalDate.now() + "." + exportFormat.getExtension() + "\"")
+                .body(body);
     }
 
     // ==========================================================
@@ -83,6 +122,13 @@ public class WholesalerOrderController {
         return ResponseEntity.ok(updated);
     }
 
+    // ✅ Same action for many orders at once (e.g. accept the morning's orders); per-order results
+    @PostMapping("/bulk-status")
+    public ResponseEntity<OrderBulkStatusResultDTO> bulkUpdateStatus(@RequestBody OrderBulkStatusRequest req) {
+        String identifier = SecurityContextHolder.getContext().getAuthentication().getName();
+        return ResponseEntity.ok(orderService.wholesalerBulkUpdateOrderStatus(identifier, req));
+    }
+
     // Optional: wholesaler cancellation policy
     @PostMapping("/{orderId}/cancel")
     public ResponseEntity<Order> cancelOrder(@PathVariable UUID orderId) {
@@ -90,4 +136,16 @@ public class WholesalerOrderController {
         Order updated = orderService.wholesalerUpdateOrderStatus(identifier, orderId, "CANCELLED");
         return ResponseEntity.ok(updated);
     }
+
+    // "all" / blank = every status; validated here, before the response starts streaming
+    private static Order.Status parseStatus(String status) {
+        if (status == null || status.isBlank() || "all".equalsIgnoreCase(status)) {
+            return null;
+        }
+        try {
+            return Order.Status.valueOf(status.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Invalid order status: " + status);
+        }
+    }
 }
@@ -3,7 +3,7 @@ package com.diya.backend.controller;
 import com.diya.backend.entity.Payment;
 import com.diya.backend.entity.Wholesaler;
 import com.diya.backend.repository.PaymentRepository;
-import com.diya.backend.repository.WholesalerRepository;
+import com.diya.backend.service.PrincipalResolver;
 import com.diya.backend.service.PaymentService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
@@ -22,7 +22,7 @@ public class WholesalerPaymentController {
 
     private final PaymentService paymentService;
     private final PaymentRepository paymentRepository;
-    private final WholesalerRepository wholesalerRepository;
+    private final PrincipalResolver principalResolver;
 
     // ✅ List all payments of wholesaler (dashboard)
     @GetMapping
@@ -30,11 +30,7 @@ public class WholesalerPaymentController {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         String identifier = auth.getName();
 
-        Wholesaler wholesaler = identifier.contains("@")
-                ? wholesalerRepository.findByUserEmail(identifier)
-                        .orElseThrow(() -> new RuntimeException("Wholesaler not found"))
-                : wholesalerRepository.findByUserPhone(identifier)
-                        .orElseThrow(() -> new RuntimeException("Wholesaler not found"));
+        Wholesaler wholesaler = principalResolver.wholesaler(identifier);
 
         List<Payment> payments = paymentRepository.findByWholesaler(wholesaler);
         return ResponseEntity.ok(payments);
@@ -46,11 +42,7 @@ public class WholesalerPaymentController {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         String identifier = auth.getName();
 
-        Wholesaler wholesaler = identifier.contains("@")
-                ? wholesalerRepository.findByUserEmail(identifier)
-                        .orElseThrow(() -> new RuntimeException("Wholesaler not found"))
-                : wholesalerRepository.findByUserPhone(identifier)
-                        .orElseThrow(() -> new RuntimeException("Wholesaler not found"));
+        Wholesaler wholesaler = principalResolver.wholesaler(identifier);
 
         List<Payment> payments = paymentRepository.findByWholesalerAndStatus(
                 wholesaler,
@@ -1,11 +1,14 @@
 package com.diya.backend.controller;
 
 import com.diya.backend.dto.product.*;
+import com.diya.backend.service.ProductImportService;
 import com.diya.backend.service.ProductService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 import org.springframework.data.domain.Page;
 
 import java.util.UUID;
@@ -16,6 +19,7 @@ import java.util.UUID;
 public class WholesalerProductController {
 
     private final ProductService productService;
+    private final ProductImportService productImportService;
 
     private String getIdentifier(Authentication auth) { return auth.getName(); }
     private String getAuthType(Authentication auth) { return auth.getName().contains("@") ? "EMAIL" : "PHONE"; }
@@ -49,4 +53,24 @@ public class WholesalerProductController {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         return productService.updateProduct(getIdentifier(auth), getAuthType(auth), id, req);
     }
+
+    // ✅ ERP sync: stock / price / mrp by SKU, thousands per call
+    @PostMapping("/bulk-update")
+    public ProductBulkUpdateResultDTO bulkUpdate(@RequestBody ProductBulkUpdateRequest req) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        return productService.bulkUpdateStockAndPrice(getIdentifier(auth), getAuthType(auth), req);
+    }
+
+    // ✅ bulk import (CSV / XLSX): returns a job to poll
+    @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ProductImportJobDTO importProducts(@RequestParam("file") MultipartFile file) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        return productImportService.start(getIdentifier(auth), file);
+    }
+
+    @GetMapping("/import/{jobId}")
+    public ProductImportJobDTO importStatus(@PathVariable UUID jobId) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        return productImportService.getJob(getIdentifier(auth), jobId);
+    }
 }
@@ -1,14 +1,18 @@
 package com.diya.backend.controller;
 
 import com.diya.backend.dto.connection.VisibilityModeUpdateDTO;
+import com.diya.backend.dto.order.ReservationTtlUpdateDTO;
 import com.diya.backend.entity.Wholesaler;
 import com.diya.backend.repository.WholesalerRepository;
+import com.diya.backend.service.PrincipalResolver;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.HashMap;
 import java.util.Map;
 
 @RestController
@@ -16,17 +20,16 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class WholesalerSettingsController {
 
+    private static final int MAX_RESERVATION_TTL_HOURS = 24 * 30;
+
     private final WholesalerRepository wholesalerRepository;
+    private final PrincipalResolver principalResolver;
+
+    @Value("${diya.reservations.ttl-hours:48}")
+    private int defaultReservationTtlHours;
 
     private Wholesaler resolveWholesaler(String identifier) {
-        // your system supports both phone and email
-        if (identifier.contains("@")) {
-            return wholesalerRepository.findByUserEmail(identifier)
-                    .orElseThrow(() -> new RuntimeException("Wholesaler not found"));
-        } else {
-            return wholesalerRepository.findByUserPhone(identifier)
-                    .orElseThrow(() -> new RuntimeException("Wholesaler not found"));
-        }
+        return principalResolver.wholesaler(identifier);
     }
 
     @GetMapping("/visibility")
@@ -54,4 +57,36 @@ public class WholesalerSettingsController {
         return ResponseEntity.ok(Map.of(
                 "visibilityMode", w.getVisibilityMode().name()));
     }
+
+    // ✅ how long unanswered (PLACED) orders keep stock reserved before they expire
+    @GetMapping("/reservation-ttl")
+    public ResponseEntity<Map<String, Object>> getReservationTtl() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        Wholesaler w = resolveWholesaler(auth.getName());
+
+        return ResponseEntity.ok(reservationTtl(w));
+    }
+
+    @PutMapping("/reservation-ttl")
+    public ResponseEntity<Map<String, Object>> updateReservationTtl(@RequestBody ReservationTtlUpdateDTO req) {
+        Integer hours = req.getReservationTtlHours();
+        if (hours != null && (hours < 1 || hours > MAX_RESERVATION_TTL_HOURS)) {
+            throw new RuntimeException("reservationTtlHours must be between 1 and " + MAX_RESERVATION_TTL_HOURS);
+        }
+
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        Wholesaler w = resolveWholesaler(auth.getName());
+
+        w.setReservationTtlHours(hours);
+        wholesalerRepository.save(w);
+
+        return ResponseEntity.ok(reservationTtl(w));
+    }
+
+    private Map<String, Object> reservationTtl(Wholesaler w) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("reservationTtlHours", w.getReservationTtlHours());
+        body.put("defaultTtlHours", defaultReservationTtlHours);
+        return body;
+    }
 }
@@ -0,0 +1,30 @@
+package com.diya.backend.dto.cart;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Several cart lines of one wholesaler set in one call. quantity is the new
+ * quantity of the line (0 removes it); with replace=true, lines that are not
+ * listed are removed as well.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CartLinesRequest {
+    private UUID wholesalerId;
+    private List<Line> lines;
+    private boolean replace;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Line {
+        private UUID productId;
+        private Integer quantity;
+    }
+}
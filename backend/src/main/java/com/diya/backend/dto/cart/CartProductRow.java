@@ -0,0 +1,18 @@
+package com.diya.backend.dto.cart;
+
+import java.util.UUID;
+
+/**
+ * The product fields a cart line shows, read with one constructor-expression
+ * query (no wholesaler / category loads) on every cart edit.
+ */
+public record CartProductRow(
+        UUID id,
+        UUID wholesalerId,
+        String name,
+        String sku,
+        String imageUrl,
+        Double price,
+        Double mrp,
+        Integer stock) {
+}
@@ -0,0 +1,11 @@
+package com.diya.backend.dto.category;
+
+import java.util.UUID;
+
+/**
+ * Category id + name for the category tree (no wholesaler/user loads).
+ */
+public record CategoryRow(
+        UUID id,
+        String name) {
+}
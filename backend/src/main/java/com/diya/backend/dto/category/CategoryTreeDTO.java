@@ -12,6 +12,9 @@ public class CategoryTreeDTO {
     private UUID id;
     private String name;
 
+    // products in this category, at any depth
+    private long productCount;
+
     @Builder.Default
     private List<SubNode> subcategories = new ArrayList<>();
 
@@ -23,5 +26,11 @@ public class CategoryTreeDTO {
     public static class SubNode {
         private UUID id;
         private String name;
+
+        // products in this subcategory and everything below it
+        private long productCount;
+
+        @Builder.Default
+        private List<SubNode> children = new ArrayList<>();
     }
 }
@@ -0,0 +1,13 @@
+package com.diya.backend.dto.category;
+
+import java.util.UUID;
+
+/**
+ * Number of products placed directly under (category, subcategory);
+ * subcategoryId is null for products on the category itself.
+ */
+public record ProductCountRow(
+        UUID categoryId,
+        UUID subcategoryId,
+        Long products) {
+}
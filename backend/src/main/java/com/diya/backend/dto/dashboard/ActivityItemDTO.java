@@ -2,10 +2,16 @@ package com.diya.backend.dto.dashboard;
 
 import lombok.*;
 
+import java.time.LocalDateTime;
+import java.util.UUID;
+
 @Getter @Setter @AllArgsConstructor @NoArgsConstructor @Builder
 public class ActivityItemDTO {
+    private UUID id;          // order / payment id
     private String type;      // ORDER, PAYMENT, OVERDUE, RETAILER
     private String title;
     private String subtitle;
     private String timeAgo;
+    private LocalDateTime occurredAt;
+    private String cursor;    // pass as ?before= to get the items after this one
 }
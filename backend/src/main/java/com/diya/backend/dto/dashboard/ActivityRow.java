@@ -0,0 +1,16 @@
+package com.diya.backend.dto.dashboard;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * One order or payment of the activity feed with its retailer's name, read
+ * with a constructor-expression query (no retailer / user entity loads).
+ */
+public record ActivityRow(
+        UUID id,
+        String orderNumber, // null for a payment not tied to an order
+        String retailerName,
+        Double amount,
+        LocalDateTime at) {
+}
@@ -0,0 +1,9 @@
+package com.diya.backend.dto.dashboard;
+
+/**
+ * Order counts for the dashboard KPI tiles, read in one aggregate query.
+ */
+public record OrderKpiCounts(
+        Long placedToday,
+        Long pending) {
+}
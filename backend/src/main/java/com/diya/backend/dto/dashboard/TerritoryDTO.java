@@ -2,6 +2,8 @@ package com.diya.backend.dto.dashboard;
 
 import lombok.*;
 
+import java.util.List;
+
 @Getter @Setter @AllArgsConstructor @NoArgsConstructor @Builder
 public class TerritoryDTO {
     private AreaDTO topArea;
@@ -9,4 +11,7 @@ public class TerritoryDTO {
 
     private int activeRetailers;
     private int totalRetailers;
+
+    private List<AreaDTO> topAreas;   // by revenue, highest first
+    private List<AreaDTO> riskAreas;  // by outstanding, highest first
 }
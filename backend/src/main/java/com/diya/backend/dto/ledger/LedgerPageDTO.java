@@ -0,0 +1,16 @@
+package com.diya.backend.dto.ledger;
+
+import com.diya.backend.entity.LedgerEntry;
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class LedgerPageDTO {
+    private List<LedgerEntry> entries; // latest first
+    private String nextCursor;         // null = no more entries
+}
@@ -0,0 +1,16 @@
+package com.diya.backend.dto.order;
+
+import lombok.*;
+
+import java.util.List;
+import java.util.UUID;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OrderBulkStatusRequest {
+    private List<UUID> orderIds;
+    private String status;     // target Order.Status, same rules as the per-order action endpoints
+}
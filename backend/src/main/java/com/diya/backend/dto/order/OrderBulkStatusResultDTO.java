@@ -0,0 +1,30 @@
+package com.diya.backend.dto.order;
+
+import lombok.*;
+
+import java.util.List;
+import java.util.UUID;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OrderBulkStatusResultDTO {
+    private String status;          // target status
+    private int succeeded;
+    private int failed;
+    private List<Outcome> results;  // one per requested order, in request order
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Outcome {
+        private UUID orderId;
+        private String orderNumber; // null when the order was not found
+        private boolean success;
+        private String message;     // why it failed
+    }
+}
@@ -0,0 +1,22 @@
+package com.diya.backend.dto.order;
+
+import com.diya.backend.entity.Order;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Flat row for order list screens, filled by a single constructor-expression
+ * query (see OrderRepositoryImpl) so no lazy retailer/user/items loads happen.
+ */
+public record OrderListRow(
+        UUID id,
+        String orderNumber,
+        String retailerName,
+        String city,
+        String state,
+        Double totalAmount,
+        LocalDateTime placedAt,
+        Order.Status status,
+        Long itemCount) {
+}
@@ -0,0 +1,10 @@
+package com.diya.backend.dto.order;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class ReservationTtlUpdateDTO {
+    private Integer reservationTtlHours;   // null = platform default
+}
@@ -0,0 +1,24 @@
+package com.diya.backend.dto.product;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter @Setter
+public class ProductBulkUpdateRequest {
+    private List<Item> items;
+
+    // null fields are left unchanged; stock is the new absolute on-hand count
+    @Getter @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Item {
+        private String sku;
+        private Integer stock;
+        private Double price;
+        private Double mrp;
+    }
+}
@@ -0,0 +1,30 @@
+package com.diya.backend.dto.product;
+
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProductBulkUpdateResultDTO {
+    private int received;           // items in the request
+    private int updated;            // products changed
+    private int notFound;           // SKUs this wholesaler does not have
+    private int belowReserved;      // stock lower than the units reserved by placed orders (row unchanged)
+    private int invalid;            // rejected before reaching the database
+    private List<SkuError> errors;  // first errors only (see errorsTruncated)
+    private boolean errorsTruncated;
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class SkuError {
+        private int index;          // position in items[]
+        private String sku;
+        private String message;
+    }
+}
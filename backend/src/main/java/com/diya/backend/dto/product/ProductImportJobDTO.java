@@ -0,0 +1,36 @@
+package com.diya.backend.dto.product;
+
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProductImportJobDTO {
+    private UUID jobId;
+    private String fileName;
+    private String status;          // QUEUED, RUNNING, COMPLETED, FAILED
+    private Integer percent;        // null when the file size / row count is unknown
+    private long rowsRead;          // data rows (header excluded)
+    private long imported;
+    private long failed;
+    private List<RowError> errors;  // first errors only (see errorsTruncated)
+    private boolean errorsTruncated;
+    private String message;         // why the whole job failed
+    private LocalDateTime createdAt;
+    private LocalDateTime finishedAt;
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowError {
+        private long row;           // line / sheet row number, header = 1
+        private String message;
+    }
+}
@@ -6,7 +6,11 @@ import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Entity
-@Table(name = "connections", uniqueConstraints = @UniqueConstraint(columnNames = { "wholesaler_id", "retailer_id" }))
+@Table(name = "connections", uniqueConstraints = @UniqueConstraint(columnNames = { "wholesaler_id", "retailer_id" }), indexes = {
+        // ConnectionStatusCache.sync() polls for recently changed pairs
+        @Index(name = "idx_connection_requested_at", columnList = "requestedAt"),
+        @Index(name = "idx_connection_responded_at", columnList = "respondedAt")
+})
 @Getter
 @Setter
 @NoArgsConstructor
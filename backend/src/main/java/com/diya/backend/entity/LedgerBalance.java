@@ -0,0 +1,44 @@
+package com.diya.backend.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Current kata-book balance for one wholesaler–retailer pair.
+ * balance = SUM(DEBIT) - SUM(CREDIT), i.e. what the retailer still owes.
+ *
+ * Updated by LedgerService.post() in the same transaction as the entry;
+ * LedgerReconciliationService checks it against the raw ledger_entries.
+ */
+@Entity
+@Table(name = "ledger_balances", uniqueConstraints = {
+        @UniqueConstraint(columnNames = { "wholesaler_id", "retailer_id" })
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class LedgerBalance {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    private UUID id;
+
+    @Column(name = "wholesaler_id", nullable = false)
+    private UUID wholesalerId;
+
+    @Column(name = "retailer_id", nullable = false)
+    private UUID retailerId;
+
+    @Column(nullable = false)
+    private Double balance;
+
+    @Column(nullable = false)
+    private Long entryCount;
+
+    private LocalDateTime updatedAt;
+}
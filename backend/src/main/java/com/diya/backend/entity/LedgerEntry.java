@@ -12,7 +12,11 @@ import java.util.UUID;
 @JsonIdentityInfo(generator = ObjectIdGenerators.PropertyGenerator.class, property = "id")
 @JsonIgnoreProperties({ "hibernateLazyInitializer", "handler" })
 @Entity
-@Table(name = "ledger_entries")
+@Table(name = "ledger_entries", indexes = {
+        @Index(name = "idx_ledger_wholesaler_date", columnList = "wholesaler_id, entryDate"),
+        @Index(name = "idx_ledger_retailer_date", columnList = "retailer_id, entryDate"),
+        @Index(name = "idx_ledger_pair_date", columnList = "wholesaler_id, retailer_id, entryDate")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -51,6 +55,9 @@ public class LedgerEntry {
     @Column(nullable = false)
     private LocalDateTime entryDate = LocalDateTime.now();
 
+    // pair balance (DEBIT - CREDIT) right after this entry, set by LedgerService.post()
+    private Double balanceAfter;
+
     /**
      * ✅ Ledger meaning (Retailer Outstanding):
      * DEBIT = Retailer owes wholesaler (increase outstanding)
@@ -14,7 +14,11 @@ import java.util.UUID;
 @JsonIdentityInfo(generator = ObjectIdGenerators.PropertyGenerator.class, property = "id")
 @JsonIgnoreProperties({ "hibernateLazyInitializer", "handler" })
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        @Index(name = "idx_order_wholesaler_placed", columnList = "wholesaler_id, placedAt"),
+        @Index(name = "idx_order_retailer_placed", columnList = "retailer_id, placedAt"),
+        @Index(name = "idx_order_status_placed", columnList = "status, placedAt")
+})
 @Getter
 @Setter
 @NoArgsConstructor
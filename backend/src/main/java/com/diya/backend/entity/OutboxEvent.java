@@ -0,0 +1,61 @@
+package com.diya.backend.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Domain event written in the same transaction as the order / payment /
+ * connection change it describes, and published to in-process listeners
+ * later by OutboxDispatcher (at least once).
+ *
+ * Rows are appended with plain SQL (OutboxService); the entity is here for
+ * the schema and for reads.
+ */
+@Entity
+@Table(name = "outbox_events", indexes = {
+        @Index(name = "idx_outbox_pending", columnList = "publishedAt, id"),
+        @Index(name = "idx_outbox_aggregate", columnList = "aggregateId, id")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OutboxEvent {
+
+    // insertion order, which is also the dispatch order
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 40)
+    private String eventType;
+
+    // order / payment / connection id
+    @Column(nullable = false)
+    private UUID aggregateId;
+
+    private UUID wholesalerId;
+    private UUID retailerId;
+
+    // event details as JSON
+    @Column(columnDefinition = "TEXT")
+    private String payload;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    // null until every listener handled the event
+    private LocalDateTime publishedAt;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    private LocalDateTime nextAttemptAt;
+
+    @Column(length = 500)
+    private String lastError;
+}
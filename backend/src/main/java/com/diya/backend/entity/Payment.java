@@ -12,7 +12,10 @@ import java.util.UUID;
 @JsonIdentityInfo(generator = ObjectIdGenerators.PropertyGenerator.class, property = "id")
 @JsonIgnoreProperties({ "hibernateLazyInitializer", "handler" })
 @Entity
-@Table(name = "payments")
+@Table(name = "payments", indexes = {
+        @Index(name = "idx_payment_wholesaler_created", columnList = "wholesaler_id, createdAt"),
+        @Index(name = "idx_payment_wholesaler_confirmed", columnList = "wholesaler_id, confirmedAt")
+})
 @Getter
 @Setter
 @NoArgsConstructor
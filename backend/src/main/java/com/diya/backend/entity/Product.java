@@ -2,6 +2,8 @@ package com.diya.backend.entity;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
+import java.time.LocalDateTime;
 import java.util.*;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonIdentityInfo;
@@ -11,7 +13,8 @@ import com.fasterxml.jackson.annotation.ObjectIdGenerators;
 @JsonIgnoreProperties({ "hibernateLazyInitializer", "handler" })
 @Entity
 @Table(name = "products", indexes = {
-                @Index(name = "idx_product_sku", columnList = "sku")
+                @Index(name = "idx_product_sku", columnList = "sku"),
+                @Index(name = "idx_product_updated_at", columnList = "updatedAt")
 }, uniqueConstraints = {
                 @UniqueConstraint(columnNames = { "wholesaler_id", "sku" })
 })
@@ -60,4 +63,21 @@ public class Product {
 
         @Builder.Default
         private boolean visibleToRetailer = true;
+
+        // optimistic lock: stock / reservedStock read-modify-writes fail on a concurrent
+        // change and are retried (OptimisticRetry); the JDBC stock UPDATEs bump it too
+        @Version
+        @ColumnDefault("0")
+        @Column(nullable = false)
+        private long version;
+
+        // bumped on every JPA write; ProductSearchService.sync() picks up changes
+        // made on other nodes from here
+        private LocalDateTime updatedAt;
+
+        @PrePersist
+        @PreUpdate
+        public void onWrite() {
+                updatedAt = LocalDateTime.now();
+        }
 }
@@ -0,0 +1,35 @@
+package com.diya.backend.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.util.UUID;
+
+/**
+ * Running totals behind the retailer analytics summary (across all wholesalers).
+ * Maintained by AnalyticsRollupService alongside WholesalerStats.
+ */
+@Entity
+@Table(name = "retailer_stats")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RetailerStats {
+
+    // one row per retailer
+    @Id
+    @Column(name = "retailer_id")
+    private UUID retailerId;
+
+    @Column(nullable = false)
+    private Long totalOrders;
+
+    @Column(nullable = false)
+    private Double totalSpent;
+
+    // sum of CONFIRMED payments
+    @Column(nullable = false)
+    private Double totalPaid;
+}
@@ -81,6 +81,15 @@ public class Wholesaler {
     @Builder.Default
     private Integer invoiceSequence = 0;
 
+    /*
+     * ---------------------------------------------------
+     * ORDER SETTINGS
+     * ---------------------------------------------------
+     */
+    // PLACED orders older than this release their reserved stock and are cancelled
+    // (ReservationExpiryService); null = diya.reservations.ttl-hours
+    private Integer reservationTtlHours;
+
     /*
      * ---------------------------------------------------
      * BUSINESS CATEGORY (List<String>)
@@ -0,0 +1,39 @@
+package com.diya.backend.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Per-wholesaler sales bucket per calendar month (by order placedAt).
+ */
+@Entity
+@Table(name = "wholesaler_monthly_sales", uniqueConstraints = {
+        @UniqueConstraint(columnNames = { "wholesaler_id", "sales_month" })
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class WholesalerMonthlySales {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    private UUID id;
+
+    @Column(name = "wholesaler_id", nullable = false)
+    private UUID wholesalerId;
+
+    // first day of the month
+    @Column(name = "sales_month", nullable = false)
+    private LocalDate salesMonth;
+
+    @Column(nullable = false)
+    private Long orderCount;
+
+    @Column(nullable = false)
+    private Double totalSales;
+}
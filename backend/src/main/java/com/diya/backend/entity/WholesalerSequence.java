@@ -0,0 +1,44 @@
+package com.diya.backend.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.util.UUID;
+
+/**
+ * Per-wholesaler counters (order / invoice numbers, product SKU numbers).
+ * Kept out of wholesaler_profiles so number allocation never row-locks
+ * the wholesaler profile itself.
+ */
+@Entity
+@Table(name = "wholesaler_sequences", uniqueConstraints = {
+        @UniqueConstraint(columnNames = { "wholesaler_id", "kind" })
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class WholesalerSequence {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    private UUID id;
+
+    @Column(name = "wholesaler_id", nullable = false)
+    private UUID wholesalerId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Kind kind;
+
+    // last number handed out
+    @Column(nullable = false)
+    private Long lastIssued;
+
+    public enum Kind {
+        ORDER,
+        INVOICE,
+        PRODUCT
+    }
+}
@@ -0,0 +1,37 @@
+package com.diya.backend.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.util.UUID;
+
+/**
+ * Running totals behind the wholesaler analytics summary.
+ * Maintained by AnalyticsRollupService in the same transaction as the
+ * order / payment change, so reads are a single primary-key lookup.
+ */
+@Entity
+@Table(name = "wholesaler_stats")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class WholesalerStats {
+
+    // one row per wholesaler
+    @Id
+    @Column(name = "wholesaler_id")
+    private UUID wholesalerId;
+
+    @Column(nullable = false)
+    private Long totalOrders;
+
+    // sum of order totals (all statuses, same as the old summary)
+    @Column(nullable = false)
+    private Double totalSales;
+
+    // sum of CONFIRMED payments
+    @Column(nullable = false)
+    private Double totalReceived;
+}
@@ -0,0 +1,36 @@
+package com.diya.backend.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.util.UUID;
+
+/**
+ * Number of a wholesaler's orders currently in each status.
+ * Moved from one status row to the other on every transition.
+ */
+@Entity
+@Table(name = "wholesaler_status_counts", uniqueConstraints = {
+        @UniqueConstraint(columnNames = { "wholesaler_id", "status" })
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class WholesalerStatusCount {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    private UUID id;
+
+    @Column(name = "wholesaler_id", nullable = false)
+    private UUID wholesalerId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Order.Status status;
+
+    @Column(nullable = false)
+    private Long orderCount;
+}
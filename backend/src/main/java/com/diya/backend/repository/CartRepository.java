@@ -5,6 +5,8 @@ import com.diya.backend.entity.Retailer;
 import com.diya.backend.entity.Wholesaler;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -13,4 +15,11 @@ import java.util.UUID;
 @Repository
 public interface CartRepository extends JpaRepository<Cart, UUID> {
     Optional<Cart> findByRetailerAndWholesaler(Retailer retailer, Wholesaler wholesaler);
+
+    Optional<Cart> findByRetailerIdAndWholesalerId(UUID retailerId, UUID wholesalerId);
+
+    // cart with its lines and their products in one query (CartStore load / flush)
+    @Query("SELECT DISTINCT c FROM Cart c LEFT JOIN FETCH c.items i LEFT JOIN FETCH i.product "
+            + "WHERE c.retailer.id = :retailerId AND c.wholesaler.id = :wholesalerId")
+    Optional<Cart> findWithItems(@Param("retailerId") UUID retailerId, @Param("wholesalerId") UUID wholesalerId);
 }
@@ -1,7 +1,10 @@
 package com.diya.backend.repository;
 
+import com.diya.backend.dto.category.CategoryRow;
 import com.diya.backend.entity.Category;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -12,4 +15,9 @@ import java.util.UUID;
 public interface CategoryRepository extends JpaRepository<Category, UUID> {
     List<Category> findByWholesalerId(UUID wholesalerId);
     Optional<Category> findByWholesalerIdAndName(UUID wholesalerId, String name);
+
+    // ✅ category tree: ids + names only
+    @Query("SELECT new com.diya.backend.dto.category.CategoryRow(c.id, c.name) "
+            + "FROM Category c WHERE c.wholesaler.id = :wholesalerId")
+    List<CategoryRow> findRowsByWholesalerId(@Param("wholesalerId") UUID wholesalerId);
 }
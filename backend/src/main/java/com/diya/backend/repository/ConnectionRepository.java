@@ -4,6 +4,8 @@ import com.diya.backend.entity.Connection;
 import com.diya.backend.entity.Retailer;
 import com.diya.backend.entity.Wholesaler;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.*;
@@ -13,6 +15,11 @@ public interface ConnectionRepository extends JpaRepository<Connection, UUID> {
 
     Optional<Connection> findByWholesalerAndRetailer(Wholesaler wholesaler, Retailer retailer);
 
+    // ✅ connection gate: status only, no entity graph
+    @Query("SELECT c.status FROM Connection c WHERE c.wholesaler.id = :wholesalerId AND c.retailer.id = :retailerId")
+    Optional<Connection.Status> findStatus(@Param("wholesalerId") UUID wholesalerId,
+            @Param("retailerId") UUID retailerId);
+
     List<Connection> findByWholesalerAndStatusOrderByRequestedAtDesc(Wholesaler wholesaler, Connection.Status status);
 
     List<Connection> findByRetailerAndStatusOrderByRequestedAtDesc(Retailer retailer, Connection.Status status);
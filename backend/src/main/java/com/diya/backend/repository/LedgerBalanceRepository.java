@@ -0,0 +1,56 @@
+package com.diya.backend.repository;
+
+import com.diya.backend.entity.LedgerBalance;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface LedgerBalanceRepository extends JpaRepository<LedgerBalance, UUID> {
+
+    Optional<LedgerBalance> findByWholesalerIdAndRetailerId(UUID wholesalerId, UUID retailerId);
+
+    @Query("SELECT b.balance FROM LedgerBalance b WHERE b.wholesalerId = :wholesalerId AND b.retailerId = :retailerId")
+    Optional<Double> findBalance(@Param("wholesalerId") UUID wholesalerId, @Param("retailerId") UUID retailerId);
+
+    @Query("SELECT COALESCE(SUM(b.balance), 0) FROM LedgerBalance b WHERE b.wholesalerId = :wholesalerId")
+    double sumForWholesaler(@Param("wholesalerId") UUID wholesalerId);
+
+    // atomic delta; also row-locks the pair until commit so running balances stay in order.
+    // returns 0 if the pair row does not exist yet
+    @Modifying
+    @Query("UPDATE LedgerBalance b SET b.balance = b.balance + :delta, b.entryCount = b.entryCount + 1, "
+            + "b.updatedAt = :now WHERE b.wholesalerId = :wholesalerId AND b.retailerId = :retailerId")
+    int add(@Param("wholesalerId") UUID wholesalerId,
+            @Param("retailerId") UUID retailerId,
+            @Param("delta") double delta,
+            @Param("now") LocalDateTime now);
+
+    // first use: seed from existing entries, racing creators just no-op
+    @Modifying
+    @Query(value = "INSERT INTO ledger_balances (id, wholesaler_id, retailer_id, balance, entry_count, updated_at) "
+            + "VALUES (:id, :wholesalerId, :retailerId, :balance, :entryCount, :now) ON CONFLICT DO NOTHING",
+            nativeQuery = true)
+    int insertIfAbsent(@Param("id") UUID id,
+            @Param("wholesalerId") UUID wholesalerId,
+            @Param("retailerId") UUID retailerId,
+            @Param("balance") double balance,
+            @Param("entryCount") long entryCount,
+            @Param("now") LocalDateTime now);
+
+    // reconciliation fix-up
+    @Modifying
+    @Query("UPDATE LedgerBalance b SET b.balance = :balance, b.entryCount = :entryCount, b.updatedAt = :now "
+            + "WHERE b.wholesalerId = :wholesalerId AND b.retailerId = :retailerId")
+    int overwrite(@Param("wholesalerId") UUID wholesalerId,
+            @Param("retailerId") UUID retailerId,
+            @Param("balance") double balance,
+            @Param("entryCount") long entryCount,
+            @Param("now") LocalDateTime now);
+}
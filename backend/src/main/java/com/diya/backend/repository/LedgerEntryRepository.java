@@ -4,13 +4,17 @@ import com.diya.backend.entity.LedgerEntry;
 import com.diya.backend.entity.Retailer;
 import com.diya.backend.entity.Wholesaler;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 import java.util.UUID;
 
 @Repository
-public interface LedgerEntryRepository extends JpaRepository<LedgerEntry, UUID> {
+public interface LedgerEntryRepository extends JpaRepository<LedgerEntry, UUID>,
+        JpaSpecificationExecutor<LedgerEntry> {
 
     // Wholesaler all entries
     List<LedgerEntry> findByWholesaler(Wholesaler wholesaler);
@@ -34,4 +38,18 @@ public interface LedgerEntryRepository extends JpaRepository<LedgerEntry, UUID>
             Wholesaler wholesaler,
             Retailer retailer,
             LedgerEntry.EntryType entryType);
+
+    // Pair balance straight from the entries (seeding ledger_balances for pairs with history)
+    @Query("SELECT COUNT(e) AS entries, "
+            + "COALESCE(SUM(CASE WHEN e.entryType = :debit THEN e.amount ELSE -e.amount END), 0) AS balance "
+            + "FROM LedgerEntry e WHERE e.wholesaler.id = :wholesalerId AND e.retailer.id = :retailerId")
+    PairTotals totalsForPair(@Param("wholesalerId") UUID wholesalerId,
+            @Param("retailerId") UUID retailerId,
+            @Param("debit") LedgerEntry.EntryType debit);
+
+    interface PairTotals {
+        Long getEntries();
+
+        Double getBalance();
+    }
 }
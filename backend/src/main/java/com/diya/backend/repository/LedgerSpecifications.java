@@ -0,0 +1,61 @@
+package com.diya.backend.repository;
+
+import com.diya.backend.dto.ledger.LedgerCursor;
+import com.diya.backend.entity.LedgerEntry;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Ledger filters, all evaluated in SQL on the (party, entry_date) indexes.
+ */
+public final class LedgerSpecifications {
+
+    private LedgerSpecifications() {
+    }
+
+    public static Specification<LedgerEntry> forWholesaler(UUID wholesalerId) {
+        return (root, query, cb) -> cb.equal(root.get("wholesaler").get("id"), wholesalerId);
+    }
+
+    public static Specification<LedgerEntry> forRetailer(UUID retailerId) {
+        return (root, query, cb) -> cb.equal(root.get("retailer").get("id"), retailerId);
+    }
+
+    // blank = all types
+    public static Specification<LedgerEntry> ofType(String type) {
+        if (type == null || type.isBlank()) {
+            return null;
+        }
+        LedgerEntry.EntryType entryType = LedgerEntry.EntryType.valueOf(type.toUpperCase());
+        return (root, query, cb) -> cb.equal(root.get("entryType"), entryType);
+    }
+
+    // inclusive calendar dates, same meaning as the old toLocalDate() filter
+    public static Specification<LedgerEntry> onOrAfter(LocalDate from) {
+        if (from == null) {
+            return null;
+        }
+        return (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("entryDate"), from.atStartOfDay());
+    }
+
+    public static Specification<LedgerEntry> onOrBefore(LocalDate to) {
+        if (to == null) {
+            return null;
+        }
+        return (root, query, cb) -> cb.lessThan(root.get("entryDate"), to.plusDays(1).atStartOfDay());
+    }
+
+    // rows strictly after the cursor in (entryDate DESC, id DESC) order
+    public static Specification<LedgerEntry> after(LedgerCursor cursor) {
+        if (cursor == null) {
+            return null;
+        }
+        return (root, query, cb) -> cb.or(
+                cb.lessThan(root.get("entryDate"), cursor.entryDate()),
+                cb.and(
+                        cb.equal(root.get("entryDate"), cursor.entryDate()),
+                        cb.lessThan(root.get("id"), cursor.id())));
+    }
+}
@@ -1,19 +1,29 @@
 package com.diya.backend.repository;
 
+import com.diya.backend.dto.dashboard.ActivityRow;
+import com.diya.backend.dto.dashboard.OrderKpiCounts;
 import com.diya.backend.entity.Order;
 import com.diya.backend.entity.Retailer;
 import com.diya.backend.entity.Wholesaler;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.UUID;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface OrderRepository extends JpaRepository<Order, UUID> {
+public interface OrderRepository extends JpaRepository<Order, UUID>, JpaSpecificationExecutor<Order>,
+        OrderRepositoryCustom {
 
     Page<Order> findByWholesaler(Wholesaler wholesaler, Pageable pageable);
 
@@ -27,4 +37,85 @@ public interface OrderRepository extends JpaRepository<Order, UUID> {
     List<Order> findByWholesalerAndStatus(Wholesaler wholesaler, Order.Status status);
 
     Optional<Order> findByOrderNumber(String orderNumber);
+
+    // dashboard KPI tiles: orders placed since `from` and orders still waiting (pending), in one pass
+    // over only those rows
+    @Query("SELECT new com.diya.backend.dto.dashboard.OrderKpiCounts("
+            + "COALESCE(SUM(CASE WHEN o.placedAt >= :from THEN 1L ELSE 0L END), 0L), "
+            + "COALESCE(SUM(CASE WHEN o.status = :pending THEN 1L ELSE 0L END), 0L)) FROM Order o "
+            + "WHERE o.wholesaler.id = :wholesalerId AND (o.placedAt >= :from OR o.status = :pending)")
+    OrderKpiCounts countKpis(@Param("wholesalerId") UUID wholesalerId, @Param("from") LocalDateTime from,
+            @Param("pending") Order.Status pending);
+
+    // activity feed: newest orders first with the retailer name, keyset on (placedAt, id)
+    @Query("SELECT new com.diya.backend.dto.dashboard.ActivityRow(o.id, o.orderNumber, u.name, o.totalAmount, "
+            + "o.placedAt) FROM Order o JOIN o.retailer r JOIN r.user u WHERE o.wholesaler.id = :wholesalerId "
+            + "ORDER BY o.placedAt DESC, o.id DESC")
+    List<ActivityRow> findActivity(@Param("wholesalerId") UUID wholesalerId, Pageable pageable);
+
+    @Query("SELECT new com.diya.backend.dto.dashboard.ActivityRow(o.id, o.orderNumber, u.name, o.totalAmount, "
+            + "o.placedAt) FROM Order o JOIN o.retailer r JOIN r.user u WHERE o.wholesaler.id = :wholesalerId "
+            + "AND (o.placedAt < :at OR (o.placedAt = :at AND o.id < :id)) "
+            + "ORDER BY o.placedAt DESC, o.id DESC")
+    List<ActivityRow> findActivityBefore(@Param("wholesalerId") UUID wholesalerId, @Param("at") LocalDateTime at,
+            @Param("id") UUID id, Pageable pageable);
+
+    // status changes lock the order row first (then products, then rollups), so the
+    // reservation sweeper skips orders that are being acted on
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o FROM Order o WHERE o.id = :id")
+    Optional<Order> findForUpdateById(@Param("id") UUID id);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o FROM Order o WHERE o.id IN :ids AND o.wholesaler.id = :wholesalerId ORDER BY o.id")
+    List<Order> lockAllByIdInAndWholesalerId(@Param("ids") Collection<UUID> ids,
+            @Param("wholesalerId") UUID wholesalerId);
+
+    // bulk status actions: the wholesaler's orders with their items in one query (products stay lazy)
+    @Query("SELECT DISTINCT o FROM Order o LEFT JOIN FETCH o.orderItems "
+            + "WHERE o.id IN :ids AND o.wholesaler.id = :wholesalerId")
+    List<Order> findWithItemsByIdInAndWholesalerId(@Param("ids") Collection<UUID> ids,
+            @Param("wholesalerId") UUID wholesalerId);
+
+    // ===== Aggregates used to seed the analytics rollups (AnalyticsRollupService) =====
+
+    @Query("SELECT COUNT(o) AS orders, COALESCE(SUM(o.totalAmount), 0) AS amount "
+            + "FROM Order o WHERE o.wholesaler.id = :wholesalerId")
+    Totals totalsForWholesaler(@Param("wholesalerId") UUID wholesalerId);
+
+    @Query("SELECT COUNT(o) AS orders, COALESCE(SUM(o.totalAmount), 0) AS amount "
+            + "FROM Order o WHERE o.retailer.id = :retailerId")
+    Totals totalsForRetailer(@Param("retailerId") UUID retailerId);
+
+    @Query("SELECT o.status AS status, COUNT(o) AS orders "
+            + "FROM Order o WHERE o.wholesaler.id = :wholesalerId GROUP BY o.status")
+    List<StatusTotals> statusTotalsForWholesaler(@Param("wholesalerId") UUID wholesalerId);
+
+    @Query("SELECT YEAR(o.placedAt) AS yr, MONTH(o.placedAt) AS mon, COUNT(o) AS orders, "
+            + "COALESCE(SUM(o.totalAmount), 0) AS amount "
+            + "FROM Order o WHERE o.wholesaler.id = :wholesalerId AND o.placedAt IS NOT NULL "
+            + "GROUP BY YEAR(o.placedAt), MONTH(o.placedAt)")
+    List<MonthTotals> monthTotalsForWholesaler(@Param("wholesalerId") UUID wholesalerId);
+
+    interface Totals {
+        Long getOrders();
+
+        Double getAmount();
+    }
+
+    interface StatusTotals {
+        Order.Status getStatus();
+
+        Long getOrders();
+    }
+
+    interface MonthTotals {
+        Integer getYr();
+
+        Integer getMon();
+
+        Long getOrders();
+
+        Double getAmount();
+    }
 }
@@ -0,0 +1,13 @@
+package com.diya.backend.repository;
+
+import com.diya.backend.dto.order.OrderListRow;
+import com.diya.backend.entity.Order;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+
+public interface OrderRepositoryCustom {
+
+    // Order list rows (retailer name/location + item count) in one query, plus a count query when paged
+    Page<OrderListRow> findListRows(Specification<Order> spec, Pageable pageable);
+}
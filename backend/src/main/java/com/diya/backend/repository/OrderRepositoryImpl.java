@@ -0,0 +1,83 @@
+package com.diya.backend.repository;
+
+import com.diya.backend.dto.order.OrderListRow;
+import com.diya.backend.entity.Order;
+import com.diya.backend.entity.OrderItem;
+import com.diya.backend.entity.Retailer;
+import com.diya.backend.entity.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.*;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import java.util.List;
+
+public class OrderRepositoryImpl implements OrderRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Page<OrderListRow> findListRows(Specification<Order> spec, Pageable pageable) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+
+        CriteriaQuery<OrderListRow> query = cb.createQuery(OrderListRow.class);
+        Root<Order> root = query.from(Order.class);
+
+        // joins are created first so OrderSpecifications.matchesSearch reuses them
+        Join<Order, Retailer> retailer = OrderSpecifications.retailerJoin(root);
+        Join<Retailer, User> user = OrderSpecifications.retailerUserJoin(retailer);
+
+        Subquery<Long> itemCount = query.subquery(Long.class);
+        Root<OrderItem> item = itemCount.from(OrderItem.class);
+        itemCount.select(cb.count(item)).where(cb.equal(item.get("order"), root));
+
+        query.select(cb.construct(OrderListRow.class,
+                root.get("id"),
+                root.get("orderNumber"),
+                user.get("name"),
+                retailer.get("city"),
+                retailer.get("state"),
+                root.get("totalAmount"),
+                root.get("placedAt"),
+                root.get("status"),
+                itemCount));
+
+        Predicate predicate = spec == null ? null : spec.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        if (pageable.getSort().isSorted()) {
+            query.orderBy(QueryUtils.toOrders(pageable.getSort(), root, cb));
+        }
+
+        TypedQuery<OrderListRow> typed = entityManager.createQuery(query);
+        if (pageable.isPaged()) {
+            typed.setFirstResult((int) pageable.getOffset());
+            typed.setMaxResults(pageable.getPageSize());
+        }
+
+        List<OrderListRow> content = typed.getResultList();
+        return PageableExecutionUtils.getPage(content, pageable, () -> count(spec));
+    }
+
+    private long count(Specification<Order> spec) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<Order> root = query.from(Order.class);
+        query.select(cb.count(root));
+
+        Predicate predicate = spec == null ? null : spec.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+
+        return entityManager.createQuery(query).getSingleResult();
+    }
+}
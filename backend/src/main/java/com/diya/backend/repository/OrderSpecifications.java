@@ -0,0 +1,108 @@
+package com.diya.backend.repository;
+
+import com.diya.backend.entity.Order;
+import com.diya.backend.entity.Retailer;
+import com.diya.backend.entity.User;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Reusable filters for the order list screens.
+ * Everything here is translated to SQL, so filtering + paging happen in the
+ * database instead of loading a wholesaler's full order history.
+ */
+public final class OrderSpecifications {
+
+    private OrderSpecifications() {
+    }
+
+    public static Specification<Order> forWholesaler(UUID wholesalerId) {
+        return (root, query, cb) -> cb.equal(root.get("wholesaler").get("id"), wholesalerId);
+    }
+
+    public static Specification<Order> forRetailer(UUID retailerId) {
+        return (root, query, cb) -> cb.equal(root.get("retailer").get("id"), retailerId);
+    }
+
+    // "all" / blank = no filter, unknown status = no rows (same as old in-memory filter)
+    public static Specification<Order> hasStatus(String status) {
+        if (status == null || status.isBlank() || "all".equalsIgnoreCase(status)) {
+            return null;
+        }
+
+        Order.Status target;
+        try {
+            target = Order.Status.valueOf(status.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return (root, query, cb) -> cb.disjunction();
+        }
+
+        return (root, query, cb) -> cb.equal(root.get("status"), target);
+    }
+
+    // retailer name OR order number, case-insensitive "contains"
+    public static Specification<Order> matchesSearch(String search) {
+        if (search == null || search.isBlank()) {
+            return null;
+        }
+
+        String pattern = "%" + search.trim().toLowerCase() + "%";
+
+        return (root, query, cb) -> {
+            Join<Order, Retailer> retailer = retailerJoin(root);
+            Join<Retailer, User> user = retailerUserJoin(retailer);
+
+            return cb.or(
+                    cb.like(cb.lower(user.get("name")), pattern),
+                    cb.like(cb.lower(root.get("orderNumber")), pattern));
+        };
+    }
+
+    /**
+     * dateRange: today | week (last 7 days incl. today) | month (last 30 days incl. today)
+     */
+    public static Specification<Order> placedWithin(String dateRange) {
+        if (dateRange == null || dateRange.isBlank()) {
+            return null;
+        }
+
+        LocalDate today = LocalDate.now();
+        LocalDateTime from = switch (dateRange.toLowerCase()) {
+            case "today" -> today.atStartOfDay();
+            case "week" -> today.minusDays(6).atStartOfDay();
+            case "month" -> today.minusDays(29).atStartOfDay();
+            default -> null;
+        };
+
+        if (from == null) {
+            return null;
+        }
+
+        return (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("placedAt"), from);
+    }
+
+    /* ------------------------ Join helpers ------------------------ */
+
+    // reuse an existing retailer join (e.g. from a list projection) instead of joining twice
+    @SuppressWarnings("unchecked")
+    static Join<Order, Retailer> retailerJoin(Root<Order> root) {
+        return (Join<Order, Retailer>) root.getJoins().stream()
+                .filter(j -> j.getAttribute().getName().equals("retailer"))
+                .findFirst()
+                .orElseGet(() -> root.join("retailer", JoinType.LEFT));
+    }
+
+    @SuppressWarnings("unchecked")
+    static Join<Retailer, User> retailerUserJoin(Join<Order, Retailer> retailer) {
+        return (Join<Retailer, User>) retailer.getJoins().stream()
+                .filter(j -> j.getAttribute().getName().equals("user"))
+                .findFirst()
+                .orElseGet(() -> retailer.join("user", JoinType.LEFT));
+    }
+}
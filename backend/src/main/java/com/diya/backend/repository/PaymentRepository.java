@@ -1,12 +1,17 @@
 package com.diya.backend.repository;
 
+import com.diya.backend.dto.dashboard.ActivityRow;
 import com.diya.backend.entity.Payment;
 import com.diya.backend.entity.Order;
 import com.diya.backend.entity.Wholesaler;
 import com.diya.backend.entity.Retailer;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
 
@@ -21,4 +26,37 @@ public interface PaymentRepository extends JpaRepository<Payment, UUID> {
 
     // ✅ new
     List<Payment> findByWholesalerAndStatus(Wholesaler wholesaler, Payment.PaymentStatus status);
+
+    // dashboard KPI tile: money confirmed in [from, to)
+    @Query("SELECT COALESCE(SUM(p.amount), 0) FROM Payment p WHERE p.wholesaler.id = :wholesalerId "
+            + "AND p.status = :status AND p.confirmedAt >= :from AND p.confirmedAt < :to")
+    Double sumConfirmedBetween(@Param("wholesalerId") UUID wholesalerId,
+            @Param("status") Payment.PaymentStatus status,
+            @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    // activity feed: newest payments first with the retailer name, keyset on (createdAt, id)
+    @Query("SELECT new com.diya.backend.dto.dashboard.ActivityRow(p.id, o.orderNumber, u.name, p.amount, "
+            + "p.createdAt) FROM Payment p LEFT JOIN p.order o JOIN p.retailer r JOIN r.user u "
+            + "WHERE p.wholesaler.id = :wholesalerId ORDER BY p.createdAt DESC, p.id DESC")
+    List<ActivityRow> findActivity(@Param("wholesalerId") UUID wholesalerId, Pageable pageable);
+
+    @Query("SELECT new com.diya.backend.dto.dashboard.ActivityRow(p.id, o.orderNumber, u.name, p.amount, "
+            + "p.createdAt) FROM Payment p LEFT JOIN p.order o JOIN p.retailer r JOIN r.user u "
+            + "WHERE p.wholesaler.id = :wholesalerId "
+            + "AND (p.createdAt < :at OR (p.createdAt = :at AND p.id < :id)) "
+            + "ORDER BY p.createdAt DESC, p.id DESC")
+    List<ActivityRow> findActivityBefore(@Param("wholesalerId") UUID wholesalerId, @Param("at") LocalDateTime at,
+            @Param("id") UUID id, Pageable pageable);
+
+    // ===== Aggregates used to seed the analytics rollups (AnalyticsRollupService) =====
+
+    @Query("SELECT COALESCE(SUM(p.amount), 0) FROM Payment p "
+            + "WHERE p.wholesaler.id = :wholesalerId AND p.status = :status")
+    Double sumAmountForWholesaler(@Param("wholesalerId") UUID wholesalerId,
+            @Param("status") Payment.PaymentStatus status);
+
+    @Query("SELECT COALESCE(SUM(p.amount), 0) FROM Payment p "
+            + "WHERE p.retailer.id = :retailerId AND p.status = :status")
+    Double sumAmountForRetailer(@Param("retailerId") UUID retailerId,
+            @Param("status") Payment.PaymentStatus status);
 }
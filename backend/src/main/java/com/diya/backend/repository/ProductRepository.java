@@ -1,15 +1,21 @@
 package com.diya.backend.repository;
 
+import com.diya.backend.dto.cart.CartProductRow;
+import com.diya.backend.dto.category.ProductCountRow;
 import com.diya.backend.entity.Product;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.*;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, UUID> {
+public interface ProductRepository extends JpaRepository<Product, UUID>, ProductRepositoryCustom {
 
         List<Product> findByWholesalerId(UUID wholesalerId);
 
@@ -17,23 +23,36 @@ public interface ProductRepository extends JpaRepository<Product, UUID> {
 
         Page<Product> findByWholesalerIdAndCategoryId(UUID wholesalerId, UUID categoryId, Pageable pageable);
 
+        // rows locked in id order (same order as reserveStock) so bulk actions and checkouts cannot deadlock
+        @Lock(LockModeType.PESSIMISTIC_WRITE)
+        @Query("SELECT p FROM Product p WHERE p.id IN :ids ORDER BY p.id")
+        List<Product> lockAllById(@Param("ids") Collection<UUID> ids);
+
+        // cart lines: the few columns a cart shows, no entity graph
+        @Query("SELECT new com.diya.backend.dto.cart.CartProductRow(p.id, p.wholesaler.id, p.name, p.sku, "
+                        + "p.imageUrl, p.price, p.mrp, p.stock) FROM Product p WHERE p.id IN :ids")
+        List<CartProductRow> findCartRowsByIdIn(@Param("ids") Collection<UUID> ids);
+
+        // bulk update: tells "SKU not found" apart from "stock below reserved" for rows that did not apply
+        @Query("SELECT p.sku AS sku, COALESCE(p.reservedStock, 0) AS reservedStock FROM Product p "
+                        + "WHERE p.wholesaler.id = :wholesalerId AND p.sku IN :skus")
+        List<SkuReservedStock> findReservedStockBySku(@Param("wholesalerId") UUID wholesalerId,
+                        @Param("skus") Collection<String> skus);
+
         // find last sequence for sku generation
         Optional<Product> findTopByWholesalerIdOrderBySequenceNumberDesc(UUID wholesalerId);
 
+        // seed for the PRODUCT counter in wholesaler_sequences
+        @Query("SELECT COALESCE(MAX(p.sequenceNumber), 0) FROM Product p WHERE p.wholesaler.id = :wholesalerId")
+        int maxSequenceNumber(@Param("wholesalerId") UUID wholesalerId);
+
         // public catalog: active & visible
         Page<Product> findByVisibleToRetailerTrueAndActiveTrue(Pageable pageable);
 
-        // search in wholesaler scope
-        Page<Product> findByWholesalerIdAndNameContainingIgnoreCaseOrWholesalerIdAndSkuIgnoreCase(
-                        UUID wholesalerId, String name, UUID wholesalerId2, String sku, Pageable pageable);
-
         Optional<Product> findBySku(String sku);
 
         Page<Product> findByWholesalerIdAndSubcategoryId(UUID wholesalerId, UUID subcategoryId, Pageable pageable);
 
-        // search public catalog
-        Page<Product> findByNameContainingIgnoreCaseOrSkuIgnoreCase(String name, String sku, Pageable pageable);
-
         Page<Product> findByCategoryId(UUID categoryId, Pageable pageable);
 
         // Retailer filters
@@ -42,9 +61,6 @@ public interface ProductRepository extends JpaRepository<Product, UUID> {
 
         Page<Product> findByCategoryIdAndVisibleToRetailerTrueAndActiveTrue(UUID categoryId, Pageable pageable);
 
-        Page<Product> findByNameContainingIgnoreCaseOrSkuIgnoreCaseAndVisibleToRetailerTrueAndActiveTrue(String name,
-                        String sku, Pageable pageable);
-
         Page<Product> findByWholesalerIdAndVisibleToRetailerTrueAndActiveTrue(UUID wholesalerId, Pageable pageable);
 
         Page<Product> findByWholesalerIdAndCategoryIdAndVisibleToRetailerTrueAndActiveTrue(UUID wholesalerId,
@@ -53,7 +69,15 @@ public interface ProductRepository extends JpaRepository<Product, UUID> {
         Page<Product> findByWholesalerIdAndSubcategoryIdAndVisibleToRetailerTrueAndActiveTrue(UUID wholesalerId,
                         UUID subcategoryId, Pageable pageable);
 
-        Page<Product> findByWholesalerIdAndNameContainingIgnoreCaseAndVisibleToRetailerTrueAndActiveTrue(
-                        UUID wholesalerId, String search, Pageable pageable);
+        // ✅ category tree: product counts per (category, subcategory) in one grouped query
+        @Query("SELECT new com.diya.backend.dto.category.ProductCountRow(c.id, s.id, COUNT(p)) "
+                        + "FROM Product p JOIN p.category c LEFT JOIN p.subcategory s "
+                        + "WHERE p.wholesaler.id = :wholesalerId GROUP BY c.id, s.id")
+        List<ProductCountRow> countByCategoryAndSubcategory(@Param("wholesalerId") UUID wholesalerId);
+
+        interface SkuReservedStock {
+                String getSku();
 
+                Integer getReservedStock();
+        }
 }
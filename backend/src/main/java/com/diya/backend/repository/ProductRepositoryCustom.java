@@ -0,0 +1,43 @@
+package com.diya.backend.repository;
+
+import com.diya.backend.dto.product.ProductBulkUpdateRequest;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+public interface ProductRepositoryCustom {
+
+    /**
+     * Moves qty into reserved_stock for every product in ONE JDBC batch.
+     * Each row only updates if enough available stock (stock - reserved) is left,
+     * so concurrent checkouts can never oversell.
+     *
+     * @return product ids whose reservation did NOT apply (insufficient stock)
+     */
+    Set<UUID> reserveStock(Map<UUID, Integer> qtyByProduct);
+
+    /**
+     * Applies stock / price / mrp changes keyed by (wholesaler_id, sku) as
+     * JDBC batches of batchSize rows. Null fields keep their current value.
+     * An item whose stock is below the row's reserved_stock is not applied.
+     *
+     * @return rows updated per item, in the order given (0 = SKU not found or
+     *         stock below reserved)
+     */
+    int[] updateStockAndPrice(UUID wholesalerId, List<ProductBulkUpdateRequest.Item> items, int batchSize);
+
+    /**
+     * Order acceptance: stock and reserved_stock both drop by the qty, one
+     * UPDATE per product in ONE JDBC batch. Callers aggregate qty per product
+     * and check availability first (rows locked).
+     */
+    void deductReservedStock(Map<UUID, Integer> qtyByProduct);
+
+    /**
+     * Order rejection / cancellation: reserved_stock drops by the qty (never
+     * below 0), one UPDATE per product in ONE JDBC batch.
+     */
+    void releaseReservedStock(Map<UUID, Integer> qtyByProduct);
+}
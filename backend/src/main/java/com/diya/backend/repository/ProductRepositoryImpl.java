@@ -0,0 +1,131 @@
+package com.diya.backend.repository;
+
+import com.diya.backend.dto.product.ProductBulkUpdateRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.*;
+
+@RequiredArgsConstructor
+public class ProductRepositoryImpl implements ProductRepositoryCustom {
+
+    private static final String RESERVE_SQL = "UPDATE products "
+            + "SET reserved_stock = COALESCE(reserved_stock, 0) + ?, version = version + 1 "
+            + "WHERE id = ? AND COALESCE(stock, 0) - COALESCE(reserved_stock, 0) >= ?";
+
+    private static final String DEDUCT_SQL = "UPDATE products "
+            + "SET stock = COALESCE(stock, 0) - ?, reserved_stock = COALESCE(reserved_stock, 0) - ?, "
+            + "version = version + 1, updated_at = ? "
+            + "WHERE id = ?";
+
+    private static final String RELEASE_SQL = "UPDATE products "
+            + "SET reserved_stock = GREATEST(COALESCE(reserved_stock, 0) - ?, 0), "
+            + "version = version + 1, updated_at = ? "
+            + "WHERE id = ?";
+
+    // uses the (wholesaler_id, sku) unique index; updated_at lets other nodes pick the change up.
+    // A new stock below reserved_stock (units held by placed orders) leaves the row alone.
+    private static final String STOCK_PRICE_SQL = "UPDATE products "
+            + "SET stock = COALESCE(?, stock), price = COALESCE(?, price), mrp = COALESCE(?, mrp), "
+            + "version = version + 1, updated_at = ? "
+            + "WHERE wholesaler_id = ? AND sku = ? "
+            + "AND COALESCE(?, COALESCE(reserved_stock, 0)) >= COALESCE(reserved_stock, 0)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public Set<UUID> reserveStock(Map<UUID, Integer> qtyByProduct) {
+        if (qtyByProduct.isEmpty()) {
+            return Set.of();
+        }
+
+        // fixed lock order (by id) so two checkouts touching the same SKUs cannot deadlock
+        List<Map.Entry<UUID, Integer>> rows = new ArrayList<>(new TreeMap<>(qtyByProduct).entrySet());
+
+        int[] updated = jdbcTemplate.batchUpdate(RESERVE_SQL, rows, rows.size(), (ps, row) -> {
+            ps.setInt(1, row.getValue());
+            ps.setObject(2, row.getKey());
+            ps.setInt(3, row.getValue());
+        })[0];
+
+        Set<UUID> failed = new HashSet<>();
+        for (int i = 0; i < rows.size(); i++) {
+            if (updated[i] == 0) {
+                failed.add(rows.get(i).getKey());
+            }
+        }
+        return failed;
+    }
+
+    @Override
+    public int[] updateStockAndPrice(UUID wholesalerId, List<ProductBulkUpdateRequest.Item> items, int batchSize) {
+        if (items.isEmpty()) {
+            return new int[0];
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        int[][] batches = jdbcTemplate.batchUpdate(STOCK_PRICE_SQL, items, batchSize, (ps, item) -> {
+            setNullable(ps, 1, item.getStock(), Types.INTEGER);
+            setNullable(ps, 2, item.getPrice(), Types.DOUBLE);
+            setNullable(ps, 3, item.getMrp(), Types.DOUBLE);
+            ps.setTimestamp(4, now);
+            ps.setObject(5, wholesalerId);
+            ps.setString(6, item.getSku());
+            setNullable(ps, 7, item.getStock(), Types.INTEGER);
+        });
+
+        int[] updated = new int[items.size()];
+        int i = 0;
+        for (int[] batch : batches) {
+            for (int count : batch) {
+                // some drivers report SUCCESS_NO_INFO (-2) instead of a count
+                updated[i++] = count == PreparedStatement.SUCCESS_NO_INFO ? 1 : count;
+            }
+        }
+        return updated;
+    }
+
+    private static void setNullable(PreparedStatement ps, int index, Object value, int sqlType) throws SQLException {
+        if (value == null) {
+            ps.setNull(index, sqlType); // typed, so COALESCE(?, col) resolves on PostgreSQL
+        } else {
+            ps.setObject(index, value, sqlType);
+        }
+    }
+
+    @Override
+    public void deductReservedStock(Map<UUID, Integer> qtyByProduct) {
+        if (qtyByProduct.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<UUID, Integer>> rows = new ArrayList<>(new TreeMap<>(qtyByProduct).entrySet());
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        jdbcTemplate.batchUpdate(DEDUCT_SQL, rows, rows.size(), (ps, row) -> {
+            ps.setInt(1, row.getValue());
+            ps.setInt(2, row.getValue());
+            ps.setTimestamp(3, now);
+            ps.setObject(4, row.getKey());
+        });
+    }
+
+    @Override
+    public void releaseReservedStock(Map<UUID, Integer> qtyByProduct) {
+        if (qtyByProduct.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<UUID, Integer>> rows = new ArrayList<>(new TreeMap<>(qtyByProduct).entrySet());
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        jdbcTemplate.batchUpdate(RELEASE_SQL, rows, rows.size(), (ps, row) -> {
+            ps.setInt(1, row.getValue());
+            ps.setTimestamp(2, now);
+            ps.setObject(3, row.getKey());
+        });
+    }
+}
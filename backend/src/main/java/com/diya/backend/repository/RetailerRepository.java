@@ -2,6 +2,8 @@ package com.diya.backend.repository;
 
 import com.diya.backend.entity.Retailer;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -15,4 +17,11 @@ public interface RetailerRepository extends JpaRepository<Retailer, UUID> {
     Optional<Retailer> findByUserPhone(String phone);
 
     Optional<Retailer> findByUserId(UUID userId);
+
+    // id-only lookups used by PrincipalResolver (no entity is loaded)
+    @Query("SELECT r.id FROM Retailer r WHERE r.user.email = :email")
+    Optional<UUID> findIdByUserEmail(@Param("email") String email);
+
+    @Query("SELECT r.id FROM Retailer r WHERE r.user.phone = :phone")
+    Optional<UUID> findIdByUserPhone(@Param("phone") String phone);
 }
@@ -0,0 +1,34 @@
+package com.diya.backend.repository;
+
+import com.diya.backend.entity.RetailerStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.UUID;
+
+@Repository
+public interface RetailerStatsRepository extends JpaRepository<RetailerStats, UUID> {
+
+    @Modifying
+    @Query("UPDATE RetailerStats s SET s.totalOrders = s.totalOrders + :orders, "
+            + "s.totalSpent = s.totalSpent + :spent WHERE s.retailerId = :retailerId")
+    int addOrders(@Param("retailerId") UUID retailerId,
+            @Param("orders") long orders,
+            @Param("spent") double spent);
+
+    @Modifying
+    @Query("UPDATE RetailerStats s SET s.totalPaid = s.totalPaid + :amount WHERE s.retailerId = :retailerId")
+    int addPaid(@Param("retailerId") UUID retailerId, @Param("amount") double amount);
+
+    // first use: seed from existing history, racing seeders just no-op
+    @Modifying
+    @Query(value = "INSERT INTO retailer_stats (retailer_id, total_orders, total_spent, total_paid) "
+            + "VALUES (:retailerId, :orders, :spent, :paid) ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("retailerId") UUID retailerId,
+            @Param("orders") long orders,
+            @Param("spent") double spent,
+            @Param("paid") double paid);
+}
@@ -1,7 +1,10 @@
 package com.diya.backend.repository;
 
+import com.diya.backend.dto.category.SubCategoryDTO;
 import com.diya.backend.entity.SubCategory;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.*;
@@ -24,5 +27,11 @@ public interface SubCategoryRepository extends JpaRepository<SubCategory, UUID>
     // ✅ duplicate check (CHILD)
     Optional<SubCategory> findByParentSubCategoryIdAndNameIgnoreCase(UUID parentId, String name);
 
+    // ✅ category tree: every level of every category of a wholesaler, one query
+    @Query("SELECT new com.diya.backend.dto.category.SubCategoryDTO(s.id, s.name, c.id, p.id) "
+            + "FROM SubCategory s JOIN s.category c LEFT JOIN s.parentSubCategory p "
+            + "WHERE c.wholesaler.id = :wholesalerId")
+    List<SubCategoryDTO> findTreeRowsByWholesalerId(@Param("wholesalerId") UUID wholesalerId);
+
     // Optional<SubCategory> findByCategoryIdAndName(UUID categoryId, String name);
 }
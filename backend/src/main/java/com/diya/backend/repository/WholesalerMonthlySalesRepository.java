@@ -0,0 +1,37 @@
+package com.diya.backend.repository;
+
+import com.diya.backend.entity.WholesalerMonthlySales;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface WholesalerMonthlySalesRepository extends JpaRepository<WholesalerMonthlySales, UUID> {
+
+    List<WholesalerMonthlySales> findByWholesalerIdOrderBySalesMonthAsc(UUID wholesalerId);
+
+    // returns 0 if the bucket does not exist yet
+    @Modifying
+    @Query("UPDATE WholesalerMonthlySales m SET m.orderCount = m.orderCount + :orders, "
+            + "m.totalSales = m.totalSales + :sales "
+            + "WHERE m.wholesalerId = :wholesalerId AND m.salesMonth = :month")
+    int add(@Param("wholesalerId") UUID wholesalerId,
+            @Param("month") LocalDate month,
+            @Param("orders") long orders,
+            @Param("sales") double sales);
+
+    @Modifying
+    @Query(value = "INSERT INTO wholesaler_monthly_sales (id, wholesaler_id, sales_month, order_count, total_sales) "
+            + "VALUES (:id, :wholesalerId, :month, :orders, :sales) ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("id") UUID id,
+            @Param("wholesalerId") UUID wholesalerId,
+            @Param("month") LocalDate month,
+            @Param("orders") long orders,
+            @Param("sales") double sales);
+}
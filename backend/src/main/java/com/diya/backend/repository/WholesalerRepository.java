@@ -2,6 +2,8 @@ package com.diya.backend.repository;
 
 import com.diya.backend.entity.Wholesaler;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -20,6 +22,13 @@ public interface WholesalerRepository extends JpaRepository<Wholesaler, UUID> {
     // restore old convenience method used across services
     Optional<Wholesaler> findByUserEmail(String email);
 
+    // id-only lookups used by PrincipalResolver (no entity is loaded)
+    @Query("SELECT w.id FROM Wholesaler w WHERE w.user.email = :email")
+    Optional<UUID> findIdByUserEmail(@Param("email") String email);
+
+    @Query("SELECT w.id FROM Wholesaler w WHERE w.user.phone = :phone")
+    Optional<UUID> findIdByUserPhone(@Param("phone") String phone);
+
     boolean existsByHandle(String handle);
 
     boolean existsByUserId(UUID userId);
@@ -0,0 +1,33 @@
+package com.diya.backend.repository;
+
+import com.diya.backend.entity.WholesalerSequence;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.UUID;
+
+@Repository
+public interface WholesalerSequenceRepository extends JpaRepository<WholesalerSequence, UUID> {
+
+    // atomic bump by count (row lock on this counter row only); returns 0 if the row does not exist yet
+    @Modifying
+    @Query("UPDATE WholesalerSequence s SET s.lastIssued = s.lastIssued + :count "
+            + "WHERE s.wholesalerId = :wholesalerId AND s.kind = :kind")
+    int incrementBy(@Param("wholesalerId") UUID wholesalerId, @Param("kind") WholesalerSequence.Kind kind,
+            @Param("count") long count);
+
+    @Query("SELECT s.lastIssued FROM WholesalerSequence s WHERE s.wholesalerId = :wholesalerId AND s.kind = :kind")
+    long lastIssued(@Param("wholesalerId") UUID wholesalerId, @Param("kind") WholesalerSequence.Kind kind);
+
+    // first use: create the counter, racing creators just no-op
+    @Modifying
+    @Query(value = "INSERT INTO wholesaler_sequences (id, wholesaler_id, kind, last_issued) "
+            + "VALUES (:id, :wholesalerId, :kind, :seed) ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("id") UUID id,
+            @Param("wholesalerId") UUID wholesalerId,
+            @Param("kind") String kind,
+            @Param("seed") long seed);
+}
@@ -0,0 +1,35 @@
+package com.diya.backend.repository;
+
+import com.diya.backend.entity.WholesalerStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.UUID;
+
+@Repository
+public interface WholesalerStatsRepository extends JpaRepository<WholesalerStats, UUID> {
+
+    @Modifying
+    @Query("UPDATE WholesalerStats s SET s.totalOrders = s.totalOrders + :orders, "
+            + "s.totalSales = s.totalSales + :sales WHERE s.wholesalerId = :wholesalerId")
+    int addOrders(@Param("wholesalerId") UUID wholesalerId,
+            @Param("orders") long orders,
+            @Param("sales") double sales);
+
+    @Modifying
+    @Query("UPDATE WholesalerStats s SET s.totalReceived = s.totalReceived + :amount "
+            + "WHERE s.wholesalerId = :wholesalerId")
+    int addReceived(@Param("wholesalerId") UUID wholesalerId, @Param("amount") double amount);
+
+    // first use: seed from existing history, racing seeders just no-op
+    @Modifying
+    @Query(value = "INSERT INTO wholesaler_stats (wholesaler_id, total_orders, total_sales, total_received) "
+            + "VALUES (:wholesalerId, :orders, :sales, :received) ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("wholesalerId") UUID wholesalerId,
+            @Param("orders") long orders,
+            @Param("sales") double sales,
+            @Param("received") double received);
+}
@@ -0,0 +1,34 @@
+package com.diya.backend.repository;
+
+import com.diya.backend.entity.Order;
+import com.diya.backend.entity.WholesalerStatusCount;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface WholesalerStatusCountRepository extends JpaRepository<WholesalerStatusCount, UUID> {
+
+    List<WholesalerStatusCount> findByWholesalerId(UUID wholesalerId);
+
+    // returns 0 if the (wholesaler, status) row does not exist yet
+    @Modifying
+    @Query("UPDATE WholesalerStatusCount c SET c.orderCount = c.orderCount + :delta "
+            + "WHERE c.wholesalerId = :wholesalerId AND c.status = :status")
+    int add(@Param("wholesalerId") UUID wholesalerId,
+            @Param("status") Order.Status status,
+            @Param("delta") long delta);
+
+    @Modifying
+    @Query(value = "INSERT INTO wholesaler_status_counts (id, wholesaler_id, status, order_count) "
+            + "VALUES (:id, :wholesalerId, :status, :seed) ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("id") UUID id,
+            @Param("wholesalerId") UUID wholesalerId,
+            @Param("status") String status,
+            @Param("seed") long seed);
+}
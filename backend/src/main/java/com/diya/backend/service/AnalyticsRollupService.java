@@ -0,0 +1,154 @@
+package com.diya.backend.service;
+
+import com.diya.backend.entity.Order;
+import com.diya.backend.entity.Payment;
+import com.diya.backend.entity.RetailerStats;
+import com.diya.backend.entity.WholesalerStats;
+import com.diya.backend.repository.*;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Keeps the analytics rollup tables (wholesaler_stats, retailer_stats,
+ * wholesaler_status_counts, wholesaler_monthly_sales) in step with orders
+ * and payments.
+ *
+ * Every change is an atomic "col = col + delta" UPDATE inside the caller's
+ * transaction, so the rollups commit or roll back together with the order /
+ * payment that caused them.
+ *
+ * Rollup rows for a wholesaler / retailer are created lazily from the
+ * existing history the first time they are touched. Call ensureSeeded()
+ * BEFORE changing the order / payment in the same transaction, otherwise the
+ * change would be counted twice (once by the seed, once by the delta).
+ */
+@Service
+@RequiredArgsConstructor
+public class AnalyticsRollupService {
+
+    private final WholesalerStatsRepository wholesalerStatsRepository;
+    private final RetailerStatsRepository retailerStatsRepository;
+    private final WholesalerStatusCountRepository statusCountRepository;
+    private final WholesalerMonthlySalesRepository monthlySalesRepository;
+    private final OrderRepository orderRepository;
+    private final PaymentRepository paymentRepository;
+
+    // ==========================================================
+    // Seeding
+    // ==========================================================
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void ensureSeeded(UUID wholesalerId, UUID retailerId) {
+        if (wholesalerId != null && !wholesalerStatsRepository.existsById(wholesalerId)) {
+            seedWholesaler(wholesalerId);
+        }
+        if (retailerId != null && !retailerStatsRepository.existsById(retailerId)) {
+            seedRetailer(retailerId);
+        }
+    }
+
+    private void seedWholesaler(UUID wholesalerId) {
+        OrderRepository.Totals totals = orderRepository.totalsForWholesaler(wholesalerId);
+        double received = paymentRepository.sumAmountForWholesaler(wholesalerId, Payment.PaymentStatus.CONFIRMED);
+
+        int inserted = wholesalerStatsRepository.insertIfAbsent(
+                wholesalerId, totals.getOrders(), totals.getAmount(), received);
+        if (inserted == 0) {
+            return; // seeded concurrently
+        }
+
+        for (OrderRepository.StatusTotals row : orderRepository.statusTotalsForWholesaler(wholesalerId)) {
+            statusCountRepository.insertIfAbsent(
+                    UUID.randomUUID(), wholesalerId, row.getStatus().name(), row.getOrders());
+        }
+
+        for (OrderRepository.MonthTotals row : orderRepository.monthTotalsForWholesaler(wholesalerId)) {
+            monthlySalesRepository.insertIfAbsent(UUID.randomUUID(), wholesalerId,
+                    LocalDate.of(row.getYr(), row.getMon(), 1), row.getOrders(), row.getAmount());
+        }
+    }
+
+    private void seedRetailer(UUID retailerId) {
+        OrderRepository.Totals totals = orderRepository.totalsForRetailer(retailerId);
+        double paid = paymentRepository.sumAmountForRetailer(retailerId, Payment.PaymentStatus.CONFIRMED);
+
+        retailerStatsRepository.insertIfAbsent(retailerId, totals.getOrders(), totals.getAmount(), paid);
+    }
+
+    // ==========================================================
+    // Deltas
+    // ==========================================================
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void orderPlaced(Order order) {
+        UUID wholesalerId = order.getWholesaler().getId();
+        UUID retailerId = order.getRetailer().getId();
+        double amount = order.getTotalAmount() == null ? 0.0 : order.getTotalAmount();
+
+        wholesalerStatsRepository.addOrders(wholesalerId, 1, amount);
+        retailerStatsRepository.addOrders(retailerId, 1, amount);
+        addStatusCount(wholesalerId, order.getStatus(), 1);
+
+        LocalDateTime placedAt = order.getPlacedAt() == null ? LocalDateTime.now() : order.getPlacedAt();
+        LocalDate month = placedAt.toLocalDate().withDayOfMonth(1);
+
+        if (monthlySalesRepository.add(wholesalerId, month, 1, amount) == 0) {
+            monthlySalesRepository.insertIfAbsent(UUID.randomUUID(), wholesalerId, month, 0, 0.0);
+            monthlySalesRepository.add(wholesalerId, month, 1, amount);
+        }
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void orderStatusChanged(Order order, Order.Status from, Order.Status to) {
+        if (from == to) {
+            return;
+        }
+        ordersMoved(order.getWholesaler().getId(), from, to, 1);
+    }
+
+    // many orders of one wholesaler moved together (e.g. expired reservations)
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void ordersMoved(UUID wholesalerId, Order.Status from, Order.Status to, long count) {
+        if (from == to || count == 0) {
+            return;
+        }
+        addStatusCount(wholesalerId, from, -count);
+        addStatusCount(wholesalerId, to, count);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void paymentConfirmed(Payment payment) {
+        double amount = payment.getAmount() == null ? 0.0 : payment.getAmount();
+
+        wholesalerStatsRepository.addReceived(payment.getWholesaler().getId(), amount);
+        retailerStatsRepository.addPaid(payment.getRetailer().getId(), amount);
+    }
+
+    private void addStatusCount(UUID wholesalerId, Order.Status status, long delta) {
+        if (statusCountRepository.add(wholesalerId, status, delta) == 0) {
+            statusCountRepository.insertIfAbsent(UUID.randomUUID(), wholesalerId, status.name(), 0);
+            statusCountRepository.add(wholesalerId, status, delta);
+        }
+    }
+
+    // ==========================================================
+    // Reads
+    // ==========================================================
+    @Transactional
+    public WholesalerStats wholesalerStats(UUID wholesalerId) {
+        ensureSeeded(wholesalerId, null);
+        return wholesalerStatsRepository.findById(wholesalerId)
+                .orElseThrow(() -> new RuntimeException("Wholesaler stats not found"));
+    }
+
+    @Transactional
+    public RetailerStats retailerStats(UUID retailerId) {
+        ensureSeeded(null, retailerId);
+        return retailerStatsRepository.findById(retailerId)
+                .orElseThrow(() -> new RuntimeException("Retailer stats not found"));
+    }
+}
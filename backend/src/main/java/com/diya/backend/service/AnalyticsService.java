@@ -5,92 +5,58 @@ import com.diya.backend.repository.*;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
-import java.time.LocalDate;
-import java.time.ZoneId;
 import java.time.format.TextStyle;
 import java.util.*;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class AnalyticsService {
 
-        private final WholesalerRepository wholesalerRepository;
         private final RetailerRepository retailerRepository;
-        private final OrderRepository orderRepository;
-        private final PaymentRepository paymentRepository;
+        private final WholesalerStatusCountRepository statusCountRepository;
+        private final WholesalerMonthlySalesRepository monthlySalesRepository;
+        private final AnalyticsRollupService analyticsRollupService;
+        private final PrincipalResolver principalResolver;
 
         // ✅ Wholesaler dashboard summary
         public Map<String, Object> getWholesalerSummary(String identifier) {
-                Wholesaler wholesaler;
-                if (identifier.contains("@")) {
-                        wholesaler = wholesalerRepository.findByUserEmail(identifier)
-                                        .orElseThrow(() -> new RuntimeException("Wholesaler not found"));
-                } else {
-                        wholesaler = wholesalerRepository.findByUserPhone(identifier)
-                                        .orElseThrow(() -> new RuntimeException("Wholesaler not found"));
+                Wholesaler wholesaler = principalResolver.wholesaler(identifier);
+
+                // O(1): running totals + per-status counters, see AnalyticsRollupService
+                WholesalerStats stats = analyticsRollupService.wholesalerStats(wholesaler.getId());
+
+                Map<Order.Status, Long> byStatus = new EnumMap<>(Order.Status.class);
+                for (WholesalerStatusCount c : statusCountRepository.findByWholesalerId(wholesaler.getId())) {
+                        byStatus.put(c.getStatus(), c.getOrderCount());
                 }
 
-                List<Order> orders = orderRepository.findAll().stream()
-                                .filter(o -> o.getWholesaler().getId().equals(wholesaler.getId()))
-                                .toList();
-
-                List<Payment> payments = paymentRepository.findAll().stream()
-                                .filter(p -> p.getWholesaler().getId().equals(wholesaler.getId()))
-                                .toList();
-
-                double totalSales = orders.stream().mapToDouble(Order::getTotalAmount).sum();
-                double totalReceived = payments.stream()
-                                .filter(p -> p.getStatus() == Payment.PaymentStatus.CONFIRMED)
-                                .mapToDouble(Payment::getAmount)
-                                .sum();
-                long pendingOrders = orders.stream()
-                                .filter(o -> o.getStatus() == Order.Status.PLACED)
-                                .count();
-                long deliveredOrders = orders.stream()
-                                .filter(o -> o.getStatus() == Order.Status.DELIVERED)
-                                .count();
+                double totalSales = stats.getTotalSales();
+                double totalReceived = stats.getTotalReceived();
 
                 Map<String, Object> summary = new LinkedHashMap<>();
                 summary.put("wholesalerName", wholesaler.getBusinessName());
-                summary.put("totalOrders", orders.size());
+                summary.put("totalOrders", stats.getTotalOrders());
                 summary.put("totalSales", totalSales);
                 summary.put("totalReceived", totalReceived);
                 summary.put("outstandingAmount", totalSales - totalReceived);
-                summary.put("pendingOrders", pendingOrders);
-                summary.put("deliveredOrders", deliveredOrders);
+                summary.put("pendingOrders", byStatus.getOrDefault(Order.Status.PLACED, 0L));
+                summary.put("deliveredOrders", byStatus.getOrDefault(Order.Status.DELIVERED, 0L));
                 summary.put("activeRetailers", retailerRepository.count());
                 return summary;
         }
 
         // ✅ Retailer dashboard summary
         public Map<String, Object> getRetailerSummary(String identifier) {
-                Retailer retailer;
-                if (identifier.contains("@")) {
-                        retailer = retailerRepository.findByUserEmail(identifier)
-                                        .orElseThrow(() -> new RuntimeException("Retailer not found"));
-                } else {
-                        retailer = retailerRepository.findByUserPhone(identifier)
-                                        .orElseThrow(() -> new RuntimeException("Retailer not found"));
-                }
+                Retailer retailer = principalResolver.retailer(identifier);
 
-                List<Order> orders = orderRepository.findAll().stream()
-                                .filter(o -> o.getRetailer().getId().equals(retailer.getId()))
-                                .toList();
+                RetailerStats stats = analyticsRollupService.retailerStats(retailer.getId());
 
-                List<Payment> payments = paymentRepository.findAll().stream()
-                                .filter(p -> p.getRetailer().getId().equals(retailer.getId()))
-                                .toList();
-
-                double totalSpent = orders.stream().mapToDouble(Order::getTotalAmount).sum();
-                double totalPaid = payments.stream()
-                                .filter(p -> p.getStatus() == Payment.PaymentStatus.CONFIRMED)
-                                .mapToDouble(Payment::getAmount)
-                                .sum();
+                double totalSpent = stats.getTotalSpent();
+                double totalPaid = stats.getTotalPaid();
 
                 Map<String, Object> summary = new LinkedHashMap<>();
                 summary.put("retailerName", retailer.getShopName());
-                summary.put("totalOrders", orders.size());
+                summary.put("totalOrders", stats.getTotalOrders());
                 summary.put("totalSpent", totalSpent);
                 summary.put("totalPaid", totalPaid);
                 summary.put("outstandingDue", totalSpent - totalPaid);
@@ -99,27 +65,20 @@ public class AnalyticsService {
 
         // ✅ Monthly sales for charting (Wholesaler)
         public Map<String, Object> getMonthlySales(String identifier) {
-                Wholesaler wholesaler;
-                if (identifier.contains("@")) {
-                        wholesaler = wholesalerRepository.findByUserEmail(identifier)
-                                        .orElseThrow(() -> new RuntimeException("Wholesaler not found"));
-                } else {
-                        wholesaler = wholesalerRepository.findByUserPhone(identifier)
-                                        .orElseThrow(() -> new RuntimeException("Wholesaler not found"));
+                Wholesaler wholesaler = principalResolver.wholesaler(identifier);
+
+                // make sure legacy history is bucketed before the first read
+                analyticsRollupService.wholesalerStats(wholesaler.getId());
+
+                // keyed by short month name across years, same shape as before
+                Map<String, Double> monthlyTotals = new LinkedHashMap<>();
+                for (WholesalerMonthlySales bucket : monthlySalesRepository
+                                .findByWholesalerIdOrderBySalesMonthAsc(wholesaler.getId())) {
+                        String month = bucket.getSalesMonth().getMonth()
+                                        .getDisplayName(TextStyle.SHORT, Locale.ENGLISH);
+                        monthlyTotals.merge(month, bucket.getTotalSales(), Double::sum);
                 }
 
-                List<Order> orders = orderRepository.findAll().stream()
-                                .filter(o -> o.getWholesaler().getId().equals(wholesaler.getId()))
-                                .toList();
-
-                Map<String, Double> monthlyTotals = orders.stream()
-                                .collect(Collectors.groupingBy(
-                                                o -> o.getPlacedAt()
-                                                                .atZone(ZoneId.systemDefault())
-                                                                .getMonth()
-                                                                .getDisplayName(TextStyle.SHORT, Locale.ENGLISH),
-                                                Collectors.summingDouble(Order::getTotalAmount)));
-
                 Map<String, Object> result = new LinkedHashMap<>();
                 result.put("wholesaler", wholesaler.getBusinessName());
                 result.put("monthlySales", monthlyTotals);
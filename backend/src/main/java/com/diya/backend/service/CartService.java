@@ -2,132 +2,129 @@ package com.diya.backend.service;
 
 import com.diya.backend.dto.cart.CartDTO;
 import com.diya.backend.dto.cart.CartItemDTO;
-import com.diya.backend.entity.*;
-import com.diya.backend.repository.*;
+import com.diya.backend.dto.cart.CartLinesRequest;
+import com.diya.backend.dto.cart.CartProductRow;
+import com.diya.backend.repository.ProductRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Optional;
-import java.util.UUID;
+import java.util.*;
 import java.util.stream.Collectors;
 
+/**
+ * Cart edits go to the working cart in CartStore (written to the cart rows
+ * once per burst of edits); each edit reads only the product row(s) it needs.
+ */
 @Service
 @RequiredArgsConstructor
 public class CartService {
 
-    private final CartRepository cartRepository;
-    private final CartItemRepository cartItemRepository;
+    static final int MAX_CART_LINES = 500;
+
     private final ProductRepository productRepository;
-    private final RetailerRepository retailerRepository;
-    private final WholesalerRepository wholesalerRepository;
+    private final CartStore cartStore;
 
     /*
      * ---------------------------------------------------------
-     * FIXED: Correct entity loading before findByRetailerAndWholesaler()
+     * ADD ITEM
      * ---------------------------------------------------------
      */
-    @Transactional
-    public Cart getOrCreateCart(UUID retailerId, UUID wholesalerId) {
-
-        Retailer retailer = retailerRepository.findById(retailerId)
-                .orElseThrow(() -> new RuntimeException("Retailer not found"));
-
-        Wholesaler wholesaler = wholesalerRepository.findById(wholesalerId)
-                .orElseThrow(() -> new RuntimeException("Wholesaler not found"));
-
-        return cartRepository.findByRetailerAndWholesaler(retailer, wholesaler)
-                .orElseGet(() -> {
-                    Cart cart = Cart.builder()
-                            .retailer(retailer)
-                            .wholesaler(wholesaler)
-                            .build();
-                    return cartRepository.save(cart);
-                });
+    public CartDTO addItem(UUID retailerId, UUID productId, int qty) {
+        return add(retailerId, product(productId), qty);
+    }
+
+    public CartDTO addItem(UUID retailerId, UUID wholesalerId, UUID productId, int qty) {
+        CartProductRow product = product(productId);
+        ensureSameWholesaler(product, wholesalerId);
+        return add(retailerId, product, qty);
+    }
+
+    private CartDTO add(UUID retailerId, CartProductRow product, int qty) {
+        return cartStore.edit(retailerId, product.wholesalerId(), cart -> {
+            cart.set(product, cart.quantity(product.id()) + qty);
+            return toDto(cart);
+        });
     }
 
     /*
      * ---------------------------------------------------------
-     * ADD ITEM
+     * UPDATE ITEM
      * ---------------------------------------------------------
      */
-    @Transactional
-    public Cart addItem(UUID retailerId, UUID wholesalerId, UUID productId, int qty) {
-
-        Cart cart = getOrCreateCart(retailerId, wholesalerId);
-
-        Product product = productRepository.findById(productId)
-                .orElseThrow(() -> new RuntimeException("Product not found"));
-
-        if (!product.getWholesaler().getId().equals(wholesalerId)) {
-            throw new RuntimeException("Product does not belong to this wholesaler");
-        }
-
-        Optional<CartItem> existingItem = cart.getItems().stream()
-                .filter(item -> item.getProduct().getId().equals(productId))
-                .findFirst();
-
-        if (existingItem.isPresent()) {
-            CartItem item = existingItem.get();
-            item.setQuantity(item.getQuantity() + qty);
-            item.setPriceAtTime(product.getPrice());
-            item.setMrpAtTime(product.getMrp());
-            item.setStockSnapshot(product.getStock());
-        } else {
-            CartItem newItem = CartItem.builder()
-                    .cart(cart)
-                    .product(product)
-                    .quantity(qty)
-                    .priceAtTime(product.getPrice())
-                    .mrpAtTime(product.getMrp())
-                    .stockSnapshot(product.getStock())
-                    .build();
-            cart.getItems().add(newItem);
-        }
-
-        return cartRepository.save(cart);
+    public CartDTO updateItem(UUID retailerId, UUID productId, int qty) {
+        CartProductRow product = product(productId);
+        return cartStore.edit(retailerId, product.wholesalerId(), cart -> {
+            if (cart.quantity(productId) == 0) {
+                throw new RuntimeException("Item not found in cart");
+            }
+            cart.set(product, qty); // qty <= 0 removes the line
+            return toDto(cart);
+        });
     }
 
     /*
      * ---------------------------------------------------------
-     * UPDATE ITEM
+     * REMOVE ITEM
      * ---------------------------------------------------------
      */
-    @Transactional
-    public Cart updateItem(UUID retailerId, UUID wholesalerId, UUID productId, int qty) {
-
-        Cart cart = getOrCreateCart(retailerId, wholesalerId);
-
-        if (qty <= 0) {
-            return removeItem(retailerId, wholesalerId, productId);
-        }
-
-        CartItem item = cart.getItems().stream()
-                .filter(i -> i.getProduct().getId().equals(productId))
-                .findFirst()
-                .orElseThrow(() -> new RuntimeException("Item not found in cart"));
-
-        item.setQuantity(qty);
-        item.setPriceAtTime(item.getProduct().getPrice());
-        item.setMrpAtTime(item.getProduct().getMrp());
-        item.setStockSnapshot(item.getProduct().getStock());
-
-        return cartRepository.save(cart);
+    public CartDTO removeItem(UUID retailerId, UUID productId) {
+        CartProductRow product = product(productId);
+        return cartStore.edit(retailerId, product.wholesalerId(), cart -> {
+            cart.remove(productId);
+            return toDto(cart);
+        });
     }
 
     /*
      * ---------------------------------------------------------
-     * REMOVE ITEM
+     * SET LINES (the app sends its whole cart diff in one call)
      * ---------------------------------------------------------
      */
-    @Transactional
-    public Cart removeItem(UUID retailerId, UUID wholesalerId, UUID productId) {
+    public CartDTO setLines(UUID retailerId, CartLinesRequest req) {
 
-        Cart cart = getOrCreateCart(retailerId, wholesalerId);
+        if (req == null || req.getWholesalerId() == null) {
+            throw new RuntimeException("Wholesaler ID is required");
+        }
+        List<CartLinesRequest.Line> lines = req.getLines() == null ? List.of() : req.getLines();
+        if (lines.size() > MAX_CART_LINES) {
+            throw new RuntimeException("Too many cart lines (max " + MAX_CART_LINES + ")");
+        }
 
-        cart.getItems().removeIf(item -> item.getProduct().getId().equals(productId));
+        // a product listed twice: the last line wins
+        Map<UUID, Integer> qtyByProduct = new LinkedHashMap<>();
+        for (CartLinesRequest.Line line : lines) {
+            if (line == null || line.getProductId() == null) {
+                throw new RuntimeException("Product ID is required");
+            }
+            if (line.getQuantity() == null || line.getQuantity() < 0) {
+                throw new RuntimeException("Invalid quantity for product: " + line.getProductId());
+            }
+            qtyByProduct.put(line.getProductId(), line.getQuantity());
+        }
 
-        return cartRepository.save(cart);
+        Map<UUID, CartProductRow> products = new HashMap<>();
+        for (CartProductRow row : productRepository.findCartRowsByIdIn(qtyByProduct.keySet())) {
+            products.put(row.id(), row);
+        }
+        for (UUID productId : qtyByProduct.keySet()) {
+            CartProductRow product = products.get(productId);
+            if (product == null) {
+                throw new RuntimeException("Product not found");
+            }
+            ensureSameWholesaler(product, req.getWholesalerId());
+        }
+
+        return cartStore.edit(retailerId, req.getWholesalerId(), cart -> {
+            if (req.isReplace()) {
+                cart.lines().stream()
+                        .map(CartStore.Line::getProductId)
+                        .filter(id -> !qtyByProduct.containsKey(id))
+                        .toList()
+                        .forEach(cart::remove);
+            }
+            qtyByProduct.forEach((productId, qty) -> cart.set(products.get(productId), qty));
+            return toDto(cart);
+        });
     }
 
     /*
@@ -136,8 +133,22 @@ public class CartService {
      * ---------------------------------------------------------
      */
     public CartDTO getCart(UUID retailerId, UUID wholesalerId) {
-        Cart cart = getOrCreateCart(retailerId, wholesalerId);
-        return toDto(cart);
+        return cartStore.read(retailerId, wholesalerId, this::toDto);
+    }
+
+    private CartProductRow product(UUID productId) {
+        if (productId == null) {
+            throw new RuntimeException("Product ID is required");
+        }
+        return productRepository.findCartRowsByIdIn(List.of(productId)).stream()
+                .findFirst()
+                .orElseThrow(() -> new RuntimeException("Product not found"));
+    }
+
+    private static void ensureSameWholesaler(CartProductRow product, UUID wholesalerId) {
+        if (!product.wholesalerId().equals(wholesalerId)) {
+            throw new RuntimeException("Product does not belong to this wholesaler");
+        }
     }
 
     /*
@@ -145,34 +156,34 @@ public class CartService {
      * CONVERT CART → DTO
      * ---------------------------------------------------------
      */
-    private CartDTO toDto(Cart cart) {
+    private CartDTO toDto(CartStore.WorkingCart cart) {
 
-        double totalAmount = cart.getItems().stream()
-                .mapToDouble(item -> item.getPriceAtTime() * item.getQuantity())
+        double totalAmount = cart.lines().stream()
+                .mapToDouble(line -> line.getPrice() * line.getQuantity())
                 .sum();
 
         return CartDTO.builder()
-                .id(cart.getId())
-                .wholesalerId(cart.getWholesaler().getId())
-                .wholesalerName(cart.getWholesaler().getBusinessName())
-                .items(cart.getItems().stream().map(this::toItemDto).collect(Collectors.toList()))
+                .id(cart.getCartId())
+                .wholesalerId(cart.getWholesalerId())
+                .wholesalerName(cart.getWholesalerName())
+                .items(cart.lines().stream().map(this::toItemDto).collect(Collectors.toList()))
                 .totalAmount(totalAmount)
-                .totalItems(cart.getItems().stream().mapToInt(CartItem::getQuantity).sum())
+                .totalItems(cart.lines().stream().mapToInt(CartStore.Line::getQuantity).sum())
                 .build();
     }
 
-    private CartItemDTO toItemDto(CartItem item) {
+    private CartItemDTO toItemDto(CartStore.Line line) {
         return CartItemDTO.builder()
-                .id(item.getId())
-                .productId(item.getProduct().getId())
-                .productName(item.getProduct().getName())
-                .productSku(item.getProduct().getSku())
-                .productImageUrl(item.getProduct().getImageUrl())
-                .quantity(item.getQuantity())
-                .price(item.getPriceAtTime())
-                .mrp(item.getMrpAtTime())
-                .total(item.getPriceAtTime() * item.getQuantity())
-                .status(computeStatus(item.getProduct().getStock()))
+                .id(line.getItemId())
+                .productId(line.getProductId())
+                .productName(line.getName())
+                .productSku(line.getSku())
+                .productImageUrl(line.getImageUrl())
+                .quantity(line.getQuantity())
+                .price(line.getPrice())
+                .mrp(line.getMrp())
+                .total(line.getPrice() * line.getQuantity())
+                .status(computeStatus(line.getStock()))
                 .build();
     }
 
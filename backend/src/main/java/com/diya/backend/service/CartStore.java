@@ -0,0 +1,480 @@
+package com.diya.backend.service;
+
+import com.diya.backend.dto.cart.CartProductRow;
+import com.diya.backend.entity.Cart;
+import com.diya.backend.entity.CartItem;
+import com.diya.backend.entity.Wholesaler;
+import com.diya.backend.repository.CartItemRepository;
+import com.diya.backend.repository.CartRepository;
+import com.diya.backend.repository.ProductRepository;
+import com.diya.backend.repository.RetailerRepository;
+import com.diya.backend.repository.WholesalerRepository;
+import com.diya.backend.util.AfterCommit;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Working copies of the carts retailers are editing, written to carts /
+ * cart_items once per burst of edits.
+ *
+ * Retailers tap +/- several times in a row; each tap used to load the cart
+ * and save it again. Now a tap only changes the working cart and marks the
+ * line as touched. The flusher writes the touched lines in one transaction
+ * once the cart has been quiet for diya.cart.coalesce-ms (at the latest
+ * diya.cart.max-delay-ms after the first unwritten edit). Checkout flushes
+ * the cart first, so it always orders what the retailer saw.
+ *
+ * Only touched lines are written, so an older copy never undoes lines that
+ * were written by someone else. Copies are node-local: with several nodes,
+ * route a retailer to one node or set diya.cart.coalesce-ms=0, which turns
+ * the working copies off (every read and edit loads the cart rows, every
+ * edit is written right away).
+ *
+ * Bounded by diya.cart.cache.max-carts / idle-ms; a cart evicted with
+ * unwritten edits is flushed on the way out, on a background thread rather
+ * than inside the cache. Hit rate is published as the "cart.working" cache
+ * in /actuator/metrics.
+ */
+@Slf4j
+@Service
+public class CartStore {
+
+    public static final String METRIC_NAME = "cart.working";
+    public static final String METRIC_EDITS = "cart.edits";
+    public static final String METRIC_FLUSHES = "cart.flushes";
+
+    public record CartKey(UUID retailerId, UUID wholesalerId) {
+    }
+
+    /**
+     * One cart line as the retailer sees it; price / stock are taken from the
+     * product on every edit of the line.
+     */
+    @Getter
+    public static final class Line {
+        private final UUID productId;
+        private UUID itemId;
+        private int quantity;
+        private String name;
+        private String sku;
+        private String imageUrl;
+        private Double price;
+        private Double mrp;
+        private Integer stock;
+
+        private Line(UUID productId) {
+            this.productId = productId;
+        }
+
+        private Line copy() {
+            Line copy = new Line(productId);
+            copy.itemId = itemId;
+            copy.quantity = quantity;
+            copy.name = name;
+            copy.sku = sku;
+            copy.imageUrl = imageUrl;
+            copy.price = price;
+            copy.mrp = mrp;
+            copy.stock = stock;
+            return copy;
+        }
+    }
+
+    /**
+     * The working copy of one cart. Changed only inside CartStore.edit, which
+     * holds its monitor.
+     */
+    public static final class WorkingCart {
+        private final CartKey key;
+        @Getter
+        private final String wholesalerName;
+        @Getter
+        private UUID cartId;
+        private final Map<UUID, Line> lines = new LinkedHashMap<>();
+
+        // lines changed since the last flush, and when the oldest / newest change happened
+        private final Set<UUID> touched = new HashSet<>();
+        private long firstTouchedAt;
+        private long lastTouchedAt;
+
+        private final ReentrantLock flushLock = new ReentrantLock();
+
+        private WorkingCart(CartKey key, String wholesalerName) {
+            this.key = key;
+            this.wholesalerName = wholesalerName;
+        }
+
+        public UUID getWholesalerId() {
+            return key.wholesalerId();
+        }
+
+        public Collection<Line> lines() {
+            return Collections.unmodifiableCollection(lines.values());
+        }
+
+        public int quantity(UUID productId) {
+            Line line = lines.get(productId);
+            return line == null ? 0 : line.quantity;
+        }
+
+        // sets the line to qty (<= 0 removes it), with the product's current price / stock
+        public void set(CartProductRow product, int qty) {
+            if (qty <= 0) {
+                remove(product.id());
+                return;
+            }
+            Line line = lines.computeIfAbsent(product.id(), Line::new);
+            line.quantity = qty;
+            line.name = product.name();
+            line.sku = product.sku();
+            line.imageUrl = product.imageUrl();
+            line.price = product.price();
+            line.mrp = product.mrp();
+            line.stock = product.stock();
+            touch(product.id());
+        }
+
+        public void remove(UUID productId) {
+            if (lines.remove(productId) != null) {
+                touch(productId);
+            }
+        }
+
+        private void touch(UUID productId) {
+            long now = System.currentTimeMillis();
+            if (touched.isEmpty()) {
+                firstTouchedAt = now;
+            }
+            touched.add(productId);
+            lastTouchedAt = now;
+        }
+    }
+
+    private record Written(UUID cartId, Map<UUID, UUID> itemIds) {
+    }
+
+    private final Cache<CartKey, WorkingCart> carts;
+    private final CartRepository cartRepository;
+    private final CartItemRepository cartItemRepository;
+    private final ProductRepository productRepository;
+    private final RetailerRepository retailerRepository;
+    private final WholesalerRepository wholesalerRepository;
+    private final TransactionTemplate readTx;
+    private final TransactionTemplate writeTx;
+    private final Counter edits;
+    private final Counter flushes;
+    private final long coalesceMs;
+    private final long maxDelayMs;
+    // flushes evicted carts outside Caffeine's eviction callback (one thread: evictions are rare)
+    private final ExecutorService evictionFlusher = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "cart-evict-flush");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public CartStore(
+            CartRepository cartRepository,
+            CartItemRepository cartItemRepository,
+            ProductRepository productRepository,
+            RetailerRepository retailerRepository,
+            WholesalerRepository wholesalerRepository,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${diya.cart.coalesce-ms:2000}") long coalesceMs,
+            @Value("${diya.cart.max-delay-ms:10000}") long maxDelayMs,
+            @Value("${diya.cart.cache.max-carts:20000}") long maxCarts,
+            @Value("${diya.cart.cache.idle-ms:1800000}") long idleMs) {
+        this.cartRepository = cartRepository;
+        this.cartItemRepository = cartItemRepository;
+        this.productRepository = productRepository;
+        this.retailerRepository = retailerRepository;
+        this.wholesalerRepository = wholesalerRepository;
+        this.coalesceMs = coalesceMs;
+        this.maxDelayMs = maxDelayMs;
+
+        this.readTx = new TransactionTemplate(transactionManager);
+        this.readTx.setReadOnly(true);
+        // always its own transaction: a flush commits even if the caller's work rolls back
+        this.writeTx = new TransactionTemplate(transactionManager);
+        this.writeTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        this.carts = Caffeine.newBuilder()
+                .maximumSize(maxCarts)
+                .expireAfterAccess(Duration.ofMillis(idleMs))
+                .recordStats()
+                .evictionListener(this::evicted)
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, carts, METRIC_NAME);
+        this.edits = Counter.builder(METRIC_EDITS)
+                .description("Cart edits applied to working carts")
+                .register(meterRegistry);
+        this.flushes = Counter.builder(METRIC_FLUSHES)
+                .description("Working cart writes to the database")
+                .register(meterRegistry);
+    }
+
+    // ==========================================================
+    // Read / edit
+    // ==========================================================
+
+    /**
+     * Runs view against the cart (loaded on first use) without changing it.
+     */
+    public <T> T read(UUID retailerId, UUID wholesalerId, Function<WorkingCart, T> view) {
+        WorkingCart cart = cart(new CartKey(retailerId, wholesalerId));
+        synchronized (cart) {
+            return view.apply(cart);
+        }
+    }
+
+    /**
+     * Applies change to the cart; the touched lines are written by the next
+     * flush (right away when coalescing is off).
+     */
+    public <T> T edit(UUID retailerId, UUID wholesalerId, Function<WorkingCart, T> change) {
+        WorkingCart cart = cart(new CartKey(retailerId, wholesalerId));
+        T result;
+        synchronized (cart) {
+            result = change.apply(cart);
+        }
+        edits.increment();
+        // write-through, or the cart was evicted (and flushed) while we edited it
+        if (coalesceMs <= 0 || carts.getIfPresent(cart.key) != cart) {
+            flush(cart);
+        }
+        return result;
+    }
+
+    // coalescing off: no working copy is kept, so another node's writes are always seen
+    private WorkingCart cart(CartKey key) {
+        return coalesceMs <= 0 ? load(key) : carts.get(key, this::load);
+    }
+
+    private WorkingCart load(CartKey key) {
+        return readTx.execute(tx -> {
+            Optional<Cart> existing = cartRepository.findWithItems(key.retailerId(), key.wholesalerId());
+            if (existing.isEmpty()) {
+                Wholesaler wholesaler = wholesalerRepository.findById(key.wholesalerId())
+                        .orElseThrow(() -> new RuntimeException("Wholesaler not found"));
+                return new WorkingCart(key, wholesaler.getBusinessName());
+            }
+
+            Cart cart = existing.get();
+            WorkingCart working = new WorkingCart(key, cart.getWholesaler().getBusinessName());
+            working.cartId = cart.getId();
+            for (CartItem item : cart.getItems()) {
+                Line line = working.lines.computeIfAbsent(item.getProduct().getId(), Line::new);
+                line.itemId = item.getId();
+                line.quantity = line.quantity + item.getQuantity();
+                line.name = item.getProduct().getName();
+                line.sku = item.getProduct().getSku();
+                line.imageUrl = item.getProduct().getImageUrl();
+                line.price = item.getPriceAtTime();
+                line.mrp = item.getMrpAtTime();
+                line.stock = item.getProduct().getStock();
+            }
+            return working;
+        });
+    }
+
+    // ==========================================================
+    // Flush
+    // ==========================================================
+
+    /**
+     * Writes the unwritten edits of this cart now (no-op when it is not held
+     * here). Called before checkout reads the cart rows.
+     */
+    public void flush(UUID retailerId, UUID wholesalerId) {
+        WorkingCart cart = carts.getIfPresent(new CartKey(retailerId, wholesalerId));
+        if (cart != null) {
+            flush(cart);
+        }
+    }
+
+    /**
+     * Drops the working copy once the current transaction commits, e.g.
+     * after checkout emptied the cart rows; the next read loads them again.
+     * Lines edited after the checkout's flush are kept (only those) and
+     * written by the flusher, so a tap during checkout is not lost.
+     */
+    public void invalidateAfterCommit(UUID retailerId, UUID wholesalerId) {
+        CartKey key = new CartKey(retailerId, wholesalerId);
+        AfterCommit.run(() -> {
+            WorkingCart cart = carts.getIfPresent(key);
+            if (cart == null) {
+                return;
+            }
+            // under the monitor: an edit either lands before (and is kept) or after the
+            // removal (and edit() writes it through, as the cart is no longer held)
+            synchronized (cart) {
+                if (cart.touched.isEmpty()) {
+                    carts.asMap().remove(key, cart);
+                } else {
+                    cart.lines.keySet().retainAll(cart.touched);
+                }
+            }
+        });
+    }
+
+    @Scheduled(initialDelayString = "${diya.cart.flush.initial-delay-ms:1000}",
+            fixedDelayString = "${diya.cart.flush.interval-ms:500}")
+    public void flushDue() {
+        long now = System.currentTimeMillis();
+        for (WorkingCart cart : carts.asMap().values()) {
+            boolean due;
+            synchronized (cart) {
+                due = !cart.touched.isEmpty()
+                        && (now - cart.lastTouchedAt >= coalesceMs || now - cart.firstTouchedAt >= maxDelayMs);
+            }
+            if (due) {
+                flushQuietly(cart);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void flushAll() {
+        evictionFlusher.shutdown();
+        try {
+            evictionFlusher.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        carts.asMap().values().forEach(this::flushQuietly);
+    }
+
+    // runs inside Caffeine's eviction (map lock held): the DB write goes to evictionFlusher
+    private void evicted(CartKey key, WorkingCart cart, RemovalCause cause) {
+        if (cart == null) {
+            return;
+        }
+        try {
+            evictionFlusher.execute(() -> flushQuietly(cart));
+        } catch (RejectedExecutionException e) {
+            flushQuietly(cart); // shutting down
+        }
+    }
+
+    private void flushQuietly(WorkingCart cart) {
+        try {
+            flush(cart);
+        } catch (RuntimeException e) {
+            // the lines stay touched and are written by a later flush
+            log.warn("Cart flush failed for retailer {} / wholesaler {}: {}",
+                    cart.key.retailerId(), cart.key.wholesalerId(), e.getMessage());
+        }
+    }
+
+    private void flush(WorkingCart cart) {
+        cart.flushLock.lock();
+        try {
+            // productId -> line to write, null = line removed
+            Map<UUID, Line> pending = new HashMap<>();
+            synchronized (cart) {
+                if (cart.touched.isEmpty()) {
+                    return;
+                }
+                for (UUID productId : cart.touched) {
+                    Line line = cart.lines.get(productId);
+                    pending.put(productId, line == null ? null : line.copy());
+                }
+                cart.touched.clear();
+            }
+
+            Written written;
+            try {
+                written = writeTx.execute(tx -> write(cart.key, pending));
+            } catch (RuntimeException e) {
+                synchronized (cart) {
+                    if (cart.touched.isEmpty()) {
+                        cart.firstTouchedAt = System.currentTimeMillis();
+                    }
+                    cart.touched.addAll(pending.keySet());
+                }
+                throw e;
+            }
+
+            synchronized (cart) {
+                cart.cartId = written.cartId();
+                written.itemIds().forEach((productId, itemId) -> {
+                    Line line = cart.lines.get(productId);
+                    if (line != null) {
+                        line.itemId = itemId;
+                    }
+                });
+            }
+            flushes.increment();
+        } finally {
+            cart.flushLock.unlock();
+        }
+    }
+
+    private Written write(CartKey key, Map<UUID, Line> pending) {
+        Cart cart = cartRepository.findWithItems(key.retailerId(), key.wholesalerId())
+                .orElseGet(() -> cartRepository.save(Cart.builder()
+                        .retailer(retailerRepository.getReferenceById(key.retailerId()))
+                        .wholesaler(wholesalerRepository.getReferenceById(key.wholesalerId()))
+                        .build()));
+
+        Map<UUID, List<CartItem>> itemsByProduct = new HashMap<>();
+        for (CartItem item : cart.getItems()) {
+            itemsByProduct.computeIfAbsent(item.getProduct().getId(), p -> new ArrayList<>()).add(item);
+        }
+
+        Map<UUID, UUID> itemIds = new HashMap<>();
+        for (Map.Entry<UUID, Line> entry : pending.entrySet()) {
+            List<CartItem> items = itemsByProduct.getOrDefault(entry.getKey(), List.of());
+            Line line = entry.getValue();
+            if (line == null) {
+                cart.getItems().removeAll(items); // orphanRemoval deletes them
+                continue;
+            }
+
+            CartItem item;
+            if (items.isEmpty()) {
+                item = CartItem.builder()
+                        .cart(cart)
+                        .product(productRepository.getReferenceById(line.productId))
+                        .build();
+            } else {
+                item = items.get(0);
+                cart.getItems().removeAll(items.subList(1, items.size())); // one row per product
+            }
+            item.setQuantity(line.quantity);
+            item.setPriceAtTime(line.price);
+            item.setMrpAtTime(line.mrp);
+            item.setStockSnapshot(line.stock);
+            if (item.getId() == null) {
+                item = cartItemRepository.save(item);
+                cart.getItems().add(item);
+            }
+            itemIds.put(line.productId, item.getId());
+        }
+        cart.setUpdatedAt(LocalDateTime.now()); // lines are the inverse side, bump the cart row itself
+        return new Written(cartRepository.save(cart).getId(), itemIds);
+    }
+}
@@ -0,0 +1,183 @@
+package com.diya.backend.service;
+
+import com.diya.backend.dto.product.ProductResponseDTO;
+import com.diya.backend.util.AfterCommit;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Rendered retailer catalog pages, per wholesaler.
+ *
+ * Retailers browse the same few pages of a wholesaler's catalog over and
+ * over; product rows change far less often. Pages are cached as the final
+ * ProductResponseDTO list and dropped when the wholesaler writes:
+ * - product created / updated -> every page of that wholesaler,
+ * - stock changed (order accepted) -> only the pages showing those products.
+ *
+ * Invalidation runs after commit, so a reader never re-caches the old rows.
+ * Writes made on another node are picked up when the entry expires
+ * (diya.catalog.cache.ttl-ms).
+ *
+ * Hit rate is published as the "catalog.pages" cache in /actuator/metrics
+ * (cache.gets{result=hit|miss}, cache.evictions, cache.size).
+ */
+@Service
+public class CatalogCache {
+
+    public static final String METRIC_NAME = "catalog.pages";
+
+    /**
+     * One retailer catalog page (ProductService clamps size, so an entry
+     * holds a bounded number of products). search is normalized (trimmed, lower case,
+     * null when blank) so "Rice " and "rice" share an entry.
+     */
+    public record PageKey(UUID wholesalerId, String search, UUID categoryId, UUID subcategoryId, int page, int size) {
+
+        public static PageKey of(UUID wholesalerId, String search, UUID categoryId, UUID subcategoryId, int page,
+                int size) {
+            String normalized = search == null || search.isBlank() ? null : search.trim().toLowerCase(Locale.ROOT);
+            return new PageKey(wholesalerId, normalized, categoryId, subcategoryId, page, size);
+        }
+    }
+
+    private final Cache<PageKey, Page<ProductResponseDTO>> pages;
+
+    // reverse indexes for precise eviction (kept in step by the removal listener)
+    private final Map<UUID, Set<PageKey>> keysByWholesaler = new ConcurrentHashMap<>();
+    private final Map<UUID, Set<PageKey>> keysByProduct = new ConcurrentHashMap<>();
+
+    // bumped on every invalidation; a page loaded across a bump is not cached
+    private final Map<UUID, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    public CatalogCache(MeterRegistry meterRegistry,
+            @Value("${diya.catalog.cache.max-pages:5000}") long maxPages,
+            @Value("${diya.catalog.cache.ttl-ms:300000}") long ttlMs) {
+        this.pages = Caffeine.newBuilder()
+                .maximumSize(maxPages)
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .recordStats()
+                .executor(Runnable::run) // keep the reverse indexes in step with the cache
+                .removalListener(this::unregister)
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, pages, METRIC_NAME);
+    }
+
+    /**
+     * Cached page, or loader's result (cached unless the wholesaler wrote
+     * while it was loading).
+     */
+    public Page<ProductResponseDTO> get(PageKey key, Supplier<Page<ProductResponseDTO>> loader) {
+        Page<ProductResponseDTO> cached = pages.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        AtomicLong version = versions.computeIfAbsent(key.wholesalerId(), id -> new AtomicLong());
+        long before = version.get();
+        Page<ProductResponseDTO> loaded = loader.get();
+        if (version.get() == before) {
+            pages.put(key, loaded);
+            register(key, loaded);
+            // an invalidation may have slipped in before the page was registered
+            if (version.get() != before) {
+                pages.invalidate(key);
+            }
+        }
+        return loaded;
+    }
+
+    public CacheStats stats() {
+        return pages.stats();
+    }
+
+    // ==========================================================
+    // Invalidation
+    // ==========================================================
+
+    /**
+     * Drops every cached page of the wholesaler once the current transaction
+     * commits (or now, outside a transaction).
+     */
+    public void evictWholesalerAfterCommit(UUID wholesalerId) {
+        AfterCommit.run(() -> evictWholesaler(wholesalerId));
+    }
+
+    /**
+     * Drops only the cached pages that show one of these products.
+     */
+    public void evictProductsAfterCommit(UUID wholesalerId, Collection<UUID> productIds) {
+        List<UUID> ids = List.copyOf(productIds);
+        AfterCommit.run(() -> evictProducts(wholesalerId, ids));
+    }
+
+    public void evictWholesaler(UUID wholesalerId) {
+        bump(wholesalerId);
+        Set<PageKey> keys = keysByWholesaler.get(wholesalerId);
+        if (keys != null) {
+            pages.invalidateAll(List.copyOf(keys));
+        }
+    }
+
+    public void evictProducts(UUID wholesalerId, Collection<UUID> productIds) {
+        bump(wholesalerId);
+        for (UUID productId : productIds) {
+            Set<PageKey> keys = keysByProduct.remove(productId);
+            if (keys != null) {
+                pages.invalidateAll(keys);
+            }
+        }
+    }
+
+    private void bump(UUID wholesalerId) {
+        versions.computeIfAbsent(wholesalerId, id -> new AtomicLong()).incrementAndGet();
+    }
+
+    // ==========================================================
+    // Reverse indexes
+    // ==========================================================
+
+    private void register(PageKey key, Page<ProductResponseDTO> page) {
+        add(keysByWholesaler, key.wholesalerId(), key);
+        for (ProductResponseDTO dto : page.getContent()) {
+            add(keysByProduct, dto.getId(), key);
+        }
+    }
+
+    private void unregister(PageKey key, Page<ProductResponseDTO> page, RemovalCause cause) {
+        if (key == null || page == null || cause == RemovalCause.REPLACED || pages.asMap().containsKey(key)) {
+            return; // the key is (again) cached and stays registered
+        }
+        remove(keysByWholesaler, key.wholesalerId(), key);
+        for (ProductResponseDTO dto : page.getContent()) {
+            remove(keysByProduct, dto.getId(), key);
+        }
+    }
+
+    private static void add(Map<UUID, Set<PageKey>> index, UUID id, PageKey key) {
+        index.compute(id, (k, keys) -> {
+            Set<PageKey> set = keys == null ? ConcurrentHashMap.newKeySet() : keys;
+            set.add(key);
+            return set;
+        });
+    }
+
+    private static void remove(Map<UUID, Set<PageKey>> index, UUID id, PageKey key) {
+        index.computeIfPresent(id, (k, keys) -> {
+            keys.remove(key);
+            return keys.isEmpty() ? null : keys;
+        });
+    }
+}
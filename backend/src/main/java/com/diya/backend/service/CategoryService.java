@@ -1,24 +1,53 @@
 package com.diya.backend.service;
 
-import com.diya.backend.dto.category.CategoryCreateRequest;
-import com.diya.backend.dto.category.CategoryTreeDTO;
+import com.diya.backend.dto.category.*;
 import com.diya.backend.entity.Category;
 import com.diya.backend.entity.Wholesaler;
 import com.diya.backend.repository.CategoryRepository;
+import com.diya.backend.repository.ProductRepository;
 import com.diya.backend.repository.SubCategoryRepository;
-import com.diya.backend.repository.WholesalerRepository;
-import lombok.RequiredArgsConstructor;
+import com.diya.backend.util.AfterCommit;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.util.List;
+import java.time.Duration;
+import java.util.*;
 
 @Service
-@RequiredArgsConstructor
 public class CategoryService {
 
-    private final WholesalerRepository wholesalerRepository;
+    private static final Comparator<String> BY_NAME = Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER);
+
     private final CategoryRepository categoryRepository;
     private final SubCategoryRepository subCategoryRepository;
+    private final ProductRepository productRepository;
+    private final PrincipalResolver principalResolver;
+
+    /**
+     * Assembled category trees by wholesaler id. Evicted after commit by
+     * category / subcategory / product writes on this node; the TTL bounds
+     * how long another node's writes take to show up.
+     */
+    private final Cache<UUID, List<CategoryTreeDTO>> trees;
+
+    public CategoryService(
+            CategoryRepository categoryRepository,
+            SubCategoryRepository subCategoryRepository,
+            ProductRepository productRepository,
+            PrincipalResolver principalResolver,
+            @Value("${diya.category.tree-cache-ttl-ms:60000}") long ttlMs,
+            @Value("${diya.category.tree-cache-size:10000}") long cacheSize) {
+        this.categoryRepository = categoryRepository;
+        this.subCategoryRepository = subCategoryRepository;
+        this.productRepository = productRepository;
+        this.principalResolver = principalResolver;
+        this.trees = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .maximumSize(cacheSize)
+                .build();
+    }
 
     public Category createCategory(String identifier, String authType, CategoryCreateRequest req) {
 
@@ -35,7 +64,9 @@ public class CategoryService {
                 .name(req.getName())
                 .build();
 
-        return categoryRepository.save(category);
+        category = categoryRepository.save(category);
+        evictTreeAfterCommit(wholesaler.getId());
+        return category;
     }
 
     public List<Category> getCategories(String identifier, String authType) {
@@ -44,37 +75,75 @@ public class CategoryService {
     }
 
     private Wholesaler getWholesaler(String identifier, String authType) {
-        if (authType.equals("EMAIL")) {
-            return wholesalerRepository.findByUserEmail(identifier)
-                    .orElseThrow(() -> new RuntimeException("Wholesaler not found"));
-        }
-        return wholesalerRepository.findByUserPhone(identifier)
-                .orElseThrow(() -> new RuntimeException("Wholesaler not found"));
+        return principalResolver.wholesaler(identifier);
     }
 
+    /**
+     * Full category -> subcategory -> ... tree with product counts.
+     *
+     * Three queries whatever the size or depth (categories, all
+     * subcategories, grouped product counts), then cached per wholesaler.
+     */
     public List<CategoryTreeDTO> getCategoryTree(String identifier, String authType) {
+        UUID wholesalerId = principalResolver.wholesalerId(identifier);
+        // get(key, loader) makes a concurrent evict wait for the load, so an
+        // old tree is never cached after a write
+        return trees.get(wholesalerId, this::buildTree);
+    }
 
-        Wholesaler wholesaler = getWholesaler(identifier, authType);
-
-        List<Category> categories = categoryRepository.findByWholesalerId(wholesaler.getId());
+    public void evictTreeAfterCommit(UUID wholesalerId) {
+        AfterCommit.run(() -> trees.invalidate(wholesalerId));
+    }
 
-        return categories.stream().map(cat -> {
+    private List<CategoryTreeDTO> buildTree(UUID wholesalerId) {
+        List<CategoryRow> categories = categoryRepository.findRowsByWholesalerId(wholesalerId);
+        List<SubCategoryDTO> subs = subCategoryRepository.findTreeRowsByWholesalerId(wholesalerId);
+
+        // direct product counts: by category (all products) and by subcategory
+        Map<UUID, Long> perCategory = new HashMap<>();
+        Map<UUID, Long> perSub = new HashMap<>();
+        for (ProductCountRow row : productRepository.countByCategoryAndSubcategory(wholesalerId)) {
+            perCategory.merge(row.categoryId(), row.products(), Long::sum);
+            if (row.subcategoryId() != null) {
+                perSub.merge(row.subcategoryId(), row.products(), Long::sum);
+            }
+        }
 
-            var subs = subCategoryRepository.findByCategoryId(cat.getId())
-                    .stream()
-                    .map(s -> CategoryTreeDTO.SubNode.builder()
-                            .id(s.getId())
-                            .name(s.getName())
-                            .build())
-                    .toList();
+        // parent -> children (category id for top level, parent sub id below)
+        Map<UUID, List<SubCategoryDTO>> children = new HashMap<>();
+        for (SubCategoryDTO sub : subs) {
+            UUID parent = sub.parentSubId() != null ? sub.parentSubId() : sub.categoryId();
+            children.computeIfAbsent(parent, k -> new ArrayList<>()).add(sub);
+        }
 
-            return CategoryTreeDTO.builder()
-                    .id(cat.getId())
-                    .name(cat.getName())
-                    .subcategories(subs)
-                    .build();
+        return categories.stream()
+                .sorted(Comparator.comparing(CategoryRow::name, BY_NAME))
+                .map(cat -> CategoryTreeDTO.builder()
+                        .id(cat.id())
+                        .name(cat.name())
+                        .productCount(perCategory.getOrDefault(cat.id(), 0L))
+                        .subcategories(nodes(cat.id(), children, perSub))
+                        .build())
+                .toList();
+    }
 
-        }).toList();
+    private List<CategoryTreeDTO.SubNode> nodes(UUID parentId, Map<UUID, List<SubCategoryDTO>> children,
+            Map<UUID, Long> perSub) {
+        List<SubCategoryDTO> subs = children.getOrDefault(parentId, List.of());
+        List<CategoryTreeDTO.SubNode> nodes = new ArrayList<>(subs.size());
+        for (SubCategoryDTO sub : subs) {
+            List<CategoryTreeDTO.SubNode> below = nodes(sub.id(), children, perSub);
+            long count = perSub.getOrDefault(sub.id(), 0L)
+                    + below.stream().mapToLong(CategoryTreeDTO.SubNode::getProductCount).sum();
+            nodes.add(CategoryTreeDTO.SubNode.builder()
+                    .id(sub.id())
+                    .name(sub.name())
+                    .productCount(count)
+                    .children(below)
+                    .build());
+        }
+        nodes.sort(Comparator.comparing(CategoryTreeDTO.SubNode::getName, BY_NAME));
+        return nodes;
     }
 
 }
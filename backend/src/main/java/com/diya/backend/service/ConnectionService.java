@@ -3,14 +3,12 @@ package com.diya.backend.service;
 import com.diya.backend.dto.connection.ConnectionResponseDTO;
 import com.diya.backend.entity.Connection;
 import com.diya.backend.entity.Retailer;
-import com.diya.backend.entity.User;
 import com.diya.backend.entity.Wholesaler;
 import com.diya.backend.repository.ConnectionRepository;
-import com.diya.backend.repository.RetailerRepository;
-import com.diya.backend.repository.UserRepository;
 import com.diya.backend.repository.WholesalerRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.*;
@@ -21,8 +19,9 @@ public class ConnectionService {
 
     private final ConnectionRepository connectionRepository;
     private final WholesalerRepository wholesalerRepository;
-    private final RetailerRepository retailerRepository;
-    private final UserRepository userRepository;
+    private final PrincipalResolver principalResolver;
+    private final ConnectionStatusCache connectionStatusCache;
+    private final OutboxService outboxService;
 
     /* ------------------------ Retailer APIs ------------------------ */
 
@@ -31,6 +30,7 @@ public class ConnectionService {
      * Retailer request is ALWAYS PENDING.
      * Wholesaler must approve manually.
      */
+    @Transactional
     public ConnectionResponseDTO requestConnection(String identifier, UUID wholesalerId) {
         Retailer retailer = resolveRetailer(identifier);
 
@@ -60,7 +60,10 @@ public class ConnectionService {
                 existing.setStatus(Connection.Status.PENDING);
                 existing.setRequestedAt(LocalDateTime.now());
                 existing.setRespondedAt(null);
-                return toDto(connectionRepository.save(existing));
+                existing = connectionRepository.save(existing);
+                connectionStatusCache.evictAfterCommit(wholesaler.getId(), retailer.getId());
+                requested(existing);
+                return toDto(existing);
             }
 
             if (existing.getStatus() == Connection.Status.BLOCKED) {
@@ -79,9 +82,16 @@ public class ConnectionService {
                 .build();
 
         conn = connectionRepository.save(conn);
+        connectionStatusCache.evictAfterCommit(wholesaler.getId(), retailer.getId());
+        requested(conn);
         return toDto(conn);
     }
 
+    private void requested(Connection conn) {
+        outboxService.record(DomainEvent.Type.CONNECTION_REQUESTED, conn.getId(), conn.getWholesaler().getId(),
+                conn.getRetailer().getId(), Map.of());
+    }
+
     public List<ConnectionResponseDTO> getMyConnections(String identifier) {
         Retailer retailer = resolveRetailer(identifier);
 
@@ -117,6 +127,7 @@ public class ConnectionService {
      * Enterprise rule:
      * Wholesaler can only approve/reject pending requests.
      */
+    @Transactional
     public ConnectionResponseDTO updateConnectionStatus(
             String identifier,
             String authType,
@@ -153,16 +164,28 @@ public class ConnectionService {
         conn.setRespondedAt(LocalDateTime.now());
 
         conn = connectionRepository.save(conn);
+        connectionStatusCache.evictAfterCommit(wholesaler.getId(), conn.getRetailer().getId());
+        outboxService.record(DomainEvent.Type.CONNECTION_STATUS_CHANGED, conn.getId(), wholesaler.getId(),
+                conn.getRetailer().getId(), Map.of("from", current.name(), "to", newStatus.name()));
         return toDto(conn);
     }
 
     /* ------------------------ Enforcement helper ------------------------ */
 
     public void ensureRetailerConnectedToWholesaler(Retailer retailer, Wholesaler wholesaler) {
-        Connection conn = connectionRepository.findByWholesalerAndRetailer(wholesaler, retailer)
-                .orElseThrow(() -> new RuntimeException("No connection with wholesaler"));
+        ensureRetailerConnectedToWholesaler(retailer.getId(), wholesaler.getId());
+    }
 
-        if (conn.getStatus() != Connection.Status.APPROVED) {
+    /**
+     * Served from ConnectionStatusCache: no query once the pair is known.
+     */
+    public void ensureRetailerConnectedToWholesaler(UUID retailerId, UUID wholesalerId) {
+        Connection.Status status = connectionStatusCache.status(wholesalerId, retailerId);
+        if (status == null) {
+            throw new RuntimeException("No connection with wholesaler");
+        }
+
+        if (status != Connection.Status.APPROVED) {
             throw new RuntimeException("Connection not approved");
         }
     }
@@ -170,27 +193,11 @@ public class ConnectionService {
     /* ------------------------ Resolvers ------------------------ */
 
     private Retailer resolveRetailer(String identifier) {
-        User user;
-        if (identifier.contains("@")) {
-            user = userRepository.findByEmail(identifier)
-                    .orElseThrow(() -> new RuntimeException("User not found"));
-        } else {
-            user = userRepository.findByPhone(identifier)
-                    .orElseThrow(() -> new RuntimeException("User not found"));
-        }
-
-        return retailerRepository.findByUserId(user.getId())
-                .orElseThrow(() -> new RuntimeException("Retailer profile not found"));
+        return principalResolver.retailer(identifier);
     }
 
     private Wholesaler resolveWholesaler(String identifier, String authType) {
-        if ("EMAIL".equalsIgnoreCase(authType)) {
-            return wholesalerRepository.findByUserEmail(identifier)
-                    .orElseThrow(() -> new RuntimeException("Wholesaler not found"));
-        } else {
-            return wholesalerRepository.findByUserPhone(identifier)
-                    .orElseThrow(() -> new RuntimeException("Wholesaler not found"));
-        }
+        return principalResolver.wholesaler(identifier);
     }
 
     public List<ConnectionResponseDTO> getAllConnectionsForWholesaler(String identifier, String authType) {
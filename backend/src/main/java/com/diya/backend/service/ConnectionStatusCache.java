@@ -0,0 +1,97 @@
+package com.diya.backend.service;
+
+import com.diya.backend.entity.Connection;
+import com.diya.backend.repository.ConnectionRepository;
+import com.diya.backend.util.AfterCommit;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Per-node cache of (wholesaler, retailer) -> connection status, filled
+ * lazily by the connection gate (catalog, product detail, checkout).
+ *
+ * Kept fresh by:
+ * - ConnectionService writes on this node (evicted after commit),
+ * - sync(), which polls connections.requested_at / responded_at for
+ * changes made on other nodes,
+ * - a TTL as the last resort.
+ *
+ * Pairs without a connection row are not cached.
+ */
+@Component
+public class ConnectionStatusCache {
+
+    // re-read rows changed this long before the previous sync started, so a
+    // transaction that committed while a sync was running is not missed
+    private static final int SYNC_OVERLAP_SECONDS = 60;
+
+    private static final String CHANGED_SQL = "SELECT wholesaler_id, retailer_id FROM connections "
+            + "WHERE requested_at >= ? OR responded_at >= ?";
+
+    private final ConnectionRepository connectionRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final Cache<Pair, Connection.Status> statuses;
+
+    private volatile LocalDateTime lastSyncStartedAt = LocalDateTime.now();
+
+    public record Pair(UUID wholesalerId, UUID retailerId) {
+    }
+
+    public ConnectionStatusCache(ConnectionRepository connectionRepository, JdbcTemplate jdbcTemplate,
+            @Value("${diya.connection.cache-size:100000}") long cacheSize,
+            @Value("${diya.connection.cache-ttl-ms:600000}") long ttlMs) {
+        this.connectionRepository = connectionRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.statuses = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .build();
+    }
+
+    /**
+     * Status of the pair, or null when the retailer never asked to connect.
+     */
+    public Connection.Status status(UUID wholesalerId, UUID retailerId) {
+        // get(key, loader) blocks a concurrent evict until the load is done,
+        // so a status read before a write can't be cached after it
+        return statuses.get(new Pair(wholesalerId, retailerId),
+                pair -> connectionRepository.findStatus(pair.wholesalerId(), pair.retailerId()).orElse(null));
+    }
+
+    /**
+     * Drops the pair once the current transaction commits (or now, outside
+     * a transaction).
+     */
+    public void evictAfterCommit(UUID wholesalerId, UUID retailerId) {
+        Pair pair = new Pair(wholesalerId, retailerId);
+        AfterCommit.run(() -> statuses.invalidate(pair));
+    }
+
+    /**
+     * Cross-node invalidation: drops every pair whose connection was
+     * requested or answered since the previous sync, on whichever node.
+     */
+    @Scheduled(initialDelayString = "${diya.connection.sync.initial-delay-ms:30000}",
+            fixedDelayString = "${diya.connection.sync.interval-ms:30000}")
+    public int sync() {
+        LocalDateTime startedAt = LocalDateTime.now();
+        Timestamp since = Timestamp.valueOf(lastSyncStartedAt.minusSeconds(SYNC_OVERLAP_SECONDS));
+        int[] count = new int[1];
+        jdbcTemplate.query(CHANGED_SQL, rs -> {
+            statuses.invalidate(new Pair(rs.getObject("wholesaler_id", UUID.class),
+                    rs.getObject("retailer_id", UUID.class)));
+            count[0]++;
+        }, since, since);
+        lastSyncStartedAt = startedAt;
+        return count[0];
+    }
+}
@@ -3,124 +3,256 @@ package com.diya.backend.service;
 import com.diya.backend.dto.dashboard.*;
 import com.diya.backend.entity.*;
 import com.diya.backend.repository.*;
-import lombok.RequiredArgsConstructor;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.function.ToDoubleFunction;
 
 @Service
-@RequiredArgsConstructor
 public class DashboardService {
 
-        private final WholesalerRepository wholesalerRepository;
+        public static final String METRIC_KPI_CACHE = "dashboard.kpi";
+        public static final String METRIC_TERRITORY_CACHE = "dashboard.territory";
+
         private final OrderRepository orderRepository;
         private final PaymentRepository paymentRepository;
-        private final RetailerRepository retailerRepository;
-        private final LedgerEntryRepository ledgerRepository;
+        private final LedgerBalanceRepository ledgerBalanceRepository;
+        private final PrincipalResolver principalResolver;
+        private final JdbcTemplate jdbcTemplate;
+
+        // KPI tiles per wholesaler; the dashboard reloads them often and they may lag
+        // by up to diya.dashboard.kpi.ttl-ms (the live feed carries the exact events)
+        private final Cache<UUID, DashboardKpiDTO> kpis;
+
+        // territory per wholesaler: grouped over the whole history, so refreshed
+        // periodically rather than on every write
+        private final LoadingCache<UUID, TerritoryDTO> territories;
+
+        public DashboardService(OrderRepository orderRepository,
+                        PaymentRepository paymentRepository,
+                        LedgerBalanceRepository ledgerBalanceRepository,
+                        PrincipalResolver principalResolver,
+                        JdbcTemplate jdbcTemplate,
+                        MeterRegistry meterRegistry,
+                        @Value("${diya.dashboard.kpi.ttl-ms:5000}") long kpiTtlMs,
+                        @Value("${diya.dashboard.kpi.max-entries:10000}") long kpiMaxEntries,
+                        @Value("${diya.dashboard.territory.refresh-ms:300000}") long territoryRefreshMs,
+                        @Value("${diya.dashboard.territory.max-entries:10000}") long territoryMaxEntries) {
+                this.orderRepository = orderRepository;
+                this.paymentRepository = paymentRepository;
+                this.ledgerBalanceRepository = ledgerBalanceRepository;
+                this.principalResolver = principalResolver;
+                this.jdbcTemplate = jdbcTemplate;
+                this.kpis = Caffeine.newBuilder()
+                                .maximumSize(kpiMaxEntries)
+                                .expireAfterWrite(Duration.ofMillis(kpiTtlMs))
+                                .recordStats()
+                                .build();
+                CaffeineCacheMetrics.monitor(meterRegistry, kpis, METRIC_KPI_CACHE);
+                this.territories = Caffeine.newBuilder()
+                                .maximumSize(territoryMaxEntries)
+                                .refreshAfterWrite(Duration.ofMillis(territoryRefreshMs))
+                                // an idle wholesaler's entry is dropped instead of served very stale
+                                .expireAfterWrite(Duration.ofMillis(territoryRefreshMs * 3))
+                                .recordStats()
+                                .build(this::loadTerritory);
+                CaffeineCacheMetrics.monitor(meterRegistry, territories, METRIC_TERRITORY_CACHE);
+        }
 
         // ------------------------------------------------------
         // KPI SECTION
+        // Two aggregate queries (orders, confirmed payments) plus the ledger
+        // balance sum, cached per wholesaler for a few seconds.
         // ------------------------------------------------------
         public DashboardKpiDTO getKpiData(String identifier, String authType) {
-                Wholesaler wholesaler = getWholesaler(identifier, authType);
-
-                LocalDate today = LocalDate.now();
-
-                int newOrdersToday = (int) orderRepository
-                                .findByWholesaler(wholesaler)
-                                .stream()
-                                .filter(o -> o.getPlacedAt().toLocalDate().isEqual(today))
-                                .count();
+                UUID wholesalerId = principalResolver.wholesalerId(identifier);
+                return kpis.get(wholesalerId, this::loadKpis);
+        }
 
-                double paymentsToday = paymentRepository.findByWholesaler(wholesaler).stream()
-                                .filter(p -> p.getStatus() == Payment.PaymentStatus.CONFIRMED)
-                                .filter(p -> p.getConfirmedAt() != null
-                                                && p.getConfirmedAt().toLocalDate().isEqual(today))
-                                .mapToDouble(Payment::getAmount)
-                                .sum();
+        private DashboardKpiDTO loadKpis(UUID wholesalerId) {
+                LocalDateTime today = LocalDate.now().atStartOfDay();
 
-                int pendingOrders = (int) orderRepository
-                                .findByWholesaler(wholesaler)
-                                .stream()
-                                .filter(o -> o.getStatus() == Order.Status.PLACED)
-                                .count();
+                OrderKpiCounts orders = orderRepository.countKpis(wholesalerId, today, Order.Status.PLACED);
 
-                double credit = ledgerRepository.findByWholesaler(wholesaler).stream()
-                                .filter(l -> l.getEntryType() == LedgerEntry.EntryType.CREDIT)
-                                .mapToDouble(LedgerEntry::getAmount).sum();
+                double paymentsToday = paymentRepository.sumConfirmedBetween(wholesalerId,
+                                Payment.PaymentStatus.CONFIRMED, today, today.plusDays(1));
 
-                double debit = ledgerRepository.findByWholesaler(wholesaler).stream()
-                                .filter(l -> l.getEntryType() == LedgerEntry.EntryType.DEBIT)
-                                .mapToDouble(LedgerEntry::getAmount).sum();
+                // ledger_balances hold DEBIT - CREDIT per retailer; KPI keeps its CREDIT - DEBIT sign
+                double outstanding = -ledgerBalanceRepository.sumForWholesaler(wholesalerId);
 
                 return DashboardKpiDTO.builder()
-                                .newOrdersToday(newOrdersToday)
+                                .newOrdersToday(orders.placedToday().intValue())
                                 .paymentsReceivedToday(paymentsToday)
-                                .pendingOrders(pendingOrders)
-                                .totalOutstanding(credit - debit)
+                                .pendingOrders(orders.pending().intValue())
+                                .totalOutstanding(outstanding)
                                 .build();
         }
 
         // ------------------------------------------------------
         // TERRITORY SECTION
+        // The wholesaler's APPROVED retailers grouped by city in one SQL pass:
+        // retailer counts, revenue (orders that were not cancelled / rejected)
+        // and outstanding (positive ledger balances, i.e. owed to the wholesaler).
+        // Cached per wholesaler and recomputed in the background every
+        // diya.dashboard.territory.refresh-ms; a stale entry is served meanwhile.
         // ------------------------------------------------------
-        public TerritoryDTO getTerritoryStats(String identifier, String authType) {
-                Wholesaler wholesaler = getWholesaler(identifier, authType);
+        public static final int TERRITORY_RANKED_AREAS = 5;
+        static final String UNKNOWN_AREA = "Unknown";
+
+        private static final String TERRITORY_SQL = "SELECT MIN(TRIM(r.city)) AS area, "
+                        + "COUNT(*) AS retailers, "
+                        + "SUM(CASE WHEN r.is_active THEN 1 ELSE 0 END) AS active, "
+                        + "COALESCE(SUM(o.revenue), 0) AS revenue, "
+                        + "COALESCE(SUM(CASE WHEN b.balance > 0 THEN b.balance ELSE 0 END), 0) AS outstanding "
+                        + "FROM connections c "
+                        + "JOIN retailer_profiles r ON r.id = c.retailer_id "
+                        + "LEFT JOIN (SELECT retailer_id, SUM(total_amount) AS revenue FROM orders "
+                        + "WHERE wholesaler_id = ? AND status NOT IN ('CANCELLED', 'REJECTED') "
+                        + "GROUP BY retailer_id) o ON o.retailer_id = r.id "
+                        + "LEFT JOIN ledger_balances b ON b.wholesaler_id = c.wholesaler_id AND b.retailer_id = r.id "
+                        + "WHERE c.wholesaler_id = ? AND c.status = 'APPROVED' "
+                        + "GROUP BY LOWER(TRIM(r.city))";
+
+        private record AreaStats(String name, long retailers, long active, double revenue, double outstanding) {
+        }
 
-                List<Retailer> retailers = retailerRepository.findAll();
+        public TerritoryDTO getTerritoryStats(String identifier, String authType) {
+                UUID wholesalerId = principalResolver.wholesalerId(identifier);
+                return territories.get(wholesalerId);
+        }
 
-                int total = retailers.size();
-                int active = (int) retailers.stream().filter(Retailer::isActive).count();
+        private TerritoryDTO loadTerritory(UUID wholesalerId) {
+                List<AreaStats> areas = jdbcTemplate.query(TERRITORY_SQL, (rs, n) -> {
+                        String name = rs.getString("area");
+                        return new AreaStats(
+                                        name == null || name.isEmpty() ? UNKNOWN_AREA : name,
+                                        rs.getLong("retailers"),
+                                        rs.getLong("active"),
+                                        rs.getDouble("revenue"),
+                                        rs.getDouble("outstanding"));
+                }, wholesalerId, wholesalerId);
 
-                AreaDTO topArea = new AreaDTO("Banjara Hills", 420000);
-                AreaDTO riskyArea = new AreaDTO("Old City", 210000);
+                List<AreaDTO> topAreas = rank(areas, AreaStats::revenue);
+                List<AreaDTO> riskAreas = rank(areas, AreaStats::outstanding);
 
                 return TerritoryDTO.builder()
-                                .activeRetailers(active)
-                                .totalRetailers(total)
-                                .topArea(topArea)
-                                .highestRiskArea(riskyArea)
+                                .activeRetailers((int) areas.stream().mapToLong(AreaStats::active).sum())
+                                .totalRetailers((int) areas.stream().mapToLong(AreaStats::retailers).sum())
+                                .topArea(topAreas.isEmpty() ? null : topAreas.get(0))
+                                .highestRiskArea(riskAreas.isEmpty() ? null : riskAreas.get(0))
+                                .topAreas(topAreas)
+                                .riskAreas(riskAreas)
                                 .build();
         }
 
+        // highest first (ties by name), areas with nothing to show left out
+        private static List<AreaDTO> rank(List<AreaStats> areas, ToDoubleFunction<AreaStats> value) {
+                return areas.stream()
+                                .filter(a -> value.applyAsDouble(a) > 0)
+                                .sorted(Comparator.comparingDouble(value).reversed()
+                                                .thenComparing(AreaStats::name))
+                                .limit(TERRITORY_RANKED_AREAS)
+                                .map(a -> new AreaDTO(a.name(), value.applyAsDouble(a)))
+                                .toList();
+        }
+
         // ------------------------------------------------------
         // ACTIVITY FEED
+        // Newest orders and payments merged by time, one page at a time: each
+        // source reads at most `limit` rows through its (wholesaler, time) index,
+        // with the retailer name in the same query. Items are ordered by
+        // (time, type, id) descending; an item's cursor is that key, and
+        // `before` returns the items after it.
         // ------------------------------------------------------
-        public List<ActivityItemDTO> getActivityFeed(String identifier, String authType) {
-                Wholesaler wholesaler = getWholesaler(identifier, authType);
-
-                List<ActivityItemDTO> list = new ArrayList<>();
-
-                orderRepository.findByWholesaler(wholesaler).forEach(o -> {
-                        list.add(ActivityItemDTO.builder()
-                                        .type("ORDER")
-                                        .title("New Order " + o.getOrderNumber())
-                                        .subtitle(o.getRetailer().getUser().getName() + " • ₹" + o.getTotalAmount())
-                                        .timeAgo(timeAgo(o.getPlacedAt()))
-                                        .build());
-                });
-
-                paymentRepository.findByWholesaler(wholesaler).forEach(p -> {
-                        list.add(ActivityItemDTO.builder()
-                                        .type("PAYMENT")
-                                        .title("Payment Received")
-                                        .subtitle(p.getRetailer().getUser().getName() + " • ₹" + p.getAmount())
-                                        .timeAgo(timeAgo(p.getCreatedAt()))
-                                        .build());
-                });
-
-                return list;
+        public static final int ACTIVITY_MAX_LIMIT = 100;
+
+        private static final String ORDER = "ORDER";
+        private static final String PAYMENT = "PAYMENT";
+        private static final UUID MIN_ID = new UUID(0L, 0L);
+        private static final UUID MAX_ID = new UUID(-1L, -1L);
+
+        private static final Comparator<ActivityItemDTO> NEWEST_FIRST = Comparator
+                        .comparing(ActivityItemDTO::getOccurredAt)
+                        .thenComparing(ActivityItemDTO::getType)
+                        // same order as the database's uuid ordering (unsigned, byte by byte)
+                        .thenComparing(i -> i.getId().toString())
+                        .reversed();
+
+        private record Cursor(LocalDateTime at, String type, UUID id) {
+        }
+
+        public List<ActivityItemDTO> getActivityFeed(String identifier, String authType, String before,
+                        int limit) {
+                if (limit < 1 || limit > ACTIVITY_MAX_LIMIT) {
+                        throw new RuntimeException("limit must be between 1 and " + ACTIVITY_MAX_LIMIT);
+                }
+                Cursor cursor = parseCursor(before);
+                UUID wholesalerId = principalResolver.wholesalerId(identifier);
+                Pageable page = PageRequest.of(0, limit);
+
+                List<ActivityRow> orders = cursor == null
+                                ? orderRepository.findActivity(wholesalerId, page)
+                                : orderRepository.findActivityBefore(wholesalerId, cursor.at(),
+                                                idBound(ORDER, cursor), page);
+                List<ActivityRow> payments = cursor == null
+                                ? paymentRepository.findActivity(wholesalerId, page)
+                                : paymentRepository.findActivityBefore(wholesalerId, cursor.at(),
+                                                idBound(PAYMENT, cursor), page);
+
+                List<ActivityItemDTO> list = new ArrayList<>(orders.size() + payments.size());
+                orders.forEach(o -> list.add(activityItem(ORDER, o, "New Order " + o.orderNumber())));
+                payments.forEach(p -> list.add(activityItem(PAYMENT, p, "Payment Received")));
+                list.sort(NEWEST_FIRST);
+
+                return list.size() > limit ? new ArrayList<>(list.subList(0, limit)) : list;
+        }
+
+        // rows of `type` at the cursor's exact time come after the cursor when
+        // (type, id) < (cursor type, cursor id): all of them, some or none
+        private static UUID idBound(String type, Cursor cursor) {
+                int cmp = type.compareTo(cursor.type());
+                if (cmp < 0) {
+                        return MAX_ID;
+                }
+                return cmp == 0 ? cursor.id() : MIN_ID;
         }
 
-        private Wholesaler getWholesaler(String identifier, String authType) {
-                if (authType.equals("EMAIL")) {
-                        return wholesalerRepository.findByUserEmail(identifier)
-                                        .orElseThrow(() -> new RuntimeException("Wholesaler not found"));
-                } else {
-                        return wholesalerRepository.findByUserPhone(identifier)
-                                        .orElseThrow(() -> new RuntimeException("Wholesaler not found"));
+        private ActivityItemDTO activityItem(String type, ActivityRow row, String title) {
+                return ActivityItemDTO.builder()
+                                .id(row.id())
+                                .type(type)
+                                .title(title)
+                                .subtitle(row.retailerName() + " • ₹" + row.amount())
+                                .timeAgo(timeAgo(row.at()))
+                                .occurredAt(row.at())
+                                .cursor(row.at() + "~" + type + "~" + row.id())
+                                .build();
+        }
+
+        private static Cursor parseCursor(String before) {
+                if (before == null || before.isBlank()) {
+                        return null;
+                }
+                String[] parts = before.trim().split("~");
+                try {
+                        if (parts.length != 3 || !(ORDER.equals(parts[1]) || PAYMENT.equals(parts[1]))) {
+                                throw new IllegalArgumentException();
+                        }
+                        return new Cursor(LocalDateTime.parse(parts[0]), parts[1], UUID.fromString(parts[2]));
+                } catch (RuntimeException e) {
+                        throw new RuntimeException("Invalid activity cursor");
                 }
         }
 
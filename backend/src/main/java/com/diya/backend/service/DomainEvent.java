@@ -0,0 +1,44 @@
+package com.diya.backend.service;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * An order / payment / connection change, as published by OutboxDispatcher
+ * to @EventListener methods (in their own transaction, off the request
+ * thread).
+ *
+ * Delivery is at least once: a listener can see the same event (same id)
+ * again after a failure or a crash, so it must be idempotent - recompute
+ * from the current rows rather than apply a delta.
+ */
+public record DomainEvent(
+        long id,
+        Type type,
+        UUID aggregateId,
+        UUID wholesalerId,
+        UUID retailerId,
+        Map<String, Object> payload,
+        LocalDateTime occurredAt) {
+
+    public enum Type {
+        ORDER_PLACED,
+        ORDER_STATUS_CHANGED,
+        PAYMENT_RECORDED,
+        PAYMENT_CONFIRMED,
+        PAYMENT_REJECTED,
+        CONNECTION_REQUESTED,
+        CONNECTION_STATUS_CHANGED
+    }
+
+    public String payloadString(String key) {
+        Object value = payload.get(key);
+        return value == null ? null : value.toString();
+    }
+
+    public UUID payloadId(String key) {
+        String value = payloadString(key);
+        return value == null ? null : UUID.fromString(value);
+    }
+}
@@ -0,0 +1,163 @@
+package com.diya.backend.service;
+
+import com.diya.backend.entity.LedgerEntry;
+import com.diya.backend.entity.Order;
+import com.diya.backend.util.ExportWriter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Streams ledger statements and order history straight from a JDBC cursor
+ * into CSV / NDJSON. Rows are written as they are fetched (forward-only,
+ * FETCH_SIZE rows at a time; the read-only transaction turns autocommit off
+ * so PostgreSQL uses a server-side cursor), so memory does not grow with
+ * the row count. Filters arrive already parsed, so nothing here can fail
+ * on bad input once the response has started streaming.
+ */
+@Service
+@RequiredArgsConstructor
+public class ExportService {
+
+    private static final int FETCH_SIZE = 1000;
+
+    private static final List<String> LEDGER_COLUMNS = List.of(
+            "entryDate", "entryType", "amount", "balanceAfter", "retailer", "orderNumber", "description");
+
+    private static final List<String> ORDER_COLUMNS = List.of(
+            "orderNumber", "placedAt", "retailer", "shopName", "city", "status", "paymentStatus",
+            "subtotal", "taxAmount", "deliveryCharge", "totalAmount");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // ==========================================================
+    // Ledger (oldest first, like a printed statement)
+    // ==========================================================
+    @Transactional(readOnly = true)
+    public void writeWholesalerLedger(UUID wholesalerId, UUID retailerId, LocalDate from, LocalDate to,
+            LedgerEntry.EntryType type, ExportWriter.Format format, OutputStream out) {
+
+        StringBuilder sql = new StringBuilder(
+                "SELECT e.entry_date, e.entry_type, e.amount, e.balance_after, r.shop_name, o.order_number, "
+                        + "e.description "
+                        + "FROM ledger_entries e "
+                        + "JOIN retailer_profiles r ON r.id = e.retailer_id "
+                        + "LEFT JOIN orders o ON o.id = e.related_order_id "
+                        + "WHERE e.wholesaler_id = ?");
+        List<Object> args = new ArrayList<>(List.of(wholesalerId));
+
+        if (retailerId != null) {
+            sql.append(" AND e.retailer_id = ?");
+            args.add(retailerId);
+        }
+        if (type != null) {
+            sql.append(" AND e.entry_type = ?");
+            args.add(type.name());
+        }
+        appendDateRange(sql, args, "e.entry_date", from, to);
+        sql.append(" ORDER BY e.entry_date, e.id");
+
+        stream(sql.toString(), args, format, out, LEDGER_COLUMNS, (rs, writer) -> writer.writeRow(
+                rs.getObject("entry_date", LocalDateTime.class),
+                rs.getString("entry_type"),
+                rs.getObject("amount"),
+                rs.getObject("balance_after"),
+                rs.getString("shop_name"),
+                rs.getString("order_number"),
+                rs.getString("description")));
+    }
+
+    // ==========================================================
+    // Orders (oldest first)
+    // ==========================================================
+    @Transactional(readOnly = true)
+    public void writeWholesalerOrders(UUID wholesalerId, Order.Status status, LocalDate from, LocalDate to,
+            ExportWriter.Format format, OutputStream out) {
+
+        StringBuilder sql = new StringBuilder(
+                "SELECT o.order_number, o.placed_at, u.name, r.shop_name, r.city, o.status, o.payment_status, "
+                        + "o.subtotal, o.tax_amount, o.delivery_charge, o.total_amount "
+                        + "FROM orders o "
+                        + "JOIN retailer_profiles r ON r.id = o.retailer_id "
+                        + "LEFT JOIN users u ON u.id = r.user_id "
+                        + "WHERE o.wholesaler_id = ?");
+        List<Object> args = new ArrayList<>(List.of(wholesalerId));
+
+        if (status != null) {
+            sql.append(" AND o.status = ?");
+            args.add(status.name());
+        }
+        appendDateRange(sql, args, "o.placed_at", from, to);
+        sql.append(" ORDER BY o.placed_at, o.id");
+
+        stream(sql.toString(), args, format, out, ORDER_COLUMNS, (rs, writer) -> writer.writeRow(
+                rs.getString("order_number"),
+                rs.getObject("placed_at", LocalDateTime.class),
+                rs.getString("name"),
+                rs.getString("shop_name"),
+                rs.getString("city"),
+                rs.getString("status"),
+                rs.getString("payment_status"),
+                rs.getObject("subtotal"),
+                rs.getObject("tax_amount"),
+                rs.getObject("delivery_charge"),
+                rs.getObject("total_amount")));
+    }
+
+    /* ------------------------ internals ------------------------ */
+
+    @FunctionalInterface
+    private interface RowWriter {
+        void write(ResultSet rs, ExportWriter writer) throws SQLException, IOException;
+    }
+
+    // inclusive calendar dates
+    private static void appendDateRange(StringBuilder sql, List<Object> args, String column,
+            LocalDate from, LocalDate to) {
+        if (from != null) {
+            sql.append(" AND ").append(column).append(" >= ?");
+            args.add(from.atStartOfDay());
+        }
+        if (to != null) {
+            sql.append(" AND ").append(column).append(" < ?");
+            args.add(to.plusDays(1).atStartOfDay());
+        }
+    }
+
+    private void stream(String sql, List<Object> args, ExportWriter.Format format, OutputStream out,
+            List<String> columns, RowWriter rowWriter) {
+
+        try (ExportWriter writer = ExportWriter.open(format, out, columns)) {
+            jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(sql,
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                ps.setFetchSize(FETCH_SIZE);
+                for (int i = 0; i < args.size(); i++) {
+                    ps.setObject(i + 1, args.get(i));
+                }
+                return ps;
+            }, rs -> {
+                try {
+                    rowWriter.write(rs, writer);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e); // client went away
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
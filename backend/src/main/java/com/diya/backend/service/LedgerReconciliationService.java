@@ -0,0 +1,150 @@
+package com.diya.backend.service;
+
+import com.diya.backend.entity.LedgerEntry;
+import com.diya.backend.repository.LedgerBalanceRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Checks ledger_balances (and the running balanceAfter on each entry)
+ * against the raw ledger_entries and repairs any pair that drifted.
+ *
+ * The check is one grouped query over the whole ledger; only pairs that
+ * are missing a balance row, disagree with it, or have entries whose
+ * balanceAfter is missing (history from before the balance table) or
+ * differs from the running sum in (entry_date, id) order are
+ * recomputed, each in its own short transaction under the pair's balance
+ * row lock so it cannot race LedgerService.post().
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class LedgerReconciliationService {
+
+    private static final double TOLERANCE = 0.005;
+    private static final int UPDATE_BATCH = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final LedgerBalanceRepository ledgerBalanceRepository;
+
+    public record Result(int pairsChecked, int pairsRepaired) {
+    }
+
+    private record PairCheck(UUID wholesalerId, UUID retailerId, long entries, double balance,
+            Double storedBalance, Long storedEntries, long badRunning) {
+
+        boolean drifted() {
+            return storedBalance == null
+                    || Math.abs(storedBalance - balance) > TOLERANCE
+                    || storedEntries == null || storedEntries != entries
+                    || badRunning > 0;
+        }
+    }
+
+    @Scheduled(initialDelayString = "${diya.ledger.reconcile.initial-delay-ms:60000}",
+            fixedDelayString = "${diya.ledger.reconcile.interval-ms:21600000}")
+    public void scheduledReconcile() {
+        Result result = reconcile();
+        if (result.pairsRepaired() > 0) {
+            log.warn("Ledger reconciliation repaired {} of {} pairs", result.pairsRepaired(), result.pairsChecked());
+        } else {
+            log.info("Ledger reconciliation: {} pairs consistent", result.pairsChecked());
+        }
+    }
+
+    public Result reconcile() {
+        List<PairCheck> pairs = jdbcTemplate.query(
+                "SELECT e.wholesaler_id, e.retailer_id, COUNT(*) AS entries, SUM(e.signed) AS balance, "
+                        + "SUM(CASE WHEN e.balance_after IS NULL OR ABS(e.balance_after - e.running) > " + TOLERANCE
+                        + " THEN 1 ELSE 0 END) AS bad_running, "
+                        + "b.balance AS stored_balance, b.entry_count AS stored_entries "
+                        + "FROM (SELECT wholesaler_id, retailer_id, balance_after, signed, "
+                        + "SUM(signed) OVER (PARTITION BY wholesaler_id, retailer_id ORDER BY entry_date, id "
+                        + "ROWS UNBOUNDED PRECEDING) AS running "
+                        + "FROM (SELECT wholesaler_id, retailer_id, balance_after, entry_date, id, "
+                        + "CASE WHEN entry_type = 'DEBIT' THEN amount ELSE -amount END AS signed "
+                        + "FROM ledger_entries) s) e "
+                        + "LEFT JOIN ledger_balances b "
+                        + "ON b.wholesaler_id = e.wholesaler_id AND b.retailer_id = e.retailer_id "
+                        + "GROUP BY e.wholesaler_id, e.retailer_id, b.balance, b.entry_count",
+                (rs, i) -> new PairCheck(
+                        rs.getObject("wholesaler_id", UUID.class),
+                        rs.getObject("retailer_id", UUID.class),
+                        rs.getLong("entries"),
+                        rs.getDouble("balance"),
+                        rs.getObject("stored_balance") == null ? null : rs.getDouble("stored_balance"),
+                        rs.getObject("stored_entries") == null ? null : rs.getLong("stored_entries"),
+                        rs.getLong("bad_running")));
+
+        int repaired = 0;
+        for (PairCheck pair : pairs) {
+            if (!pair.drifted()) {
+                continue;
+            }
+            if (pair.storedBalance() != null && Math.abs(pair.storedBalance() - pair.balance()) > TOLERANCE) {
+                log.warn("Ledger balance drift for wholesaler {} / retailer {}: stored {} vs entries {}",
+                        pair.wholesalerId(), pair.retailerId(), pair.storedBalance(), pair.balance());
+            }
+            transactionTemplate.executeWithoutResult(tx -> repairPair(pair.wholesalerId(), pair.retailerId()));
+            repaired++;
+        }
+
+        return new Result(pairs.size(), repaired);
+    }
+
+    // rebuild balance + running balances for one pair from its entries
+    private void repairPair(UUID wholesalerId, UUID retailerId) {
+        LocalDateTime now = LocalDateTime.now();
+
+        // lock the pair (creating its row if needed) so post() waits for us
+        ledgerBalanceRepository.insertIfAbsent(UUID.randomUUID(), wholesalerId, retailerId, 0.0, 0, now);
+        jdbcTemplate.queryForList(
+                "SELECT id FROM ledger_balances WHERE wholesaler_id = ? AND retailer_id = ? FOR UPDATE",
+                wholesalerId, retailerId);
+
+        List<Object[]> updates = new ArrayList<>();
+        double[] running = { 0.0 };
+        long[] count = { 0 };
+
+        // streamed row by row, only changed running balances are written back
+        jdbcTemplate.query(
+                "SELECT id, entry_type, amount, balance_after FROM ledger_entries "
+                        + "WHERE wholesaler_id = ? AND retailer_id = ? ORDER BY entry_date, id",
+                rs -> {
+                    double amount = rs.getDouble("amount");
+                    running[0] += LedgerEntry.EntryType.DEBIT.name().equals(rs.getString("entry_type"))
+                            ? amount
+                            : -amount;
+                    count[0]++;
+
+                    double stored = rs.getDouble("balance_after");
+                    if (rs.wasNull() || Math.abs(stored - running[0]) > TOLERANCE) {
+                        updates.add(new Object[] { running[0], rs.getObject("id", UUID.class) });
+                        if (updates.size() >= UPDATE_BATCH) {
+                            writeRunningBalances(updates);
+                        }
+                    }
+                },
+                wholesalerId, retailerId);
+
+        writeRunningBalances(updates);
+        ledgerBalanceRepository.overwrite(wholesalerId, retailerId, running[0], count[0], now);
+    }
+
+    private void writeRunningBalances(List<Object[]> updates) {
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate("UPDATE ledger_entries SET balance_after = ? WHERE id = ?", updates);
+            updates.clear();
+        }
+    }
+}
@@ -1,95 +1,105 @@
 package com.diya.backend.service;
 
+import com.diya.backend.dto.ledger.LedgerCursor;
+import com.diya.backend.dto.ledger.LedgerPageDTO;
 import com.diya.backend.entity.LedgerEntry;
 import com.diya.backend.entity.Retailer;
 import com.diya.backend.entity.Wholesaler;
+import com.diya.backend.repository.LedgerBalanceRepository;
 import com.diya.backend.repository.LedgerEntryRepository;
-import com.diya.backend.repository.RetailerRepository;
-import com.diya.backend.repository.WholesalerRepository;
+import com.diya.backend.repository.LedgerSpecifications;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.UUID;
 
 @Service
 @RequiredArgsConstructor
 public class LedgerService {
 
+    private static final int MAX_PAGE_SIZE = 500;
+    private static final Sort NEWEST_FIRST = Sort.by(Sort.Order.desc("entryDate"), Sort.Order.desc("id"));
+
     private final LedgerEntryRepository ledgerEntryRepository;
-    private final WholesalerRepository wholesalerRepository;
-    private final RetailerRepository retailerRepository;
+    private final LedgerBalanceRepository ledgerBalanceRepository;
+    private final PrincipalResolver principalResolver;
 
     // ==========================================================
-    // WHOLESALER Ledger Entries
+    // Write path: every ledger entry goes through here
     // ==========================================================
-    public List<LedgerEntry> getWholesalerLedger(String identifier, LocalDate from, LocalDate to, String type) {
-
-        Wholesaler wholesaler = identifier.contains("@")
-                ? wholesalerRepository.findByUserEmail(identifier)
-                        .orElseThrow(() -> new RuntimeException("Wholesaler not found"))
-                : wholesalerRepository.findByUserPhone(identifier)
-                        .orElseThrow(() -> new RuntimeException("Wholesaler not found"));
-
-        List<LedgerEntry> entries;
-
-        // DB filter by type first
-        if (type != null && !type.isBlank()) {
-            LedgerEntry.EntryType entryType = LedgerEntry.EntryType.valueOf(type.toUpperCase());
-            entries = ledgerEntryRepository.findByWholesalerAndEntryType(wholesaler, entryType);
-        } else {
-            entries = ledgerEntryRepository.findByWholesaler(wholesaler);
-        }
 
-        // Date range filter in memory (OK for now)
-        if (from != null) {
-            entries = entries.stream()
-                    .filter(e -> !e.getEntryDate().toLocalDate().isBefore(from))
-                    .toList();
-        }
-        if (to != null) {
-            entries = entries.stream()
-                    .filter(e -> !e.getEntryDate().toLocalDate().isAfter(to))
-                    .toList();
+    /**
+     * Saves the entry and moves the pair's ledger_balances row by its amount
+     * (DEBIT +, CREDIT -). The balance UPDATE row-locks the pair until commit,
+     * so concurrent postings for the same pair get consistent running balances.
+     * entryDate is stamped while that lock is held, so the (entryDate, id)
+     * order statements and reconciliation use is also the balanceAfter order.
+     */
+    @Transactional
+    public LedgerEntry post(LedgerEntry entry) {
+        UUID wholesalerId = entry.getWholesaler().getId();
+        UUID retailerId = entry.getRetailer().getId();
+        double delta = entry.getEntryType() == LedgerEntry.EntryType.DEBIT ? entry.getAmount() : -entry.getAmount();
+        LocalDateTime now = LocalDateTime.now();
+
+        if (ledgerBalanceRepository.add(wholesalerId, retailerId, delta, now) == 0) {
+            // first posting through the balance table: start from the existing entries
+            LedgerEntryRepository.PairTotals history = ledgerEntryRepository.totalsForPair(
+                    wholesalerId, retailerId, LedgerEntry.EntryType.DEBIT);
+            ledgerBalanceRepository.insertIfAbsent(UUID.randomUUID(), wholesalerId, retailerId,
+                    history.getBalance(), history.getEntries(), now);
+
+            if (ledgerBalanceRepository.add(wholesalerId, retailerId, delta, now) == 0) {
+                throw new RuntimeException("Unable to update ledger balance");
+            }
         }
 
-        return entries;
+        // stamped under the pair lock: a later balanceAfter never gets an earlier entryDate
+        entry.setEntryDate(LocalDateTime.now());
+        entry.setBalanceAfter(ledgerBalanceRepository.findBalance(wholesalerId, retailerId)
+                .orElseThrow(() -> new RuntimeException("Ledger balance not found")));
+
+        return ledgerEntryRepository.save(entry);
     }
 
     // ==========================================================
-    // RETAILER Ledger Entries
+    // WHOLESALER Ledger Entries (date range / type in SQL, cursor paged)
     // ==========================================================
-    public List<LedgerEntry> getRetailerLedger(String identifier, LocalDate from, LocalDate to, String type) {
-
-        Retailer retailer = identifier.contains("@")
-                ? retailerRepository.findByUserEmail(identifier)
-                        .orElseThrow(() -> new RuntimeException("Retailer not found"))
-                : retailerRepository.findByUserPhone(identifier)
-                        .orElseThrow(() -> new RuntimeException("Retailer not found"));
-
-        List<LedgerEntry> entries;
-
-        // DB filter by type first
-        if (type != null && !type.isBlank()) {
-            LedgerEntry.EntryType entryType = LedgerEntry.EntryType.valueOf(type.toUpperCase());
-            entries = ledgerEntryRepository.findByRetailerAndEntryType(retailer, entryType);
-        } else {
-            entries = ledgerEntryRepository.findByRetailer(retailer);
-        }
+    public LedgerPageDTO getWholesalerLedger(String identifier, LocalDate from, LocalDate to, String type,
+            String cursor, int size) {
 
-        // Date range filter in memory (OK for now)
-        if (from != null) {
-            entries = entries.stream()
-                    .filter(e -> !e.getEntryDate().toLocalDate().isBefore(from))
-                    .toList();
-        }
-        if (to != null) {
-            entries = entries.stream()
-                    .filter(e -> !e.getEntryDate().toLocalDate().isAfter(to))
-                    .toList();
-        }
+        UUID wholesalerId = principalResolver.wholesalerId(identifier);
+
+        Specification<LedgerEntry> spec = Specification.allOf(
+                LedgerSpecifications.forWholesaler(wholesalerId),
+                LedgerSpecifications.ofType(type),
+                LedgerSpecifications.onOrAfter(from),
+                LedgerSpecifications.onOrBefore(to));
 
-        return entries;
+        return page(spec, cursor, size);
+    }
+
+    // ==========================================================
+    // RETAILER Ledger Entries (date range / type in SQL, cursor paged)
+    // ==========================================================
+    public LedgerPageDTO getRetailerLedger(String identifier, LocalDate from, LocalDate to, String type,
+            String cursor, int size) {
+
+        UUID retailerId = principalResolver.retailerId(identifier);
+
+        Specification<LedgerEntry> spec = Specification.allOf(
+                LedgerSpecifications.forRetailer(retailerId),
+                LedgerSpecifications.ofType(type),
+                LedgerSpecifications.onOrAfter(from),
+                LedgerSpecifications.onOrBefore(to));
+
+        return page(spec, cursor, size);
     }
 
     // ==========================================================
@@ -98,23 +108,40 @@ public class LedgerService {
     // ==========================================================
     public double getOutstandingForPair(Wholesaler wholesaler, Retailer retailer) {
 
-        List<LedgerEntry> entries = ledgerEntryRepository.findByWholesalerAndRetailer(wholesaler, retailer);
-
-        double totalDebit = entries.stream()
-                .filter(e -> e.getEntryType() == LedgerEntry.EntryType.DEBIT)
-                .mapToDouble(LedgerEntry::getAmount)
-                .sum();
+        // single-row read; pairs never posted through post() fall back to one aggregate query
+        return ledgerBalanceRepository.findBalance(wholesaler.getId(), retailer.getId())
+                .orElseGet(() -> ledgerEntryRepository.totalsForPair(
+                        wholesaler.getId(), retailer.getId(), LedgerEntry.EntryType.DEBIT).getBalance());
+    }
 
-        double totalCredit = entries.stream()
-                .filter(e -> e.getEntryType() == LedgerEntry.EntryType.CREDIT)
-                .mapToDouble(LedgerEntry::getAmount)
-                .sum();
+    // latest first; each entry carries its running balanceAfter
+    public LedgerPageDTO getStatementForPair(Wholesaler wholesaler, Retailer retailer, String cursor, int size) {
+        Specification<LedgerEntry> spec = Specification.allOf(
+                LedgerSpecifications.forWholesaler(wholesaler.getId()),
+                LedgerSpecifications.forRetailer(retailer.getId()));
 
-        return totalDebit - totalCredit;
+        return page(spec, cursor, size);
     }
 
-    public List<LedgerEntry> getStatementForPair(Wholesaler wholesaler, Retailer retailer) {
-        return ledgerEntryRepository.findByWholesalerAndRetailerOrderByEntryDateDesc(wholesaler, retailer);
+    // keyset page: one indexed query, no OFFSET / COUNT; fetches size + 1 to know if there is more
+    private LedgerPageDTO page(Specification<LedgerEntry> spec, String cursor, int size) {
+        int limit = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+
+        List<LedgerEntry> rows = ledgerEntryRepository.findBy(
+                spec.and(LedgerSpecifications.after(LedgerCursor.decode(cursor))),
+                q -> q.sortBy(NEWEST_FIRST).limit(limit + 1).all());
+
+        String nextCursor = null;
+        if (rows.size() > limit) {
+            rows = rows.subList(0, limit);
+            LedgerEntry last = rows.get(limit - 1);
+            nextCursor = new LedgerCursor(last.getEntryDate(), last.getId()).encode();
+        }
+
+        return LedgerPageDTO.builder()
+                .entries(rows)
+                .nextCursor(nextCursor)
+                .build();
     }
 
 }
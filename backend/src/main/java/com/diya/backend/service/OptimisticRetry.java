@@ -0,0 +1,85 @@
+package com.diya.backend.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.OptimisticLockException;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Runs a stock-mutating unit of work in its own transaction and re-runs it
+ * when a Product @Version check fails (someone changed the row between our
+ * read and our write). Each attempt re-reads everything, so a retry decides
+ * on fresh stock; after the last attempt the caller gets an error.
+ *
+ * Used instead of @Transactional on the service methods that read-modify-
+ * write Product.stock / reservedStock. Called inside an existing
+ * transaction it just runs the work once: the outermost caller owns the
+ * retry.
+ */
+@Slf4j
+@Component
+public class OptimisticRetry {
+
+    private final TransactionTemplate transactionTemplate;
+    private final int maxAttempts;
+    private final long backoffMs;
+    private final long maxBackoffMs;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public OptimisticRetry(
+            TransactionTemplate transactionTemplate,
+            @Value("${diya.stock.retry.max-attempts:12}") int maxAttempts,
+            @Value("${diya.stock.retry.backoff-ms:10}") long backoffMs,
+            @Value("${diya.stock.retry.max-backoff-ms:1000}") long maxBackoffMs) {
+        this.transactionTemplate = transactionTemplate;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoffMs = backoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+    }
+
+    public <T> T inTransaction(Supplier<T> work) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return work.get();
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(tx -> {
+                    T result = work.get();
+                    // surface version conflicts here, so the rollback also clears a
+                    // request-scoped (open-in-view) persistence context before the retry
+                    entityManager.flush();
+                    return result;
+                });
+            } catch (OptimisticLockingFailureException | OptimisticLockException e) {
+                if (attempt >= maxAttempts) {
+                    log.warn("Giving up after {} conflicting attempts", attempt);
+                    throw new RuntimeException("Stock was updated concurrently, please try again");
+                }
+                pause(attempt);
+            }
+        }
+    }
+
+    // exponential backoff (capped) with full jitter, so the losers of a conflict spread out
+    private void pause(int attempt) {
+        long ceiling = Math.min(maxBackoffMs, backoffMs << Math.min(attempt - 1, 16));
+        long millis = ThreadLocalRandom.current().nextLong(ceiling + 1);
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while retrying");
+        }
+    }
+}
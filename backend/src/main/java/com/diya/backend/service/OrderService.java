@@ -2,15 +2,23 @@ package com.diya.backend.service;
 
 import com.diya.backend.dto.OrderCheckoutRequest;
 import com.diya.backend.dto.OrderCheckoutResponse;
+import com.diya.backend.dto.order.OrderBulkStatusRequest;
+import com.diya.backend.dto.order.OrderBulkStatusResultDTO;
 import com.diya.backend.dto.order.OrderListItemDTO;
+import com.diya.backend.dto.order.OrderListRow;
 import com.diya.backend.entity.*;
 import com.diya.backend.repository.*;
 import com.diya.backend.util.OrderPrefixUtil;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
 
@@ -20,40 +28,59 @@ public class OrderService {
 
     private static final double GST_RATE = 0.05;
     private static final double DELIVERY_CHARGE = 50.0;
+    private static final int BULK_STATUS_MAX_ORDERS = 500;
+    private static final int MAX_LIST_PAGE_SIZE = 100;
 
     private final OrderRepository orderRepository;
     private final WholesalerRepository wholesalerRepository;
-    private final RetailerRepository retailerRepository;
     private final ProductRepository productRepository;
     private final OrderItemRepository orderItemRepository;
-    private final CartItemRepository cartItemRepository;
     private final CartRepository cartRepository;
-    private final UserRepository userRepository;
     private final ConnectionService connectionService;
+    private final SequenceService sequenceService;
+    private final AnalyticsRollupService analyticsRollupService;
+    private final PrincipalResolver principalResolver;
+    private final CatalogCache catalogCache;
+    private final OptimisticRetry optimisticRetry;
+    private final CartStore cartStore;
+    private final OutboxService outboxService;
+    private final TransactionTemplate transactionTemplate;
 
     // ==========================================================
     // RETAILER: Checkout from Cart -> Create Order
     // ==========================================================
-    @Transactional
+    // The order number and the cart store flush each run in their own short
+    // transaction before the checkout transaction opens, so neither the
+    // order counter row nor a second pooled connection is held across the
+    // checkout. A checkout that fails afterwards leaves a gap in the numbers.
     public OrderCheckoutResponse checkoutFromCart(String identifier, OrderCheckoutRequest req) {
 
-        // 1) Resolve user -> retailer
-        User user = identifier.contains("@")
-                ? userRepository.findByEmail(identifier).orElseThrow(() -> new RuntimeException("User not found"))
-                : userRepository.findByPhone(identifier).orElseThrow(() -> new RuntimeException("User not found"));
+        // 1) Resolve wholesaler
+        UUID wholesalerId = UUID.fromString(req.getWholesalerId());
+        Wholesaler numbering = wholesalerRepository.findById(wholesalerId)
+                .orElseThrow(() -> new RuntimeException("Wholesaler not found"));
 
-        Retailer retailer = retailerRepository.findByUserId(user.getId())
-                .orElseThrow(() -> new RuntimeException("Retailer profile not found"));
+        // 2) Edits still held by the cart store are written first
+        cartStore.flush(principalResolver.retailerId(identifier), wholesalerId);
 
-        // 2) Resolve wholesaler
-        UUID wholesalerId = UUID.fromString(req.getWholesalerId());
+        // 3) Order number (atomic per-wholesaler counter, see SequenceService)
+        String orderNum = sequenceService.nextOrderNumber(numbering);
+
+        return transactionTemplate.execute(tx -> placeOrder(identifier, wholesalerId, orderNum));
+    }
+
+    private OrderCheckoutResponse placeOrder(String identifier, UUID wholesalerId, String orderNum) {
+
+        // 4) Resolve retailer / wholesaler in this transaction
+        Retailer retailer = principalResolver.retailer(identifier);
         Wholesaler wholesaler = wholesalerRepository.findById(wholesalerId)
                 .orElseThrow(() -> new RuntimeException("Wholesaler not found"));
 
-        // 3) Gatekeeping: must be connected
+        // 5) Gatekeeping: must be connected
         connectionService.ensureRetailerConnectedToWholesaler(retailer, wholesaler);
+        analyticsRollupService.ensureSeeded(wholesaler.getId(), retailer.getId()); // before the order exists
 
-        // 4) Load cart
+        // 6) Load cart
         Cart cart = cartRepository.findByRetailerAndWholesaler(retailer, wholesaler)
                 .orElseThrow(() -> new RuntimeException("Cart is empty"));
 
@@ -61,23 +88,33 @@ public class OrderService {
             throw new RuntimeException("Cart has no items");
         }
 
-        // 5) Validate items + totals (use product DB values for snapshot)
+        // 7) Load all cart products in one query, validate items + totals
+        // (use product DB values for snapshot)
+        Map<UUID, Integer> qtyByProduct = new LinkedHashMap<>();
+        for (CartItem ci : cart.getItems()) {
+            qtyByProduct.merge(ci.getProduct().getId(), ci.getQuantity(), Integer::sum);
+        }
+
+        Map<UUID, Product> products = new HashMap<>();
+        for (Product p : productRepository.findAllById(qtyByProduct.keySet())) {
+            products.put(p.getId(), p);
+        }
+
         double subtotal = 0.0;
 
-        for (CartItem ci : cart.getItems()) {
-            Product p = productRepository.findById(ci.getProduct().getId())
-                    .orElseThrow(() -> new RuntimeException("Product not found"));
+        for (Map.Entry<UUID, Integer> line : qtyByProduct.entrySet()) {
+            Product p = products.get(line.getKey());
+            if (p == null) {
+                throw new RuntimeException("Product not found");
+            }
 
-            int qty = ci.getQuantity();
+            int qty = line.getValue();
             if (qty <= 0) {
                 throw new RuntimeException("Invalid qty for product: " + p.getName());
             }
 
-            int stock = p.getStock() == null ? 0 : p.getStock();
-            int reserved = p.getReservedStock() == null ? 0 : p.getReservedStock();
-            int available = stock - reserved;
-
-            if (available < qty) {
+            // early, friendly check; the conditional UPDATE below is the real guard
+            if (getAvailableStock(p) < qty) {
                 throw new RuntimeException("Insufficient stock for: " + p.getName());
             }
 
@@ -88,11 +125,11 @@ public class OrderService {
         double delivery = DELIVERY_CHARGE;
         double total = subtotal + tax + delivery;
 
-        // 6) Create base order
+        // 8) Create base order
         Order order = Order.builder()
                 .wholesaler(wholesaler)
                 .retailer(retailer)
-                .orderNumber("TEMP") // will update after saving
+                .orderNumber(orderNum)
                 .status(Order.Status.PLACED)
                 .paymentStatus(Order.PaymentStatus.UNPAID)
                 .placedAt(LocalDateTime.now())
@@ -104,27 +141,24 @@ public class OrderService {
 
         order = orderRepository.save(order);
 
-        // 7) Create OrderItems + reserve stock
-        for (CartItem ci : cart.getItems()) {
-
-            Product p = productRepository.findById(ci.getProduct().getId())
-                    .orElseThrow(() -> new RuntimeException("Product not found"));
-
-            int qty = ci.getQuantity();
+        // 9) Reserve stock for all lines in one JDBC batch (conditional UPDATE per product)
+        Set<UUID> shortOnStock = productRepository.reserveStock(qtyByProduct);
+        if (!shortOnStock.isEmpty()) {
+            Product p = products.get(shortOnStock.iterator().next());
+            throw new RuntimeException("Insufficient stock for: " + p.getName());
+        }
 
-            int stock = p.getStock() == null ? 0 : p.getStock();
-            int reserved = p.getReservedStock() == null ? 0 : p.getReservedStock();
-            int available = stock - reserved;
-
-            if (available < qty) {
-                throw new RuntimeException("Insufficient stock for: " + p.getName());
-            }
+        // 10) Create OrderItems (batched insert)
+        List<OrderItem> items = new ArrayList<>();
+        for (Map.Entry<UUID, Integer> line : qtyByProduct.entrySet()) {
+            Product p = products.get(line.getKey());
+            int qty = line.getValue();
 
             double unitPrice = p.getPrice();
             double lineTotal = unitPrice * qty;
 
             // ✅ Snapshot fields
-            OrderItem oi = OrderItem.builder()
+            items.add(OrderItem.builder()
                     .order(order)
                     .product(p)
                     .productIdSnapshot(p.getId())
@@ -133,32 +167,18 @@ public class OrderService {
                     .qty(qty)
                     .unitPriceSnapshot(unitPrice)
                     .lineTotal(lineTotal)
-                    .build();
-
-            orderItemRepository.save(oi);
-
-            // reserve stock
-            p.setReservedStock(reserved + qty);
-            productRepository.save(p);
+                    .build());
         }
+        orderItemRepository.saveAll(items);
 
-        // 8) Generate order number
-        int nextSeq = Optional.ofNullable(wholesaler.getOrderSequence()).orElse(0) + 1;
-        String prefix = OrderPrefixUtil.buildPrefix(wholesaler);
-        String orderNum = OrderPrefixUtil.formatOrderNumber(prefix, nextSeq);
-
-        order.setOrderNumber(orderNum);
-        orderRepository.save(order);
+        analyticsRollupService.orderPlaced(order);
+        outboxService.record(DomainEvent.Type.ORDER_PLACED, order.getId(), wholesaler.getId(), retailer.getId(),
+                Map.of("orderNumber", orderNum, "totalAmount", total));
 
-        wholesaler.setOrderSequence(nextSeq);
-        wholesalerRepository.save(wholesaler);
-
-        // 9) Clear cart
-        for (CartItem ci : new ArrayList<>(cart.getItems())) {
-            cartItemRepository.delete(ci);
-        }
+        // 11) Clear cart (orphanRemoval -> batched deletes)
         cart.getItems().clear();
         cartRepository.save(cart);
+        cartStore.invalidateAfterCommit(retailer.getId(), wholesaler.getId());
 
         return OrderCheckoutResponse.builder()
                 .orderId(order.getId())
@@ -169,104 +189,36 @@ public class OrderService {
     }
 
     // ==========================================================
-    // WHOLESALER: View Orders (simple list)
+    // WHOLESALER: View Orders (filtered + paged in SQL)
     // ==========================================================
-    public List<OrderListItemDTO> getOrdersForWholesaler(
+    public Page<OrderListItemDTO> getOrdersForWholesaler(
             String identifier,
             String authType,
             String status,
             String search,
             String dateRange,
-            Integer page,
-            Integer size) {
-
-        // resolve wholesaler
-        Wholesaler wholesaler;
-        if ("EMAIL".equalsIgnoreCase(authType)) {
-            wholesaler = wholesalerRepository.findByUserEmail(identifier)
-                    .orElseThrow(() -> new RuntimeException("Wholesaler not found"));
-        } else {
-            wholesaler = wholesalerRepository.findByUserPhone(identifier)
-                    .orElseThrow(() -> new RuntimeException("Wholesaler not found"));
-        }
+            int page,
+            int size) {
 
-        List<Order> orders = orderRepository.findByWholesaler(wholesaler);
-
-        // status filter
-        if (status != null && !status.isBlank() && !"all".equalsIgnoreCase(status)) {
-            orders = orders.stream()
-                    .filter(o -> o.getStatus() != null && o.getStatus().name().equalsIgnoreCase(status))
-                    .toList();
-        }
-
-        // search filter
-        if (search != null && !search.isBlank()) {
-            String q = search.toLowerCase();
-            orders = orders.stream()
-                    .filter(o -> {
-                        String rn = o.getRetailer() != null && o.getRetailer().getUser() != null
-                                ? o.getRetailer().getUser().getName().toLowerCase()
-                                : "";
-                        String on = o.getOrderNumber() != null ? o.getOrderNumber().toLowerCase() : "";
-                        return rn.contains(q) || on.contains(q);
-                    })
-                    .toList();
+        if (page < 0) {
+            throw new RuntimeException("page must be 0 or more");
         }
+        int limit = Math.max(1, Math.min(size, MAX_LIST_PAGE_SIZE));
 
-        // date filter
-        if (dateRange != null && !dateRange.isBlank()) {
-            LocalDate today = LocalDate.now();
-            switch (dateRange.toLowerCase()) {
-                case "today" -> orders = orders.stream()
-                        .filter(o -> o.getPlacedAt() != null && o.getPlacedAt().toLocalDate().isEqual(today))
-                        .toList();
-                case "week" -> orders = orders.stream()
-                        .filter(o -> o.getPlacedAt() != null
-                                && o.getPlacedAt().toLocalDate().isAfter(today.minusDays(7)))
-                        .toList();
-                case "month" -> orders = orders.stream()
-                        .filter(o -> o.getPlacedAt() != null
-                                && o.getPlacedAt().toLocalDate().isAfter(today.minusDays(30)))
-                        .toList();
-                default -> {
-                }
-            }
-        }
+        // resolve wholesaler (id only)
+        UUID wholesalerId = principalResolver.wholesalerId(identifier);
 
-        // pagination (simple slice)
-        if (page != null && size != null) {
-            int from = page * size;
-            int to = Math.min(from + size, orders.size());
-            if (from > orders.size())
-                orders = List.of();
-            else
-                orders = orders.subList(from, to);
-        }
+        Specification<Order> spec = Specification.allOf(
+                OrderSpecifications.forWholesaler(wholesalerId),
+                OrderSpecifications.hasStatus(status),
+                OrderSpecifications.matchesSearch(search),
+                OrderSpecifications.placedWithin(dateRange));
 
-        return orders.stream().map(o -> {
-            int itemCount = o.getOrderItems() == null ? 0 : o.getOrderItems().size();
+        // newest first; id breaks ties so pages are stable
+        Pageable pageable = PageRequest.of(page, limit,
+                Sort.by(Sort.Order.desc("placedAt"), Sort.Order.desc("id")));
 
-            String loc = "";
-            if (o.getRetailer() != null) {
-                Retailer r = o.getRetailer();
-                String city = r.getCity() != null ? r.getCity() : "";
-                String state = r.getState() != null ? r.getState() : "";
-                loc = (city + (city.isEmpty() || state.isEmpty() ? "" : ", ") + state).trim();
-            }
-
-            return OrderListItemDTO.builder()
-                    .id(o.getId().toString())
-                    .retailer(o.getRetailer() != null && o.getRetailer().getUser() != null
-                            ? o.getRetailer().getUser().getName()
-                            : "Unknown")
-                    .location(loc)
-                    .amount(o.getTotalAmount() == null ? 0.0 : o.getTotalAmount())
-                    .date(o.getPlacedAt() == null ? "" : o.getPlacedAt().toString())
-                    .status(o.getStatus() == null ? Order.Status.PLACED.name() : o.getStatus().name())
-                    .items(itemCount)
-                    .exposure("NORMAL")
-                    .build();
-        }).toList();
+        return orderRepository.findListRows(spec, pageable).map(this::toListItem);
     }
 
     // ==========================================================
@@ -274,28 +226,30 @@ public class OrderService {
     // ==========================================================
     public List<OrderListItemDTO> getOrdersForRetailer(String identifier) {
 
-        Retailer retailer = identifier.contains("@")
-                ? retailerRepository.findByUserEmail(identifier)
-                        .orElseThrow(() -> new RuntimeException("Retailer not found"))
-                : retailerRepository.findByUserPhone(identifier)
-                        .orElseThrow(() -> new RuntimeException("Retailer not found"));
-
-        List<Order> orders = orderRepository.findByRetailer(retailer);
-
-        return orders.stream().map(o -> {
-            int itemCount = o.getOrderItems() == null ? 0 : o.getOrderItems().size();
-
-            return OrderListItemDTO.builder()
-                    .id(o.getId().toString())
-                    .retailer(retailer.getUser().getName())
-                    .location(retailer.getCity() + ", " + retailer.getState())
-                    .amount(o.getTotalAmount() == null ? 0.0 : o.getTotalAmount())
-                    .date(o.getPlacedAt() == null ? "" : o.getPlacedAt().toString())
-                    .status(o.getStatus() == null ? Order.Status.PLACED.name() : o.getStatus().name())
-                    .items(itemCount)
-                    .exposure("NORMAL")
-                    .build();
-        }).toList();
+        UUID retailerId = principalResolver.retailerId(identifier);
+
+        Pageable all = Pageable.unpaged(Sort.by(Sort.Order.desc("placedAt"), Sort.Order.desc("id")));
+
+        return orderRepository.findListRows(OrderSpecifications.forRetailer(retailerId), all)
+                .map(this::toListItem)
+                .getContent();
+    }
+
+    private OrderListItemDTO toListItem(OrderListRow row) {
+        String city = row.city() != null ? row.city() : "";
+        String state = row.state() != null ? row.state() : "";
+        String loc = (city + (city.isEmpty() || state.isEmpty() ? "" : ", ") + state).trim();
+
+        return OrderListItemDTO.builder()
+                .id(row.id().toString())
+                .retailer(row.retailerName() != null ? row.retailerName() : "Unknown")
+                .location(loc)
+                .amount(row.totalAmount() == null ? 0.0 : row.totalAmount())
+                .date(row.placedAt() == null ? "" : row.placedAt().toString())
+                .status(row.status() == null ? Order.Status.PLACED.name() : row.status().name())
+                .items(row.itemCount() == null ? 0 : row.itemCount().intValue())
+                .exposure("NORMAL")
+                .build();
     }
 
     // ==========================================================
@@ -303,11 +257,7 @@ public class OrderService {
     // ==========================================================
     public Order getRetailerOrderDetails(String identifier, UUID orderId) {
 
-        Retailer retailer = identifier.contains("@")
-                ? retailerRepository.findByUserEmail(identifier)
-                        .orElseThrow(() -> new RuntimeException("Retailer not found"))
-                : retailerRepository.findByUserPhone(identifier)
-                        .orElseThrow(() -> new RuntimeException("Retailer not found"));
+        Retailer retailer = principalResolver.retailer(identifier);
 
         Order order = orderRepository.findById(orderId)
                 .orElseThrow(() -> new RuntimeException("Order not found"));
@@ -319,16 +269,16 @@ public class OrderService {
         return order;
     }
 
-    @Transactional
+    // product rows are read-modify-written: retried on a version conflict
     public Order retailerCancelOrder(String identifier, UUID orderId) {
+        return optimisticRetry.inTransaction(() -> cancelByRetailer(identifier, orderId));
+    }
 
-        Retailer retailer = identifier.contains("@")
-                ? retailerRepository.findByUserEmail(identifier)
-                        .orElseThrow(() -> new RuntimeException("Retailer not found"))
-                : retailerRepository.findByUserPhone(identifier)
-                        .orElseThrow(() -> new RuntimeException("Retailer not found"));
+    private Order cancelByRetailer(String identifier, UUID orderId) {
 
-        Order order = orderRepository.findById(orderId)
+        Retailer retailer = principalResolver.retailer(identifier);
+
+        Order order = orderRepository.findForUpdateById(orderId)
                 .orElseThrow(() -> new RuntimeException("Order not found"));
 
         if (!order.getRetailer().getId().equals(retailer.getId())) {
@@ -340,6 +290,8 @@ public class OrderService {
             throw new RuntimeException("Order cannot be cancelled after wholesaler accepts/rejects");
         }
 
+        analyticsRollupService.ensureSeeded(order.getWholesaler().getId(), retailer.getId());
+
         // release reserved stock
         if (order.getOrderItems() != null) {
             for (OrderItem item : order.getOrderItems()) {
@@ -357,22 +309,26 @@ public class OrderService {
         order.setStatus(Order.Status.CANCELLED);
         order.setCancelledAt(LocalDateTime.now());
 
-        return orderRepository.save(order);
+        // flush product rows first: rollup rows are always locked last (same order as checkout)
+        Order saved = orderRepository.saveAndFlush(order);
+        analyticsRollupService.orderStatusChanged(saved, Order.Status.PLACED, Order.Status.CANCELLED);
+        outboxService.recordAll(List.of(statusChanged(saved, Order.Status.PLACED, Order.Status.CANCELLED)));
+        return saved;
     }
 
     // ==========================================================
     // WHOLESALER: Update status with strict transition rules + stock handling
     // ==========================================================
-    @Transactional
+    // product rows are read-modify-written: retried on a version conflict
     public Order wholesalerUpdateOrderStatus(String identifier, UUID orderId, String newStatus) {
+        return optimisticRetry.inTransaction(() -> updateStatusByWholesaler(identifier, orderId, newStatus));
+    }
 
-        Wholesaler wholesaler = identifier.contains("@")
-                ? wholesalerRepository.findByUserEmail(identifier)
-                        .orElseThrow(() -> new RuntimeException("Wholesaler not found"))
-                : wholesalerRepository.findByUserPhone(identifier)
-                        .orElseThrow(() -> new RuntimeException("Wholesaler not found"));
+    private Order updateStatusByWholesaler(String identifier, UUID orderId, String newStatus) {
 
-        Order order = orderRepository.findById(orderId)
+        Wholesaler wholesaler = principalResolver.wholesaler(identifier);
+
+        Order order = orderRepository.findForUpdateById(orderId)
                 .orElseThrow(() -> new RuntimeException("Order not found"));
 
         if (!order.getWholesaler().getId().equals(wholesaler.getId())) {
@@ -382,18 +338,12 @@ public class OrderService {
         Order.Status target = Order.Status.valueOf(newStatus.toUpperCase());
         Order.Status current = order.getStatus();
 
-        // ✅ Allowed transitions
-        boolean allowed = (current == Order.Status.PLACED && (target == Order.Status.ACCEPTED
-                || target == Order.Status.REJECTED || target == Order.Status.CANCELLED))
-                || (current == Order.Status.ACCEPTED && target == Order.Status.PACKING)
-                || (current == Order.Status.PACKING && target == Order.Status.DISPATCHED)
-                || (current == Order.Status.DISPATCHED && target == Order.Status.DELIVERED)
-                || (current == Order.Status.DELIVERED && target == Order.Status.COMPLETED);
-
-        if (!allowed) {
+        if (!isAllowedTransition(current, target)) {
             throw new RuntimeException("Invalid order status transition: " + current + " -> " + target);
         }
 
+        analyticsRollupService.ensureSeeded(wholesaler.getId(), order.getRetailer().getId());
+
         // ✅ Stock actions
         if (target == Order.Status.ACCEPTED) {
             // convert reserved -> stock deduction
@@ -415,6 +365,9 @@ public class OrderService {
                 p.setStock(stock - qty);
                 productRepository.save(p);
             }
+            // only the catalog pages showing these products change
+            catalogCache.evictProductsAfterCommit(wholesaler.getId(),
+                    order.getOrderItems().stream().map(i -> i.getProduct().getId()).toList());
 
             order.setAcceptedAt(LocalDateTime.now());
         }
@@ -443,6 +396,215 @@ public class OrderService {
         }
 
         order.setStatus(target);
-        return orderRepository.save(order);
+
+        // flush product rows first: rollup rows are always locked last (same order as checkout)
+        Order saved = orderRepository.saveAndFlush(order);
+        analyticsRollupService.orderStatusChanged(saved, current, target);
+        outboxService.recordAll(List.of(statusChanged(saved, current, target)));
+        return saved;
+    }
+
+    // ✅ Allowed transitions
+    private static boolean isAllowedTransition(Order.Status current, Order.Status target) {
+        return (current == Order.Status.PLACED && (target == Order.Status.ACCEPTED
+                || target == Order.Status.REJECTED || target == Order.Status.CANCELLED))
+                || (current == Order.Status.ACCEPTED && target == Order.Status.PACKING)
+                || (current == Order.Status.PACKING && target == Order.Status.DISPATCHED)
+                || (current == Order.Status.DISPATCHED && target == Order.Status.DELIVERED)
+                || (current == Order.Status.DELIVERED && target == Order.Status.COMPLETED);
+    }
+
+    // ==========================================================
+    // WHOLESALER: Same transition for many orders at once
+    // ==========================================================
+
+    /**
+     * Bulk version of wholesalerUpdateOrderStatus: same rules, but the orders
+     * are locked, then loaded with their items in one query, the products
+     * involved are locked in one query, and stock moves as one UPDATE per
+     * product (qty summed over all orders). An order that cannot move is reported and left as it is; the
+     * others still go through.
+     */
+    @Transactional
+    public OrderBulkStatusResultDTO wholesalerBulkUpdateOrderStatus(String identifier, OrderBulkStatusRequest req) {
+        UUID wholesalerId = principalResolver.wholesalerId(identifier);
+
+        if (req.getStatus() == null) {
+            throw new RuntimeException("Status is required");
+        }
+        Order.Status target = Order.Status.valueOf(req.getStatus().toUpperCase());
+        List<UUID> orderIds = req.getOrderIds() == null ? List.of()
+                : req.getOrderIds().stream().filter(Objects::nonNull).distinct().toList();
+        if (orderIds.size() > BULK_STATUS_MAX_ORDERS) {
+            throw new RuntimeException("Too many orders (max " + BULK_STATUS_MAX_ORDERS + " per request)");
+        }
+
+        Map<UUID, Order> orders = new HashMap<>();
+        List<Order> found = List.of();
+        if (!orderIds.isEmpty()) {
+            orderRepository.lockAllByIdInAndWholesalerId(orderIds, wholesalerId); // order rows first
+            found = orderRepository.findWithItemsByIdInAndWholesalerId(orderIds, wholesalerId);
+        }
+        for (Order o : found) {
+            orders.put(o.getId(), o);
+        }
+
+        Map<UUID, OrderBulkStatusResultDTO.Outcome> outcomes = new LinkedHashMap<>();
+        List<Order> movable = new ArrayList<>();
+        for (UUID id : orderIds) {
+            Order order = orders.get(id);
+            if (order == null) {
+                outcomes.put(id, failed(id, null, "Order not found"));
+            } else if (!isAllowedTransition(order.getStatus(), target)) {
+                outcomes.put(id, failed(id, order.getOrderNumber(),
+                        "Invalid order status transition: " + order.getStatus() + " -> " + target));
+            } else {
+                outcomes.put(id, null);
+                movable.add(order);
+            }
+        }
+
+        if (!movable.isEmpty()) {
+            analyticsRollupService.ensureSeeded(wholesalerId, null); // status counts are per wholesaler
+        }
+
+        // ✅ Stock actions: lock every product involved once, then one UPDATE per product
+        List<Order> moving = movable;
+        if (target == Order.Status.ACCEPTED) {
+            moving = acceptAll(wholesalerId, movable, outcomes);
+        } else if (target == Order.Status.REJECTED || target == Order.Status.CANCELLED) {
+            Map<UUID, Integer> release = new HashMap<>();
+            for (Order order : movable) {
+                addQty(release, order);
+            }
+            productRepository.releaseReservedStock(release);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        Map<Order, Order.Status> previous = new LinkedHashMap<>();
+        for (Order order : moving) {
+            previous.put(order, order.getStatus());
+            if (target == Order.Status.ACCEPTED) {
+                order.setAcceptedAt(now);
+            } else if (target == Order.Status.REJECTED || target == Order.Status.CANCELLED) {
+                order.setCancelledAt(now);
+            } else if (target == Order.Status.DISPATCHED) {
+                order.setDispatchedAt(now);
+            } else if (target == Order.Status.DELIVERED) {
+                order.setDeliveredAt(now);
+            }
+            order.setStatus(target);
+            outcomes.put(order.getId(), OrderBulkStatusResultDTO.Outcome.builder()
+                    .orderId(order.getId())
+                    .orderNumber(order.getOrderNumber())
+                    .success(true)
+                    .build());
+        }
+
+        // product rows are already written: rollup rows are locked last (same order as checkout)
+        orderRepository.flush();
+        previous.forEach((order, from) -> analyticsRollupService.orderStatusChanged(order, from, target));
+        outboxService.recordAll(previous.entrySet().stream()
+                .map(e -> statusChanged(e.getKey(), e.getValue(), target))
+                .toList());
+
+        List<OrderBulkStatusResultDTO.Outcome> results = new ArrayList<>(outcomes.values());
+        int succeeded = (int) results.stream().filter(OrderBulkStatusResultDTO.Outcome::isSuccess).count();
+        return OrderBulkStatusResultDTO.builder()
+                .status(target.name())
+                .succeeded(succeeded)
+                .failed(results.size() - succeeded)
+                .results(results)
+                .build();
+    }
+
+    // reserved -> stock deduction for every order that still fits, in request order
+    private List<Order> acceptAll(UUID wholesalerId, List<Order> orders,
+            Map<UUID, OrderBulkStatusResultDTO.Outcome> outcomes) {
+        Set<UUID> productIds = new HashSet<>();
+        for (Order order : orders) {
+            for (OrderItem item : order.getOrderItems()) {
+                if (item.getProduct() != null) {
+                    productIds.add(item.getProduct().getId());
+                }
+            }
+        }
+        // what is left of each product as orders are taken, starting from the locked rows
+        Map<UUID, int[]> left = new HashMap<>(); // id -> {stock, reserved}
+        Map<UUID, String> names = new HashMap<>();
+        List<Product> locked = productIds.isEmpty() ? List.of() : productRepository.lockAllById(productIds);
+        for (Product p : locked) {
+            left.put(p.getId(), new int[] {
+                    p.getStock() == null ? 0 : p.getStock(),
+                    p.getReservedStock() == null ? 0 : p.getReservedStock() });
+            names.put(p.getId(), p.getName());
+        }
+
+        List<Order> accepted = new ArrayList<>();
+        Map<UUID, Integer> deduct = new HashMap<>();
+        for (Order order : orders) {
+            Map<UUID, Integer> need = new HashMap<>();
+            String problem = addQty(need, order);
+            for (Map.Entry<UUID, Integer> e : need.entrySet()) {
+                if (problem != null) {
+                    break;
+                }
+                int[] stock = left.get(e.getKey());
+                if (stock[1] < e.getValue()) {
+                    problem = "Reserved stock mismatch for: " + names.get(e.getKey());
+                } else if (stock[0] < e.getValue()) {
+                    problem = "Stock insufficient at acceptance for: " + names.get(e.getKey());
+                }
+            }
+            if (problem != null) {
+                outcomes.put(order.getId(), failed(order.getId(), order.getOrderNumber(), problem));
+                continue;
+            }
+            need.forEach((id, qty) -> {
+                left.get(id)[0] -= qty;
+                left.get(id)[1] -= qty;
+                deduct.merge(id, qty, Integer::sum);
+            });
+            accepted.add(order);
+        }
+
+        productRepository.deductReservedStock(deduct);
+        // only the catalog pages showing these products change
+        catalogCache.evictProductsAfterCommit(wholesalerId, deduct.keySet());
+        return accepted;
+    }
+
+    // qty per product for one order; returns why it cannot be used, or null
+    private static String addQty(Map<UUID, Integer> qtyByProduct, Order order) {
+        String problem = null;
+        for (OrderItem item : order.getOrderItems()) {
+            if (item.getProduct() == null) {
+                problem = "Product no longer exists: " + item.getProductNameSnapshot();
+                continue;
+            }
+            qtyByProduct.merge(item.getProduct().getId(), item.getQty(), Integer::sum);
+        }
+        return problem;
+    }
+
+    private static OutboxService.Entry statusChanged(Order order, Order.Status from, Order.Status to) {
+        return new OutboxService.Entry(DomainEvent.Type.ORDER_STATUS_CHANGED, order.getId(),
+                order.getWholesaler().getId(), order.getRetailer().getId(),
+                Map.of("orderNumber", order.getOrderNumber(), "from", from.name(), "to", to.name()));
+    }
+
+    private static OrderBulkStatusResultDTO.Outcome failed(UUID orderId, String orderNumber, String message) {
+        return OrderBulkStatusResultDTO.Outcome.builder()
+                .orderId(orderId)
+                .orderNumber(orderNumber)
+                .success(false)
+                .message(message)
+                .build();
+    }
+
+    private int getAvailableStock(Product p) {
+        int stock = p.getStock() == null ? 0 : p.getStock();
+        int reserved = p.getReservedStock() == null ? 0 : p.getReservedStock();
+        return stock - reserved;
     }
 }
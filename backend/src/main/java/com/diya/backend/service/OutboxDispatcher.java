@@ -0,0 +1,202 @@
+package com.diya.backend.service;
+
+import com.diya.backend.util.AfterCommit;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Publishes outbox_events to the in-process @EventListener methods that take
+ * DomainEvent, in batches, off the request path.
+ *
+ * Each batch is one transaction:
+ * - claim up to batch-size unpublished events in id order with FOR UPDATE
+ * SKIP LOCKED (several nodes can dispatch at once, each event goes to one),
+ * - publish each event in its own transaction, so one failing listener only
+ * rolls back its own work,
+ * - mark the delivered events published; a failed event is retried with
+ * backoff and parked after max-attempts (lastError says why).
+ *
+ * At-least-once: an event whose listeners ran but whose batch did not commit
+ * is published again. Published rows are deleted after retention-hours.
+ */
+@Slf4j
+@Service
+public class OutboxDispatcher {
+
+    public static final String METRIC_PUBLISHED = "outbox.published";
+    public static final String METRIC_FAILED = "outbox.failed";
+
+    private static final String CLAIM_SQL = "SELECT id, event_type, aggregate_id, wholesaler_id, retailer_id, "
+            + "payload, created_at, attempts FROM outbox_events "
+            + "WHERE published_at IS NULL AND attempts < ? AND (next_attempt_at IS NULL OR next_attempt_at <= ?) "
+            + "ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED";
+
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    private static final TypeReference<Map<String, Object>> PAYLOAD = new TypeReference<>() {
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate batchTx;
+    private final TransactionTemplate deliveryTx;
+    private final Counter published;
+    private final Counter failed;
+
+    private final int batchSize;
+    private final int maxBatches;
+    private final int maxAttempts;
+    private final long backoffMs;
+    private final int retentionHours;
+
+    private record Claimed(long id, String type, UUID aggregateId, UUID wholesalerId, UUID retailerId,
+            String payload, LocalDateTime createdAt, int attempts) {
+    }
+
+    private record Failure(long id, int attempts, String error) {
+    }
+
+    public OutboxDispatcher(
+            JdbcTemplate jdbcTemplate,
+            ApplicationEventPublisher eventPublisher,
+            ObjectMapper objectMapper,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${diya.outbox.batch-size:200}") int batchSize,
+            @Value("${diya.outbox.max-batches:20}") int maxBatches,
+            @Value("${diya.outbox.max-attempts:10}") int maxAttempts,
+            @Value("${diya.outbox.backoff-ms:1000}") long backoffMs,
+            @Value("${diya.outbox.retention-hours:72}") int retentionHours) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
+        this.objectMapper = objectMapper;
+        this.batchTx = new TransactionTemplate(transactionManager);
+        this.deliveryTx = new TransactionTemplate(transactionManager);
+        this.deliveryTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.batchSize = batchSize;
+        this.maxBatches = maxBatches;
+        this.maxAttempts = maxAttempts;
+        this.backoffMs = backoffMs;
+        this.retentionHours = retentionHours;
+        this.published = Counter.builder(METRIC_PUBLISHED)
+                .description("Outbox events delivered to every listener")
+                .register(meterRegistry);
+        this.failed = Counter.builder(METRIC_FAILED)
+                .description("Outbox deliveries where a listener threw")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(initialDelayString = "${diya.outbox.dispatch.initial-delay-ms:5000}",
+            fixedDelayString = "${diya.outbox.dispatch.interval-ms:1000}")
+    public void scheduledDispatch() {
+        dispatch();
+    }
+
+    // batches until nothing is due (or max-batches, the rest waits for the next run)
+    public int dispatch() {
+        int total = 0;
+        for (int i = 0; i < maxBatches; i++) {
+            int claimed = batchTx.execute(tx -> dispatchBatch(LocalDateTime.now()));
+            total += claimed;
+            if (claimed < batchSize) {
+                break;
+            }
+        }
+        return total;
+    }
+
+    @Scheduled(initialDelayString = "${diya.outbox.cleanup.initial-delay-ms:600000}",
+            fixedDelayString = "${diya.outbox.cleanup.interval-ms:3600000}")
+    public int deletePublished() {
+        return jdbcTemplate.update("DELETE FROM outbox_events WHERE published_at < ?",
+                Timestamp.valueOf(LocalDateTime.now().minusHours(retentionHours)));
+    }
+
+    private int dispatchBatch(LocalDateTime now) {
+        List<Claimed> claimed = jdbcTemplate.query(CLAIM_SQL, (rs, n) -> new Claimed(
+                rs.getLong("id"),
+                rs.getString("event_type"),
+                rs.getObject("aggregate_id", UUID.class),
+                rs.getObject("wholesaler_id", UUID.class),
+                rs.getObject("retailer_id", UUID.class),
+                rs.getString("payload"),
+                rs.getTimestamp("created_at").toLocalDateTime(),
+                rs.getInt("attempts")),
+                maxAttempts, Timestamp.valueOf(now), batchSize);
+
+        List<Object[]> delivered = new ArrayList<>();
+        List<Failure> failures = new ArrayList<>();
+        for (Claimed c : claimed) {
+            try {
+                // an unreadable row fails here and is parked like any other failure
+                DomainEvent event = new DomainEvent(c.id(), DomainEvent.Type.valueOf(c.type()), c.aggregateId(),
+                        c.wholesalerId(), c.retailerId(), parse(c.payload()), c.createdAt());
+                deliveryTx.executeWithoutResult(tx -> eventPublisher.publishEvent(event));
+                delivered.add(new Object[] { Timestamp.valueOf(now), c.id() });
+            } catch (RuntimeException e) {
+                int attempts = c.attempts() + 1;
+                if (attempts >= maxAttempts) {
+                    log.error("Outbox event {} ({}) parked after {} attempts", c.id(), c.type(), attempts, e);
+                } else {
+                    log.warn("Outbox event {} ({}) failed, will retry: {}", c.id(), c.type(), e.getMessage());
+                }
+                failures.add(new Failure(c.id(), attempts, String.valueOf(e.getMessage())));
+            }
+        }
+
+        if (!delivered.isEmpty()) {
+            jdbcTemplate.batchUpdate("UPDATE outbox_events SET published_at = ? WHERE id = ?", delivered);
+        }
+        if (!failures.isEmpty()) {
+            jdbcTemplate.batchUpdate("UPDATE outbox_events SET attempts = ?, next_attempt_at = ?, last_error = ? "
+                    + "WHERE id = ?", failures, failures.size(), (ps, f) -> {
+                        ps.setInt(1, f.attempts());
+                        ps.setTimestamp(2, Timestamp.valueOf(now.plusNanos(backoff(f.attempts()) * 1_000_000)));
+                        ps.setString(3, f.error().length() > MAX_ERROR_LENGTH
+                                ? f.error().substring(0, MAX_ERROR_LENGTH)
+                                : f.error());
+                        ps.setLong(4, f.id());
+                    });
+        }
+
+        int deliveredCount = delivered.size();
+        int failedCount = failures.size();
+        AfterCommit.run(() -> {
+            published.increment(deliveredCount);
+            failed.increment(failedCount);
+        });
+        return claimed.size();
+    }
+
+    // doubles per attempt, capped at an hour
+    private long backoff(int attempts) {
+        return Math.min(3_600_000L, backoffMs << Math.min(attempts - 1, 20));
+    }
+
+    private Map<String, Object> parse(String payload) {
+        try {
+            return payload == null ? Map.of() : objectMapper.readValue(payload, PAYLOAD);
+        } catch (Exception e) {
+            throw new RuntimeException("Unreadable outbox payload", e);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.diya.backend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Appends domain events to outbox_events inside the caller's transaction, so
+ * an event exists exactly when the change it describes committed.
+ * OutboxDispatcher publishes them afterwards.
+ */
+@Service
+@RequiredArgsConstructor
+public class OutboxService {
+
+    private static final String INSERT_SQL = "INSERT INTO outbox_events "
+            + "(event_type, aggregate_id, wholesaler_id, retailer_id, payload, created_at, attempts) "
+            + "VALUES (?, ?, ?, ?, ?, ?, 0)";
+
+    private static final int BATCH_SIZE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    public record Entry(DomainEvent.Type type, UUID aggregateId, UUID wholesalerId, UUID retailerId,
+            Map<String, Object> payload) {
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(DomainEvent.Type type, UUID aggregateId, UUID wholesalerId, UUID retailerId,
+            Map<String, Object> payload) {
+        recordAll(List.of(new Entry(type, aggregateId, wholesalerId, retailerId, payload)));
+    }
+
+    // one JDBC batch, e.g. for the bulk order actions
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordAll(List<Entry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT_SQL, entries, BATCH_SIZE, (ps, e) -> {
+            ps.setString(1, e.type().name());
+            ps.setObject(2, e.aggregateId());
+            ps.setObject(3, e.wholesalerId());
+            ps.setObject(4, e.retailerId());
+            ps.setString(5, toJson(e.payload()));
+            ps.setTimestamp(6, now);
+        });
+    }
+
+    private String toJson(Map<String, Object> payload) {
+        try {
+            return objectMapper.writeValueAsString(payload == null ? Map.of() : payload);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Could not serialize event payload", e);
+        }
+    }
+}
@@ -3,11 +3,13 @@ package com.diya.backend.service;
 import com.diya.backend.entity.*;
 import com.diya.backend.repository.*;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @Service
@@ -16,9 +18,10 @@ public class PaymentService {
 
     private final PaymentRepository paymentRepository;
     private final OrderRepository orderRepository;
-    private final RetailerRepository retailerRepository;
-    private final WholesalerRepository wholesalerRepository;
-    private final LedgerEntryRepository ledgerEntryRepository;
+    private final LedgerService ledgerService;
+    private final AnalyticsRollupService analyticsRollupService;
+    private final PrincipalResolver principalResolver;
+    private final OutboxService outboxService;
 
     // ==========================================================
     // 1) Retailer records payment (UPI/CASH/NEFT/NETBANKING)
@@ -32,11 +35,7 @@ public class PaymentService {
             String mode,
             String reference,
             String note) {
-        Retailer retailer = retailerIdentifier.contains("@")
-                ? retailerRepository.findByUserEmail(retailerIdentifier)
-                        .orElseThrow(() -> new RuntimeException("Retailer not found"))
-                : retailerRepository.findByUserPhone(retailerIdentifier)
-                        .orElseThrow(() -> new RuntimeException("Retailer not found"));
+        Retailer retailer = principalResolver.retailer(retailerIdentifier);
 
         Order order = orderRepository.findById(orderId)
                 .orElseThrow(() -> new RuntimeException("Order not found"));
@@ -82,7 +81,9 @@ public class PaymentService {
                 .createdAt(LocalDateTime.now())
                 .build();
 
-        return paymentRepository.save(payment);
+        payment = paymentRepository.save(payment);
+        paymentEvent(DomainEvent.Type.PAYMENT_RECORDED, payment);
+        return payment;
     }
 
     // ==========================================================
@@ -92,11 +93,7 @@ public class PaymentService {
     @Transactional
     public Payment confirmPayment(String wholesalerIdentifier, UUID paymentId) {
 
-        Wholesaler wholesaler = wholesalerIdentifier.contains("@")
-                ? wholesalerRepository.findByUserEmail(wholesalerIdentifier)
-                        .orElseThrow(() -> new RuntimeException("Wholesaler not found"))
-                : wholesalerRepository.findByUserPhone(wholesalerIdentifier)
-                        .orElseThrow(() -> new RuntimeException("Wholesaler not found"));
+        Wholesaler wholesaler = principalResolver.wholesaler(wholesalerIdentifier);
 
         Payment payment = paymentRepository.findById(paymentId)
                 .orElseThrow(() -> new RuntimeException("Payment not found"));
@@ -113,6 +110,8 @@ public class PaymentService {
             throw new RuntimeException("Payment already rejected");
         }
 
+        analyticsRollupService.ensureSeeded(wholesaler.getId(), payment.getRetailer().getId());
+
         payment.setStatus(Payment.PaymentStatus.CONFIRMED);
         payment.setConfirmedAt(LocalDateTime.now());
         payment.setConfirmedBy(wholesalerIdentifier);
@@ -130,10 +129,12 @@ public class PaymentService {
                 .entryDate(LocalDateTime.now())
                 .build();
 
-        ledgerEntryRepository.save(ledgerEntry);
+        ledgerService.post(ledgerEntry);
+
+        analyticsRollupService.paymentConfirmed(payment);
 
-        // update order payment status
-        updateOrderPaymentStatus(payment.getOrder());
+        // order payment status is updated by onPaymentConfirmed, once this commits
+        paymentEvent(DomainEvent.Type.PAYMENT_CONFIRMED, payment);
 
         return payment;
     }
@@ -144,11 +145,7 @@ public class PaymentService {
     @Transactional
     public Payment rejectPayment(String wholesalerIdentifier, UUID paymentId, String reason) {
 
-        Wholesaler wholesaler = wholesalerIdentifier.contains("@")
-                ? wholesalerRepository.findByUserEmail(wholesalerIdentifier)
-                        .orElseThrow(() -> new RuntimeException("Wholesaler not found"))
-                : wholesalerRepository.findByUserPhone(wholesalerIdentifier)
-                        .orElseThrow(() -> new RuntimeException("Wholesaler not found"));
+        Wholesaler wholesaler = principalResolver.wholesaler(wholesalerIdentifier);
 
         Payment payment = paymentRepository.findById(paymentId)
                 .orElseThrow(() -> new RuntimeException("Payment not found"));
@@ -165,7 +162,28 @@ public class PaymentService {
         payment.setRejectedAt(LocalDateTime.now());
         payment.setNote((payment.getNote() == null ? "" : payment.getNote() + " | ") + "Rejected: " + reason);
 
-        return paymentRepository.save(payment);
+        payment = paymentRepository.save(payment);
+        paymentEvent(DomainEvent.Type.PAYMENT_REJECTED, payment);
+        return payment;
+    }
+
+    private void paymentEvent(DomainEvent.Type type, Payment payment) {
+        outboxService.record(type, payment.getId(), payment.getWholesaler().getId(), payment.getRetailer().getId(),
+                Map.of("orderId", payment.getOrder().getId(), "amount", payment.getAmount(),
+                        "mode", payment.getMode().name()));
+    }
+
+    // ==========================================================
+    // Outbox listener: order payment status follows the CONFIRMED payments.
+    // Recomputed from all payments, so a redelivered event changes nothing.
+    // ==========================================================
+    @EventListener
+    public void onPaymentConfirmed(DomainEvent event) {
+        if (event.type() != DomainEvent.Type.PAYMENT_CONFIRMED) {
+            return;
+        }
+        orderRepository.findForUpdateById(event.payloadId("orderId"))
+                .ifPresent(this::updateOrderPaymentStatus);
     }
 
     // ==========================================================
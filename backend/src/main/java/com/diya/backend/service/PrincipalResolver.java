@@ -0,0 +1,146 @@
+package com.diya.backend.service;
+
+import com.diya.backend.config.AuthenticatedUser;
+import com.diya.backend.entity.Retailer;
+import com.diya.backend.entity.Wholesaler;
+import com.diya.backend.repository.RetailerRepository;
+import com.diya.backend.repository.WholesalerRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Turns a login identifier (email OR phone) into a wholesaler / retailer id.
+ *
+ * Lookup order:
+ * 1) the AuthenticatedUser put in the security context by JwtAuthFilter
+ * (resolved once per request),
+ * 2) a small TTL cache keyed by identifier,
+ * 3) an id-only query through users.
+ *
+ * Only hits are cached, so a profile created right after signup is found
+ * on the next request. The identifier -> id mapping never changes for an
+ * existing profile (nothing updates a user's email or phone), so the TTL
+ * only bounds memory; a future email/phone change must invalidate both
+ * caches for the old identifier.
+ */
+@Service
+public class PrincipalResolver {
+
+    private final WholesalerRepository wholesalerRepository;
+    private final RetailerRepository retailerRepository;
+
+    private final Cache<String, UUID> wholesalerIds;
+    private final Cache<String, UUID> retailerIds;
+
+    public PrincipalResolver(
+            WholesalerRepository wholesalerRepository,
+            RetailerRepository retailerRepository,
+            @Value("${diya.principal.cache-ttl-ms:300000}") long ttlMs,
+            @Value("${diya.principal.cache-size:10000}") long cacheSize) {
+        this.wholesalerRepository = wholesalerRepository;
+        this.retailerRepository = retailerRepository;
+        this.wholesalerIds = newCache(ttlMs, cacheSize);
+        this.retailerIds = newCache(ttlMs, cacheSize);
+    }
+
+    private static Cache<String, UUID> newCache(long ttlMs, long cacheSize) {
+        return Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .maximumSize(cacheSize)
+                .build();
+    }
+
+    // ==========================================================
+    // Authentication time (JwtAuthFilter)
+    // ==========================================================
+    public AuthenticatedUser authenticate(String identifier, String role) {
+        UUID wholesalerId = "WHOLESALER".equals(role) ? lookupWholesalerId(identifier) : null;
+        UUID retailerId = "RETAILER".equals(role) ? lookupRetailerId(identifier) : null;
+        return new AuthenticatedUser(identifier, role, wholesalerId, retailerId);
+    }
+
+    // ==========================================================
+    // Ids
+    // ==========================================================
+    public UUID wholesalerId(String identifier) {
+        AuthenticatedUser current = current(identifier);
+        if (current != null && current.wholesalerId() != null) {
+            return current.wholesalerId();
+        }
+        UUID id = lookupWholesalerId(identifier);
+        if (id == null) {
+            throw new RuntimeException("Wholesaler not found");
+        }
+        return id;
+    }
+
+    public UUID retailerId(String identifier) {
+        AuthenticatedUser current = current(identifier);
+        if (current != null && current.retailerId() != null) {
+            return current.retailerId();
+        }
+        UUID id = lookupRetailerId(identifier);
+        if (id == null) {
+            throw new RuntimeException("Retailer not found");
+        }
+        return id;
+    }
+
+    // ==========================================================
+    // Entities (primary-key load, no users join)
+    // ==========================================================
+    public Wholesaler wholesaler(String identifier) {
+        return wholesalerRepository.findById(wholesalerId(identifier))
+                .orElseThrow(() -> new RuntimeException("Wholesaler not found"));
+    }
+
+    public Retailer retailer(String identifier) {
+        return retailerRepository.findById(retailerId(identifier))
+                .orElseThrow(() -> new RuntimeException("Retailer not found"));
+    }
+
+    // ==========================================================
+    // Internals
+    // ==========================================================
+    private static AuthenticatedUser current(String identifier) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth != null
+                && auth.getPrincipal() instanceof AuthenticatedUser user
+                && user.identifier().equals(identifier)) {
+            return user;
+        }
+        return null;
+    }
+
+    private UUID lookupWholesalerId(String identifier) {
+        UUID cached = wholesalerIds.getIfPresent(identifier);
+        if (cached != null) {
+            return cached;
+        }
+        Optional<UUID> id = identifier.contains("@")
+                ? wholesalerRepository.findIdByUserEmail(identifier)
+                : wholesalerRepository.findIdByUserPhone(identifier);
+        id.ifPresent(value -> wholesalerIds.put(identifier, value));
+        return id.orElse(null);
+    }
+
+    private UUID lookupRetailerId(String identifier) {
+        UUID cached = retailerIds.getIfPresent(identifier);
+        if (cached != null) {
+            return cached;
+        }
+        Optional<UUID> id = identifier.contains("@")
+                ? retailerRepository.findIdByUserEmail(identifier)
+                : retailerRepository.findIdByUserPhone(identifier);
+        id.ifPresent(value -> retailerIds.put(identifier, value));
+        return id.orElse(null);
+    }
+}
@@ -0,0 +1,547 @@
+package com.diya.backend.service;
+
+import com.diya.backend.dto.category.CategoryRow;
+import com.diya.backend.dto.category.SubCategoryDTO;
+import com.diya.backend.dto.product.ProductImportJobDTO;
+import com.diya.backend.repository.CategoryRepository;
+import com.diya.backend.repository.SubCategoryRepository;
+import com.diya.backend.util.ImportReader;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bulk product import from CSV / XLSX, run as a background job.
+ *
+ * The upload is spooled to a temp file and read one row at a time
+ * (ImportReader); only the current batch of rows is in memory. Per batch:
+ * - categories / subcategories named in the file are resolved from maps
+ * loaded once per job (missing ones are created),
+ * - one UPDATE reserves the batch's SKU numbers (SequenceService),
+ * - one JDBC batch INSERT writes the products,
+ * - the search index and the retailer catalog cache are updated.
+ *
+ * A row that fails validation is reported and skipped; a batch the database
+ * rejects is reported row by row and the job goes on.
+ *
+ * Columns (header row, any order, case-insensitive): name, price, category
+ * (required); subcategory ("Pulses > Dal" for nested), description, unit,
+ * mrp, stock, imageUrl, visibleToRetailer.
+ *
+ * Jobs live on the node that accepted the upload; poll that node.
+ */
+@Slf4j
+@Service
+public class ProductImportService {
+
+    public enum Status {
+        QUEUED, RUNNING, COMPLETED, FAILED
+    }
+
+    private static final int MAX_ERRORS = 200;
+
+    private static final String INSERT_SQL = "INSERT INTO products (id, wholesaler_id, category_id, "
+            + "subcategory_id, sku, sequence_number, reserved_stock, name, description, unit, price, mrp, stock, "
+            + "image_url, active, visible_to_retailer, updated_at, version) "
+            + "VALUES (?, ?, ?, ?, ?, ?, 0, ?, ?, ?, ?, ?, ?, ?, TRUE, ?, ?, 0)";
+
+    private final PrincipalResolver principalResolver;
+    private final CategoryRepository categoryRepository;
+    private final SubCategoryRepository subCategoryRepository;
+    private final SequenceService sequenceService;
+    private final ProductSearchService productSearchService;
+    private final CatalogCache catalogCache;
+    private final CategoryService categoryService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private final int batchSize;
+    private final ThreadPoolExecutor executor;
+    private final Cache<UUID, Job> jobs;
+
+    // one running import per wholesaler: wholesalerId -> jobId
+    private final Map<UUID, UUID> active = new ConcurrentHashMap<>();
+
+    public ProductImportService(
+            PrincipalResolver principalResolver,
+            CategoryRepository categoryRepository,
+            SubCategoryRepository subCategoryRepository,
+            SequenceService sequenceService,
+            ProductSearchService productSearchService,
+            CatalogCache catalogCache,
+            CategoryService categoryService,
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            @Value("${diya.import.batch-size:500}") int batchSize,
+            @Value("${diya.import.workers:2}") int workers,
+            @Value("${diya.import.queue-size:20}") int queueSize,
+            @Value("${diya.import.job-ttl-ms:86400000}") long jobTtlMs) {
+        this.principalResolver = principalResolver;
+        this.categoryRepository = categoryRepository;
+        this.subCategoryRepository = subCategoryRepository;
+        this.sequenceService = sequenceService;
+        this.productSearchService = productSearchService;
+        this.catalogCache = catalogCache;
+        this.categoryService = categoryService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), r -> {
+                    Thread t = new Thread(r, "product-import-" + threads.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        this.jobs = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(jobTtlMs))
+                .maximumSize(10_000)
+                .build();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // ==========================================================
+    // API
+    // ==========================================================
+
+    public ProductImportJobDTO start(String identifier, MultipartFile file) {
+        if (file == null || file.isEmpty()) {
+            throw new RuntimeException("File is required");
+        }
+        try (InputStream in = file.getInputStream()) {
+            return start(identifier, file.getOriginalFilename(), in);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not read uploaded file");
+        }
+    }
+
+    public ProductImportJobDTO start(String identifier, String fileName, InputStream content) throws IOException {
+        UUID wholesalerId = principalResolver.wholesalerId(identifier);
+        ImportReader.Format format = ImportReader.Format.fromFileName(fileName);
+
+        Job job = new Job(UUID.randomUUID(), wholesalerId, fileName);
+        if (active.putIfAbsent(wholesalerId, job.id) != null) {
+            throw new RuntimeException("An import is already running for this wholesaler");
+        }
+
+        Path spool = null;
+        try {
+            spool = Files.createTempFile("product-import-", "." + format.getExtension());
+            Files.copy(content, spool, StandardCopyOption.REPLACE_EXISTING);
+            jobs.put(job.id, job);
+            Path file = spool;
+            executor.execute(() -> run(job, format, file));
+            return job.toDto();
+        } catch (IOException | RuntimeException e) {
+            active.remove(wholesalerId, job.id);
+            jobs.invalidate(job.id);
+            if (spool != null) {
+                Files.deleteIfExists(spool);
+            }
+            if (e instanceof RejectedExecutionException) {
+                throw new RuntimeException("Too many imports in progress, try again later");
+            }
+            throw e;
+        }
+    }
+
+    public ProductImportJobDTO getJob(String identifier, UUID jobId) {
+        UUID wholesalerId = principalResolver.wholesalerId(identifier);
+        Job job = jobs.getIfPresent(jobId);
+        if (job == null || !job.wholesalerId.equals(wholesalerId)) {
+            throw new RuntimeException("Import job not found");
+        }
+        return job.toDto();
+    }
+
+    // ==========================================================
+    // Job
+    // ==========================================================
+
+    private void run(Job job, ImportReader.Format format, Path file) {
+        job.status = Status.RUNNING;
+        try (ImportReader reader = ImportReader.open(format, file)) {
+            List<String> header = reader.next();
+            if (header == null) {
+                throw new RuntimeException("File is empty");
+            }
+            Columns columns = Columns.of(header);
+            Lookup lookup = new Lookup(job.wholesalerId);
+
+            List<Row> batch = new ArrayList<>(batchSize);
+            List<String> cells;
+            while ((cells = reader.next()) != null) {
+                long rowNumber = reader.rowNumber();
+                if (cells.stream().allMatch(String::isBlank)) {
+                    continue;
+                }
+                job.rowsRead.incrementAndGet();
+                try {
+                    batch.add(columns.parse(rowNumber, cells));
+                } catch (RuntimeException e) {
+                    job.error(rowNumber, e.getMessage());
+                }
+                if (batch.size() >= batchSize) {
+                    flush(job, lookup, batch);
+                    batch.clear();
+                }
+                job.progress = reader.progress();
+            }
+            flush(job, lookup, batch);
+
+            job.progress = 1;
+            job.status = Status.COMPLETED;
+        } catch (Exception e) {
+            log.warn("Product import {} failed", job.id, e);
+            job.message = e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
+            job.status = Status.FAILED;
+        } finally {
+            job.finishedAt = LocalDateTime.now();
+            active.remove(job.wholesalerId, job.id);
+            categoryService.evictTreeAfterCommit(job.wholesalerId);
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                log.warn("Could not delete import spool file {}", file);
+            }
+        }
+    }
+
+    private void flush(Job job, Lookup lookup, List<Row> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        UUID wholesalerId = job.wholesalerId;
+
+        // categories first, in their own transaction: kept even if the products below fail
+        // (categoryId, subcategoryId) per row, same order as the batch
+        List<UUID[]> placement = new ArrayList<>(batch.size());
+        try {
+            transactionTemplate.executeWithoutResult(tx -> {
+                for (Row row : batch) {
+                    UUID categoryId = lookup.categoryId(row.category());
+                    placement.add(new UUID[] { categoryId, lookup.subcategoryId(categoryId, row.subcategory()) });
+                }
+            });
+        } catch (RuntimeException e) {
+            lookup.reload(); // ids created in the rolled back transaction are gone
+            failAll(job, batch, e);
+            return;
+        }
+
+        try {
+            // numbers first, in their own short transaction: the PRODUCT counter is not
+            // locked while the batch is inserted (a failed batch leaves a gap)
+            long first = sequenceService.allocateProductNumbers(wholesalerId, batch.size());
+            List<ProductSearchService.Entry> entries = transactionTemplate.execute(tx -> {
+                Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+                List<Object[]> args = new ArrayList<>(batch.size());
+                List<ProductSearchService.Entry> indexed = new ArrayList<>(batch.size());
+                for (int i = 0; i < batch.size(); i++) {
+                    Row row = batch.get(i);
+                    UUID id = UUID.randomUUID();
+                    long seq = first + i;
+                    String sku = ProductService.generateSku(seq);
+                    UUID[] ids = placement.get(i);
+                    args.add(new Object[] { id, wholesalerId, ids[0], ids[1], sku, (int) seq, row.name(),
+                            row.description(), row.unit(), row.price(), row.mrp(), row.stock(), row.imageUrl(),
+                            row.visibleToRetailer(), now });
+                    indexed.add(new ProductSearchService.Entry(id, wholesalerId, sku, row.name(), row.description(),
+                            row.visibleToRetailer()));
+                }
+                jdbcTemplate.batchUpdate(INSERT_SQL, args);
+                return indexed;
+            });
+            job.imported.addAndGet(batch.size());
+
+            productSearchService.index(entries);
+            catalogCache.evictWholesaler(wholesalerId);
+            categoryService.evictTreeAfterCommit(wholesalerId);
+        } catch (RuntimeException e) {
+            failAll(job, batch, e);
+        }
+    }
+
+    private void failAll(Job job, List<Row> batch, RuntimeException e) {
+        log.warn("Product import {}: batch of {} rows rejected", job.id, batch.size(), e);
+        String reason = "Not imported: " + rootMessage(e);
+        for (Row row : batch) {
+            job.error(row.number(), reason);
+        }
+    }
+
+    private static String rootMessage(Throwable e) {
+        Throwable root = e;
+        while (root.getCause() != null && root.getCause() != root) {
+            root = root.getCause();
+        }
+        return root.getMessage() == null ? root.getClass().getSimpleName() : root.getMessage();
+    }
+
+    /**
+     * Progress of one import. Counters only: rows are never kept here.
+     */
+    private static final class Job {
+        final UUID id;
+        final UUID wholesalerId;
+        final String fileName;
+        final LocalDateTime createdAt = LocalDateTime.now();
+        final AtomicLong rowsRead = new AtomicLong();
+        final AtomicLong imported = new AtomicLong();
+        final AtomicLong failed = new AtomicLong();
+        final List<ProductImportJobDTO.RowError> errors = Collections.synchronizedList(new ArrayList<>());
+        volatile Status status = Status.QUEUED;
+        volatile double progress = -1;
+        volatile String message;
+        volatile LocalDateTime finishedAt;
+
+        Job(UUID id, UUID wholesalerId, String fileName) {
+            this.id = id;
+            this.wholesalerId = wholesalerId;
+            this.fileName = fileName;
+        }
+
+        void error(long row, String message) {
+            failed.incrementAndGet();
+            if (errors.size() < MAX_ERRORS) {
+                errors.add(new ProductImportJobDTO.RowError(row, message));
+            }
+        }
+
+        ProductImportJobDTO toDto() {
+            List<ProductImportJobDTO.RowError> firstErrors;
+            synchronized (errors) {
+                firstErrors = List.copyOf(errors);
+            }
+            return ProductImportJobDTO.builder()
+                    .jobId(id)
+                    .fileName(fileName)
+                    .status(status.name())
+                    .percent(progress < 0 ? null : (int) Math.floor(progress * 100))
+                    .rowsRead(rowsRead.get())
+                    .imported(imported.get())
+                    .failed(failed.get())
+                    .errors(firstErrors)
+                    .errorsTruncated(failed.get() > firstErrors.size())
+                    .message(message)
+                    .createdAt(createdAt)
+                    .finishedAt(finishedAt)
+                    .build();
+        }
+    }
+
+    // ==========================================================
+    // Rows
+    // ==========================================================
+
+    private record Row(long number, String name, String description, String unit, Double price, Double mrp,
+            Integer stock, String imageUrl, boolean visibleToRetailer, String category, String subcategory) {
+    }
+
+    /**
+     * Header name -> column position.
+     */
+    private record Columns(Map<String, Integer> index) {
+
+        private static final List<String> REQUIRED = List.of("name", "price", "category");
+
+        static Columns of(List<String> header) {
+            Map<String, Integer> index = new HashMap<>();
+            for (int i = 0; i < header.size(); i++) {
+                String key = header.get(i).trim().toLowerCase(Locale.ROOT).replaceAll("[\\s_]", "");
+                index.putIfAbsent(key, i);
+            }
+            for (String column : REQUIRED) {
+                if (!index.containsKey(column)) {
+                    throw new RuntimeException("Missing column: " + column);
+                }
+            }
+            return new Columns(index);
+        }
+
+        Row parse(long number, List<String> cells) {
+            String name = text(cells, "name");
+            if (name == null) {
+                throw new RuntimeException("name is required");
+            }
+            if (name.length() > 255) {
+                throw new RuntimeException("name is longer than 255 characters");
+            }
+            String category = text(cells, "category");
+            if (category == null) {
+                throw new RuntimeException("category is required");
+            }
+            Double price = decimal(cells, "price");
+            if (price == null) {
+                throw new RuntimeException("price is required");
+            }
+            Integer stock = whole(cells, "stock");
+            String visible = text(cells, "visibletoretailer");
+
+            return new Row(number, name, text(cells, "description"), text(cells, "unit"), price,
+                    decimal(cells, "mrp"), stock == null ? 0 : stock, text(cells, "imageurl"),
+                    visible == null || bool(visible), category, text(cells, "subcategory"));
+        }
+
+        private String text(List<String> cells, String column) {
+            Integer i = index.get(column);
+            if (i == null || i >= cells.size()) {
+                return null;
+            }
+            String value = cells.get(i).trim();
+            return value.isEmpty() ? null : value;
+        }
+
+        private Double decimal(List<String> cells, String column) {
+            String value = text(cells, column);
+            if (value == null) {
+                return null;
+            }
+            try {
+                double d = Double.parseDouble(value);
+                if (d < 0 || Double.isNaN(d) || Double.isInfinite(d)) {
+                    throw new NumberFormatException();
+                }
+                return d;
+            } catch (NumberFormatException e) {
+                throw new RuntimeException("Invalid " + column + ": " + value);
+            }
+        }
+
+        private Integer whole(List<String> cells, String column) {
+            Double value = decimal(cells, column); // Excel writes 12 as "12.0"
+            if (value == null) {
+                return null;
+            }
+            if (value != Math.rint(value) || value > Integer.MAX_VALUE) {
+                throw new RuntimeException("Invalid " + column + ": " + text(cells, column));
+            }
+            return value.intValue();
+        }
+
+        private static boolean bool(String value) {
+            return switch (value.toLowerCase(Locale.ROOT)) {
+                case "true", "yes", "y", "1" -> true;
+                case "false", "no", "n", "0" -> false;
+                default -> throw new RuntimeException("Invalid visibleToRetailer: " + value);
+            };
+        }
+    }
+
+    // ==========================================================
+    // Category / subcategory resolution
+    // ==========================================================
+
+    /**
+     * The wholesaler's categories and subcategories by (lower-cased) name,
+     * loaded once per job; names not found are created on first use.
+     */
+    private final class Lookup {
+        private final UUID wholesalerId;
+        private final Map<String, UUID> categories = new HashMap<>();
+        // "categoryId/parentSubId/name" -> subcategory id (parentSubId "-" for top level)
+        private final Map<String, UUID> subcategories = new HashMap<>();
+
+        Lookup(UUID wholesalerId) {
+            this.wholesalerId = wholesalerId;
+            reload();
+        }
+
+        void reload() {
+            categories.clear();
+            subcategories.clear();
+            for (CategoryRow row : categoryRepository.findRowsByWholesalerId(wholesalerId)) {
+                categories.putIfAbsent(key(row.name()), row.id());
+            }
+            for (SubCategoryDTO row : subCategoryRepository.findTreeRowsByWholesalerId(wholesalerId)) {
+                subcategories.putIfAbsent(subKey(row.categoryId(), row.parentSubId(), row.name()), row.id());
+            }
+        }
+
+        UUID categoryId(String name) {
+            return categories.computeIfAbsent(key(name), k -> {
+                UUID id = UUID.randomUUID();
+                int inserted = jdbcTemplate.update("INSERT INTO categories (id, wholesaler_id, name) "
+                        + "VALUES (?, ?, ?) ON CONFLICT DO NOTHING", id, wholesalerId, name);
+                if (inserted == 1) {
+                    return id;
+                }
+                // created meanwhile through the dashboard
+                return jdbcTemplate.queryForObject("SELECT id FROM categories WHERE wholesaler_id = ? AND name = ?",
+                        UUID.class, wholesalerId, name);
+            });
+        }
+
+        // "Pulses > Dal" walks / creates each level
+        UUID subcategoryId(UUID categoryId, String path) {
+            if (path == null) {
+                return null;
+            }
+            UUID parentId = null;
+            for (String part : path.split(">")) {
+                String name = part.trim();
+                if (name.isEmpty()) {
+                    continue;
+                }
+                UUID parent = parentId;
+                parentId = subcategories.computeIfAbsent(subKey(categoryId, parent, name),
+                        k -> createSubcategory(categoryId, parent, name));
+            }
+            return parentId;
+        }
+
+        // may have been created since reload() by another import or the dashboard: the category
+        // row lock serialises importers (the unique key does not cover top-level rows, parent
+        // NULL), ON CONFLICT covers a child created meanwhile through the dashboard
+        private UUID createSubcategory(UUID categoryId, UUID parent, String name) {
+            jdbcTemplate.queryForList("SELECT id FROM categories WHERE id = ? FOR UPDATE", categoryId);
+            List<UUID> existing = jdbcTemplate.queryForList("SELECT id FROM subcategories "
+                    + "WHERE category_id = ? AND parent_sub_id IS NOT DISTINCT FROM ? AND LOWER(name) = LOWER(?)",
+                    UUID.class, categoryId, parent, name);
+            if (!existing.isEmpty()) {
+                return existing.get(0);
+            }
+
+            UUID id = UUID.randomUUID();
+            int inserted = jdbcTemplate.update("INSERT INTO subcategories (id, category_id, parent_sub_id, name) "
+                    + "VALUES (?, ?, ?, ?) ON CONFLICT DO NOTHING", id, categoryId, parent, name);
+            if (inserted == 1) {
+                return id;
+            }
+            return jdbcTemplate.queryForObject("SELECT id FROM subcategories WHERE parent_sub_id = ? AND name = ?",
+                    UUID.class, parent, name);
+        }
+
+        private static String key(String name) {
+            return name.trim().toLowerCase(Locale.ROOT);
+        }
+
+        private static String subKey(UUID categoryId, UUID parentId, String name) {
+            return categoryId + "/" + (parentId == null ? "-" : parentId) + "/" + key(name);
+        }
+    }
+}
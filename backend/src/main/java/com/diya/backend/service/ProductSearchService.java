@@ -0,0 +1,310 @@
+package com.diya.backend.service;
+
+import com.diya.backend.entity.Product;
+import com.diya.backend.util.AfterCommit;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.*;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Full-text search over product name, description and SKU.
+ *
+ * Backed by an in-memory Lucene index on each node:
+ * - built from the products table when the app starts,
+ * - updated after commit by ProductService writes on this node,
+ * - caught up every few seconds from products.updatedAt for writes made on
+ * other nodes (sync()), which also drops those wholesalers' cached catalog
+ * pages (CatalogCache).
+ *
+ * Ranking: exact word > word prefix ("search as you type") > typo
+ * (1-2 edits, by word length). Name and SKU weigh more than description;
+ * an exact SKU match goes to the top.
+ *
+ * The index only returns ranked product ids. Callers load the rows with
+ * findAllById and keep the order.
+ */
+@Slf4j
+@Service
+public class ProductSearchService {
+
+    // deepest page we serve (same idea as Elasticsearch's max_result_window)
+    public static final int MAX_RESULT_WINDOW = 10_000;
+
+    // re-read rows changed this long before the previous sync started, so a
+    // transaction that committed while a sync was running is not missed
+    private static final int SYNC_OVERLAP_SECONDS = 60;
+
+    private static final String SELECT_SQL = "SELECT id, wholesaler_id, sku, name, description, active, "
+            + "visible_to_retailer FROM products";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CatalogCache catalogCache;
+    private final Analyzer analyzer = new StandardAnalyzer();
+    private final ByteBuffersDirectory directory = new ByteBuffersDirectory();
+    private final IndexWriter writer;
+    private final SearcherManager searcherManager;
+
+    private volatile LocalDateTime lastSyncStartedAt;
+
+    /**
+     * What the index needs from a product. Taken while the entity is still
+     * attached, written to the index after commit.
+     */
+    public record Entry(UUID id, UUID wholesalerId, String sku, String name, String description, boolean listed) {
+
+        public static Entry of(Product p) {
+            return new Entry(p.getId(), p.getWholesaler().getId(), p.getSku(), p.getName(), p.getDescription(),
+                    p.isActive() && p.isVisibleToRetailer());
+        }
+    }
+
+    public ProductSearchService(JdbcTemplate jdbcTemplate, CatalogCache catalogCache) throws IOException {
+        this.jdbcTemplate = jdbcTemplate;
+        this.catalogCache = catalogCache;
+        this.writer = new IndexWriter(directory, new IndexWriterConfig(analyzer));
+        this.searcherManager = new SearcherManager(writer, null);
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        searcherManager.close();
+        writer.close();
+        directory.close();
+    }
+
+    // ==========================================================
+    // Indexing
+    // ==========================================================
+
+    /**
+     * Full build from the products table.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        LocalDateTime startedAt = LocalDateTime.now();
+        try {
+            writer.deleteAll();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        int count = load(SELECT_SQL, new HashSet<>());
+        lastSyncStartedAt = startedAt;
+        log.info("Product search index built: {} products", count);
+    }
+
+    /**
+     * Picks up products written since the previous sync (including writes
+     * from other nodes).
+     */
+    @Scheduled(initialDelayString = "${diya.search.sync.initial-delay-ms:30000}",
+            fixedDelayString = "${diya.search.sync.interval-ms:30000}")
+    public int sync() {
+        LocalDateTime since = lastSyncStartedAt;
+        if (since == null) {
+            rebuild();
+            return 0;
+        }
+        LocalDateTime startedAt = LocalDateTime.now();
+        Set<UUID> wholesalers = new HashSet<>();
+        int count = load(SELECT_SQL + " WHERE updated_at >= ?", wholesalers,
+                Timestamp.valueOf(since.minusSeconds(SYNC_OVERLAP_SECONDS)));
+        lastSyncStartedAt = startedAt;
+        wholesalers.forEach(catalogCache::evictWholesaler);
+        return count;
+    }
+
+    /**
+     * (Re)indexes a product once the surrounding transaction commits, or
+     * immediately when there is none.
+     */
+    public void indexAfterCommit(Product product) {
+        Entry entry = Entry.of(product);
+        AfterCommit.run(() -> index(List.of(entry)));
+    }
+
+    public void index(List<Entry> entries) {
+        try {
+            for (Entry entry : entries) {
+                writer.updateDocument(new Term("id", entry.id().toString()), toDocument(entry));
+            }
+            searcherManager.maybeRefresh();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private int load(String sql, Set<UUID> wholesalers, Object... args) {
+        List<Entry> batch = new ArrayList<>(1000);
+        int[] count = new int[1];
+        RowCallbackHandler handler = rs -> {
+            batch.add(new Entry(
+                    rs.getObject("id", UUID.class),
+                    rs.getObject("wholesaler_id", UUID.class),
+                    rs.getString("sku"),
+                    rs.getString("name"),
+                    rs.getString("description"),
+                    rs.getBoolean("active") && rs.getBoolean("visible_to_retailer")));
+            wholesalers.add(batch.get(batch.size() - 1).wholesalerId());
+            if (batch.size() == 1000) {
+                index(batch);
+                count[0] += batch.size();
+                batch.clear();
+            }
+        };
+        jdbcTemplate.query(sql, handler, args);
+        index(batch);
+        return count[0] + batch.size();
+    }
+
+    private static Document toDocument(Entry entry) {
+        Document doc = new Document();
+        doc.add(new StringField("id", entry.id().toString(), Field.Store.YES));
+        doc.add(new StringField("wholesalerId", entry.wholesalerId().toString(), Field.Store.NO));
+        doc.add(new StringField("listed", entry.listed() ? "1" : "0", Field.Store.NO));
+        if (entry.sku() != null) {
+            doc.add(new StringField("skuExact", entry.sku().toLowerCase(Locale.ROOT), Field.Store.NO));
+            doc.add(new TextField("sku", entry.sku(), Field.Store.NO));
+        }
+        if (entry.name() != null) {
+            doc.add(new TextField("name", entry.name(), Field.Store.NO));
+        }
+        if (entry.description() != null) {
+            doc.add(new TextField("description", entry.description(), Field.Store.NO));
+        }
+        return doc;
+    }
+
+    // ==========================================================
+    // Search
+    // ==========================================================
+
+    /**
+     * Ranked product ids for the query text.
+     *
+     * @param wholesalerId only this wholesaler's products, or null for all
+     * @param listedOnly   only active products visible to retailers
+     */
+    public Page<UUID> search(String text, UUID wholesalerId, boolean listedOnly, Pageable pageable) {
+        Query query = buildQuery(text, wholesalerId, listedOnly);
+        if (query == null || pageable.getOffset() >= MAX_RESULT_WINDOW) {
+            return Page.empty(pageable);
+        }
+
+        int from = (int) pageable.getOffset();
+        int to = Math.min(from + pageable.getPageSize(), MAX_RESULT_WINDOW);
+
+        try {
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                TopDocs top = searcher.search(query, to);
+                long total = top.totalHits.relation == TotalHits.Relation.EQUAL_TO
+                        ? top.totalHits.value
+                        : searcher.count(query);
+
+                List<UUID> ids = new ArrayList<>(Math.max(0, to - from));
+                StoredFields stored = searcher.storedFields();
+                for (int i = from; i < top.scoreDocs.length; i++) {
+                    ids.add(UUID.fromString(stored.document(top.scoreDocs[i].doc).get("id")));
+                }
+                return new PageImpl<>(ids, pageable, total);
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Query buildQuery(String text, UUID wholesalerId, boolean listedOnly) {
+        if (text == null || text.isBlank()) {
+            return null;
+        }
+        List<String> tokens = tokens(text);
+        if (tokens.isEmpty()) {
+            return null;
+        }
+
+        BooleanQuery.Builder query = new BooleanQuery.Builder();
+
+        // every word must match somewhere (exactly, as a prefix, or with a typo)
+        for (String token : tokens) {
+            BooleanQuery.Builder word = new BooleanQuery.Builder();
+            word.add(new BoostQuery(new TermQuery(new Term("name", token)), 4f), BooleanClause.Occur.SHOULD);
+            word.add(new BoostQuery(new TermQuery(new Term("sku", token)), 4f), BooleanClause.Occur.SHOULD);
+            word.add(new TermQuery(new Term("description", token)), BooleanClause.Occur.SHOULD);
+
+            word.add(new BoostQuery(new PrefixQuery(new Term("name", token)), 2f), BooleanClause.Occur.SHOULD);
+            word.add(new BoostQuery(new PrefixQuery(new Term("sku", token)), 2f), BooleanClause.Occur.SHOULD);
+            word.add(new BoostQuery(new PrefixQuery(new Term("description", token)), 0.5f),
+                    BooleanClause.Occur.SHOULD);
+
+            int edits = token.length() >= 8 ? 2 : token.length() >= 4 ? 1 : 0;
+            if (edits > 0) {
+                word.add(new FuzzyQuery(new Term("name", token), edits, 1), BooleanClause.Occur.SHOULD);
+                word.add(new BoostQuery(new FuzzyQuery(new Term("description", token), edits, 1), 0.3f),
+                        BooleanClause.Occur.SHOULD);
+            }
+            query.add(word.build(), BooleanClause.Occur.MUST);
+        }
+
+        // exact SKU goes first
+        query.add(new BoostQuery(new TermQuery(new Term("skuExact", text.trim().toLowerCase(Locale.ROOT))), 20f),
+                BooleanClause.Occur.SHOULD);
+
+        if (wholesalerId != null) {
+            query.add(new TermQuery(new Term("wholesalerId", wholesalerId.toString())), BooleanClause.Occur.FILTER);
+        }
+        if (listedOnly) {
+            query.add(new TermQuery(new Term("listed", "1")), BooleanClause.Occur.FILTER);
+        }
+        return query.build();
+    }
+
+    private List<String> tokens(String text) {
+        List<String> tokens = new ArrayList<>();
+        try (TokenStream stream = analyzer.tokenStream("name", text)) {
+            CharTermAttribute term = stream.addAttribute(CharTermAttribute.class);
+            stream.reset();
+            while (stream.incrementToken() && tokens.size() < 10) {
+                tokens.add(term.toString());
+            }
+            stream.end();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return tokens;
+    }
+}
@@ -6,7 +6,9 @@ import com.diya.backend.repository.*;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 
@@ -20,12 +22,30 @@ public class ProductService {
     private final WholesalerRepository wholesalerRepository;
     private final CategoryRepository categoryRepository;
     private final SubCategoryRepository subCategoryRepository;
+    private final PrincipalResolver principalResolver;
     private static final int DEFAULT_LOW_STOCK_THRESHOLD = 20;
-    private final RetailerRepository retailerRepository;
+    private static final int BULK_UPDATE_MAX_ITEMS = 100_000;
+    private static final int BULK_UPDATE_BATCH_SIZE = 1_000;
+    private static final int BULK_UPDATE_MAX_ERRORS = 200;
+    private static final int MAX_RETAILER_PAGE_SIZE = 100;
     private final ConnectionService connectionService;
-
-    @Transactional
+    private final ProductSearchService productSearchService;
+    private final CatalogCache catalogCache;
+    private final CategoryService categoryService;
+    private final SequenceService sequenceService;
+    private final OptimisticRetry optimisticRetry;
+    private final TransactionTemplate transactionTemplate;
+
+    // the SKU number is allocated first, in its own short transaction (see
+    // SequenceService), so the PRODUCT counter is not locked while the product
+    // is saved; a create that fails afterwards leaves a gap
     public ProductResponseDTO createProduct(String identifier, String authType, ProductCreateRequest req) {
+        int nextSeq = (int) sequenceService.nextProductNumber(principalResolver.wholesalerId(identifier));
+        return transactionTemplate.execute(tx -> insertProduct(identifier, authType, req, nextSeq));
+    }
+
+    private ProductResponseDTO insertProduct(String identifier, String authType, ProductCreateRequest req,
+            int nextSeq) {
         Wholesaler wholesaler = resolveWholesaler(identifier, authType);
 
         Category category = categoryRepository.findById(req.getCategoryId())
@@ -44,9 +64,7 @@ public class ProductService {
             }
         }
 
-        // compute next sequence (simple transactional approach)
-        Optional<Product> last = productRepository.findTopByWholesalerIdOrderBySequenceNumberDesc(wholesaler.getId());
-        int nextSeq = last.map(p -> p.getSequenceNumber() == null ? 1 : p.getSequenceNumber() + 1).orElse(1);
+        // ✅ number from the wholesaler's PRODUCT counter (shared with bulk import)
         String sku = generateSku(nextSeq);
 
         Product product = Product.builder()
@@ -67,28 +85,24 @@ public class ProductService {
                 .build();
 
         product = productRepository.save(product);
+        productSearchService.indexAfterCommit(product);
+        catalogCache.evictWholesalerAfterCommit(wholesaler.getId()); // after the index, so searches see it
+        categoryService.evictTreeAfterCommit(wholesaler.getId()); // product counts
         return toDto(product);
     }
 
     public ProductDetailDTO getRetailerProductDetail(String identifier, UUID productId, UUID wholesalerId) {
 
-        Retailer retailer = identifier.contains("@")
-                ? retailerRepository.findByUserEmail(identifier)
-                        .orElseThrow(() -> new RuntimeException("Retailer not found"))
-                : retailerRepository.findByUserPhone(identifier)
-                        .orElseThrow(() -> new RuntimeException("Retailer not found"));
-
-        Wholesaler wholesaler = wholesalerRepository.findById(wholesalerId)
-                .orElseThrow(() -> new RuntimeException("Wholesaler not found"));
+        UUID retailerId = principalResolver.retailerId(identifier);
 
         // ✅ gatekeeping
-        connectionService.ensureRetailerConnectedToWholesaler(retailer, wholesaler);
+        connectionService.ensureRetailerConnectedToWholesaler(retailerId, wholesalerId);
 
         Product p = productRepository.findById(productId)
                 .orElseThrow(() -> new RuntimeException("Product not found"));
 
         // ✅ ensure product belongs to this wholesaler
-        if (!p.getWholesaler().getId().equals(wholesaler.getId())) {
+        if (!p.getWholesaler().getId().equals(wholesalerId)) {
             throw new RuntimeException("Product does not belong to this wholesaler");
         }
 
@@ -128,20 +142,26 @@ public class ProductService {
             UUID subcategoryId,
             int page,
             int size) {
-        Retailer retailer = identifier.contains("@")
-                ? retailerRepository.findByUserEmail(identifier)
-                        .orElseThrow(() -> new RuntimeException("Retailer not found"))
-                : retailerRepository.findByUserPhone(identifier)
-                        .orElseThrow(() -> new RuntimeException("Retailer not found"));
+        if (page < 0) {
+            throw new RuntimeException("page must be 0 or more");
+        }
+        // clamped before it becomes part of the cache key, so one entry stays bounded
+        int limit = Math.max(1, Math.min(size, MAX_RETAILER_PAGE_SIZE));
 
-        Wholesaler wholesaler = wholesalerRepository.findById(wholesalerId)
-                .orElseThrow(() -> new RuntimeException("Wholesaler not found"));
+        UUID retailerId = principalResolver.retailerId(identifier);
 
-        // ✅ gatekeeping
-        connectionService.ensureRetailerConnectedToWholesaler(retailer, wholesaler);
+        // ✅ gatekeeping (cached, see ConnectionStatusCache)
+        connectionService.ensureRetailerConnectedToWholesaler(retailerId, wholesalerId);
 
-        Pageable pageable = PageRequest.of(page, size);
+        // ✅ rendered pages are cached per wholesaler (see CatalogCache)
+        return catalogCache.get(
+                CatalogCache.PageKey.of(wholesalerId, search, categoryId, subcategoryId, page, limit),
+                () -> loadRetailerPage(wholesalerId, search, categoryId, subcategoryId,
+                        PageRequest.of(page, limit)));
+    }
 
+    private Page<ProductResponseDTO> loadRetailerPage(UUID wholesalerId, String search, UUID categoryId,
+            UUID subcategoryId, Pageable pageable) {
         Page<Product> productsPage;
 
         // 🔥 Most important filter: wholesalerId must match + visibleToRetailer +
@@ -149,18 +169,16 @@ public class ProductService {
         if (subcategoryId != null) {
             productsPage = productRepository
                     .findByWholesalerIdAndSubcategoryIdAndVisibleToRetailerTrueAndActiveTrue(
-                            wholesaler.getId(), subcategoryId, pageable);
+                            wholesalerId, subcategoryId, pageable);
         } else if (categoryId != null) {
             productsPage = productRepository
                     .findByWholesalerIdAndCategoryIdAndVisibleToRetailerTrueAndActiveTrue(
-                            wholesaler.getId(), categoryId, pageable);
+                            wholesalerId, categoryId, pageable);
         } else if (search != null && !search.isBlank()) {
-            productsPage = productRepository
-                    .findByWholesalerIdAndNameContainingIgnoreCaseAndVisibleToRetailerTrueAndActiveTrue(
-                            wholesaler.getId(), search, pageable);
+            return search(search, wholesalerId, true, pageable);
         } else {
             productsPage = productRepository
-                    .findByWholesalerIdAndVisibleToRetailerTrueAndActiveTrue(wholesaler.getId(), pageable);
+                    .findByWholesalerIdAndVisibleToRetailerTrueAndActiveTrue(wholesalerId, pageable);
         }
 
         return productsPage.map(this::toDto);
@@ -174,9 +192,14 @@ public class ProductService {
         return toDto(p);
     }
 
-    @Transactional
+    // retried on a version conflict (e.g. a checkout reserved stock meanwhile)
     public ProductResponseDTO updateProduct(String identifier, String authType, UUID productId,
             ProductUpdateRequest req) {
+        return optimisticRetry.inTransaction(() -> applyUpdate(identifier, authType, productId, req));
+    }
+
+    private ProductResponseDTO applyUpdate(String identifier, String authType, UUID productId,
+            ProductUpdateRequest req) {
         Wholesaler wholesaler = resolveWholesaler(identifier, authType);
         Product p = productRepository.findById(productId).orElseThrow(() -> new RuntimeException("Product not found"));
         if (!p.getWholesaler().getId().equals(wholesaler.getId()))
@@ -216,9 +239,130 @@ public class ProductService {
             p.setVisibleToRetailer(req.getVisibleToRetailer());
 
         p = productRepository.save(p);
+        productSearchService.indexAfterCommit(p);
+        // name / category / visibility can move it between pages: drop them all
+        catalogCache.evictWholesalerAfterCommit(wholesaler.getId());
+        if (req.getCategoryId() != null || req.getSubcategoryId() != null) {
+            categoryService.evictTreeAfterCommit(wholesaler.getId()); // product counts moved
+        }
         return toDto(p);
     }
 
+    /**
+     * ERP sync: stock / price / mrp for many SKUs in one call.
+     * Applied as batched UPDATEs keyed by (wholesaler_id, sku) without loading
+     * any entity; invalid items and unknown SKUs are reported, the rest apply.
+     * If a SKU appears more than once the last item wins.
+     */
+    @Transactional
+    public ProductBulkUpdateResultDTO bulkUpdateStockAndPrice(String identifier, String authType,
+            ProductBulkUpdateRequest req) {
+        UUID wholesalerId = principalResolver.wholesalerId(identifier);
+        List<ProductBulkUpdateRequest.Item> items = req.getItems() == null ? List.of() : req.getItems();
+        if (items.size() > BULK_UPDATE_MAX_ITEMS) {
+            throw new RuntimeException("Too many items (max " + BULK_UPDATE_MAX_ITEMS + " per request)");
+        }
+
+        List<ProductBulkUpdateResultDTO.SkuError> errors = new ArrayList<>();
+        int invalid = 0;
+        // sku -> index of its last valid item; sorted, so concurrent syncs lock rows in the same order
+        TreeMap<String, Integer> bySku = new TreeMap<>();
+        for (int i = 0; i < items.size(); i++) {
+            ProductBulkUpdateRequest.Item item = items.get(i);
+            String problem = validateBulkItem(item);
+            if (problem != null) {
+                invalid++;
+                errors.add(new ProductBulkUpdateResultDTO.SkuError(i, item == null ? null : item.getSku(), problem));
+                continue;
+            }
+            item.setSku(item.getSku().trim());
+            bySku.put(item.getSku(), i);
+        }
+
+        List<Integer> order = new ArrayList<>(bySku.values());
+        List<ProductBulkUpdateRequest.Item> rows = new ArrayList<>(order.size());
+        for (int i : order) {
+            rows.add(items.get(i));
+        }
+        int[] counts = productRepository.updateStockAndPrice(wholesalerId, rows, BULK_UPDATE_BATCH_SIZE);
+
+        int updated = 0;
+        List<Integer> skipped = new ArrayList<>(); // positions in rows that did not apply
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                updated++;
+            } else {
+                skipped.add(i);
+            }
+        }
+
+        // a skipped row is either an unknown SKU or a stock below what placed orders reserved
+        Map<String, Integer> reservedBySku = reservedStockBySku(wholesalerId,
+                skipped.stream().map(i -> rows.get(i).getSku()).toList());
+        int notFound = 0;
+        int belowReserved = 0;
+        for (int i : skipped) {
+            String sku = rows.get(i).getSku();
+            Integer reserved = reservedBySku.get(sku);
+            if (reserved == null) {
+                notFound++;
+                errors.add(new ProductBulkUpdateResultDTO.SkuError(order.get(i), sku, "SKU not found"));
+            } else {
+                belowReserved++;
+                errors.add(new ProductBulkUpdateResultDTO.SkuError(order.get(i), sku,
+                        "stock is below the " + reserved + " units reserved by placed orders"));
+            }
+        }
+
+        if (updated > 0) {
+            catalogCache.evictWholesalerAfterCommit(wholesalerId); // prices / stock on cached pages
+        }
+
+        // all errors collected first, so the first BULK_UPDATE_MAX_ERRORS by index are reported
+        errors.sort(Comparator.comparingInt(ProductBulkUpdateResultDTO.SkuError::getIndex));
+        boolean truncated = errors.size() > BULK_UPDATE_MAX_ERRORS;
+
+        return ProductBulkUpdateResultDTO.builder()
+                .received(items.size())
+                .updated(updated)
+                .notFound(notFound)
+                .belowReserved(belowReserved)
+                .invalid(invalid)
+                .errors(truncated ? new ArrayList<>(errors.subList(0, BULK_UPDATE_MAX_ERRORS)) : errors)
+                .errorsTruncated(truncated)
+                .build();
+    }
+
+    private Map<String, Integer> reservedStockBySku(UUID wholesalerId, List<String> skus) {
+        Map<String, Integer> reserved = new HashMap<>();
+        for (int from = 0; from < skus.size(); from += BULK_UPDATE_BATCH_SIZE) {
+            List<String> chunk = skus.subList(from, Math.min(from + BULK_UPDATE_BATCH_SIZE, skus.size()));
+            for (ProductRepository.SkuReservedStock row : productRepository.findReservedStockBySku(wholesalerId,
+                    chunk)) {
+                reserved.put(row.getSku(), row.getReservedStock());
+            }
+        }
+        return reserved;
+    }
+
+    private static String validateBulkItem(ProductBulkUpdateRequest.Item item) {
+        if (item == null || item.getSku() == null || item.getSku().isBlank())
+            return "sku is required";
+        if (item.getStock() == null && item.getPrice() == null && item.getMrp() == null)
+            return "Nothing to update";
+        if (item.getStock() != null && item.getStock() < 0)
+            return "stock must not be negative";
+        if (invalidAmount(item.getPrice()))
+            return "Invalid price";
+        if (invalidAmount(item.getMrp()))
+            return "Invalid mrp";
+        return null;
+    }
+
+    private static boolean invalidAmount(Double value) {
+        return value != null && (value < 0 || value.isNaN() || value.isInfinite());
+    }
+
     /**
      * Wholesaler product listing with pagination, optional search,
      * category/subcategory filter.
@@ -241,9 +385,7 @@ public class ProductService {
             productsPage = productRepository.findByWholesalerIdAndCategoryId(
                     wholesaler.getId(), categoryId, pageable);
         } else if (search != null && !search.isBlank()) {
-            productsPage = productRepository
-                    .findByWholesalerIdAndNameContainingIgnoreCaseOrWholesalerIdAndSkuIgnoreCase(
-                            wholesaler.getId(), search, wholesaler.getId(), search, pageable);
+            return search(search, wholesaler.getId(), false, pageable);
         } else {
             productsPage = productRepository.findByWholesalerId(wholesaler.getId(), pageable);
         }
@@ -261,7 +403,7 @@ public class ProductService {
         if (categoryId != null) {
             pageRes = productRepository.findByCategoryId(categoryId, pageable).map(p -> p);
         } else if (q != null && !q.isBlank()) {
-            pageRes = productRepository.findByNameContainingIgnoreCaseOrSkuIgnoreCase(q, q, pageable);
+            return search(q, null, true, pageable);
         } else {
             pageRes = productRepository.findByVisibleToRetailerTrueAndActiveTrue(pageable);
         }
@@ -324,9 +466,7 @@ public class ProductService {
             productsPage = productRepository.findByCategoryIdAndVisibleToRetailerTrueAndActiveTrue(categoryId,
                     pageable);
         } else if (search != null && !search.isBlank()) {
-            productsPage = productRepository
-                    .findByNameContainingIgnoreCaseOrSkuIgnoreCaseAndVisibleToRetailerTrueAndActiveTrue(search, search,
-                            pageable);
+            return search(search, null, true, pageable);
         } else {
             productsPage = productRepository.findByVisibleToRetailerTrueAndActiveTrue(pageable);
         }
@@ -334,6 +474,29 @@ public class ProductService {
         return productsPage.map(this::toDto);
     }
 
+    /**
+     * Ranked full-text search (see ProductSearchService). Rows are loaded in
+     * one query and keep the rank order.
+     */
+    private Page<ProductResponseDTO> search(String text, UUID wholesalerId, boolean listedOnly, Pageable pageable) {
+        Page<UUID> ids = productSearchService.search(text, wholesalerId, listedOnly, pageable);
+
+        Map<UUID, Product> byId = new HashMap<>();
+        for (Product p : productRepository.findAllById(ids.getContent())) {
+            byId.put(p.getId(), p);
+        }
+
+        List<ProductResponseDTO> rows = new ArrayList<>();
+        for (UUID id : ids.getContent()) {
+            Product p = byId.get(id);
+            // the index can lag a write from another node by one sync interval
+            if (p != null && (!listedOnly || (p.isActive() && p.isVisibleToRetailer()))) {
+                rows.add(toDto(p));
+            }
+        }
+        return new PageImpl<>(rows, pageable, ids.getTotalElements());
+    }
+
     private String getStatus(Integer stock) {
         if (stock == null)
             return "Unknown";
@@ -377,18 +540,12 @@ public class ProductService {
         return "In Stock";
     }
 
-    private String generateSku(int seq) {
+    static String generateSku(long seq) {
         return "P" + String.format("%03d", seq);
     }
 
     private Wholesaler resolveWholesaler(String identifier, String authType) {
-        if ("EMAIL".equalsIgnoreCase(authType)) {
-            return wholesalerRepository.findByUserEmail(identifier)
-                    .orElseThrow(() -> new RuntimeException("Wholesaler not found"));
-        } else {
-            return wholesalerRepository.findByUserPhone(identifier)
-                    .orElseThrow(() -> new RuntimeException("Wholesaler not found"));
-        }
+        return principalResolver.wholesaler(identifier);
     }
 
     private int getAvailableStock(Product p) {
@@ -0,0 +1,185 @@
+package com.diya.backend.service;
+
+import com.diya.backend.entity.Order;
+import com.diya.backend.repository.ProductRepository;
+import com.diya.backend.util.AfterCommit;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Releases the stock reserved by PLACED orders that the wholesaler never
+ * acted on. An order expires once it is older than the wholesaler's
+ * reservationTtlHours (default diya.reservations.ttl-hours); it is moved
+ * to CANCELLED and its reserved qty goes back to available stock.
+ *
+ * Each batch is one short transaction:
+ * - claim up to batch-size expired orders with FOR UPDATE SKIP LOCKED, so
+ * several nodes can sweep at once and orders being accepted / cancelled
+ * right now (row locked) are left alone,
+ * - sum the reserved qty per product over the batch in one grouped query,
+ * - one UPDATE per product (JDBC batch) for the stock, one UPDATE for the
+ * orders, then the rollup status counts.
+ *
+ * Lock order is the same as the order actions: orders, products, rollups.
+ */
+@Slf4j
+@Service
+public class ReservationExpiryService {
+
+    public static final String METRIC_ORDERS = "reservations.expired.orders";
+    public static final String METRIC_UNITS = "reservations.released.units";
+
+    // TTL per wholesaler, in SQL so one query serves every wholesaler
+    private static final String CLAIM_SQL = "SELECT o.id, o.wholesaler_id, o.retailer_id, o.order_number FROM orders o "
+            + "WHERE o.status = 'PLACED' AND o.placed_at < CAST(? AS TIMESTAMP) - INTERVAL '1' HOUR * COALESCE("
+            + "(SELECT w.reservation_ttl_hours FROM wholesaler_profiles w WHERE w.id = o.wholesaler_id), ?) "
+            + "ORDER BY o.placed_at LIMIT ? FOR UPDATE SKIP LOCKED";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ProductRepository productRepository;
+    private final AnalyticsRollupService analyticsRollupService;
+    private final CatalogCache catalogCache;
+    private final OutboxService outboxService;
+    private final Counter expiredOrders;
+    private final Counter releasedUnits;
+
+    private final int defaultTtlHours;
+    private final int batchSize;
+    private final int maxBatches;
+
+    public record Result(int orders, long units) {
+    }
+
+    private record Release(UUID productId, UUID wholesalerId, long qty) {
+    }
+
+    public ReservationExpiryService(
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            ProductRepository productRepository,
+            AnalyticsRollupService analyticsRollupService,
+            CatalogCache catalogCache,
+            OutboxService outboxService,
+            MeterRegistry meterRegistry,
+            @Value("${diya.reservations.ttl-hours:48}") int defaultTtlHours,
+            @Value("${diya.reservations.sweep.batch-size:200}") int batchSize,
+            @Value("${diya.reservations.sweep.max-batches:50}") int maxBatches) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.productRepository = productRepository;
+        this.analyticsRollupService = analyticsRollupService;
+        this.catalogCache = catalogCache;
+        this.outboxService = outboxService;
+        this.defaultTtlHours = defaultTtlHours;
+        this.batchSize = batchSize;
+        this.maxBatches = maxBatches;
+        this.expiredOrders = Counter.builder(METRIC_ORDERS)
+                .description("PLACED orders cancelled because their reservation expired")
+                .register(meterRegistry);
+        this.releasedUnits = Counter.builder(METRIC_UNITS)
+                .description("Reserved stock units returned to available stock by expiry")
+                .baseUnit("units")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(initialDelayString = "${diya.reservations.sweep.initial-delay-ms:120000}",
+            fixedDelayString = "${diya.reservations.sweep.interval-ms:300000}")
+    public void scheduledSweep() {
+        Result result = sweep();
+        if (result.orders() > 0) {
+            log.info("Reservation expiry: cancelled {} orders, released {} units", result.orders(), result.units());
+        }
+    }
+
+    // batches until nothing is left (or max-batches, the rest waits for the next run)
+    public Result sweep() {
+        int orders = 0;
+        long units = 0;
+        for (int i = 0; i < maxBatches; i++) {
+            Result batch = transactionTemplate.execute(tx -> sweepBatch(LocalDateTime.now()));
+            orders += batch.orders();
+            units += batch.units();
+            if (batch.orders() < batchSize) {
+                break;
+            }
+        }
+        return new Result(orders, units);
+    }
+
+    private Result sweepBatch(LocalDateTime now) {
+        Map<UUID, UUID> wholesalerByOrder = new LinkedHashMap<>();
+        List<OutboxService.Entry> events = new ArrayList<>();
+        jdbcTemplate.query(CLAIM_SQL, rs -> {
+            UUID orderId = rs.getObject("id", UUID.class);
+            UUID wholesalerId = rs.getObject("wholesaler_id", UUID.class);
+            wholesalerByOrder.put(orderId, wholesalerId);
+            events.add(new OutboxService.Entry(DomainEvent.Type.ORDER_STATUS_CHANGED, orderId, wholesalerId,
+                    rs.getObject("retailer_id", UUID.class), Map.of(
+                            "orderNumber", rs.getString("order_number"),
+                            "from", Order.Status.PLACED.name(),
+                            "to", Order.Status.CANCELLED.name(),
+                            "reason", "RESERVATION_EXPIRED")));
+        }, Timestamp.valueOf(now), defaultTtlHours, batchSize);
+        if (wholesalerByOrder.isEmpty()) {
+            return new Result(0, 0);
+        }
+
+        Map<UUID, Long> ordersByWholesaler = new HashMap<>();
+        wholesalerByOrder.values().forEach(w -> ordersByWholesaler.merge(w, 1L, Long::sum));
+        // before anything changes, or the seed would count this batch twice
+        ordersByWholesaler.keySet().forEach(w -> analyticsRollupService.ensureSeeded(w, null));
+
+        List<Object> ids = new ArrayList<>(wholesalerByOrder.keySet());
+        String in = String.join(",", Collections.nCopies(ids.size(), "?"));
+
+        List<Release> releases = jdbcTemplate.query(
+                "SELECT oi.product_id, o.wholesaler_id, SUM(oi.qty) AS qty FROM order_items oi "
+                        + "JOIN orders o ON o.id = oi.order_id "
+                        + "WHERE oi.order_id IN (" + in + ") AND oi.product_id IS NOT NULL "
+                        + "GROUP BY oi.product_id, o.wholesaler_id",
+                (rs, n) -> new Release(rs.getObject("product_id", UUID.class),
+                        rs.getObject("wholesaler_id", UUID.class), rs.getLong("qty")),
+                ids.toArray());
+
+        Map<UUID, Integer> qtyByProduct = new HashMap<>();
+        Map<UUID, List<UUID>> productsByWholesaler = new HashMap<>();
+        long units = 0;
+        for (Release r : releases) {
+            qtyByProduct.put(r.productId(), (int) r.qty());
+            productsByWholesaler.computeIfAbsent(r.wholesalerId(), w -> new ArrayList<>()).add(r.productId());
+            units += r.qty();
+        }
+        productRepository.releaseReservedStock(qtyByProduct);
+
+        List<Object> args = new ArrayList<>();
+        args.add(Timestamp.valueOf(now));
+        args.addAll(ids);
+        jdbcTemplate.update("UPDATE orders SET status = 'CANCELLED', cancelled_at = ? "
+                + "WHERE id IN (" + in + ") AND status = 'PLACED'", args.toArray());
+
+        ordersByWholesaler.forEach((w, count) ->
+                analyticsRollupService.ordersMoved(w, Order.Status.PLACED, Order.Status.CANCELLED, count));
+        outboxService.recordAll(events);
+        productsByWholesaler.forEach(catalogCache::evictProductsAfterCommit);
+
+        // metrics only count what actually committed
+        long releasedTotal = units;
+        int orderCount = ids.size();
+        AfterCommit.run(() -> {
+            expiredOrders.increment(orderCount);
+            releasedUnits.increment(releasedTotal);
+        });
+        return new Result(orderCount, units);
+    }
+}
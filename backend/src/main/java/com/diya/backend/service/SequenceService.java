@@ -0,0 +1,92 @@
+package com.diya.backend.service;
+
+import com.diya.backend.entity.Wholesaler;
+import com.diya.backend.entity.WholesalerSequence;
+import com.diya.backend.repository.ProductRepository;
+import com.diya.backend.repository.WholesalerSequenceRepository;
+import com.diya.backend.util.OrderPrefixUtil;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.LongSupplier;
+
+/**
+ * Hands out per-wholesaler order / invoice / product numbers from
+ * wholesaler_sequences.
+ *
+ * Each allocation is its own short transaction (one UPDATE on the counter
+ * row, then a read of the new value under that row lock), so the counter row
+ * is locked for the length of that transaction only, never for the
+ * caller's checkout / insert. Numbers are unique and increasing but may have
+ * gaps: a number whose checkout or insert fails afterwards is not given back.
+ *
+ * Call it before opening the business transaction; from inside one it needs
+ * a second pooled connection.
+ */
+@Service
+public class SequenceService {
+
+    private final WholesalerSequenceRepository sequenceRepository;
+    private final ProductRepository productRepository;
+    private final TransactionTemplate allocationTx;
+
+    public SequenceService(WholesalerSequenceRepository sequenceRepository,
+            ProductRepository productRepository,
+            PlatformTransactionManager transactionManager) {
+        this.sequenceRepository = sequenceRepository;
+        this.productRepository = productRepository;
+        this.allocationTx = new TransactionTemplate(transactionManager);
+        this.allocationTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public String nextOrderNumber(Wholesaler wholesaler) {
+        // continue from the legacy counter on wholesaler_profiles
+        long seq = allocate(wholesaler.getId(), WholesalerSequence.Kind.ORDER, 1,
+                () -> Optional.ofNullable(wholesaler.getOrderSequence()).orElse(0));
+        return OrderPrefixUtil.formatOrderNumber(OrderPrefixUtil.buildPrefix(wholesaler), seq);
+    }
+
+    public String nextInvoiceNumber(Wholesaler wholesaler) {
+        // continue from the legacy counter on wholesaler_profiles
+        long seq = allocate(wholesaler.getId(), WholesalerSequence.Kind.INVOICE, 1,
+                () -> Optional.ofNullable(wholesaler.getInvoiceSequence()).orElse(0));
+        return OrderPrefixUtil.formatInvoiceNumber(OrderPrefixUtil.buildPrefix(wholesaler), seq);
+    }
+
+    /**
+     * Product SKU number for a single new product.
+     */
+    public long nextProductNumber(UUID wholesalerId) {
+        return allocateProductNumbers(wholesalerId, 1);
+    }
+
+    /**
+     * Reserves count consecutive product numbers in one UPDATE and returns
+     * the first one (bulk import).
+     */
+    public long allocateProductNumbers(UUID wholesalerId, int count) {
+        // continue after the highest number already on a product
+        long last = allocate(wholesalerId, WholesalerSequence.Kind.PRODUCT, count,
+                () -> productRepository.maxSequenceNumber(wholesalerId));
+        return last - count + 1;
+    }
+
+    // returns the last number of the allocated range
+    private long allocate(UUID wholesalerId, WholesalerSequence.Kind kind, int count, LongSupplier seed) {
+        return allocationTx.execute(tx -> {
+            if (sequenceRepository.incrementBy(wholesalerId, kind, count) == 0) {
+                sequenceRepository.insertIfAbsent(UUID.randomUUID(), wholesalerId, kind.name(), seed.getAsLong());
+
+                if (sequenceRepository.incrementBy(wholesalerId, kind, count) == 0) {
+                    throw new RuntimeException("Unable to allocate " + kind.name().toLowerCase() + " number");
+                }
+            }
+
+            return sequenceRepository.lastIssued(wholesalerId, kind);
+        });
+    }
+}
@@ -6,7 +6,6 @@ import com.diya.backend.entity.SubCategory;
 import com.diya.backend.entity.Wholesaler;
 import com.diya.backend.repository.CategoryRepository;
 import com.diya.backend.repository.SubCategoryRepository;
-import com.diya.backend.repository.WholesalerRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
@@ -20,7 +19,8 @@ public class SubCategoryService {
 
     private final SubCategoryRepository subCategoryRepository;
     private final CategoryRepository categoryRepository;
-    private final WholesalerRepository wholesalerRepository;
+    private final PrincipalResolver principalResolver;
+    private final CategoryService categoryService;
 
     public SubCategory createSubCategory(String identifier, String authType, SubCategoryCreateRequest req) {
 
@@ -77,7 +77,9 @@ public class SubCategoryService {
                 .parentSubCategory(parent)
                 .build();
 
-        return subCategoryRepository.save(sub);
+        sub = subCategoryRepository.save(sub);
+        categoryService.evictTreeAfterCommit(wholesaler.getId());
+        return sub;
     }
 
     public List<SubCategory> getSubcategories(String identifier, String authType, UUID categoryId) {
@@ -98,12 +100,7 @@ public class SubCategoryService {
     }
 
     private Wholesaler getWholesaler(String identifier, String authType) {
-        if ("EMAIL".equalsIgnoreCase(authType)) {
-            return wholesalerRepository.findByUserEmail(identifier)
-                    .orElseThrow(() -> new RuntimeException("Wholesaler not found"));
-        }
-        return wholesalerRepository.findByUserPhone(identifier)
-                .orElseThrow(() -> new RuntimeException("Wholesaler not found"));
+        return principalResolver.wholesaler(identifier);
     }
 
     public List<SubCategory> getByCategory(UUID categoryId) {
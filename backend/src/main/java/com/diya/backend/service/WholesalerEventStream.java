@@ -0,0 +1,454 @@
+package com.diya.backend.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes new orders, order status changes and payments waiting for
+ * verification to the wholesaler dashboards connected to this node
+ * (Server-Sent Events), instead of the dashboard polling the order /
+ * payment / dashboard endpoints.
+ *
+ * Source: outbox_events. Every node tails the table by id (the dispatcher
+ * hands each event to one node only, so it cannot feed per-node
+ * connections). Ids are allocated before commit, so a gap in the ids is
+ * re-read for a while in case the missing row commits late. The tail
+ * starts when the first stream is opened, at the current max id; ids
+ * missing in the last 200 below it are treated as gaps as well. A
+ * transaction that allocated its id further back than that and commits
+ * after the stream opened is not pushed (the client still sees the change
+ * on its next reload or reconnect).
+ *
+ * On reconnect the stream is registered before the replay query runs;
+ * live events arriving meanwhile are held and queued after the replayed
+ * ones, skipping ids the replay already sent.
+ *
+ * Connections cost no thread while idle (async request). Each one has a
+ * bounded queue drained by a small sender pool; a consumer whose queue is
+ * full is disconnected (the browser reconnects with Last-Event-ID and gets
+ * the missed events replayed).
+ */
+@Slf4j
+@Service
+public class WholesalerEventStream {
+
+    public static final String METRIC_CONNECTIONS = "push.connections";
+    public static final String METRIC_DROPPED = "push.dropped";
+
+    // outbox event type -> SSE event name
+    private static final Map<String, String> PUSHED = Map.of(
+            DomainEvent.Type.ORDER_PLACED.name(), "order-placed",
+            DomainEvent.Type.ORDER_STATUS_CHANGED.name(), "order-status",
+            DomainEvent.Type.PAYMENT_RECORDED.name(), "payment-pending");
+
+    private static final String ROW_COLUMNS = "SELECT id, event_type, aggregate_id, wholesaler_id, payload, created_at "
+            + "FROM outbox_events ";
+
+    // a missing id is re-read this long before it is given up (rolled back insert)
+    private static final long GAP_RETENTION_MS = 60_000;
+    private static final int MAX_GAPS = 1000;
+    // ids below the starting max that are missing when the tail starts are
+    // treated as gaps too (allocated by a transaction still in flight)
+    private static final int START_LOOKBACK = 200;
+
+    private static final TypeReference<Map<String, Object>> PAYLOAD = new TypeReference<>() {
+    };
+
+    /**
+     * One pushed event; id is the outbox id (SSE id, for Last-Event-ID).
+     */
+    public record PushEvent(long id, String name, Map<String, Object> data) {
+
+        static final PushEvent HEARTBEAT = new PushEvent(-1, null, Map.of());
+    }
+
+    /**
+     * Where a connection's events are written (SseEmitter in production).
+     */
+    interface Sink {
+        void send(PushEvent event) throws IOException;
+
+        void close();
+    }
+
+    final class Subscription {
+        private final UUID wholesalerId;
+        private final Sink sink;
+        private final BlockingQueue<PushEvent> queue;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        // guarded by this: live events held while the replay runs (null once live), and the replayed ids
+        private List<PushEvent> held;
+        private Set<Long> replayed = Set.of();
+
+        private Subscription(UUID wholesalerId, Sink sink, boolean replaying) {
+            this.wholesalerId = wholesalerId;
+            this.sink = sink;
+            this.queue = new ArrayBlockingQueue<>(queueSize);
+            this.held = replaying ? new ArrayList<>() : null;
+        }
+
+        boolean isClosed() {
+            return closed.get();
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final ExecutorService senders;
+    private final Counter dropped;
+
+    private final Map<UUID, Set<Subscription>> subscriptions = new ConcurrentHashMap<>();
+    private final AtomicInteger connections = new AtomicInteger();
+
+    // poll state, guarded by this (poll / startTail)
+    private long lastId = -1;
+    private final Map<Long, Long> gaps = new LinkedHashMap<>(); // missing id -> first seen missing (ms)
+
+    private final int queueSize;
+    private final int maxConnections;
+    private final int maxPerWholesaler;
+    private final int pollBatchSize;
+    private final int replayMax;
+    private final long timeoutMs;
+
+    public WholesalerEventStream(
+            JdbcTemplate jdbcTemplate,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${diya.push.queue-size:64}") int queueSize,
+            @Value("${diya.push.max-connections:10000}") int maxConnections,
+            @Value("${diya.push.max-per-wholesaler:20}") int maxPerWholesaler,
+            @Value("${diya.push.sender-threads:4}") int senderThreads,
+            @Value("${diya.push.poll-batch-size:500}") int pollBatchSize,
+            @Value("${diya.push.replay-max:100}") int replayMax,
+            @Value("${diya.push.timeout-ms:1800000}") long timeoutMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.queueSize = queueSize;
+        this.maxConnections = maxConnections;
+        this.maxPerWholesaler = maxPerWholesaler;
+        this.pollBatchSize = pollBatchSize;
+        this.replayMax = replayMax;
+        this.timeoutMs = timeoutMs;
+        AtomicInteger threadNo = new AtomicInteger();
+        this.senders = Executors.newFixedThreadPool(senderThreads, r -> {
+            Thread t = new Thread(r, "push-sender-" + threadNo.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        Gauge.builder(METRIC_CONNECTIONS, connections, AtomicInteger::get)
+                .description("Open wholesaler event streams on this node")
+                .register(meterRegistry);
+        this.dropped = Counter.builder(METRIC_DROPPED)
+                .description("Event streams closed because the client could not keep up")
+                .register(meterRegistry);
+    }
+
+    // ==========================================================
+    // Connect
+    // ==========================================================
+
+    /**
+     * Opens an event stream for the wholesaler; with lastEventId (reconnect)
+     * the events after it are replayed first (up to replay-max).
+     */
+    public SseEmitter subscribe(UUID wholesalerId, Long lastEventId) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscription sub = register(wholesalerId, new Sink() {
+            @Override
+            public void send(PushEvent event) throws IOException {
+                if (event == PushEvent.HEARTBEAT) {
+                    emitter.send(SseEmitter.event().comment("keep-alive"));
+                } else {
+                    emitter.send(SseEmitter.event()
+                            .id(String.valueOf(event.id()))
+                            .name(event.name())
+                            .data(event.data(), MediaType.APPLICATION_JSON));
+                }
+            }
+
+            @Override
+            public void close() {
+                emitter.complete();
+            }
+        }, lastEventId);
+        emitter.onCompletion(() -> unregister(sub));
+        emitter.onTimeout(() -> unregister(sub));
+        emitter.onError(e -> unregister(sub));
+        return emitter;
+    }
+
+    Subscription register(UUID wholesalerId, Sink sink, Long lastEventId) {
+        if (connections.incrementAndGet() > maxConnections) {
+            connections.decrementAndGet();
+            throw new RuntimeException("Too many open event streams, please retry later");
+        }
+
+        Subscription sub = new Subscription(wholesalerId, sink, lastEventId != null);
+
+        // limit check and add in one compute, so a concurrent unregister cannot
+        // drop the set between them; listening first, so nothing committed from
+        // here on can fall between replay and tail
+        boolean[] added = { false };
+        subscriptions.compute(wholesalerId, (id, subs) -> {
+            Set<Subscription> set = subs == null ? ConcurrentHashMap.newKeySet() : subs;
+            if (set.size() < maxPerWholesaler) {
+                added[0] = set.add(sub);
+            }
+            return set.isEmpty() ? null : set;
+        });
+        if (!added[0]) {
+            connections.decrementAndGet();
+            throw new RuntimeException("Too many open event streams for this account");
+        }
+        startTail();
+
+        if (lastEventId != null) {
+            List<PushEvent> replay;
+            try {
+                replay = replay(wholesalerId, lastEventId);
+            } catch (RuntimeException e) {
+                unregister(sub);
+                throw e;
+            }
+            synchronized (sub) {
+                Set<Long> ids = new HashSet<>();
+                for (PushEvent event : replay) {
+                    ids.add(event.id());
+                    offer(sub, event);
+                }
+                for (PushEvent event : sub.held) {
+                    if (!ids.contains(event.id())) {
+                        offer(sub, event);
+                    }
+                }
+                sub.replayed = ids;
+                sub.held = null;
+            }
+        }
+        return sub;
+    }
+
+    void unregister(Subscription sub) {
+        if (!sub.closed.compareAndSet(false, true)) {
+            return;
+        }
+        connections.decrementAndGet();
+        subscriptions.computeIfPresent(sub.wholesalerId, (id, subs) -> {
+            subs.remove(sub);
+            return subs.isEmpty() ? null : subs;
+        });
+        sub.queue.clear();
+    }
+
+    // ==========================================================
+    // Outbox tail
+    // ==========================================================
+
+    @Scheduled(initialDelayString = "${diya.push.poll.initial-delay-ms:1000}",
+            fixedDelayString = "${diya.push.poll.interval-ms:500}")
+    public synchronized int poll() {
+        if (subscriptions.isEmpty()) {
+            lastId = -1; // nobody listens: start from the end again
+            gaps.clear();
+            return 0;
+        }
+        if (lastId < 0) {
+            startTail();
+            return 0;
+        }
+
+        long now = System.currentTimeMillis();
+        gaps.values().removeIf(since -> now - since > GAP_RETENTION_MS);
+
+        List<Object> args = new ArrayList<>();
+        StringBuilder sql = new StringBuilder(ROW_COLUMNS).append("WHERE id > ?");
+        args.add(lastId);
+        if (!gaps.isEmpty()) {
+            sql.append(" OR id IN (").append(String.join(",", Collections.nCopies(gaps.size(), "?"))).append(")");
+            args.addAll(gaps.keySet());
+        }
+        sql.append(" ORDER BY id LIMIT ?");
+        args.add(pollBatchSize + gaps.size());
+
+        List<Row> rows = jdbcTemplate.query(sql.toString(), (rs, n) -> new Row(
+                rs.getLong("id"),
+                rs.getString("event_type"),
+                rs.getObject("aggregate_id", UUID.class),
+                rs.getObject("wholesaler_id", UUID.class),
+                rs.getString("payload"),
+                rs.getTimestamp("created_at").toLocalDateTime()), args.toArray());
+
+        int pushed = 0;
+        for (Row row : rows) {
+            if (gaps.remove(row.id()) == null) {
+                for (long missing = lastId + 1; missing < row.id(); missing++) {
+                    gaps.putIfAbsent(missing, now);
+                }
+                lastId = Math.max(lastId, row.id());
+            }
+            pushed += push(row);
+        }
+        while (gaps.size() > MAX_GAPS) {
+            gaps.remove(gaps.keySet().iterator().next());
+        }
+        return pushed;
+    }
+
+    // called with a subscription already registered, so the next poll() cannot reset it
+    private synchronized void startTail() {
+        if (lastId < 0) {
+            long max = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM outbox_events", Long.class);
+            long from = Math.max(0, max - START_LOOKBACK);
+            Set<Long> present = new HashSet<>(jdbcTemplate.queryForList(
+                    "SELECT id FROM outbox_events WHERE id > ? AND id <= ?", Long.class, from, max));
+            long now = System.currentTimeMillis();
+            gaps.clear();
+            for (long id = from + 1; id <= max; id++) {
+                if (!present.contains(id)) {
+                    gaps.put(id, now);
+                }
+            }
+            lastId = max;
+        }
+    }
+
+    private record Row(long id, String type, UUID aggregateId, UUID wholesalerId, String payload,
+            LocalDateTime createdAt) {
+    }
+
+    private int push(Row row) {
+        String name = PUSHED.get(row.type());
+        Set<Subscription> subs = row.wholesalerId() == null ? null : subscriptions.get(row.wholesalerId());
+        if (name == null || subs == null) {
+            return 0;
+        }
+        PushEvent event = toEvent(row, name);
+        int pushed = 0;
+        for (Subscription sub : subs) {
+            if (deliver(sub, event)) {
+                pushed++;
+            }
+        }
+        return pushed;
+    }
+
+    // held while the subscription's replay runs, dropped when the replay already sent it
+    private boolean deliver(Subscription sub, PushEvent event) {
+        synchronized (sub) {
+            if (sub.held != null) {
+                sub.held.add(event);
+                return true;
+            }
+            if (sub.replayed.contains(event.id())) {
+                return false;
+            }
+            offer(sub, event);
+            return true;
+        }
+    }
+
+    private List<PushEvent> replay(UUID wholesalerId, long lastEventId) {
+        return jdbcTemplate.query(ROW_COLUMNS + "WHERE wholesaler_id = ? AND id > ? ORDER BY id LIMIT ?",
+                (rs, n) -> new Row(
+                        rs.getLong("id"),
+                        rs.getString("event_type"),
+                        rs.getObject("aggregate_id", UUID.class),
+                        rs.getObject("wholesaler_id", UUID.class),
+                        rs.getString("payload"),
+                        rs.getTimestamp("created_at").toLocalDateTime()),
+                wholesalerId, lastEventId, replayMax)
+                .stream()
+                .filter(row -> PUSHED.containsKey(row.type()))
+                .map(row -> toEvent(row, PUSHED.get(row.type())))
+                .toList();
+    }
+
+    private PushEvent toEvent(Row row, String name) {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("id", row.aggregateId());
+        data.put("occurredAt", row.createdAt().toString());
+        try {
+            if (row.payload() != null) {
+                data.putAll(objectMapper.readValue(row.payload(), PAYLOAD));
+            }
+        } catch (IOException e) {
+            log.warn("Unreadable payload in outbox event {}", row.id());
+        }
+        return new PushEvent(row.id(), name, data);
+    }
+
+    // ==========================================================
+    // Delivery
+    // ==========================================================
+
+    @Scheduled(initialDelayString = "${diya.push.heartbeat-ms:25000}", fixedDelayString = "${diya.push.heartbeat-ms:25000}")
+    public void heartbeat() {
+        // keeps proxies from closing idle streams and finds dead ones
+        subscriptions.values().forEach(subs -> subs.forEach(sub -> {
+            if (sub.queue.isEmpty()) {
+                offer(sub, PushEvent.HEARTBEAT);
+            }
+        }));
+    }
+
+    private void offer(Subscription sub, PushEvent event) {
+        if (sub.isClosed()) {
+            return;
+        }
+        if (!sub.queue.offer(event)) {
+            // slow consumer: disconnect rather than buffer without bound
+            dropped.increment();
+            unregister(sub);
+            senders.execute(sub.sink::close);
+            return;
+        }
+        if (sub.draining.compareAndSet(false, true)) {
+            senders.execute(() -> drain(sub));
+        }
+    }
+
+    private void drain(Subscription sub) {
+        try {
+            PushEvent event;
+            while (!sub.isClosed() && (event = sub.queue.poll()) != null) {
+                sub.sink.send(event);
+            }
+        } catch (IOException | RuntimeException e) {
+            // client went away
+            unregister(sub);
+            sub.sink.close();
+        } finally {
+            sub.draining.set(false);
+        }
+        // an event may have been queued after the loop ended
+        if (!sub.isClosed() && !sub.queue.isEmpty() && sub.draining.compareAndSet(false, true)) {
+            senders.execute(() -> drain(sub));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscriptions.values().forEach(subs -> subs.forEach(sub -> sub.sink.close()));
+        senders.shutdown();
+    }
+}
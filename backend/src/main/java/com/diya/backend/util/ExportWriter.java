@@ -0,0 +1,139 @@
+package com.diya.backend.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Row-at-a-time CSV / NDJSON writer for the export endpoints.
+ * Nothing is buffered beyond the output buffer, so memory stays constant
+ * no matter how many rows are written.
+ */
+public abstract class ExportWriter implements Closeable {
+
+    @Getter
+    @RequiredArgsConstructor
+    public enum Format {
+        CSV("text/csv", "csv"),
+        NDJSON("application/x-ndjson", "ndjson");
+
+        private final String contentType;
+        private final String extension;
+
+        public static Format parse(String format) {
+            if (format == null || format.isBlank()) {
+                return CSV;
+            }
+            try {
+                return Format.valueOf(format.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new RuntimeException("Invalid export format: " + format);
+            }
+        }
+    }
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final JsonFactory JSON = new JsonFactory();
+
+    protected final List<String> columns;
+
+    protected ExportWriter(List<String> columns) {
+        this.columns = columns;
+    }
+
+    public static ExportWriter open(Format format, OutputStream out, List<String> columns) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        return format == Format.NDJSON ? new NdJson(writer, columns) : new Csv(writer, columns);
+    }
+
+    // values in the same order as the columns
+    public abstract void writeRow(Object... values) throws IOException;
+
+    /* ------------------------ CSV ------------------------ */
+
+    private static final class Csv extends ExportWriter {
+        private static final String FORMULA_START = "=+-@\t\r";
+
+        private final Writer out;
+
+        private Csv(Writer out, List<String> columns) throws IOException {
+            super(columns);
+            this.out = out;
+            writeRow(columns.toArray());
+        }
+
+        @Override
+        public void writeRow(Object... values) throws IOException {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    out.write(',');
+                }
+                writeCell(values[i]);
+            }
+            out.write("\r\n");
+        }
+
+        // RFC 4180 quoting; text that a spreadsheet would run as a formula gets a leading '
+        private void writeCell(Object value) throws IOException {
+            if (value == null) {
+                return;
+            }
+            String s = String.valueOf(value);
+            if (!(value instanceof Number) && !s.isEmpty() && FORMULA_START.indexOf(s.charAt(0)) >= 0) {
+                s = "'" + s;
+            }
+            if (s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0 && s.indexOf('\r') < 0) {
+                out.write(s);
+                return;
+            }
+            out.write('"');
+            out.write(s.replace("\"", "\"\""));
+            out.write('"');
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.flush();
+        }
+    }
+
+    /* ------------------------ NDJSON ------------------------ */
+
+    private static final class NdJson extends ExportWriter {
+        private final JsonGenerator json;
+
+        private NdJson(Writer out, List<String> columns) throws IOException {
+            super(columns);
+            this.json = JSON.createGenerator(out);
+            this.json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        }
+
+        @Override
+        public void writeRow(Object... values) throws IOException {
+            json.writeStartObject();
+            for (int i = 0; i < values.length; i++) {
+                Object value = values[i];
+                json.writeFieldName(columns.get(i));
+                if (value == null) {
+                    json.writeNull();
+                } else if (value instanceof Number n) {
+                    json.writeNumber(n.toString());
+                } else {
+                    json.writeString(String.valueOf(value));
+                }
+            }
+            json.writeEndObject();
+            json.writeRaw('\n');
+        }
+
+        @Override
+        public void close() throws IOException {
+            json.flush();
+        }
+    }
+}
@@ -0,0 +1,439 @@
+package com.diya.backend.util;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Locale;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Row-at-a-time CSV / XLSX reader for the bulk import endpoints (the read
+ * side of ExportWriter). Only the current row is held in memory; for XLSX
+ * the shared-strings table is too, as the sheet refers to it by index.
+ */
+public abstract class ImportReader implements Closeable {
+
+    @Getter
+    @RequiredArgsConstructor
+    public enum Format {
+        CSV("csv"),
+        XLSX("xlsx");
+
+        private final String extension;
+
+        public static Format fromFileName(String fileName) {
+            String name = fileName == null ? "" : fileName.trim().toLowerCase(Locale.ROOT);
+            if (name.endsWith(".xlsx")) {
+                return XLSX;
+            }
+            if (name.endsWith(".csv") || name.endsWith(".txt")) {
+                return CSV;
+            }
+            throw new RuntimeException("Unsupported file type (use .csv or .xlsx): " + fileName);
+        }
+    }
+
+    public static ImportReader open(Format format, Path file) throws IOException {
+        return format == Format.XLSX ? new Xlsx(file) : new Csv(file);
+    }
+
+    // next row's cells, or null at end of file
+    public abstract List<String> next() throws IOException;
+
+    // 1-based row number (as the user sees it in the file) of the row next() last returned
+    public abstract long rowNumber();
+
+    // 0..1 of the file read so far, or -1 when unknown
+    public abstract double progress();
+
+    /* ------------------------ CSV ------------------------ */
+
+    // RFC 4180: "" escapes a quote, quoted cells may contain , and newlines
+    private static final class Csv extends ImportReader {
+        private final CountingInputStream counter;
+        private final Reader in;
+        private final long size;
+        private boolean eof;
+        private long rows;
+
+        Csv(Path file) throws IOException {
+            this.size = Files.size(file);
+            this.counter = new CountingInputStream(new BufferedInputStream(Files.newInputStream(file), 64 * 1024));
+            this.in = new BufferedReader(new InputStreamReader(counter, StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public List<String> next() throws IOException {
+            if (eof) {
+                return null;
+            }
+            List<String> cells = new ArrayList<>();
+            StringBuilder cell = new StringBuilder();
+            boolean quoted = false;
+            boolean any = false;
+
+            int c;
+            while ((c = in.read()) != -1) {
+                if (c == '\uFEFF' && !any && cells.isEmpty()) {
+                    continue; // UTF-8 BOM (Excel "CSV UTF-8")
+                }
+                any = true;
+                if (quoted) {
+                    if (c == '"') {
+                        in.mark(1);
+                        int n = in.read();
+                        if (n == '"') {
+                            cell.append('"');
+                        } else {
+                            quoted = false;
+                            if (n != -1) {
+                                in.reset();
+                            }
+                        }
+                    } else {
+                        cell.append((char) c);
+                    }
+                } else if (c == '"' && cell.isEmpty()) {
+                    quoted = true;
+                } else if (c == ',') {
+                    cells.add(cell.toString());
+                    cell.setLength(0);
+                } else if (c == '\n') {
+                    break;
+                } else if (c != '\r') {
+                    cell.append((char) c);
+                }
+            }
+            if (c == -1) {
+                eof = true;
+                if (!any) {
+                    return null;
+                }
+            }
+            cells.add(cell.toString());
+            rows++;
+            return cells;
+        }
+
+        @Override
+        public long rowNumber() {
+            return rows;
+        }
+
+        @Override
+        public double progress() {
+            return size == 0 ? 1 : Math.min(1.0, (double) counter.count / size);
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /**
+     * Reads the first worksheet straight from the .xlsx zip with StAX, so
+     * rows are streamed instead of loading the whole workbook. The sheet and
+     * shared-strings parts are found through xl/workbook.xml and its rels
+     * (writers do not all name them sheet1.xml); row numbers come from each
+     * row's r attribute, as empty rows are left out of the XML.
+     */
+    private static final class Xlsx extends ImportReader {
+        private static final XMLInputFactory XML = XMLInputFactory.newFactory();
+        private static final String WORKBOOK = "xl/workbook.xml";
+        private static final String WORKBOOK_RELS = "xl/_rels/workbook.xml.rels";
+        private static final String DEFAULT_SHEET = "xl/worksheets/sheet1.xml";
+        private static final String DEFAULT_SHARED_STRINGS = "xl/sharedStrings.xml";
+
+        static {
+            XML.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+            XML.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        }
+
+        private final ZipFile zip;
+        private final List<String> sharedStrings;
+        private final InputStream sheetStream;
+        private final XMLStreamReader sheet;
+        private long totalRows = -1;
+        private long rowNumber;
+
+        Xlsx(Path file) throws IOException {
+            this.zip = new ZipFile(file.toFile());
+            try {
+                Map<String, String[]> rels = readWorkbookRels();
+                this.sharedStrings = readSharedStrings(rels);
+                ZipEntry entry = zip.getEntry(firstSheetPath(rels));
+                if (entry == null) {
+                    throw new RuntimeException("Invalid XLSX file: no worksheet found");
+                }
+                this.sheetStream = zip.getInputStream(entry);
+                this.sheet = XML.createXMLStreamReader(sheetStream);
+            } catch (XMLStreamException e) {
+                zip.close();
+                throw new IOException("Invalid XLSX file", e);
+            } catch (IOException | RuntimeException e) {
+                zip.close();
+                throw e;
+            }
+        }
+
+        // relationship Id -> { type, zip path } from the workbook's rels part
+        private Map<String, String[]> readWorkbookRels() throws IOException, XMLStreamException {
+            Map<String, String[]> rels = new HashMap<>();
+            ZipEntry entry = zip.getEntry(WORKBOOK_RELS);
+            if (entry == null) {
+                return rels;
+            }
+            try (InputStream in = zip.getInputStream(entry)) {
+                XMLStreamReader xml = XML.createXMLStreamReader(in);
+                while (xml.hasNext()) {
+                    if (xml.next() == XMLStreamConstants.START_ELEMENT && "Relationship".equals(xml.getLocalName())) {
+                        String id = xml.getAttributeValue(null, "Id");
+                        String target = xml.getAttributeValue(null, "Target");
+                        if (id != null && target != null) {
+                            rels.put(id, new String[] { String.valueOf(xml.getAttributeValue(null, "Type")),
+                                    partPath(target) });
+                        }
+                    }
+                }
+                xml.close();
+            }
+            return rels;
+        }
+
+        // first <sheet> in workbook order (the tab the user sees first), not the lowest file name
+        private String firstSheetPath(Map<String, String[]> rels) throws IOException, XMLStreamException {
+            ZipEntry entry = zip.getEntry(WORKBOOK);
+            if (entry == null) {
+                return DEFAULT_SHEET;
+            }
+            try (InputStream in = zip.getInputStream(entry)) {
+                XMLStreamReader xml = XML.createXMLStreamReader(in);
+                try {
+                    while (xml.hasNext()) {
+                        if (xml.next() == XMLStreamConstants.START_ELEMENT && "sheet".equals(xml.getLocalName())) {
+                            String[] rel = rels.get(relationshipId(xml));
+                            return rel == null ? DEFAULT_SHEET : rel[1];
+                        }
+                    }
+                } finally {
+                    xml.close();
+                }
+            }
+            return DEFAULT_SHEET;
+        }
+
+        // r:id, whatever prefix the writer bound the relationships namespace to
+        private static String relationshipId(XMLStreamReader xml) {
+            for (int i = 0; i < xml.getAttributeCount(); i++) {
+                if ("id".equals(xml.getAttributeLocalName(i)) && xml.getAttributeNamespace(i) != null) {
+                    return xml.getAttributeValue(i);
+                }
+            }
+            return null;
+        }
+
+        // rels targets are relative to xl/ unless they start with /
+        private static String partPath(String target) {
+            return target.startsWith("/") ? target.substring(1) : "xl/" + target;
+        }
+
+        private List<String> readSharedStrings(Map<String, String[]> rels) throws IOException, XMLStreamException {
+            List<String> strings = new ArrayList<>();
+            String path = rels.values().stream()
+                    .filter(rel -> rel[0].endsWith("/sharedStrings"))
+                    .map(rel -> rel[1])
+                    .findFirst()
+                    .orElse(DEFAULT_SHARED_STRINGS);
+            ZipEntry entry = zip.getEntry(path);
+            if (entry == null) {
+                return strings;
+            }
+            try (InputStream in = zip.getInputStream(entry)) {
+                XMLStreamReader xml = XML.createXMLStreamReader(in);
+                StringBuilder text = null;
+                while (xml.hasNext()) {
+                    int event = xml.next();
+                    if (event == XMLStreamConstants.START_ELEMENT) {
+                        if ("si".equals(xml.getLocalName())) {
+                            text = new StringBuilder();
+                        } else if ("t".equals(xml.getLocalName()) && text != null) {
+                            text.append(xml.getElementText()); // rich text: <r><t>..</t></r> runs are joined
+                        }
+                    } else if (event == XMLStreamConstants.END_ELEMENT && "si".equals(xml.getLocalName())) {
+                        strings.add(text == null ? "" : text.toString());
+                        text = null;
+                    }
+                }
+                xml.close();
+            }
+            return strings;
+        }
+
+        @Override
+        public List<String> next() throws IOException {
+            try {
+                while (sheet.hasNext()) {
+                    int event = sheet.next();
+                    if (event != XMLStreamConstants.START_ELEMENT) {
+                        continue;
+                    }
+                    String name = sheet.getLocalName();
+                    if ("dimension".equals(name)) {
+                        totalRows = lastRow(sheet.getAttributeValue(null, "ref"));
+                    } else if ("row".equals(name)) {
+                        rowNumber = rowNumber(sheet.getAttributeValue(null, "r"), rowNumber + 1);
+                        return readRow();
+                    }
+                }
+                return null;
+            } catch (XMLStreamException e) {
+                throw new IOException("Invalid XLSX file", e);
+            }
+        }
+
+        private List<String> readRow() throws XMLStreamException {
+            List<String> cells = new ArrayList<>();
+            while (sheet.hasNext()) {
+                int event = sheet.next();
+                if (event == XMLStreamConstants.END_ELEMENT && "row".equals(sheet.getLocalName())) {
+                    return cells;
+                }
+                if (event == XMLStreamConstants.START_ELEMENT && "c".equals(sheet.getLocalName())) {
+                    // empty cells are left out of the XML: place by column letter
+                    int column = column(sheet.getAttributeValue(null, "r"), cells.size());
+                    String type = sheet.getAttributeValue(null, "t");
+                    String value = readCell(type);
+                    while (cells.size() < column) {
+                        cells.add("");
+                    }
+                    cells.add(value);
+                }
+            }
+            return cells;
+        }
+
+        private String readCell(String type) throws XMLStreamException {
+            StringBuilder value = new StringBuilder();
+            while (sheet.hasNext()) {
+                int event = sheet.next();
+                if (event == XMLStreamConstants.END_ELEMENT && "c".equals(sheet.getLocalName())) {
+                    break;
+                }
+                if (event == XMLStreamConstants.START_ELEMENT
+                        && ("v".equals(sheet.getLocalName()) || "t".equals(sheet.getLocalName()))) {
+                    value.append(sheet.getElementText());
+                }
+            }
+            String raw = value.toString();
+            if ("s".equals(type) && !raw.isEmpty()) {
+                int index = Integer.parseInt(raw.trim());
+                return index < sharedStrings.size() ? sharedStrings.get(index) : "";
+            }
+            if ("b".equals(type)) {
+                return "1".equals(raw) ? "true" : "false";
+            }
+            return raw;
+        }
+
+        // "C5" -> 2; falls back to the next position when r is missing
+        private static int column(String ref, int fallback) {
+            if (ref == null) {
+                return fallback;
+            }
+            int col = 0;
+            for (int i = 0; i < ref.length() && Character.isLetter(ref.charAt(i)); i++) {
+                col = col * 26 + (Character.toUpperCase(ref.charAt(i)) - 'A' + 1);
+            }
+            return col == 0 ? fallback : col - 1;
+        }
+
+        // r="7" -> 7; falls back to the next row when r is missing
+        private static long rowNumber(String ref, long fallback) {
+            if (ref == null || ref.isBlank()) {
+                return fallback;
+            }
+            try {
+                return Long.parseLong(ref.trim());
+            } catch (NumberFormatException e) {
+                return fallback;
+            }
+        }
+
+        // "A1:K20001" -> 20001
+        private static long lastRow(String ref) {
+            if (ref == null) {
+                return -1;
+            }
+            String last = ref.substring(ref.indexOf(':') + 1).replaceAll("[^0-9]", "");
+            return last.isEmpty() ? -1 : Long.parseLong(last);
+        }
+
+        @Override
+        public long rowNumber() {
+            return rowNumber;
+        }
+
+        @Override
+        public double progress() {
+            return totalRows <= 0 ? -1 : Math.min(1.0, (double) rowNumber / totalRows);
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                sheet.close();
+            } catch (XMLStreamException ignored) {
+                // closing the zip below releases everything
+            }
+            sheetStream.close();
+            zip.close();
+        }
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+}
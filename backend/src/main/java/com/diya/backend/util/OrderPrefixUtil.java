@@ -46,7 +46,11 @@ public class OrderPrefixUtil {
         return cleaned.substring(cleaned.length() - 4);
     }
 
-    public static String formatOrderNumber(String prefix, int sequence) {
+    public static String formatOrderNumber(String prefix, long sequence) {
         return String.format("%s-%04d", prefix, sequence);
     }
+
+    public static String formatInvoiceNumber(String prefix, long sequence) {
+        return String.format("%s-INV-%04d", prefix, sequence);
+    }
 }
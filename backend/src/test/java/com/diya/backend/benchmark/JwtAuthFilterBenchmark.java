@@ -0,0 +1,160 @@
+package com.diya.backend.benchmark;
+
+import com.diya.backend.config.JwtAuthFilter;
+import com.diya.backend.config.JwtUtil;
+import com.diya.backend.repository.RetailerRepository;
+import com.diya.backend.repository.WholesalerRepository;
+import com.diya.backend.service.PrincipalResolver;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Per-request cost of JWT authentication.
+ *
+ * legacyFilter      - what JwtAuthFilter used to do: validateToken +
+ *                     extractIdentifier + extractRole, each building a new
+ *                     parser and re-checking the HMAC.
+ * filterUncached    - the filter with one verification per request (cache off).
+ * filterCached      - the filter when the token was verified recently.
+ *
+ * Not run by surefire. Run with:
+ *   mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ *   java -cp target/test-classes:target/classes:$(cat target/cp.txt) \
+ *        com.diya.backend.benchmark.JwtAuthFilterBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtAuthFilterBenchmark {
+
+    // same key JwtUtil signs with
+    private static final Key KEY = Keys.hmacShaKeyFor(
+            "diya_secret_key_12345678901234567890".getBytes(StandardCharsets.UTF_8));
+
+    private LegacyJwtAuthFilter legacyFilter;
+    private JwtAuthFilter uncachedFilter;
+    private JwtAuthFilter cachedFilter;
+    private String token;
+    private MockHttpServletRequest request;
+
+    @Setup
+    public void setUp() {
+        // id lookups are answered from PrincipalResolver's cache after the first request
+        WholesalerRepository wholesalers = mock(WholesalerRepository.class);
+        RetailerRepository retailers = mock(RetailerRepository.class);
+        when(retailers.findIdByUserEmail(anyString())).thenReturn(Optional.of(UUID.randomUUID()));
+        PrincipalResolver principalResolver = new PrincipalResolver(wholesalers, retailers, 300_000, 10_000);
+
+        JwtUtil cached = new JwtUtil(10_000);
+        cachedFilter = new JwtAuthFilter(cached, principalResolver);
+        uncachedFilter = new JwtAuthFilter(new JwtUtil(0), principalResolver);
+        legacyFilter = new LegacyJwtAuthFilter();
+        token = cached.generateToken("shop@example.com", "EMAIL", "RETAILER");
+
+        request = new MockHttpServletRequest("GET", "/api/retailer/cart");
+        request.setServletPath("/api/retailer/cart");
+        request.addHeader("Authorization", "Bearer " + token);
+    }
+
+    @TearDown(Level.Invocation)
+    public void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Benchmark
+    public Object legacyFilter() throws Exception {
+        legacyFilter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+
+    @Benchmark
+    public Object filterUncached() throws Exception {
+        uncachedFilter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+
+    @Benchmark
+    public Object filterCached() throws Exception {
+        cachedFilter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+
+    /**
+     * The pre-change filter body, kept here only as the baseline.
+     */
+    static class LegacyJwtAuthFilter extends OncePerRequestFilter {
+
+        @Override
+        protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                FilterChain filterChain) throws ServletException, IOException {
+            String token = request.getHeader("Authorization").substring(7);
+            if (!validateToken(token)) {
+                filterChain.doFilter(request, response);
+                return;
+            }
+            String identifier = claims(token).getSubject();
+            String role = (String) claims(token).get("role");
+
+            UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
+                    identifier, null, List.of(new SimpleGrantedAuthority("ROLE_" + role)));
+            authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+            SecurityContextHolder.getContext().setAuthentication(authentication);
+
+            filterChain.doFilter(request, response);
+        }
+
+        private static boolean validateToken(String token) {
+            try {
+                claims(token);
+                return true;
+            } catch (Exception e) {
+                return false;
+            }
+        }
+
+        private static Claims claims(String token) {
+            return Jwts.parserBuilder()
+                    .setSigningKey(KEY)
+                    .build()
+                    .parseClaimsJws(token)
+                    .getBody();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(JwtAuthFilterBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,90 @@
+package com.diya.backend.config;
+
+import com.diya.backend.repository.RetailerRepository;
+import com.diya.backend.repository.WholesalerRepository;
+import com.diya.backend.service.PrincipalResolver;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class JwtUtilTest {
+
+    private final JwtUtil jwtUtil = new JwtUtil(100);
+
+    @Test
+    void verifiesOnceAndServesRepeatsFromCache() {
+        String token = jwtUtil.generateToken("shop@example.com", "EMAIL", "RETAILER");
+
+        JwtUtil.VerifiedToken first = jwtUtil.verify(token);
+        assertThat(first).isNotNull();
+        assertThat(first.identifier()).isEqualTo("shop@example.com");
+        assertThat(first.authType()).isEqualTo("EMAIL");
+        assertThat(first.role()).isEqualTo("RETAILER");
+
+        assertThat(jwtUtil.verify(token)).isSameAs(first);
+        assertThat(jwtUtil.extractIdentifier(token)).isEqualTo("shop@example.com");
+        assertThat(jwtUtil.validateToken(token)).isTrue();
+    }
+
+    @Test
+    void rejectsTamperedAndExpiredTokens() throws Exception {
+        String token = jwtUtil.generateToken("9999999999", "PHONE", "WHOLESALER");
+        String[] parts = token.split("\\.");
+        String tampered = parts[0] + "." + parts[1] + "x." + parts[2];
+        assertThat(jwtUtil.verify(tampered)).isNull();
+        assertThat(jwtUtil.verify("not-a-jwt")).isNull();
+        assertThat(jwtUtil.verify(null)).isNull();
+
+        String shortLived = jwtUtil.generateToken("9999999999", "PHONE", "WHOLESALER", 1500);
+        assertThat(jwtUtil.verify(shortLived)).isNotNull(); // now cached
+        Thread.sleep(1600);
+        assertThat(jwtUtil.verify(shortLived)).isNull();
+        assertThat(jwtUtil.validateToken(shortLived)).isFalse();
+    }
+
+    @Test
+    void disabledCacheStillVerifies() {
+        JwtUtil uncached = new JwtUtil(0);
+        String token = uncached.generateToken("shop@example.com", "EMAIL", "RETAILER");
+
+        assertThat(uncached.verify(token).role()).isEqualTo("RETAILER");
+        assertThat(uncached.verify(token)).isNotSameAs(uncached.verify(token));
+    }
+
+    @Test
+    void filterAuthenticatesValidTokenAndPassesInvalidOneThrough() throws Exception {
+        JwtAuthFilter filter = new JwtAuthFilter(jwtUtil, new PrincipalResolver(
+                mock(WholesalerRepository.class), mock(RetailerRepository.class), 60_000, 100));
+        String token = jwtUtil.generateToken("shop@example.com", "EMAIL", "RETAILER");
+
+        try {
+            Authentication[] seen = new Authentication[1];
+            filter.doFilter(request("Bearer " + token), new MockHttpServletResponse(),
+                    (req, res) -> seen[0] = SecurityContextHolder.getContext().getAuthentication());
+            assertThat(seen[0].getName()).isEqualTo("shop@example.com");
+            assertThat(seen[0].getAuthorities()).extracting(Object::toString).containsExactly("ROLE_RETAILER");
+            SecurityContextHolder.clearContext();
+
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            MockFilterChain chain = new MockFilterChain();
+            filter.doFilter(request("Bearer " + token + "x"), response, chain);
+            assertThat(chain.getRequest()).isNotNull(); // chain continued
+            assertThat(SecurityContextHolder.getContext().getAuthentication()).isNull();
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    private static MockHttpServletRequest request(String authorization) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/retailer/cart");
+        request.setServletPath("/api/retailer/cart");
+        request.addHeader("Authorization", authorization);
+        return request;
+    }
+}
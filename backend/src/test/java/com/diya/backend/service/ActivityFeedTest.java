@@ -0,0 +1,137 @@
+package com.diya.backend.service;
+
+import com.diya.backend.dto.dashboard.ActivityItemDTO;
+import com.diya.backend.entity.Order;
+import com.diya.backend.entity.Payment;
+import com.diya.backend.entity.Retailer;
+import com.diya.backend.entity.Wholesaler;
+import com.diya.backend.repository.OrderRepository;
+import com.diya.backend.repository.PaymentRepository;
+import com.diya.backend.support.TestData;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@Import(TestData.class)
+class ActivityFeedTest {
+
+    // wholesaler id lookup + order rows + payment rows
+    private static final long MAX_PAGE_STATEMENTS = 3;
+
+    @Autowired
+    private TestData data;
+    @Autowired
+    private DashboardService dashboardService;
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private PaymentRepository paymentRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void pagesThroughOrdersAndPaymentsNewestFirstWithoutGapsOrRepeats() {
+        Wholesaler wholesaler = data.wholesaler();
+        Wholesaler other = data.wholesaler();
+        Retailer ravi = data.retailer("Ravi Stores", "Hyderabad");
+        Retailer sita = data.retailer("Sita Kirana", "Warangal");
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            // every other step an order and a payment share a timestamp, and two orders share one
+            LocalDateTime at = now.minusMinutes(i);
+            order(wholesaler, i % 2 == 0 ? ravi : sita, "A" + i, at);
+            if (i % 2 == 0) {
+                payment(wholesaler, ravi, 10.0 + i, at);
+            }
+            if (i == 3) {
+                order(wholesaler, ravi, "B" + i, at);
+            }
+        }
+        order(other, ravi, "OTHER", now);
+        payment(other, ravi, 1.0, now);
+
+        // newest first; at the same time payments come before orders (type descending)
+        for (int i = 0; i < 7; i++) {
+            if (i % 2 == 0) {
+                expected.add("PAYMENT@" + i);
+            }
+            expected.add("ORDER@" + i);
+            if (i == 3) {
+                expected.add("ORDER@" + i);
+            }
+        }
+
+        String login = wholesaler.getUser().getEmail();
+        Statistics stats = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        List<ActivityItemDTO> all = new ArrayList<>();
+        String before = null;
+        while (true) {
+            stats.clear();
+            List<ActivityItemDTO> page = dashboardService.getActivityFeed(login, "EMAIL", before, 3);
+            assertThat(stats.getPrepareStatementCount()).isLessThanOrEqualTo(MAX_PAGE_STATEMENTS);
+            all.addAll(page);
+            if (page.size() < 3) {
+                break;
+            }
+            before = page.get(page.size() - 1).getCursor();
+        }
+
+        assertThat(all).extracting(ActivityItemDTO::getId).doesNotHaveDuplicates();
+        assertThat(all).extracting(item -> item.getType() + "@"
+                + ChronoUnit.MINUTES.between(item.getOccurredAt(), now))
+                .containsExactlyElementsOf(expected);
+
+        ActivityItemDTO newest = all.get(0);
+        assertThat(newest.getType()).isEqualTo("PAYMENT");
+        assertThat(newest.getSubtitle()).isEqualTo("Ravi Stores • ₹10.0");
+        assertThat(all.get(1).getTitle()).startsWith("New Order A0-");
+        assertThat(all).anySatisfy(item -> assertThat(item.getSubtitle()).startsWith("Sita Kirana"));
+    }
+
+    @Test
+    void rejectsBadCursorsAndLimits() {
+        String login = data.wholesaler().getUser().getEmail();
+
+        assertThat(dashboardService.getActivityFeed(login, "EMAIL", null, 20)).isEmpty();
+        assertThatThrownBy(() -> dashboardService.getActivityFeed(login, "EMAIL", "yesterday", 20))
+                .hasMessage("Invalid activity cursor");
+        assertThatThrownBy(() -> dashboardService.getActivityFeed(login, "EMAIL", null, 0))
+                .hasMessageStartingWith("limit must be between");
+    }
+
+    private void order(Wholesaler wholesaler, Retailer retailer, String number, LocalDateTime at) {
+        orderRepository.save(Order.builder()
+                .wholesaler(wholesaler)
+                .retailer(retailer)
+                .orderNumber(number + "-" + TestData.tag())
+                .placedAt(at)
+                .totalAmount(100.0)
+                .build());
+    }
+
+    private void payment(Wholesaler wholesaler, Retailer retailer, double amount, LocalDateTime at) {
+        paymentRepository.save(Payment.builder()
+                .wholesaler(wholesaler)
+                .retailer(retailer)
+                .amount(amount)
+                .mode(Payment.PaymentMode.CASH)
+                .status(Payment.PaymentStatus.PENDING_VERIFICATION)
+                .createdAt(at)
+                .build());
+    }
+}
@@ -0,0 +1,148 @@
+package com.diya.backend.service;
+
+import com.diya.backend.dto.OrderCheckoutRequest;
+import com.diya.backend.entity.*;
+import com.diya.backend.repository.OrderRepository;
+import com.diya.backend.repository.PaymentRepository;
+import com.diya.backend.support.TestData;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * The rollup-backed summaries must always equal what the old findAll()
+ * implementation computed from the raw orders / payments.
+ */
+@SpringBootTest
+@Import(TestData.class)
+class AnalyticsRollupTest {
+
+    @Autowired
+    private TestData data;
+    @Autowired
+    private AnalyticsService analyticsService;
+    @Autowired
+    private OrderService orderService;
+    @Autowired
+    private PaymentService paymentService;
+    @Autowired
+    private CartService cartService;
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Test
+    void seedsFromExistingHistoryThenTracksCheckoutTransitionsAndPayments() {
+        Wholesaler wholesaler = data.wholesaler();
+        Retailer retailer = data.connectedRetailer(wholesaler);
+        String wholesalerLogin = wholesaler.getUser().getEmail();
+        String retailerLogin = retailer.getUser().getEmail();
+
+        // history written before the rollups existed
+        Order delivered = legacyOrder(wholesaler, retailer, Order.Status.DELIVERED, 100.0,
+                LocalDateTime.now().minusMonths(2));
+        legacyOrder(wholesaler, retailer, Order.Status.PLACED, 50.0, LocalDateTime.now());
+        paymentRepository.save(Payment.builder()
+                .order(delivered)
+                .wholesaler(wholesaler)
+                .retailer(retailer)
+                .amount(30.0)
+                .mode(Payment.PaymentMode.CASH)
+                .status(Payment.PaymentStatus.CONFIRMED)
+                .build());
+
+        Map<String, Object> summary = analyticsService.getWholesalerSummary(wholesalerLogin);
+        assertThat(summary.get("totalOrders")).isEqualTo(2L);
+        assertThat((Double) summary.get("totalSales")).isCloseTo(150.0, within(0.001));
+        assertThat((Double) summary.get("totalReceived")).isCloseTo(30.0, within(0.001));
+        assertThat(summary.get("pendingOrders")).isEqualTo(1L);
+        assertThat(summary.get("deliveredOrders")).isEqualTo(1L);
+        assertMatchesHistory(wholesaler, retailer);
+
+        // checkout -> PLACED
+        data.cart(retailer, wholesaler, data.product(wholesaler, 10, 20.0), 2);
+        UUID orderId = orderService.checkoutFromCart(retailerLogin, OrderCheckoutRequest.builder()
+                .wholesalerId(wholesaler.getId().toString())
+                .build()).getOrderId();
+        assertMatchesHistory(wholesaler, retailer);
+
+        // PLACED -> ACCEPTED -> PACKING
+        orderService.wholesalerUpdateOrderStatus(wholesalerLogin, orderId, "ACCEPTED");
+        orderService.wholesalerUpdateOrderStatus(wholesalerLogin, orderId, "PACKING");
+        assertMatchesHistory(wholesaler, retailer);
+
+        // another checkout, cancelled by the retailer
+        cartService.addItem(retailer.getId(), wholesaler.getId(), data.product(wholesaler, 10, 5.0).getId(), 1);
+        UUID cancelledId = orderService.checkoutFromCart(retailerLogin, OrderCheckoutRequest.builder()
+                .wholesalerId(wholesaler.getId().toString())
+                .build()).getOrderId();
+        orderService.retailerCancelOrder(retailerLogin, cancelledId);
+        assertMatchesHistory(wholesaler, retailer);
+
+        // payment recorded (no effect) then confirmed
+        Payment payment = paymentService.recordPayment(retailerLogin, orderId, 10.0, "UPI", "UTR1", null);
+        assertMatchesHistory(wholesaler, retailer);
+        paymentService.confirmPayment(wholesalerLogin, payment.getId());
+        paymentService.confirmPayment(wholesalerLogin, payment.getId()); // double confirm is a no-op
+        assertMatchesHistory(wholesaler, retailer);
+    }
+
+    // recompute the way the old implementation did and compare
+    private void assertMatchesHistory(Wholesaler wholesaler, Retailer retailer) {
+        List<Order> wOrders = orderRepository.findByWholesaler(wholesaler);
+        List<Order> rOrders = orderRepository.findByRetailer(retailer);
+        double received = paymentRepository.findByWholesaler(wholesaler).stream()
+                .filter(p -> p.getStatus() == Payment.PaymentStatus.CONFIRMED)
+                .mapToDouble(Payment::getAmount).sum();
+        double paid = paymentRepository.findAll().stream()
+                .filter(p -> p.getRetailer().getId().equals(retailer.getId()))
+                .filter(p -> p.getStatus() == Payment.PaymentStatus.CONFIRMED)
+                .mapToDouble(Payment::getAmount).sum();
+        double sales = wOrders.stream().mapToDouble(Order::getTotalAmount).sum();
+        double spent = rOrders.stream().mapToDouble(Order::getTotalAmount).sum();
+
+        Map<String, Object> w = analyticsService.getWholesalerSummary(wholesaler.getUser().getEmail());
+        assertThat(w.get("totalOrders")).isEqualTo((long) wOrders.size());
+        assertThat((Double) w.get("totalSales")).isCloseTo(sales, within(0.001));
+        assertThat((Double) w.get("totalReceived")).isCloseTo(received, within(0.001));
+        assertThat(w.get("pendingOrders"))
+                .isEqualTo(wOrders.stream().filter(o -> o.getStatus() == Order.Status.PLACED).count());
+        assertThat(w.get("deliveredOrders"))
+                .isEqualTo(wOrders.stream().filter(o -> o.getStatus() == Order.Status.DELIVERED).count());
+
+        Map<String, Object> r = analyticsService.getRetailerSummary(retailer.getUser().getEmail());
+        assertThat(r.get("totalOrders")).isEqualTo((long) rOrders.size());
+        assertThat((Double) r.get("totalSpent")).isCloseTo(spent, within(0.001));
+        assertThat((Double) r.get("totalPaid")).isCloseTo(paid, within(0.001));
+
+        @SuppressWarnings("unchecked")
+        Map<String, Double> monthly = (Map<String, Double>) analyticsService
+                .getMonthlySales(wholesaler.getUser().getEmail()).get("monthlySales");
+        assertThat(monthly.values().stream().mapToDouble(Double::doubleValue).sum()).isCloseTo(sales, within(0.001));
+    }
+
+    private Order legacyOrder(Wholesaler wholesaler, Retailer retailer, Order.Status status, double total,
+            LocalDateTime placedAt) {
+        return orderRepository.save(Order.builder()
+                .wholesaler(wholesaler)
+                .retailer(retailer)
+                .orderNumber("LEGACY-" + TestData.tag())
+                .status(status)
+                .placedAt(placedAt)
+                .subtotal(total)
+                .taxAmount(0.0)
+                .deliveryCharge(0.0)
+                .totalAmount(total)
+                .build());
+    }
+}
@@ -0,0 +1,175 @@
+package com.diya.backend.service;
+
+import com.diya.backend.dto.OrderCheckoutRequest;
+import com.diya.backend.dto.cart.CartDTO;
+import com.diya.backend.dto.cart.CartItemDTO;
+import com.diya.backend.dto.cart.CartLinesRequest;
+import com.diya.backend.entity.Cart;
+import com.diya.backend.entity.CartItem;
+import com.diya.backend.entity.Product;
+import com.diya.backend.entity.Retailer;
+import com.diya.backend.entity.Wholesaler;
+import com.diya.backend.repository.CartRepository;
+import com.diya.backend.repository.ProductRepository;
+import com.diya.backend.support.TestData;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.entry;
+import static org.assertj.core.api.Assertions.tuple;
+
+@SpringBootTest
+@Import(TestData.class)
+class CartStoreTest {
+
+    @Autowired
+    private TestData data;
+    @Autowired
+    private CartService cartService;
+    @Autowired
+    private CartStore cartStore;
+    @Autowired
+    private OrderService orderService;
+    @Autowired
+    private CartRepository cartRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void burstOfEditsIsWrittenOnce() {
+        Wholesaler wholesaler = data.wholesaler();
+        Retailer retailer = data.connectedRetailer(wholesaler);
+        Product rice = data.product(wholesaler, 50, 10.0);
+        Product dal = data.product(wholesaler, 50, 8.0);
+        UUID retailerId = retailer.getId();
+
+        double edits = counter(CartStore.METRIC_EDITS);
+        double flushes = counter(CartStore.METRIC_FLUSHES);
+
+        // the retailer taps + / - a few times
+        cartService.addItem(retailerId, rice.getId(), 1);
+        for (int i = 0; i < 5; i++) {
+            cartService.addItem(retailerId, rice.getId(), 1);
+        }
+        cartService.updateItem(retailerId, rice.getId(), 3);
+        cartService.addItem(retailerId, dal.getId(), 2);
+        CartDTO shown = cartService.removeItem(retailerId, dal.getId());
+
+        assertThat(shown.getItems()).extracting(CartItemDTO::getProductId, CartItemDTO::getQuantity)
+                .containsExactly(tuple(rice.getId(), 3));
+        assertThat(shown.getTotalAmount()).isEqualTo(30.0);
+        assertThat(counter(CartStore.METRIC_EDITS)).isEqualTo(edits + 9);
+        // nothing written yet
+        assertThat(cartRepository.findByRetailerIdAndWholesalerId(retailerId, wholesaler.getId())).isEmpty();
+
+        cartStore.flush(retailerId, wholesaler.getId());
+        cartStore.flush(retailerId, wholesaler.getId()); // nothing left to write
+
+        assertThat(counter(CartStore.METRIC_FLUSHES)).isEqualTo(flushes + 1);
+        assertThat(storedLines(retailerId, wholesaler.getId())).containsOnly(entry(rice.getId(), 3));
+        CartDTO cart = cartService.getCart(retailerId, wholesaler.getId());
+        assertThat(cart.getId()).isNotNull();
+        assertThat(cart.getItems().get(0).getId()).isNotNull();
+    }
+
+    @Test
+    void setLinesAppliesTheWholeDiffAndCheckoutOrdersIt() {
+        Wholesaler wholesaler = data.wholesaler();
+        Retailer retailer = data.connectedRetailer(wholesaler);
+        Product rice = data.product(wholesaler, 50, 10.0);
+        Product dal = data.product(wholesaler, 50, 8.0);
+        Product oil = data.product(wholesaler, 50, 99.0);
+        Product foreign = data.product(data.wholesaler(), 50, 5.0);
+        data.cart(retailer, wholesaler, rice, 2); // saved earlier, on another device
+        UUID retailerId = retailer.getId();
+
+        CartDTO cart = cartService.setLines(retailerId, new CartLinesRequest(wholesaler.getId(), List.of(
+                new CartLinesRequest.Line(dal.getId(), 1),
+                new CartLinesRequest.Line(oil.getId(), 2),
+                new CartLinesRequest.Line(rice.getId(), 5),
+                new CartLinesRequest.Line(dal.getId(), 4)), false));
+        assertThat(lines(cart)).containsOnly(entry(rice.getId(), 5), entry(dal.getId(), 4), entry(oil.getId(), 2));
+
+        // a bad line rejects the whole request
+        assertThatThrownBy(() -> cartService.setLines(retailerId, new CartLinesRequest(wholesaler.getId(), List.of(
+                new CartLinesRequest.Line(rice.getId(), 0),
+                new CartLinesRequest.Line(foreign.getId(), 1)), false)))
+                .hasMessage("Product does not belong to this wholesaler");
+
+        cart = cartService.setLines(retailerId, new CartLinesRequest(wholesaler.getId(), List.of(
+                new CartLinesRequest.Line(dal.getId(), 4),
+                new CartLinesRequest.Line(oil.getId(), 0)), true));
+        assertThat(lines(cart)).containsOnly(entry(dal.getId(), 4));
+
+        // checkout writes the pending lines first
+        orderService.checkoutFromCart(retailer.getUser().getEmail(), OrderCheckoutRequest.builder()
+                .wholesalerId(wholesaler.getId().toString())
+                .build());
+
+        assertThat(productRepository.findById(dal.getId()).orElseThrow().getReservedStock()).isEqualTo(4);
+        assertThat(productRepository.findById(rice.getId()).orElseThrow().getReservedStock()).isZero();
+        assertThat(productRepository.findById(oil.getId()).orElseThrow().getReservedStock()).isZero();
+        assertThat(cartService.getCart(retailerId, wholesaler.getId()).getItems()).isEmpty();
+        assertThat(storedLines(retailerId, wholesaler.getId())).isEmpty();
+    }
+
+    @Test
+    void editsMadeWhileCheckoutCommitsAreKept() {
+        Wholesaler wholesaler = data.wholesaler();
+        Retailer retailer = data.connectedRetailer(wholesaler);
+        Product rice = data.product(wholesaler, 50, 10.0);
+        Product dal = data.product(wholesaler, 50, 8.0);
+        UUID retailerId = retailer.getId();
+
+        cartService.addItem(retailerId, rice.getId(), 2);
+        cartStore.flush(retailerId, wholesaler.getId());
+
+        // checkout (flushed rice, ordered it) commits while the retailer adds dal
+        transactionTemplate.executeWithoutResult(tx -> {
+            cartStore.invalidateAfterCommit(retailerId, wholesaler.getId());
+            cartService.addItem(retailerId, dal.getId(), 1);
+        });
+
+        assertThat(lines(cartService.getCart(retailerId, wholesaler.getId())))
+                .containsOnly(entry(dal.getId(), 1));
+        cartStore.flush(retailerId, wholesaler.getId());
+        assertThat(storedLines(retailerId, wholesaler.getId())).containsEntry(dal.getId(), 1);
+
+        // nothing pending: the copy is dropped and reloaded from the rows
+        transactionTemplate.executeWithoutResult(tx -> cartStore.invalidateAfterCommit(retailerId,
+                wholesaler.getId()));
+        assertThat(lines(cartService.getCart(retailerId, wholesaler.getId())))
+                .containsOnly(entry(rice.getId(), 2), entry(dal.getId(), 1));
+    }
+
+    private Map<UUID, Integer> storedLines(UUID retailerId, UUID wholesalerId) {
+        return transactionTemplate.execute(tx -> cartRepository.findWithItems(retailerId, wholesalerId)
+                .map(Cart::getItems)
+                .orElse(List.of())
+                .stream()
+                .collect(Collectors.toMap(i -> i.getProduct().getId(), CartItem::getQuantity)));
+    }
+
+    private static Map<UUID, Integer> lines(CartDTO cart) {
+        return cart.getItems().stream().collect(Collectors.toMap(CartItemDTO::getProductId, CartItemDTO::getQuantity));
+    }
+
+    private double counter(String name) {
+        return meterRegistry.get(name).counter().count();
+    }
+}
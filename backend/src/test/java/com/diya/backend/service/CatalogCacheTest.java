@@ -0,0 +1,137 @@
+package com.diya.backend.service;
+
+import com.diya.backend.dto.OrderCheckoutRequest;
+import com.diya.backend.dto.product.ProductResponseDTO;
+import com.diya.backend.dto.product.ProductUpdateRequest;
+import com.diya.backend.entity.Category;
+import com.diya.backend.entity.Product;
+import com.diya.backend.entity.Retailer;
+import com.diya.backend.entity.Wholesaler;
+import com.diya.backend.repository.ProductRepository;
+import com.diya.backend.support.TestData;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Import(TestData.class)
+class CatalogCacheTest {
+
+    @Autowired
+    private TestData data;
+    @Autowired
+    private ProductService productService;
+    @Autowired
+    private OrderService orderService;
+    @Autowired
+    private CatalogCache catalogCache;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void pagesAreServedFromCacheAndEvictedOnlyWhereProductsChanged() {
+        Wholesaler wholesaler = data.wholesaler();
+        Retailer retailer = data.connectedRetailer(wholesaler);
+        String retailerLogin = retailer.getUser().getEmail();
+        Product rice = product(wholesaler, data.category(wholesaler));
+        Product dal = product(wholesaler, data.category(wholesaler));
+
+        // first visit fills, second is a hit
+        assertThat(page(retailerLogin, wholesaler, rice).getContent()).extracting(ProductResponseDTO::getStock)
+                .containsExactly(50);
+        page(retailerLogin, wholesaler, dal);
+        long hits = catalogCache.stats().hitCount();
+        long misses = catalogCache.stats().missCount();
+        page(retailerLogin, wholesaler, rice);
+        page(retailerLogin, wholesaler, dal);
+        assertThat(catalogCache.stats().hitCount()).isEqualTo(hits + 2);
+        assertThat(catalogCache.stats().missCount()).isEqualTo(misses);
+
+        // accepting an order for dal drops only dal's page
+        data.cart(retailer, wholesaler, dal, 5);
+        UUID orderId = orderService.checkoutFromCart(retailerLogin, OrderCheckoutRequest.builder()
+                .wholesalerId(wholesaler.getId().toString())
+                .build()).getOrderId();
+        orderService.wholesalerUpdateOrderStatus(wholesaler.getUser().getEmail(), orderId, "ACCEPTED");
+
+        misses = catalogCache.stats().missCount();
+        assertThat(page(retailerLogin, wholesaler, dal).getContent()).extracting(ProductResponseDTO::getStock)
+                .containsExactly(45);
+        assertThat(catalogCache.stats().missCount()).isEqualTo(misses + 1);
+        page(retailerLogin, wholesaler, rice);
+        assertThat(catalogCache.stats().missCount()).isEqualTo(misses + 1);
+
+        // a product edit drops every page of the wholesaler
+        ProductUpdateRequest rename = new ProductUpdateRequest();
+        rename.setName("Basmati Rice");
+        productService.updateProduct(wholesaler.getUser().getEmail(), "EMAIL", rice.getId(), rename);
+
+        assertThat(page(retailerLogin, wholesaler, rice).getContent()).extracting(ProductResponseDTO::getName)
+                .containsExactly("Basmati Rice");
+        page(retailerLogin, wholesaler, dal);
+        assertThat(catalogCache.stats().missCount()).isEqualTo(misses + 3);
+    }
+
+    @Test
+    void hitRateIsPublishedAsCacheMetrics() {
+        Wholesaler wholesaler = data.wholesaler();
+        Retailer retailer = data.connectedRetailer(wholesaler);
+        Product product = product(wholesaler, data.category(wholesaler));
+
+        double before = hits();
+        page(retailer.getUser().getEmail(), wholesaler, product);
+        page(retailer.getUser().getEmail(), wholesaler, product);
+
+        assertThat(hits()).isEqualTo(before + 1);
+        assertThat(meterRegistry.get("cache.size").tag("cache", CatalogCache.METRIC_NAME).gauge().value())
+                .isGreaterThan(0);
+    }
+
+    @Test
+    void oversizedPagesAreClampedBeforeTheyAreCached() {
+        Wholesaler wholesaler = data.wholesaler();
+        Retailer retailer = data.connectedRetailer(wholesaler);
+        Product product = product(wholesaler, data.category(wholesaler));
+        String login = retailer.getUser().getEmail();
+
+        Page<ProductResponseDTO> huge = productService.listRetailerProducts(login, wholesaler.getId(), null,
+                product.getCategory().getId(), null, 0, 1_000_000);
+        assertThat(huge.getSize()).isEqualTo(100);
+
+        // same entry as an honest size=100 request
+        long hits = catalogCache.stats().hitCount();
+        productService.listRetailerProducts(login, wholesaler.getId(), null, product.getCategory().getId(), null,
+                0, 100);
+        assertThat(catalogCache.stats().hitCount()).isEqualTo(hits + 1);
+
+        assertThat(productService.listRetailerProducts(login, wholesaler.getId(), null,
+                product.getCategory().getId(), null, 0, 0).getSize()).isEqualTo(1);
+    }
+
+    private double hits() {
+        return meterRegistry.get("cache.gets")
+                .tag("cache", CatalogCache.METRIC_NAME)
+                .tag("result", "hit")
+                .functionCounter().count();
+    }
+
+    private Page<ProductResponseDTO> page(String retailerLogin, Wholesaler wholesaler, Product product) {
+        return productService.listRetailerProducts(retailerLogin, wholesaler.getId(), null,
+                product.getCategory().getId(), null, 0, 20);
+    }
+
+    private Product product(Wholesaler wholesaler, Category category) {
+        Product product = data.product(wholesaler, 50, 10.0);
+        product.setCategory(category);
+        return productRepository.save(product);
+    }
+}
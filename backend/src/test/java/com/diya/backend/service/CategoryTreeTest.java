@@ -0,0 +1,130 @@
+package com.diya.backend.service;
+
+import com.diya.backend.dto.category.CategoryCreateRequest;
+import com.diya.backend.dto.category.CategoryTreeDTO;
+import com.diya.backend.dto.category.SubCategoryCreateRequest;
+import com.diya.backend.entity.Category;
+import com.diya.backend.entity.Product;
+import com.diya.backend.entity.SubCategory;
+import com.diya.backend.entity.Wholesaler;
+import com.diya.backend.repository.ProductRepository;
+import com.diya.backend.support.TestData;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Import(TestData.class)
+class CategoryTreeTest {
+
+    @Autowired
+    private TestData data;
+    @Autowired
+    private CategoryService categoryService;
+    @Autowired
+    private SubCategoryService subCategoryService;
+    @Autowired
+    private PrincipalResolver principalResolver;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void buildsTheNestedTreeWithRolledUpCountsInThreeQueries() {
+        Wholesaler wholesaler = data.wholesaler();
+        String login = wholesaler.getUser().getEmail();
+
+        Category grocery = categoryService.createCategory(login, "EMAIL", category("Grocery"));
+        Category dairy = categoryService.createCategory(login, "EMAIL", category("Dairy"));
+        SubCategory pulses = subCategoryService.createSubCategory(login, "EMAIL", sub(grocery.getId(), null, "Pulses"));
+        SubCategory dal = subCategoryService.createSubCategory(login, "EMAIL", sub(null, pulses.getId(), "Dal"));
+        SubCategory toor = subCategoryService.createSubCategory(login, "EMAIL", sub(null, dal.getId(), "Toor"));
+        subCategoryService.createSubCategory(login, "EMAIL", sub(grocery.getId(), null, "Atta"));
+
+        product(wholesaler, grocery, null);
+        product(wholesaler, grocery, pulses);
+        product(wholesaler, grocery, toor);
+        product(wholesaler, grocery, toor);
+        product(wholesaler, dairy, null);
+
+        principalResolver.wholesalerId(login); // resolver cache warm; not part of the tree cost
+        Statistics stats = statistics();
+        stats.clear();
+        List<CategoryTreeDTO> tree = categoryService.getCategoryTree(login, "EMAIL");
+        assertThat(stats.getPrepareStatementCount()).isEqualTo(3);
+
+        assertThat(tree).extracting(CategoryTreeDTO::getName).containsExactly("Dairy", "Grocery");
+        assertThat(tree).extracting(CategoryTreeDTO::getProductCount).containsExactly(1L, 4L);
+
+        CategoryTreeDTO groceryNode = tree.get(1);
+        assertThat(groceryNode.getSubcategories()).extracting(CategoryTreeDTO.SubNode::getName)
+                .containsExactly("Atta", "Pulses");
+        CategoryTreeDTO.SubNode pulsesNode = groceryNode.getSubcategories().get(1);
+        assertThat(pulsesNode.getProductCount()).isEqualTo(3);
+        CategoryTreeDTO.SubNode dalNode = pulsesNode.getChildren().get(0);
+        assertThat(dalNode.getName()).isEqualTo("Dal");
+        assertThat(dalNode.getProductCount()).isEqualTo(2);
+        assertThat(dalNode.getChildren()).singleElement().satisfies(t -> {
+            assertThat(t.getName()).isEqualTo("Toor");
+            assertThat(t.getProductCount()).isEqualTo(2);
+            assertThat(t.getChildren()).isEmpty();
+        });
+
+        // cached
+        stats.clear();
+        categoryService.getCategoryTree(login, "EMAIL");
+        assertThat(stats.getPrepareStatementCount()).isZero();
+    }
+
+    @Test
+    void writesEvictTheCachedTree() {
+        Wholesaler wholesaler = data.wholesaler();
+        String login = wholesaler.getUser().getEmail();
+        Category grocery = categoryService.createCategory(login, "EMAIL", category("Grocery"));
+        assertThat(categoryService.getCategoryTree(login, "EMAIL")).singleElement()
+                .satisfies(c -> assertThat(c.getSubcategories()).isEmpty());
+
+        subCategoryService.createSubCategory(login, "EMAIL", sub(grocery.getId(), null, "Rice"));
+        assertThat(categoryService.getCategoryTree(login, "EMAIL").get(0).getSubcategories())
+                .extracting(CategoryTreeDTO.SubNode::getName).containsExactly("Rice");
+
+        categoryService.createCategory(login, "EMAIL", category("Beverages"));
+        assertThat(categoryService.getCategoryTree(login, "EMAIL")).extracting(CategoryTreeDTO::getName)
+                .containsExactly("Beverages", "Grocery");
+    }
+
+    private void product(Wholesaler wholesaler, Category category, SubCategory sub) {
+        Product product = data.product(wholesaler, 10, 5.0);
+        product.setCategory(category);
+        product.setSubcategory(sub);
+        productRepository.save(product);
+    }
+
+    private static CategoryCreateRequest category(String name) {
+        CategoryCreateRequest req = new CategoryCreateRequest();
+        req.setName(name);
+        return req;
+    }
+
+    private static SubCategoryCreateRequest sub(UUID categoryId, UUID parentId, String name) {
+        SubCategoryCreateRequest req = new SubCategoryCreateRequest();
+        req.setCategoryId(categoryId);
+        req.setParentSubId(parentId);
+        req.setName(name);
+        return req;
+    }
+
+    private Statistics statistics() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+}
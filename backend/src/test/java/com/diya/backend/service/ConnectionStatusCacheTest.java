@@ -0,0 +1,81 @@
+package com.diya.backend.service;
+
+import com.diya.backend.dto.connection.ConnectionResponseDTO;
+import com.diya.backend.entity.Connection;
+import com.diya.backend.entity.Retailer;
+import com.diya.backend.entity.Wholesaler;
+import com.diya.backend.support.TestData;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@Import(TestData.class)
+class ConnectionStatusCacheTest {
+
+    @Autowired
+    private TestData data;
+    @Autowired
+    private ConnectionService connectionService;
+    @Autowired
+    private ConnectionStatusCache connectionStatusCache;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void approvalIsSeenImmediatelyAndThenServedWithoutSql() {
+        Wholesaler wholesaler = data.wholesaler();
+        Retailer retailer = data.retailer("Retailer " + TestData.tag(), "Hyderabad");
+
+        assertThatThrownBy(() -> connectionService.ensureRetailerConnectedToWholesaler(retailer, wholesaler))
+                .hasMessage("No connection with wholesaler");
+
+        ConnectionResponseDTO request = connectionService.requestConnection(retailer.getUser().getEmail(),
+                wholesaler.getId());
+        assertThatThrownBy(() -> connectionService.ensureRetailerConnectedToWholesaler(retailer, wholesaler))
+                .hasMessage("Connection not approved");
+
+        connectionService.updateConnectionStatus(wholesaler.getUser().getEmail(), "EMAIL", request.id,
+                Connection.Status.APPROVED);
+        connectionService.ensureRetailerConnectedToWholesaler(retailer, wholesaler);
+
+        Statistics stats = statistics();
+        stats.clear();
+        connectionService.ensureRetailerConnectedToWholesaler(retailer.getId(), wholesaler.getId());
+        assertThat(stats.getPrepareStatementCount()).isZero();
+    }
+
+    @Test
+    void changesFromOtherNodesArePickedUpBySync() {
+        Wholesaler wholesaler = data.wholesaler();
+        Retailer retailer = data.connectedRetailer(wholesaler);
+        connectionService.ensureRetailerConnectedToWholesaler(retailer, wholesaler); // cached APPROVED
+
+        // answered on another node
+        jdbcTemplate.update("UPDATE connections SET status = 'BLOCKED', responded_at = ? "
+                + "WHERE wholesaler_id = ? AND retailer_id = ?",
+                Timestamp.valueOf(LocalDateTime.now()), wholesaler.getId(), retailer.getId());
+        connectionService.ensureRetailerConnectedToWholesaler(retailer, wholesaler);
+
+        assertThat(connectionStatusCache.sync()).isPositive();
+        assertThatThrownBy(() -> connectionService.ensureRetailerConnectedToWholesaler(retailer, wholesaler))
+                .hasMessage("Connection not approved");
+    }
+
+    private Statistics statistics() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+}
@@ -0,0 +1,121 @@
+package com.diya.backend.service;
+
+import com.diya.backend.dto.dashboard.DashboardKpiDTO;
+import com.diya.backend.entity.LedgerBalance;
+import com.diya.backend.entity.Order;
+import com.diya.backend.entity.Payment;
+import com.diya.backend.entity.Retailer;
+import com.diya.backend.entity.Wholesaler;
+import com.diya.backend.repository.LedgerBalanceRepository;
+import com.diya.backend.repository.OrderRepository;
+import com.diya.backend.repository.PaymentRepository;
+import com.diya.backend.support.TestData;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Import(TestData.class)
+class DashboardKpiTest {
+
+    // wholesaler id lookup + order counts + payments sum + ledger sum
+    private static final long MAX_KPI_STATEMENTS = 4;
+
+    @Autowired
+    private TestData data;
+    @Autowired
+    private DashboardService dashboardService;
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private PaymentRepository paymentRepository;
+    @Autowired
+    private LedgerBalanceRepository ledgerBalanceRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void computesTheTilesWithAggregateQueriesAndCachesThem() {
+        Wholesaler wholesaler = data.wholesaler();
+        Wholesaler other = data.wholesaler();
+        Retailer retailer = data.connectedRetailer(wholesaler);
+        LocalDateTime today = LocalDate.now().atStartOfDay().plusMinutes(1);
+        LocalDateTime yesterday = today.minusDays(1);
+
+        order(wholesaler, retailer, Order.Status.PLACED, today);
+        order(wholesaler, retailer, Order.Status.ACCEPTED, today);
+        order(wholesaler, retailer, Order.Status.PLACED, yesterday);
+        order(wholesaler, retailer, Order.Status.DELIVERED, yesterday);
+        order(other, retailer, Order.Status.PLACED, today);
+
+        payment(wholesaler, retailer, 500.0, Payment.PaymentStatus.CONFIRMED, today);
+        payment(wholesaler, retailer, 250.0, Payment.PaymentStatus.CONFIRMED, today);
+        payment(wholesaler, retailer, 999.0, Payment.PaymentStatus.CONFIRMED, yesterday);
+        payment(wholesaler, retailer, 111.0, Payment.PaymentStatus.PENDING_VERIFICATION, null);
+        payment(other, retailer, 77.0, Payment.PaymentStatus.CONFIRMED, today);
+
+        ledgerBalanceRepository.save(LedgerBalance.builder()
+                .wholesalerId(wholesaler.getId())
+                .retailerId(retailer.getId())
+                .balance(1200.0)
+                .entryCount(3L)
+                .updatedAt(LocalDateTime.now())
+                .build());
+
+        String login = wholesaler.getUser().getEmail();
+        Statistics stats = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        stats.clear();
+
+        DashboardKpiDTO kpi = dashboardService.getKpiData(login, "EMAIL");
+
+        assertThat(stats.getPrepareStatementCount()).isLessThanOrEqualTo(MAX_KPI_STATEMENTS);
+        assertThat(kpi.getNewOrdersToday()).isEqualTo(2);
+        assertThat(kpi.getPendingOrders()).isEqualTo(2);
+        assertThat(kpi.getPaymentsReceivedToday()).isEqualTo(750.0);
+        assertThat(kpi.getTotalOutstanding()).isEqualTo(-1200.0);
+
+        // served from the cache within the TTL
+        order(wholesaler, retailer, Order.Status.PLACED, today);
+        stats.clear();
+        assertThat(dashboardService.getKpiData(login, "EMAIL")).isSameAs(kpi);
+        assertThat(stats.getPrepareStatementCount()).isLessThanOrEqualTo(1);
+
+        // a wholesaler with no activity gets zeros, not an error
+        DashboardKpiDTO empty = dashboardService.getKpiData(data.wholesaler().getUser().getEmail(), "EMAIL");
+        assertThat(empty.getNewOrdersToday()).isZero();
+        assertThat(empty.getPendingOrders()).isZero();
+        assertThat(empty.getPaymentsReceivedToday()).isZero();
+    }
+
+    private void order(Wholesaler wholesaler, Retailer retailer, Order.Status status, LocalDateTime placedAt) {
+        orderRepository.save(Order.builder()
+                .wholesaler(wholesaler)
+                .retailer(retailer)
+                .orderNumber("KPI-" + TestData.tag())
+                .status(status)
+                .placedAt(placedAt)
+                .totalAmount(100.0)
+                .build());
+    }
+
+    private void payment(Wholesaler wholesaler, Retailer retailer, double amount, Payment.PaymentStatus status,
+            LocalDateTime confirmedAt) {
+        paymentRepository.save(Payment.builder()
+                .wholesaler(wholesaler)
+                .retailer(retailer)
+                .amount(amount)
+                .mode(Payment.PaymentMode.UPI)
+                .status(status)
+                .confirmedAt(confirmedAt)
+                .build());
+    }
+}
@@ -0,0 +1,127 @@
+package com.diya.backend.service;
+
+import com.diya.backend.dto.dashboard.AreaDTO;
+import com.diya.backend.dto.dashboard.TerritoryDTO;
+import com.diya.backend.entity.Connection;
+import com.diya.backend.entity.LedgerBalance;
+import com.diya.backend.entity.Order;
+import com.diya.backend.entity.Retailer;
+import com.diya.backend.entity.Wholesaler;
+import com.diya.backend.repository.ConnectionRepository;
+import com.diya.backend.repository.LedgerBalanceRepository;
+import com.diya.backend.repository.OrderRepository;
+import com.diya.backend.repository.RetailerRepository;
+import com.diya.backend.support.TestData;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@SpringBootTest
+@Import(TestData.class)
+class DashboardTerritoryTest {
+
+    @Autowired
+    private TestData data;
+    @Autowired
+    private DashboardService dashboardService;
+    @Autowired
+    private ConnectionRepository connectionRepository;
+    @Autowired
+    private RetailerRepository retailerRepository;
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private LedgerBalanceRepository ledgerBalanceRepository;
+
+    @Test
+    void groupsTheWholesalersConnectedRetailersByCityAndRanksThem() {
+        Wholesaler wholesaler = data.wholesaler();
+        Wholesaler other = data.wholesaler();
+
+        Retailer hyd1 = connected(wholesaler, "Hyderabad", Connection.Status.APPROVED);
+        Retailer hyd2 = connected(wholesaler, " hyderabad ", Connection.Status.APPROVED);
+        Retailer wgl = connected(wholesaler, "Warangal", Connection.Status.APPROVED);
+        Retailer nowhere = connected(wholesaler, null, Connection.Status.APPROVED);
+        Retailer pending = connected(wholesaler, "Karimnagar", Connection.Status.PENDING);
+        Retailer elsewhere = connected(other, "Nizamabad", Connection.Status.APPROVED);
+        hyd2.setActive(false);
+        retailerRepository.save(hyd2);
+
+        order(wholesaler, hyd1, 1000.0, Order.Status.DELIVERED);
+        order(wholesaler, hyd1, 500.0, Order.Status.PLACED);
+        order(wholesaler, hyd2, 700.0, Order.Status.ACCEPTED);
+        order(wholesaler, hyd2, 9000.0, Order.Status.CANCELLED);
+        order(wholesaler, wgl, 800.0, Order.Status.DELIVERED);
+        order(wholesaler, pending, 5000.0, Order.Status.DELIVERED);
+        order(other, hyd1, 7000.0, Order.Status.DELIVERED);
+        order(other, elsewhere, 3000.0, Order.Status.DELIVERED);
+
+        balance(wholesaler, hyd1, 300.0);
+        balance(wholesaler, hyd2, -100.0); // paid in advance: no risk
+        balance(wholesaler, wgl, 600.0);
+        balance(wholesaler, nowhere, 50.0);
+        balance(other, hyd1, 9999.0);
+
+        TerritoryDTO territory = dashboardService.getTerritoryStats(wholesaler.getUser().getEmail(), "EMAIL");
+
+        assertThat(territory.getTotalRetailers()).isEqualTo(4);
+        assertThat(territory.getActiveRetailers()).isEqualTo(3);
+        assertThat(territory.getTopAreas()).extracting(AreaDTO::getName, AreaDTO::getValue)
+                .containsExactly(tuple("Hyderabad", 2200.0), tuple("Warangal", 800.0));
+        assertThat(territory.getRiskAreas()).extracting(AreaDTO::getName, AreaDTO::getValue)
+                .containsExactly(tuple("Warangal", 600.0), tuple("Hyderabad", 300.0),
+                        tuple(DashboardService.UNKNOWN_AREA, 50.0));
+        assertThat(territory.getTopArea().getName()).isEqualTo("Hyderabad");
+        assertThat(territory.getHighestRiskArea().getName()).isEqualTo("Warangal");
+
+        // cached per wholesaler until the next refresh
+        order(wholesaler, wgl, 5000.0, Order.Status.DELIVERED);
+        assertThat(dashboardService.getTerritoryStats(wholesaler.getUser().getEmail(), "EMAIL")).isSameAs(territory);
+    }
+
+    @Test
+    void aWholesalerWithoutRetailersHasNoAreas() {
+        TerritoryDTO territory = dashboardService.getTerritoryStats(data.wholesaler().getUser().getEmail(), "EMAIL");
+
+        assertThat(territory.getTotalRetailers()).isZero();
+        assertThat(territory.getTopArea()).isNull();
+        assertThat(territory.getHighestRiskArea()).isNull();
+        assertThat(territory.getTopAreas()).isEmpty();
+    }
+
+    private Retailer connected(Wholesaler wholesaler, String city, Connection.Status status) {
+        Retailer retailer = data.retailer("Retailer " + TestData.tag(), city);
+        connectionRepository.save(Connection.builder()
+                .wholesaler(wholesaler)
+                .retailer(retailer)
+                .status(status)
+                .build());
+        return retailer;
+    }
+
+    private void order(Wholesaler wholesaler, Retailer retailer, double total, Order.Status status) {
+        orderRepository.save(Order.builder()
+                .wholesaler(wholesaler)
+                .retailer(retailer)
+                .orderNumber("TER-" + TestData.tag())
+                .status(status)
+                .totalAmount(total)
+                .build());
+    }
+
+    private void balance(Wholesaler wholesaler, Retailer retailer, double balance) {
+        ledgerBalanceRepository.save(LedgerBalance.builder()
+                .wholesalerId(wholesaler.getId())
+                .retailerId(retailer.getId())
+                .balance(balance)
+                .entryCount(1L)
+                .updatedAt(LocalDateTime.now())
+                .build());
+    }
+}
@@ -0,0 +1,112 @@
+package com.diya.backend.service;
+
+import com.diya.backend.dto.OrderCheckoutRequest;
+import com.diya.backend.entity.LedgerEntry;
+import com.diya.backend.entity.Order;
+import com.diya.backend.entity.Retailer;
+import com.diya.backend.entity.Wholesaler;
+import com.diya.backend.repository.LedgerEntryRepository;
+import com.diya.backend.support.TestData;
+import com.diya.backend.util.ExportWriter;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Import(TestData.class)
+class ExportServiceTest {
+
+    @Autowired
+    private TestData data;
+    @Autowired
+    private ExportService exportService;
+    @Autowired
+    private LedgerEntryRepository ledgerEntryRepository;
+    @Autowired
+    private OrderService orderService;
+
+    @Test
+    void ledgerExportIsChronologicalQuotedAndFiltered() throws Exception {
+        Wholesaler wholesaler = data.wholesaler();
+        Retailer retailer = data.connectedRetailer(wholesaler);
+        LocalDateTime base = LocalDate.now().minusDays(5).atTime(9, 0);
+
+        // backdated, so saved directly (post() stamps the current time)
+        ledgerEntryRepository.save(entry(wholesaler, retailer, LedgerEntry.EntryType.DEBIT, 100.0, 100.0, base,
+                "Opening, \"old\" dues"));
+        ledgerEntryRepository.save(entry(wholesaler, retailer, LedgerEntry.EntryType.CREDIT, 40.0, 60.0,
+                base.plusDays(2), "UPI"));
+        ledgerEntryRepository.save(entry(wholesaler, retailer, LedgerEntry.EntryType.CREDIT, 10.0, 50.0,
+                base.plusDays(4), "=HYPERLINK(\"http://x\")"));
+
+        List<String> csv = lines(ledger(wholesaler, null, null, ExportWriter.Format.CSV));
+        assertThat(csv).hasSize(4);
+        assertThat(csv.get(0)).isEqualTo("entryDate,entryType,amount,balanceAfter,retailer,orderNumber,description");
+        assertThat(csv.get(1)).contains(",DEBIT,100.0,100.0,").endsWith(",\"Opening, \"\"old\"\" dues\"");
+        assertThat(csv.get(3)).contains(",CREDIT,10.0,50.0,").endsWith(",\"'=HYPERLINK(\"\"http://x\"\")\"");
+
+        List<String> ndjson = lines(ledger(wholesaler, base.toLocalDate().plusDays(1), LedgerEntry.EntryType.CREDIT,
+                ExportWriter.Format.NDJSON));
+        assertThat(ndjson).hasSize(2);
+        JsonNode first = new ObjectMapper().readTree(ndjson.get(0));
+        assertThat(first.get("entryType").asText()).isEqualTo("CREDIT");
+        assertThat(first.get("amount").asDouble()).isEqualTo(40.0);
+        assertThat(first.get("retailer").asText()).isEqualTo(retailer.getShopName());
+    }
+
+    @Test
+    void orderExportFiltersByStatus() {
+        Wholesaler wholesaler = data.wholesaler();
+        Retailer retailer = data.connectedRetailer(wholesaler);
+        data.cart(retailer, wholesaler, data.product(wholesaler, 10, 20.0), 2);
+        String orderNumber = orderService.checkoutFromCart(retailer.getUser().getEmail(),
+                OrderCheckoutRequest.builder().wholesalerId(wholesaler.getId().toString()).build())
+                .getOrderNumber();
+
+        ByteArrayOutputStream placed = new ByteArrayOutputStream();
+        exportService.writeWholesalerOrders(wholesaler.getId(), Order.Status.PLACED, null, null, ExportWriter.Format.CSV,
+                placed);
+        assertThat(lines(placed)).hasSize(2);
+        assertThat(lines(placed).get(1)).startsWith(orderNumber + ",").contains(",PLACED,UNPAID,");
+
+        ByteArrayOutputStream delivered = new ByteArrayOutputStream();
+        exportService.writeWholesalerOrders(wholesaler.getId(), Order.Status.DELIVERED, null, null, ExportWriter.Format.CSV,
+                delivered);
+        assertThat(lines(delivered)).hasSize(1); // header only
+    }
+
+    private ByteArrayOutputStream ledger(Wholesaler wholesaler, LocalDate from, LedgerEntry.EntryType type,
+            ExportWriter.Format format) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.writeWholesalerLedger(wholesaler.getId(), null, from, null, type, format, out);
+        return out;
+    }
+
+    private static List<String> lines(ByteArrayOutputStream out) {
+        return out.toString(StandardCharsets.UTF_8).lines().toList();
+    }
+
+    private static LedgerEntry entry(Wholesaler wholesaler, Retailer retailer, LedgerEntry.EntryType type,
+            double amount, double balanceAfter, LocalDateTime at, String description) {
+        return LedgerEntry.builder()
+                .wholesaler(wholesaler)
+                .retailer(retailer)
+                .entryType(type)
+                .amount(amount)
+                .balanceAfter(balanceAfter)
+                .description(description)
+                .entryDate(at)
+                .build();
+    }
+}
@@ -0,0 +1,139 @@
+package com.diya.backend.service;
+
+import com.diya.backend.entity.LedgerBalance;
+import com.diya.backend.entity.LedgerEntry;
+import com.diya.backend.entity.Retailer;
+import com.diya.backend.entity.Wholesaler;
+import com.diya.backend.repository.LedgerBalanceRepository;
+import com.diya.backend.repository.LedgerEntryRepository;
+import com.diya.backend.support.TestData;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+@SpringBootTest
+@Import(TestData.class)
+class LedgerBalanceTest {
+
+    @Autowired
+    private TestData data;
+    @Autowired
+    private LedgerService ledgerService;
+    @Autowired
+    private LedgerReconciliationService reconciliationService;
+    @Autowired
+    private LedgerEntryRepository ledgerEntryRepository;
+    @Autowired
+    private LedgerBalanceRepository ledgerBalanceRepository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void postingSeedsFromHistoryAndReconciliationBackfillsRunningBalances() {
+        Wholesaler wholesaler = data.wholesaler();
+        Retailer retailer = data.connectedRetailer(wholesaler);
+
+        // history written before ledger_balances existed
+        LocalDateTime start = LocalDateTime.now().minusDays(3);
+        ledgerEntryRepository.save(entry(wholesaler, retailer, LedgerEntry.EntryType.DEBIT, 100.0, start));
+        ledgerEntryRepository.save(entry(wholesaler, retailer, LedgerEntry.EntryType.CREDIT, 30.0,
+                start.plusDays(1)));
+        assertThat(ledgerService.getOutstandingForPair(wholesaler, retailer)).isCloseTo(70.0, within(0.001));
+
+        LedgerEntry posted = ledgerService.post(entry(wholesaler, retailer, LedgerEntry.EntryType.DEBIT, 50.0,
+                LocalDateTime.now()));
+        assertThat(posted.getBalanceAfter()).isCloseTo(120.0, within(0.001));
+        assertThat(ledgerService.getOutstandingForPair(wholesaler, retailer)).isCloseTo(120.0, within(0.001));
+
+        reconciliationService.reconcile();
+
+        List<LedgerEntry> statement = ledgerService.getStatementForPair(wholesaler, retailer, null, 50).getEntries();
+        assertThat(statement).extracting(LedgerEntry::getBalanceAfter)
+                .containsExactly(120.0, 70.0, 100.0); // latest first
+        assertThat(balance(wholesaler, retailer).getEntryCount()).isEqualTo(3L);
+
+        // drifted row is put back
+        transactionTemplate.executeWithoutResult(tx -> ledgerBalanceRepository.overwrite(
+                wholesaler.getId(), retailer.getId(), 999.0, 3, LocalDateTime.now()));
+        reconciliationService.reconcile();
+        assertThat(balance(wholesaler, retailer).getBalance()).isCloseTo(120.0, within(0.001));
+
+        // so is a wrong running balance, even when the pair total still matches
+        jdbcTemplate.update("UPDATE ledger_entries SET balance_after = 5.0 WHERE id = ?", statement.get(1).getId());
+        assertThat(reconciliationService.reconcile().pairsRepaired()).isPositive();
+        assertThat(ledgerService.getStatementForPair(wholesaler, retailer, null, 50).getEntries())
+                .extracting(LedgerEntry::getBalanceAfter)
+                .containsExactly(120.0, 70.0, 100.0);
+    }
+
+    @Test
+    void concurrentPostingsGetDistinctRunningBalances() throws Exception {
+        Wholesaler wholesaler = data.wholesaler();
+        Retailer retailer = data.connectedRetailer(wholesaler);
+        int postings = 32;
+
+        ExecutorService pool = Executors.newFixedThreadPool(postings);
+        CountDownLatch go = new CountDownLatch(1);
+        List<Future<LedgerEntry>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < postings; i++) {
+                futures.add(pool.submit(() -> {
+                    go.await();
+                    return ledgerService.post(entry(wholesaler, retailer, LedgerEntry.EntryType.DEBIT, 1.0,
+                            LocalDateTime.now()));
+                }));
+            }
+            go.countDown();
+
+            List<Double> running = new ArrayList<>();
+            for (Future<LedgerEntry> f : futures) {
+                running.add(f.get().getBalanceAfter());
+            }
+
+            assertThat(running).doesNotHaveDuplicates().hasSize(postings);
+            assertThat(running).allSatisfy(b -> assertThat(b).isBetween(1.0, (double) postings));
+            assertThat(balance(wholesaler, retailer).getBalance()).isCloseTo(postings, within(0.001));
+
+            // entry dates are stamped under the pair lock, so the statement order is the running order
+            assertThat(ledgerService.getStatementForPair(wholesaler, retailer, null, postings).getEntries())
+                    .extracting(LedgerEntry::getBalanceAfter)
+                    .isSortedAccordingTo(Comparator.reverseOrder());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private LedgerBalance balance(Wholesaler wholesaler, Retailer retailer) {
+        return ledgerBalanceRepository.findByWholesalerIdAndRetailerId(wholesaler.getId(), retailer.getId())
+                .orElseThrow();
+    }
+
+    private static LedgerEntry entry(Wholesaler wholesaler, Retailer retailer, LedgerEntry.EntryType type,
+            double amount, LocalDateTime at) {
+        return LedgerEntry.builder()
+                .wholesaler(wholesaler)
+                .retailer(retailer)
+                .entryType(type)
+                .amount(amount)
+                .description("test " + type)
+                .entryDate(at)
+                .build();
+    }
+}
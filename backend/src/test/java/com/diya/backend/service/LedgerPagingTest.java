@@ -0,0 +1,95 @@
+package com.diya.backend.service;
+
+import com.diya.backend.dto.ledger.LedgerPageDTO;
+import com.diya.backend.entity.LedgerEntry;
+import com.diya.backend.entity.Retailer;
+import com.diya.backend.entity.Wholesaler;
+import com.diya.backend.repository.LedgerEntryRepository;
+import com.diya.backend.support.TestData;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Import(TestData.class)
+class LedgerPagingTest {
+
+    @Autowired
+    private TestData data;
+    @Autowired
+    private LedgerService ledgerService;
+    @Autowired
+    private LedgerEntryRepository ledgerEntryRepository;
+
+    @Test
+    void walksAllPagesNewestFirstWithSqlDateAndTypeFilters() {
+        Wholesaler wholesaler = data.wholesaler();
+        Retailer retailer = data.connectedRetailer(wholesaler);
+        LocalDate today = LocalDate.now();
+
+        // 10 days, two entries on each day at the same instant (tie broken by id)
+        List<LedgerEntry> all = new ArrayList<>();
+        for (int day = 0; day < 10; day++) {
+            for (LedgerEntry.EntryType type : LedgerEntry.EntryType.values()) {
+                all.add(ledgerEntryRepository.save(LedgerEntry.builder()
+                        .wholesaler(wholesaler)
+                        .retailer(retailer)
+                        .entryType(type)
+                        .amount(10.0 + day)
+                        .entryDate(today.minusDays(day).atTime(10, 0))
+                        .build()));
+            }
+        }
+        // database UUID order is unsigned byte order (= hex string order), not UUID.compareTo
+        all.sort(Comparator.comparing(LedgerEntry::getEntryDate)
+                .thenComparing(e -> e.getId().toString())
+                .reversed());
+
+        String login = wholesaler.getUser().getEmail();
+
+        assertThat(collect(login, null, null, null, 3)).containsExactlyElementsOf(ids(all));
+
+        // inclusive calendar-day range, type filter
+        LocalDate from = today.minusDays(6);
+        LocalDate to = today.minusDays(2);
+        List<UUID> expected = all.stream()
+                .filter(e -> e.getEntryType() == LedgerEntry.EntryType.CREDIT)
+                .filter(e -> !e.getEntryDate().toLocalDate().isBefore(from))
+                .filter(e -> !e.getEntryDate().toLocalDate().isAfter(to))
+                .map(LedgerEntry::getId)
+                .toList();
+        assertThat(expected).hasSize(5);
+        assertThat(collect(login, from, to, "credit", 2)).containsExactlyElementsOf(expected);
+
+        // retailer view and pair statement use the same paging
+        LedgerPageDTO first = ledgerService.getRetailerLedger(retailer.getUser().getEmail(), null, null, null, null, 5);
+        assertThat(first.getEntries()).hasSize(5);
+        assertThat(first.getNextCursor()).isNotNull();
+        assertThat(ledgerService.getStatementForPair(wholesaler, retailer, null, 100).getNextCursor()).isNull();
+    }
+
+    private List<UUID> collect(String login, LocalDate from, LocalDate to, String type, int size) {
+        List<UUID> ids = new ArrayList<>();
+        String cursor = null;
+        do {
+            LedgerPageDTO page = ledgerService.getWholesalerLedger(login, from, to, type, cursor, size);
+            assertThat(page.getEntries().size()).isLessThanOrEqualTo(size);
+            ids.addAll(ids(page.getEntries()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return ids;
+    }
+
+    private static List<UUID> ids(List<LedgerEntry> entries) {
+        return entries.stream().map(LedgerEntry::getId).toList();
+    }
+}
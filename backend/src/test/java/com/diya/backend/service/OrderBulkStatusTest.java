@@ -0,0 +1,141 @@
+package com.diya.backend.service;
+
+import com.diya.backend.dto.OrderCheckoutRequest;
+import com.diya.backend.dto.order.OrderBulkStatusRequest;
+import com.diya.backend.dto.order.OrderBulkStatusResultDTO;
+import com.diya.backend.entity.Order;
+import com.diya.backend.entity.Product;
+import com.diya.backend.entity.Retailer;
+import com.diya.backend.entity.Wholesaler;
+import com.diya.backend.repository.OrderRepository;
+import com.diya.backend.repository.ProductRepository;
+import com.diya.backend.support.TestData;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@SpringBootTest
+@Import(TestData.class)
+class OrderBulkStatusTest {
+
+    @Autowired
+    private TestData data;
+    @Autowired
+    private OrderService orderService;
+    @Autowired
+    private CartService cartService;
+    @Autowired
+    private AnalyticsService analyticsService;
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Test
+    void acceptsEveryOrderThatStillFitsAndReportsTheRest() {
+        Wholesaler wholesaler = data.wholesaler();
+        String wholesalerLogin = wholesaler.getUser().getEmail();
+        Product rice = data.product(wholesaler, 20, 10.0);
+        Product dal = data.product(wholesaler, 10, 8.0);
+
+        UUID first = checkout(wholesaler, rice, 5, dal, 3);
+        UUID second = checkout(wholesaler, rice, 5, dal, 3);
+        UUID third = checkout(wholesaler, rice, 5, dal, 3);
+        UUID foreign = checkout(data.wholesaler(), null, 0, null, 0);
+        UUID missing = UUID.randomUUID();
+        analyticsService.getWholesalerSummary(wholesalerLogin); // rollups seeded
+
+        // 3 dal sold over the counter after checkout: only two orders can still be served
+        dal = productRepository.findById(dal.getId()).orElseThrow();
+        dal.setStock(7);
+        productRepository.save(dal);
+
+        OrderBulkStatusResultDTO result = orderService.wholesalerBulkUpdateOrderStatus(wholesalerLogin,
+                new OrderBulkStatusRequest(List.of(first, second, third, missing, foreign, first), "accepted"));
+
+        assertThat(result.getStatus()).isEqualTo("ACCEPTED");
+        assertThat(result.getSucceeded()).isEqualTo(2);
+        assertThat(result.getFailed()).isEqualTo(3);
+        assertThat(result.getResults())
+                .extracting(OrderBulkStatusResultDTO.Outcome::getOrderId, OrderBulkStatusResultDTO.Outcome::isSuccess,
+                        OrderBulkStatusResultDTO.Outcome::getMessage)
+                .containsExactly(
+                        tuple(first, true, null),
+                        tuple(second, true, null),
+                        tuple(third, false, "Stock insufficient at acceptance for: " + dal.getName()),
+                        tuple(missing, false, "Order not found"),
+                        tuple(foreign, false, "Order not found"));
+        assertThat(result.getResults().get(0).getOrderNumber()).isNotBlank();
+
+        assertThat(productRepository.findById(rice.getId()).orElseThrow())
+                .extracting(Product::getStock, Product::getReservedStock).containsExactly(10, 5);
+        assertThat(productRepository.findById(dal.getId()).orElseThrow())
+                .extracting(Product::getStock, Product::getReservedStock).containsExactly(1, 3);
+
+        assertThat(orderRepository.findById(first).orElseThrow())
+                .satisfies(o -> assertThat(o.getStatus()).isEqualTo(Order.Status.ACCEPTED))
+                .satisfies(o -> assertThat(o.getAcceptedAt()).isNotNull());
+        assertThat(orderRepository.findById(third).orElseThrow().getStatus()).isEqualTo(Order.Status.PLACED);
+
+        Map<String, Object> summary = analyticsService.getWholesalerSummary(wholesalerLogin);
+        assertThat(summary.get("totalOrders")).isEqualTo(3L);
+        assertThat(summary.get("pendingOrders")).isEqualTo(1L);
+    }
+
+    @Test
+    void rejectReleasesReservationsAndLaterStepsFollowTheTransitionRules() {
+        Wholesaler wholesaler = data.wholesaler();
+        String wholesalerLogin = wholesaler.getUser().getEmail();
+        Product rice = data.product(wholesaler, 20, 10.0);
+        Product dal = data.product(wholesaler, 10, 8.0);
+
+        UUID first = checkout(wholesaler, rice, 4, dal, 2);
+        UUID second = checkout(wholesaler, rice, 3, dal, 1);
+        UUID third = checkout(wholesaler, rice, 2, dal, 2);
+
+        OrderBulkStatusResultDTO rejected = orderService.wholesalerBulkUpdateOrderStatus(wholesalerLogin,
+                new OrderBulkStatusRequest(List.of(first, second), "REJECTED"));
+        assertThat(rejected.getSucceeded()).isEqualTo(2);
+        assertThat(productRepository.findById(rice.getId()).orElseThrow())
+                .extracting(Product::getStock, Product::getReservedStock).containsExactly(20, 2);
+        assertThat(productRepository.findById(dal.getId()).orElseThrow())
+                .extracting(Product::getStock, Product::getReservedStock).containsExactly(10, 2);
+
+        orderService.wholesalerUpdateOrderStatus(wholesalerLogin, third, "ACCEPTED");
+        OrderBulkStatusResultDTO packing = orderService.wholesalerBulkUpdateOrderStatus(wholesalerLogin,
+                new OrderBulkStatusRequest(List.of(first, third), "PACKING"));
+
+        assertThat(packing.getResults())
+                .extracting(OrderBulkStatusResultDTO.Outcome::isSuccess, OrderBulkStatusResultDTO.Outcome::getMessage)
+                .containsExactly(
+                        tuple(false, "Invalid order status transition: REJECTED -> PACKING"),
+                        tuple(true, null));
+        assertThat(orderRepository.findById(first).orElseThrow().getStatus()).isEqualTo(Order.Status.REJECTED);
+        assertThat(orderRepository.findById(third).orElseThrow().getStatus()).isEqualTo(Order.Status.PACKING);
+        assertThat(analyticsService.getWholesalerSummary(wholesalerLogin).get("pendingOrders")).isEqualTo(0L);
+    }
+
+    // one retailer order with up to two lines
+    private UUID checkout(Wholesaler wholesaler, Product a, int qtyA, Product b, int qtyB) {
+        Retailer retailer = data.connectedRetailer(wholesaler);
+        if (a == null) {
+            a = data.product(wholesaler, 10, 5.0);
+            qtyA = 1;
+        }
+        cartService.addItem(retailer.getId(), wholesaler.getId(), a.getId(), qtyA);
+        if (b != null) {
+            cartService.addItem(retailer.getId(), wholesaler.getId(), b.getId(), qtyB);
+        }
+        return orderService.checkoutFromCart(retailer.getUser().getEmail(), OrderCheckoutRequest.builder()
+                .wholesalerId(wholesaler.getId().toString())
+                .build()).getOrderId();
+    }
+}
@@ -0,0 +1,163 @@
+package com.diya.backend.service;
+
+import com.diya.backend.dto.order.OrderListItemDTO;
+import com.diya.backend.entity.*;
+import com.diya.backend.repository.*;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Regression guard for N+1 on the order list endpoints: the number of SQL
+ * statements must not grow with the number of orders on the page.
+ */
+@SpringBootTest
+class OrderListQueryCountTest {
+
+    // wholesaler id lookup + list rows + count
+    private static final long MAX_WHOLESALER_LIST_STATEMENTS = 3;
+    // retailer id lookup + list rows
+    private static final long MAX_RETAILER_LIST_STATEMENTS = 2;
+
+    @Autowired
+    private OrderService orderService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private WholesalerRepository wholesalerRepository;
+    @Autowired
+    private RetailerRepository retailerRepository;
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Wholesaler wholesaler;
+    private Retailer retailer;
+
+    @BeforeEach
+    void seed() {
+        String tag = UUID.randomUUID().toString().substring(0, 8);
+
+        User wholesalerUser = userRepository.save(User.builder()
+                .email("wh-" + tag + "@test.diya")
+                .password("x")
+                .name("Wholesaler " + tag)
+                .role(User.Role.WHOLESALER)
+                .build());
+        wholesaler = wholesalerRepository.save(Wholesaler.builder()
+                .user(wholesalerUser)
+                .handle("wh" + tag)
+                .inviteCode("INV-" + tag)
+                .businessName("Lakshmi Traders " + tag)
+                .build());
+
+        for (int r = 0; r < 3; r++) {
+            User retailerUser = userRepository.save(User.builder()
+                    .email("rt-" + r + "-" + tag + "@test.diya")
+                    .password("x")
+                    .name("Retailer " + r)
+                    .role(User.Role.RETAILER)
+                    .build());
+            retailer = retailerRepository.save(Retailer.builder()
+                    .user(retailerUser)
+                    .shopName("Kirana " + r)
+                    .city("Hyderabad")
+                    .state("Telangana")
+                    .build());
+
+            for (int o = 0; o < 10; o++) {
+                Order order = Order.builder()
+                        .wholesaler(wholesaler)
+                        .retailer(retailer)
+                        .orderNumber("ORD-" + tag + "-" + r + "-" + o)
+                        .placedAt(LocalDateTime.now().minusHours(o))
+                        .totalAmount(100.0 + o)
+                        .build();
+                for (int i = 0; i < 2; i++) {
+                    order.getOrderItems().add(OrderItem.builder()
+                            .order(order)
+                            .productIdSnapshot(UUID.randomUUID())
+                            .productNameSnapshot("Item " + i)
+                            .unitSnapshot("pc")
+                            .qty(1)
+                            .unitPriceSnapshot(50.0)
+                            .lineTotal(50.0)
+                            .build());
+                }
+                orderRepository.save(order);
+            }
+        }
+    }
+
+    @Test
+    void wholesalerOrderListUsesFixedNumberOfStatements() {
+        Statistics stats = statistics();
+        stats.clear();
+
+        Page<OrderListItemDTO> page = orderService.getOrdersForWholesaler(
+                wholesaler.getUser().getEmail(), "EMAIL", null, null, null, 0, 25);
+
+        assertThat(page.getTotalElements()).isEqualTo(30);
+        assertThat(page.getContent()).hasSize(25);
+        assertThat(page.getContent()).allSatisfy(row -> {
+            assertThat(row.getItems()).isEqualTo(2);
+            assertThat(row.getLocation()).isEqualTo("Hyderabad, Telangana");
+            assertThat(row.getRetailer()).startsWith("Retailer ");
+        });
+        assertThat(stats.getPrepareStatementCount()).isLessThanOrEqualTo(MAX_WHOLESALER_LIST_STATEMENTS);
+    }
+
+    @Test
+    void wholesalerOrderListFiltersInSql() {
+        Statistics stats = statistics();
+        stats.clear();
+
+        Page<OrderListItemDTO> page = orderService.getOrdersForWholesaler(
+                wholesaler.getUser().getEmail(), "EMAIL", "placed", "retailer 1", "today", 0, 5);
+
+        assertThat(page.getContent()).allSatisfy(row -> assertThat(row.getRetailer()).isEqualTo("Retailer 1"));
+        assertThat(page.getTotalElements()).isBetween(1L, 10L);
+        assertThat(stats.getPrepareStatementCount()).isLessThanOrEqualTo(MAX_WHOLESALER_LIST_STATEMENTS);
+    }
+
+    @Test
+    void wholesalerOrderListClampsThePageSize() {
+        String login = wholesaler.getUser().getEmail();
+
+        assertThat(orderService.getOrdersForWholesaler(login, "EMAIL", null, null, null, 0, 100_000).getSize())
+                .isEqualTo(100);
+        assertThat(orderService.getOrdersForWholesaler(login, "EMAIL", null, null, null, 0, 0).getContent())
+                .hasSize(1);
+        assertThatThrownBy(() -> orderService.getOrdersForWholesaler(login, "EMAIL", null, null, null, -1, 20))
+                .hasMessage("page must be 0 or more");
+    }
+
+    @Test
+    void retailerOrderListUsesFixedNumberOfStatements() {
+        Statistics stats = statistics();
+        stats.clear();
+
+        List<OrderListItemDTO> list = orderService.getOrdersForRetailer(retailer.getUser().getEmail());
+
+        assertThat(list).hasSize(10);
+        assertThat(list).allSatisfy(row -> assertThat(row.getItems()).isEqualTo(2));
+        assertThat(stats.getPrepareStatementCount()).isLessThanOrEqualTo(MAX_RETAILER_LIST_STATEMENTS);
+    }
+
+    private Statistics statistics() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+}
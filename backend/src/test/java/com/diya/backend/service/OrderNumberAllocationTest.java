@@ -0,0 +1,141 @@
+package com.diya.backend.service;
+
+import com.diya.backend.dto.OrderCheckoutRequest;
+import com.diya.backend.entity.Retailer;
+import com.diya.backend.entity.Wholesaler;
+import com.diya.backend.support.TestData;
+import com.diya.backend.util.OrderPrefixUtil;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Import(TestData.class)
+class OrderNumberAllocationTest {
+
+    private static final int CONCURRENT_CHECKOUTS = 64;
+
+    @Autowired
+    private TestData data;
+    @Autowired
+    private OrderService orderService;
+    @Autowired
+    private SequenceService sequenceService;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void concurrentCheckoutsGetUniqueSequentialOrderNumbers() throws Exception {
+        Wholesaler wholesaler = data.wholesaler();
+
+        List<Retailer> retailers = new ArrayList<>();
+        for (int i = 0; i < CONCURRENT_CHECKOUTS; i++) {
+            Retailer retailer = data.connectedRetailer(wholesaler);
+            data.cart(retailer, wholesaler, data.product(wholesaler, 10, 25.0), 1);
+            retailers.add(retailer);
+        }
+
+        OrderCheckoutRequest req = OrderCheckoutRequest.builder()
+                .wholesalerId(wholesaler.getId().toString())
+                .build();
+
+        List<String> numbers = runConcurrently(CONCURRENT_CHECKOUTS,
+                i -> orderService.checkoutFromCart(retailers.get(i).getUser().getEmail(), req).getOrderNumber());
+
+        assertThat(numbers).doesNotHaveDuplicates();
+        assertThat(new TreeSet<>(numbers)).containsExactlyElementsOf(expected(wholesaler, CONCURRENT_CHECKOUTS));
+    }
+
+    @Test
+    void concurrentInvoiceNumbersAreUniqueAndSequential() throws Exception {
+        Wholesaler wholesaler = data.wholesaler();
+
+        List<String> numbers = runConcurrently(CONCURRENT_CHECKOUTS,
+                i -> sequenceService.nextInvoiceNumber(wholesaler));
+
+        String prefix = OrderPrefixUtil.buildPrefix(wholesaler);
+        assertThat(numbers).doesNotHaveDuplicates();
+        assertThat(new TreeSet<>(numbers)).containsExactlyElementsOf(IntStream.rangeClosed(1, CONCURRENT_CHECKOUTS)
+                .mapToObj(i -> OrderPrefixUtil.formatInvoiceNumber(prefix, i))
+                .collect(Collectors.toList()));
+        // its own counter: order numbers are not consumed
+        assertThat(sequenceService.nextOrderNumber(wholesaler)).isEqualTo(expected(wholesaler, 1).get(0));
+    }
+
+    @Test
+    void theCounterIsNotHeldUntilTheCallersTransactionCommits() throws Exception {
+        Wholesaler wholesaler = data.wholesaler();
+        CountDownLatch allocated = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        // e.g. a checkout that took its number and is still running
+        CompletableFuture<String> slow = CompletableFuture.supplyAsync(() -> transactionTemplate.execute(tx -> {
+            String number = sequenceService.nextOrderNumber(wholesaler);
+            allocated.countDown();
+            try {
+                release.await(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return number;
+        }));
+        assertThat(allocated.await(30, TimeUnit.SECONDS)).isTrue();
+
+        try {
+            String next = CompletableFuture.supplyAsync(() -> sequenceService.nextOrderNumber(wholesaler))
+                    .get(5, TimeUnit.SECONDS);
+            assertThat(next).isEqualTo(expected(wholesaler, 2).get(1));
+        } finally {
+            release.countDown();
+        }
+
+        // rolled back callers do not give their number back: gaps, never duplicates
+        transactionTemplate.executeWithoutResult(tx -> {
+            sequenceService.nextOrderNumber(wholesaler);
+            tx.setRollbackOnly();
+        });
+        assertThat(slow.get(30, TimeUnit.SECONDS)).isEqualTo(expected(wholesaler, 1).get(0));
+        assertThat(sequenceService.nextOrderNumber(wholesaler)).isEqualTo(expected(wholesaler, 4).get(3));
+    }
+
+    private List<String> expected(Wholesaler wholesaler, int count) {
+        String prefix = OrderPrefixUtil.buildPrefix(wholesaler);
+        return IntStream.rangeClosed(1, count)
+                .mapToObj(i -> OrderPrefixUtil.formatOrderNumber(prefix, i))
+                .collect(Collectors.toList());
+    }
+
+    private List<String> runConcurrently(int threads, java.util.function.IntFunction<String> task)
+            throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                int n = i;
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    return task.apply(n);
+                }));
+            }
+            start.countDown();
+
+            List<String> results = new ArrayList<>();
+            for (Future<String> f : futures) {
+                results.add(f.get(60, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
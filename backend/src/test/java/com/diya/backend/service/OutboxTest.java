@@ -0,0 +1,130 @@
+package com.diya.backend.service;
+
+import com.diya.backend.dto.OrderCheckoutRequest;
+import com.diya.backend.entity.Order;
+import com.diya.backend.entity.Payment;
+import com.diya.backend.entity.Product;
+import com.diya.backend.entity.Retailer;
+import com.diya.backend.entity.Wholesaler;
+import com.diya.backend.repository.OrderRepository;
+import com.diya.backend.support.TestData;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@Import(TestData.class)
+class OutboxTest {
+
+    @Autowired
+    private TestData data;
+    @Autowired
+    private OrderService orderService;
+    @Autowired
+    private CartService cartService;
+    @Autowired
+    private PaymentService paymentService;
+    @Autowired
+    private OutboxDispatcher outboxDispatcher;
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void eventsCommitWithTheirChangeAndListenersRunOnDispatch() {
+        Wholesaler wholesaler = data.wholesaler();
+        Retailer retailer = data.connectedRetailer(wholesaler);
+        String retailerLogin = retailer.getUser().getEmail();
+        Product rice = data.product(wholesaler, 5, 20.0);
+
+        data.cart(retailer, wholesaler, rice, 2);
+        UUID orderId = checkout(wholesaler, retailerLogin);
+        orderService.wholesalerUpdateOrderStatus(wholesaler.getUser().getEmail(), orderId, "ACCEPTED");
+
+        // a rolled back checkout leaves no event behind
+        cartService.addItem(retailer.getId(), rice.getId(), 50);
+        assertThatThrownBy(() -> checkout(wholesaler, retailerLogin)).hasMessageStartingWith("Insufficient stock");
+
+        Order order = orderRepository.findById(orderId).orElseThrow();
+        Payment payment = paymentService.recordPayment(retailerLogin, orderId, order.getTotalAmount(), "UPI", "UTR9",
+                null);
+        paymentService.confirmPayment(wholesaler.getUser().getEmail(), payment.getId());
+
+        assertThat(events(retailer.getId())).containsExactly(
+                "ORDER_PLACED", "ORDER_STATUS_CHANGED", "PAYMENT_RECORDED", "PAYMENT_CONFIRMED");
+        // the order payment status is no longer updated on the request path
+        assertThat(orderRepository.findById(orderId).orElseThrow().getPaymentStatus())
+                .isEqualTo(Order.PaymentStatus.UNPAID);
+
+        outboxDispatcher.dispatch();
+
+        assertThat(orderRepository.findById(orderId).orElseThrow().getPaymentStatus())
+                .isEqualTo(Order.PaymentStatus.PAID);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM outbox_events WHERE retailer_id = ? AND published_at IS NULL",
+                Long.class, retailer.getId())).isZero();
+        Map<String, Object> placed = jdbcTemplate.queryForMap(
+                "SELECT aggregate_id, wholesaler_id, payload FROM outbox_events "
+                        + "WHERE retailer_id = ? AND event_type = 'ORDER_PLACED'", retailer.getId());
+        assertThat(placed.get("aggregate_id")).isEqualTo(orderId);
+        assertThat(placed.get("wholesaler_id")).isEqualTo(wholesaler.getId());
+        assertThat((String) placed.get("payload")).contains("\"orderNumber\":\"" + order.getOrderNumber() + "\"");
+
+        // redelivery (at-least-once) changes nothing
+        jdbcTemplate.update("UPDATE outbox_events SET published_at = NULL WHERE retailer_id = ?", retailer.getId());
+        outboxDispatcher.dispatch();
+        assertThat(orderRepository.findById(orderId).orElseThrow().getPaymentStatus())
+                .isEqualTo(Order.PaymentStatus.PAID);
+    }
+
+    @Test
+    void failedEventsBackOffAndAreParkedAfterMaxAttempts() {
+        outboxDispatcher.dispatch();
+        UUID aggregateId = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO outbox_events (event_type, aggregate_id, payload, created_at, attempts) "
+                + "VALUES ('PAYMENT_CONFIRMED', ?, 'not json', CURRENT_TIMESTAMP, 0)", aggregateId);
+
+        assertThat(outboxDispatcher.dispatch()).isEqualTo(1);
+        Map<String, Object> row = row(aggregateId);
+        assertThat(row.get("attempts")).isEqualTo(1);
+        assertThat(row.get("published_at")).isNull();
+        assertThat(row.get("next_attempt_at")).isNotNull();
+        assertThat((String) row.get("last_error")).isEqualTo("Unreadable outbox payload");
+
+        // not due yet
+        assertThat(outboxDispatcher.dispatch()).isZero();
+
+        // last attempt fails too: parked for good
+        jdbcTemplate.update("UPDATE outbox_events SET attempts = 9, next_attempt_at = NULL WHERE aggregate_id = ?",
+                aggregateId);
+        assertThat(outboxDispatcher.dispatch()).isEqualTo(1);
+        assertThat(row(aggregateId).get("attempts")).isEqualTo(10);
+        jdbcTemplate.update("UPDATE outbox_events SET next_attempt_at = NULL WHERE aggregate_id = ?", aggregateId);
+        assertThat(outboxDispatcher.dispatch()).isZero();
+    }
+
+    private UUID checkout(Wholesaler wholesaler, String retailerLogin) {
+        return orderService.checkoutFromCart(retailerLogin, OrderCheckoutRequest.builder()
+                .wholesalerId(wholesaler.getId().toString())
+                .build()).getOrderId();
+    }
+
+    private List<String> events(UUID retailerId) {
+        return jdbcTemplate.queryForList("SELECT event_type FROM outbox_events WHERE retailer_id = ? ORDER BY id",
+                String.class, retailerId);
+    }
+
+    private Map<String, Object> row(UUID aggregateId) {
+        return jdbcTemplate.queryForMap("SELECT * FROM outbox_events WHERE aggregate_id = ?", aggregateId);
+    }
+}
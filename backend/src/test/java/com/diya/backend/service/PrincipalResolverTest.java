@@ -0,0 +1,123 @@
+package com.diya.backend.service;
+
+import com.diya.backend.config.AuthenticatedUser;
+import com.diya.backend.config.JwtAuthFilter;
+import com.diya.backend.config.JwtUtil;
+import com.diya.backend.entity.Retailer;
+import com.diya.backend.entity.User;
+import com.diya.backend.entity.Wholesaler;
+import com.diya.backend.repository.RetailerRepository;
+import com.diya.backend.repository.UserRepository;
+import com.diya.backend.support.TestData;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@Import(TestData.class)
+class PrincipalResolverTest {
+
+    @Autowired
+    private TestData data;
+    @Autowired
+    private PrincipalResolver principalResolver;
+    @Autowired
+    private JwtAuthFilter jwtAuthFilter;
+    @Autowired
+    private JwtUtil jwtUtil;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private RetailerRepository retailerRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void filterPutsIdsInTheContextAndServicesReadThemWithoutSql() throws Exception {
+        Retailer retailer = data.retailer("Retailer " + TestData.tag(), "Hyderabad");
+        String identifier = retailer.getUser().getEmail();
+        String token = jwtUtil.generateToken(identifier, "EMAIL", "RETAILER");
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/retailer/cart");
+        request.setServletPath("/api/retailer/cart");
+        request.addHeader("Authorization", "Bearer " + token);
+
+        Statistics stats = statistics();
+        Authentication[] seen = new Authentication[1];
+        long[] statements = new long[1];
+        jwtAuthFilter.doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+            seen[0] = SecurityContextHolder.getContext().getAuthentication();
+            stats.clear();
+            assertThat(principalResolver.retailerId(identifier)).isEqualTo(retailer.getId());
+            statements[0] = stats.getPrepareStatementCount();
+        });
+
+        assertThat(seen[0].getName()).isEqualTo(identifier); // auth.getName() is unchanged
+        assertThat(seen[0].getPrincipal()).isInstanceOfSatisfying(AuthenticatedUser.class, user -> {
+            assertThat(user.retailerId()).isEqualTo(retailer.getId());
+            assertThat(user.wholesalerId()).isNull();
+        });
+        assertThat(statements[0]).isZero();
+    }
+
+    @Test
+    void idsAreCachedByIdentifierOutsideARequest() {
+        Wholesaler wholesaler = data.wholesaler();
+        String identifier = wholesaler.getUser().getEmail();
+        Statistics stats = statistics();
+
+        stats.clear();
+        assertThat(principalResolver.wholesalerId(identifier)).isEqualTo(wholesaler.getId());
+        assertThat(stats.getPrepareStatementCount()).isEqualTo(1);
+
+        stats.clear();
+        assertThat(principalResolver.wholesalerId(identifier)).isEqualTo(wholesaler.getId());
+        assertThat(stats.getPrepareStatementCount()).isZero();
+    }
+
+    @Test
+    void missingProfileIsNotCached() {
+        String tag = TestData.tag();
+        User user = userRepository.save(User.builder()
+                .phone("9" + Math.abs(UUID.randomUUID().getMostSignificantBits() % 1_000_000_000L))
+                .password("x")
+                .name("Late " + tag)
+                .role(User.Role.RETAILER)
+                .build());
+
+        assertThatThrownBy(() -> principalResolver.retailerId(user.getPhone()))
+                .hasMessage("Retailer not found");
+
+        Retailer retailer = retailerRepository.save(Retailer.builder()
+                .user(user)
+                .shopName("Kirana " + tag)
+                .city("Hyderabad")
+                .state("Telangana")
+                .build());
+
+        assertThat(principalResolver.retailerId(user.getPhone())).isEqualTo(retailer.getId());
+    }
+
+    private Statistics statistics() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+}
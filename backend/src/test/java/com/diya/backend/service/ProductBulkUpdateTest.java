@@ -0,0 +1,154 @@
+package com.diya.backend.service;
+
+import com.diya.backend.dto.product.ProductBulkUpdateRequest;
+import com.diya.backend.dto.product.ProductBulkUpdateResultDTO;
+import com.diya.backend.dto.product.ProductResponseDTO;
+import com.diya.backend.entity.Category;
+import com.diya.backend.entity.Product;
+import com.diya.backend.entity.Retailer;
+import com.diya.backend.entity.Wholesaler;
+import com.diya.backend.repository.ProductRepository;
+import com.diya.backend.support.TestData;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@SpringBootTest
+@Import(TestData.class)
+class ProductBulkUpdateTest {
+
+    @Autowired
+    private TestData data;
+    @Autowired
+    private ProductService productService;
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Test
+    void appliesThousandsOfRowsAndReportsUnknownAndInvalidSkus() {
+        Wholesaler wholesaler = data.wholesaler();
+        Wholesaler other = data.wholesaler();
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 2500; i++) {
+            products.add(Product.builder().wholesaler(wholesaler).sku(String.format("B%05d", i))
+                    .name("Item " + i).price(10.0).mrp(12.0).stock(5).build());
+        }
+        productRepository.saveAll(products);
+        Product foreign = data.product(other, 7, 3.0);
+
+        List<ProductBulkUpdateRequest.Item> items = new ArrayList<>();
+        for (int i = 0; i < 2500; i++) { // spans three JDBC batches
+            items.add(new ProductBulkUpdateRequest.Item(String.format("B%05d", i), 100 + i, null, null));
+        }
+        items.add(new ProductBulkUpdateRequest.Item(" B00001 ", null, 55.5, 60.0)); // 2500: later item wins
+        items.add(new ProductBulkUpdateRequest.Item("NOPE", 1, null, null));          // 2501
+        items.add(new ProductBulkUpdateRequest.Item(foreign.getSku(), 1, null, null)); // 2502: other wholesaler
+        items.add(new ProductBulkUpdateRequest.Item("B00002", -1, null, null));       // 2503
+        items.add(new ProductBulkUpdateRequest.Item("B00003", null, null, null));     // 2504
+
+        ProductBulkUpdateResultDTO result = productService.bulkUpdateStockAndPrice(
+                wholesaler.getUser().getEmail(), "EMAIL", request(items));
+
+        assertThat(result.getReceived()).isEqualTo(2505);
+        assertThat(result.getUpdated()).isEqualTo(2500);
+        assertThat(result.getNotFound()).isEqualTo(2);
+        assertThat(result.getInvalid()).isEqualTo(2);
+        assertThat(result.isErrorsTruncated()).isFalse();
+        assertThat(result.getErrors())
+                .extracting(ProductBulkUpdateResultDTO.SkuError::getIndex, ProductBulkUpdateResultDTO.SkuError::getMessage)
+                .containsExactly(
+                        tuple(2501, "SKU not found"),
+                        tuple(2502, "SKU not found"),
+                        tuple(2503, "stock must not be negative"),
+                        tuple(2504, "Nothing to update"));
+
+        Map<String, Product> bySku = productRepository.findByWholesalerId(wholesaler.getId()).stream()
+                .collect(Collectors.toMap(Product::getSku, Function.identity()));
+        assertThat(bySku.get("B00000")).extracting(Product::getStock, Product::getPrice, Product::getMrp)
+                .containsExactly(100, 10.0, 12.0);
+        assertThat(bySku.get("B02499").getStock()).isEqualTo(2599);
+        // the duplicate replaced the earlier item for the same SKU
+        assertThat(bySku.get("B00001")).extracting(Product::getStock, Product::getPrice, Product::getMrp)
+                .containsExactly(5, 55.5, 60.0);
+        assertThat(bySku.get("B00002").getStock()).isEqualTo(102);
+        assertThat(productRepository.findById(foreign.getId()).orElseThrow().getStock()).isEqualTo(7);
+    }
+
+    @Test
+    void stockBelowReservedIsRejectedAndErrorsAreTheFirstByIndex() {
+        Wholesaler wholesaler = data.wholesaler();
+        Product held = data.product(wholesaler, 10, 20.0);
+        held.setReservedStock(6); // six units held by placed orders
+        productRepository.save(held);
+
+        List<ProductBulkUpdateRequest.Item> items = new ArrayList<>();
+        for (int i = 0; i < 250; i++) { // unknown SKUs, resolved after the invalid item below
+            items.add(new ProductBulkUpdateRequest.Item("MISSING-" + i, 1, null, null));
+        }
+        items.add(0, new ProductBulkUpdateRequest.Item(held.getSku(), 5, 25.0, null)); // 0: below reserved
+        items.add(1, new ProductBulkUpdateRequest.Item(" ", 1, null, null));          // 1: invalid
+
+        ProductBulkUpdateResultDTO result = productService.bulkUpdateStockAndPrice(
+                wholesaler.getUser().getEmail(), "EMAIL", request(items));
+
+        assertThat(result.getUpdated()).isZero();
+        assertThat(result.getBelowReserved()).isEqualTo(1);
+        assertThat(result.getNotFound()).isEqualTo(250);
+        assertThat(result.getInvalid()).isEqualTo(1);
+        assertThat(result.isErrorsTruncated()).isTrue();
+        assertThat(result.getErrors()).hasSize(200);
+        assertThat(result.getErrors()).extracting(ProductBulkUpdateResultDTO.SkuError::getIndex)
+                .isSorted().startsWith(0, 1, 2);
+        assertThat(result.getErrors().get(0).getMessage())
+                .isEqualTo("stock is below the 6 units reserved by placed orders");
+
+        // the row is left alone, price included
+        assertThat(productRepository.findById(held.getId()).orElseThrow())
+                .extracting(Product::getStock, Product::getPrice).containsExactly(10, 20.0);
+
+        // at the reserved level is fine
+        productService.bulkUpdateStockAndPrice(wholesaler.getUser().getEmail(), "EMAIL",
+                request(List.of(new ProductBulkUpdateRequest.Item(held.getSku(), 6, null, null))));
+        assertThat(productRepository.findById(held.getId()).orElseThrow().getStock()).isEqualTo(6);
+    }
+
+    @Test
+    void cachedRetailerPagesShowTheNewPrices() {
+        Wholesaler wholesaler = data.wholesaler();
+        Retailer retailer = data.connectedRetailer(wholesaler);
+        Category category = data.category(wholesaler);
+        Product product = data.product(wholesaler, 10, 20.0);
+        product.setCategory(category);
+        productRepository.save(product);
+
+        assertThat(page(retailer, wholesaler, category)).extracting(ProductResponseDTO::getPrice)
+                .containsExactly(20.0);
+
+        productService.bulkUpdateStockAndPrice(wholesaler.getUser().getEmail(), "EMAIL",
+                request(List.of(new ProductBulkUpdateRequest.Item(product.getSku(), 40, 18.0, null))));
+
+        assertThat(page(retailer, wholesaler, category)).extracting(ProductResponseDTO::getPrice,
+                ProductResponseDTO::getStock).containsExactly(tuple(18.0, 40));
+    }
+
+    private List<ProductResponseDTO> page(Retailer retailer, Wholesaler wholesaler, Category category) {
+        return productService.listRetailerProducts(retailer.getUser().getEmail(), wholesaler.getId(), null,
+                category.getId(), null, 0, 20).getContent();
+    }
+
+    private static ProductBulkUpdateRequest request(List<ProductBulkUpdateRequest.Item> items) {
+        ProductBulkUpdateRequest req = new ProductBulkUpdateRequest();
+        req.setItems(items);
+        return req;
+    }
+}
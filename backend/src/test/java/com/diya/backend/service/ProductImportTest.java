@@ -0,0 +1,255 @@
+package com.diya.backend.service;
+
+import com.diya.backend.dto.category.CategoryCreateRequest;
+import com.diya.backend.dto.category.CategoryTreeDTO;
+import com.diya.backend.dto.product.ProductCreateRequest;
+import com.diya.backend.dto.product.ProductImportJobDTO;
+import com.diya.backend.entity.Category;
+import com.diya.backend.entity.Product;
+import com.diya.backend.entity.Wholesaler;
+import com.diya.backend.repository.ProductRepository;
+import com.diya.backend.support.TestData;
+import jakarta.servlet.MultipartConfigElement;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@SpringBootTest
+@Import(TestData.class)
+class ProductImportTest {
+
+    @Autowired
+    private TestData data;
+    @Autowired
+    private ProductImportService productImportService;
+    @Autowired
+    private ProductService productService;
+    @Autowired
+    private CategoryService categoryService;
+    @Autowired
+    private ProductSearchService productSearchService;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private MultipartConfigElement multipartConfig;
+
+    @Test
+    void csvImportRunsInBatchesSharesTheSkuCounterAndReportsBadRows() throws Exception {
+        Wholesaler wholesaler = data.wholesaler();
+        String login = wholesaler.getUser().getEmail();
+        Category grocery = categoryService.createCategory(login, "EMAIL", category("Grocery"));
+        productService.createProduct(login, "EMAIL", product("Existing", grocery)); // P001
+
+        StringBuilder csv = new StringBuilder("Name,Price,Category,Subcategory,Stock,visible_to_retailer\r\n");
+        for (int i = 0; i < 1200; i++) {
+            csv.append("Item ").append(i).append(",10.5,").append(i % 2 == 0 ? "grocery" : "Snacks")
+                    .append(",Pulses > Dal,").append(i).append(",yes\r\n");
+        }
+        csv.append("\"Rice, \"\"Basmati\"\"\",99,Grocery,,5,no\r\n"); // row 1202
+        csv.append("Broken,abc,Grocery,,1,\r\n"); // row 1203: bad price
+        csv.append("\r\n");
+        csv.append("No category,5,,,1,\r\n"); // row 1205
+
+        ProductImportJobDTO job = await(login, productImportService.start(login, "catalog.csv", stream(csv)));
+
+        assertThat(job.getStatus()).isEqualTo("COMPLETED");
+        assertThat(job.getPercent()).isEqualTo(100);
+        assertThat(job.getRowsRead()).isEqualTo(1203);
+        assertThat(job.getImported()).isEqualTo(1201);
+        assertThat(job.getFailed()).isEqualTo(2);
+        assertThat(job.getErrors()).extracting(ProductImportJobDTO.RowError::getRow).containsExactly(1203L, 1205L);
+        assertThat(job.getErrors().get(0).getMessage()).isEqualTo("Invalid price: abc");
+
+        // numbers continue after the single create and a later create continues after the import
+        List<Product> products = productRepository.findByWholesalerId(wholesaler.getId());
+        assertThat(products).hasSize(1202);
+        assertThat(products).extracting(Product::getSequenceNumber).doesNotHaveDuplicates()
+                .allSatisfy(seq -> assertThat(seq).isBetween(1, 1202));
+        assertThat(productService.createProduct(login, "EMAIL", product("After", grocery)).getSku())
+                .isEqualTo("P1203");
+
+        Product rice = products.stream().filter(p -> p.getName().startsWith("Rice")).findFirst().orElseThrow();
+        assertThat(rice.getName()).isEqualTo("Rice, \"Basmati\"");
+        assertThat(rice.isVisibleToRetailer()).isFalse();
+        assertThat(rice.getUpdatedAt()).isNotNull();
+
+        // categories matched case-insensitively, new ones and nested subcategories created once
+        List<CategoryTreeDTO> tree = categoryService.getCategoryTree(login, "EMAIL");
+        assertThat(tree).extracting(CategoryTreeDTO::getName).containsExactly("Grocery", "Snacks");
+        assertThat(tree).extracting(CategoryTreeDTO::getProductCount).containsExactly(603L, 600L);
+        assertThat(tree.get(0).getSubcategories()).singleElement().satisfies(pulses -> {
+            assertThat(pulses.getName()).isEqualTo("Pulses");
+            assertThat(pulses.getProductCount()).isEqualTo(600);
+            assertThat(pulses.getChildren()).extracting(CategoryTreeDTO.SubNode::getName).containsExactly("Dal");
+        });
+
+        // searchable right away
+        assertThat(productSearchService.search("Basmati", wholesaler.getId(), false, PageRequest.of(0, 5))
+                .getContent()).containsExactly(rice.getId());
+    }
+
+    @Test
+    void xlsxImportReadsSharedStringsAndSparseCells() throws Exception {
+        Wholesaler wholesaler = data.wholesaler();
+        String login = wholesaler.getUser().getEmail();
+
+        byte[] xlsx = xlsx(List.of("name", "price", "category", "stock", "Toor Dal", "Beverages", "Cola"),
+                "<dimension ref=\"A1:D3\"/><sheetData>"
+                        + "<row r=\"1\"><c r=\"A1\" t=\"s\"><v>0</v></c><c r=\"B1\" t=\"s\"><v>1</v></c>"
+                        + "<c r=\"C1\" t=\"s\"><v>2</v></c><c r=\"D1\" t=\"s\"><v>3</v></c></row>"
+                        + "<row r=\"2\"><c r=\"A2\" t=\"s\"><v>4</v></c><c r=\"B2\"><v>120.5</v></c>"
+                        + "<c r=\"C2\" t=\"inlineStr\"><is><t>Grocery</t></is></c><c r=\"D2\"><v>12.0</v></c></row>"
+                        + "<row r=\"3\"><c r=\"A3\" t=\"s\"><v>6</v></c><c r=\"B3\"><v>40</v></c>"
+                        + "<c r=\"C3\" t=\"s\"><v>5</v></c></row>" // no stock cell
+                        + "</sheetData>");
+
+        ProductImportJobDTO job = await(login, productImportService.start(login, "catalog.xlsx",
+                new ByteArrayInputStream(xlsx)));
+
+        assertThat(job.getStatus()).isEqualTo("COMPLETED");
+        assertThat(job.getImported()).isEqualTo(2);
+        assertThat(productRepository.findByWholesalerId(wholesaler.getId()))
+                .extracting(Product::getName, Product::getPrice, Product::getStock, p -> p.getCategory().getName())
+                .containsExactlyInAnyOrder(
+                        tuple("Toor Dal", 120.5, 12, "Grocery"),
+                        tuple("Cola", 40.0, 0, "Beverages"));
+    }
+
+    @Test
+    void xlsxImportReadsTheFirstTabAndReportsSheetRowNumbers() throws Exception {
+        Wholesaler wholesaler = data.wholesaler();
+        String login = wholesaler.getUser().getEmail();
+
+        // the first tab is stored as sheet2.xml; sheet1.xml is a later tab without the required columns
+        byte[] xlsx = zip(Map.of(
+                "xl/workbook.xml", "<workbook xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\" "
+                        + "xmlns:r=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships\"><sheets>"
+                        + "<sheet name=\"Products\" sheetId=\"2\" r:id=\"rId2\"/>"
+                        + "<sheet name=\"Notes\" sheetId=\"1\" r:id=\"rId1\"/></sheets></workbook>",
+                "xl/_rels/workbook.xml.rels", "<Relationships "
+                        + "xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">"
+                        + "<Relationship Id=\"rId1\" Type=\"x/worksheet\" Target=\"worksheets/sheet1.xml\"/>"
+                        + "<Relationship Id=\"rId2\" Type=\"x/worksheet\" Target=\"/xl/worksheets/sheet2.xml\"/>"
+                        + "</Relationships>",
+                "xl/worksheets/sheet1.xml", worksheet("<row r=\"1\">" + inline("A1", "notes") + "</row>"),
+                "xl/worksheets/sheet2.xml", worksheet("<dimension ref=\"A1:C6\"/>"
+                        + "<row r=\"1\">" + inline("A1", "name") + inline("B1", "price") + inline("C1", "category")
+                        + "</row>"
+                        + "<row r=\"2\">" + inline("A2", "Tea") + "<c r=\"B2\"><v>10</v></c>"
+                        + inline("C2", "Grocery") + "</row>"
+                        // rows 3-5 are empty and not in the XML
+                        + "<row r=\"6\">" + inline("A6", "Broken") + inline("B6", "abc")
+                        + inline("C6", "Grocery") + "</row>")));
+
+        ProductImportJobDTO job = await(login, productImportService.start(login, "catalog.xlsx",
+                new ByteArrayInputStream(xlsx)));
+
+        assertThat(job.getStatus()).isEqualTo("COMPLETED");
+        assertThat(job.getImported()).isEqualTo(1);
+        assertThat(job.getErrors()).extracting(ProductImportJobDTO.RowError::getRow).containsExactly(6L);
+        assertThat(job.getPercent()).isEqualTo(100);
+    }
+
+    @Test
+    void missingRequiredColumnFailsTheJob() throws Exception {
+        Wholesaler wholesaler = data.wholesaler();
+        String login = wholesaler.getUser().getEmail();
+
+        ProductImportJobDTO job = await(login, productImportService.start(login, "catalog.csv",
+                stream(new StringBuilder("name,price\nTea,10\n"))));
+
+        assertThat(job.getStatus()).isEqualTo("FAILED");
+        assertThat(job.getMessage()).isEqualTo("Missing column: category");
+        assertThat(productRepository.findByWholesalerId(wholesaler.getId())).isEmpty();
+    }
+
+    @Test
+    void uploadLimitAppliesWithoutTheMainLauncher() {
+        // diya.import.max-file-size default, not the container's 1MB
+        assertThat(multipartConfig.getMaxFileSize()).isEqualTo(DataSize.ofMegabytes(50).toBytes());
+        assertThat(multipartConfig.getMaxRequestSize()).isEqualTo(DataSize.ofMegabytes(50).toBytes());
+    }
+
+    private ProductImportJobDTO await(String login, ProductImportJobDTO started) throws InterruptedException {
+        UUID jobId = started.getJobId();
+        long deadline = System.currentTimeMillis() + 60_000;
+        ProductImportJobDTO job = productImportService.getJob(login, jobId);
+        while (job.getFinishedAt() == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+            job = productImportService.getJob(login, jobId);
+        }
+        return job;
+    }
+
+    private static ByteArrayInputStream stream(StringBuilder csv) {
+        return new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static byte[] xlsx(List<String> sharedStrings, String sheetData) throws Exception {
+        StringBuilder sst = new StringBuilder("<sst xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\">");
+        for (String s : sharedStrings) {
+            sst.append("<si><t>").append(s).append("</t></si>");
+        }
+        sst.append("</sst>");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(out)) {
+            // sheet before shared strings, as some writers do
+            zip.putNextEntry(new ZipEntry("xl/worksheets/sheet1.xml"));
+            zip.write(("<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\">"
+                    + sheetData + "</worksheet>").getBytes(StandardCharsets.UTF_8));
+            zip.putNextEntry(new ZipEntry("xl/sharedStrings.xml"));
+            zip.write(sst.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        return out.toByteArray();
+    }
+
+    private static String worksheet(String sheetData) {
+        return "<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\"><sheetData>"
+                + sheetData + "</sheetData></worksheet>";
+    }
+
+    private static String inline(String ref, String text) {
+        return "<c r=\"" + ref + "\" t=\"inlineStr\"><is><t>" + text + "</t></is></c>";
+    }
+
+    private static byte[] zip(Map<String, String> parts) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(out)) {
+            for (Map.Entry<String, String> part : parts.entrySet()) {
+                zip.putNextEntry(new ZipEntry(part.getKey()));
+                zip.write(part.getValue().getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static CategoryCreateRequest category(String name) {
+        CategoryCreateRequest req = new CategoryCreateRequest();
+        req.setName(name);
+        return req;
+    }
+
+    private static ProductCreateRequest product(String name, Category category) {
+        ProductCreateRequest req = new ProductCreateRequest();
+        req.setName(name);
+        req.setPrice(10.0);
+        req.setCategoryId(category.getId());
+        return req;
+    }
+}
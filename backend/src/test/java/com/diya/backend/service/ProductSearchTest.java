@@ -0,0 +1,136 @@
+package com.diya.backend.service;
+
+import com.diya.backend.dto.product.ProductCreateRequest;
+import com.diya.backend.dto.product.ProductResponseDTO;
+import com.diya.backend.dto.product.ProductUpdateRequest;
+import com.diya.backend.entity.Category;
+import com.diya.backend.entity.Product;
+import com.diya.backend.entity.Retailer;
+import com.diya.backend.entity.Wholesaler;
+import com.diya.backend.support.TestData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Import(TestData.class)
+class ProductSearchTest {
+
+    @Autowired
+    private TestData data;
+    @Autowired
+    private ProductService productService;
+    @Autowired
+    private ProductSearchService productSearchService;
+
+    private Wholesaler wholesaler;
+    private String wholesalerLogin;
+    private String retailerLogin;
+    private Category category;
+
+    @BeforeEach
+    void seed() {
+        wholesaler = data.wholesaler();
+        wholesalerLogin = wholesaler.getUser().getEmail();
+        Retailer retailer = data.connectedRetailer(wholesaler);
+        retailerLogin = retailer.getUser().getEmail();
+        category = data.category(wholesaler);
+
+        create("Basmati Rice 5kg", "Aged long grain", true);
+        create("Sona Masoori Rice", "Everyday rice", true);
+        create("Toor Dal", "Pigeon peas, goes well with rice", true);
+        create("Sugar 1kg", "Refined", true);
+        create("Rice Flour", "Hidden from retailers", false);
+    }
+
+    @Test
+    void ranksNameMatchesAboveDescriptionAndHidesUnlistedProducts() {
+        List<String> names = retailerSearch("rice");
+
+        assertThat(names).containsExactlyInAnyOrder(
+                "Basmati Rice 5kg", "Sona Masoori Rice", "Toor Dal");
+        assertThat(names.get(names.size() - 1)).isEqualTo("Toor Dal"); // description-only match
+
+        // the wholesaler's own listing still finds the hidden product
+        Page<ProductResponseDTO> own = productService.listProductsForWholesaler(
+                wholesalerLogin, "EMAIL", 0, 20, "rice", null, null);
+        assertThat(own.getContent()).extracting(ProductResponseDTO::getName).contains("Rice Flour");
+    }
+
+    @Test
+    void matchesPrefixesTyposAndExactSku() {
+        assertThat(retailerSearch("basm")).containsExactly("Basmati Rice 5kg");
+        assertThat(retailerSearch("basmatti")).containsExactly("Basmati Rice 5kg");
+        assertThat(retailerSearch("sugr")).containsExactly("Sugar 1kg");
+        assertThat(retailerSearch("masoori rise")).containsExactly("Sona Masoori Rice");
+
+        String sku = productService.listRetailerProducts(retailerLogin, wholesaler.getId(), "sugar", null, null, 0, 1)
+                .getContent().get(0).getSku();
+        assertThat(retailerSearch(sku)).first().isEqualTo("Sugar 1kg");
+    }
+
+    @Test
+    void writesAreVisibleAfterCommitAndOtherWritersAfterSync() {
+        ProductResponseDTO dal = productService.listRetailerProducts(
+                retailerLogin, wholesaler.getId(), "toor", null, null, 0, 1).getContent().get(0);
+
+        ProductUpdateRequest rename = new ProductUpdateRequest();
+        rename.setName("Toor Dal Premium");
+        productService.updateProduct(wholesalerLogin, "EMAIL", dal.getId(), rename);
+        assertThat(retailerSearch("premium")).containsExactly("Toor Dal Premium");
+
+        // written straight to the table (e.g. by another node): found after sync()
+        Product outside = data.product(wholesaler, 5, 10.0);
+        assertThat(retailerSearch(outside.getName())).isEmpty();
+        productSearchService.sync();
+        assertThat(retailerSearch(outside.getName())).containsExactly(outside.getName());
+    }
+
+    @Test
+    void publicCatalogSearchesAcrossWholesalersAndPagesByRank() {
+        String word = "zq" + TestData.tag().replaceAll("[^a-z]", "");
+        create("Jaggery " + word, null, true);
+        Wholesaler other = data.wholesaler();
+        Category otherCategory = data.category(other);
+        for (int i = 0; i < 3; i++) {
+            ProductCreateRequest req = request("Jaggery Cube " + i, word + " blocks", true);
+            req.setCategoryId(otherCategory.getId());
+            productService.createProduct(other.getUser().getEmail(), "EMAIL", req);
+        }
+
+        Page<ProductResponseDTO> first = productService.publicCatalog(word, 0, 2, null);
+        assertThat(first.getTotalElements()).isEqualTo(4);
+        assertThat(first.getContent()).hasSize(2);
+        assertThat(first.getContent().get(0).getName()).isEqualTo("Jaggery " + word); // name beats description
+        assertThat(productService.publicCatalog(word, 1, 2, null).getContent()).hasSize(2);
+    }
+
+    private List<String> retailerSearch(String text) {
+        return productService.listRetailerProducts(retailerLogin, wholesaler.getId(), text, null, null, 0, 20)
+                .getContent().stream().map(ProductResponseDTO::getName).toList();
+    }
+
+    private void create(String name, String description, boolean visible) {
+        productService.createProduct(wholesalerLogin, "EMAIL", request(name, description, visible));
+    }
+
+    private ProductCreateRequest request(String name, String description, boolean visible) {
+        ProductCreateRequest req = new ProductCreateRequest();
+        req.setName(name);
+        req.setDescription(description);
+        req.setUnit("pc");
+        req.setPrice(10.0);
+        req.setMrp(12.0);
+        req.setStock(100);
+        req.setCategoryId(category.getId());
+        req.setVisibleToRetailer(visible);
+        return req;
+    }
+}
@@ -0,0 +1,169 @@
+package com.diya.backend.service;
+
+import com.diya.backend.dto.OrderCheckoutRequest;
+import com.diya.backend.entity.Order;
+import com.diya.backend.entity.Product;
+import com.diya.backend.entity.Retailer;
+import com.diya.backend.entity.Wholesaler;
+import com.diya.backend.repository.OrderRepository;
+import com.diya.backend.repository.ProductRepository;
+import com.diya.backend.repository.WholesalerRepository;
+import com.diya.backend.support.TestData;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Import(TestData.class)
+class ReservationExpiryTest {
+
+    @Autowired
+    private TestData data;
+    @Autowired
+    private ReservationExpiryService reservationExpiryService;
+    @Autowired
+    private OrderService orderService;
+    @Autowired
+    private CartService cartService;
+    @Autowired
+    private AnalyticsService analyticsService;
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private WholesalerRepository wholesalerRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void expiresPlacedOrdersPastEachWholesalersTtlAndReleasesTheirStock() {
+        reservationExpiryService.sweep(); // leftovers from other tests
+        Wholesaler standard = data.wholesaler(); // default TTL (48h)
+        Wholesaler strict = data.wholesaler();
+        strict.setReservationTtlHours(2);
+        wholesalerRepository.save(strict);
+        Product rice = data.product(standard, 50, 10.0);
+        Product dal = data.product(standard, 50, 8.0);
+        Product oil = data.product(strict, 50, 99.0);
+
+        UUID stale = checkout(standard, rice, 4, dal, 3);
+        UUID fresh = checkout(standard, rice, 2, null, 0);
+        UUID accepted = checkout(standard, dal, 1, null, 0);
+        UUID strictStale = checkout(strict, oil, 5, null, 0);
+        orderService.wholesalerUpdateOrderStatus(standard.getUser().getEmail(), accepted, "ACCEPTED");
+        analyticsService.getWholesalerSummary(standard.getUser().getEmail());
+
+        age(stale, 49);
+        age(fresh, 10);
+        age(accepted, 100);
+        age(strictStale, 3);
+
+        double orders = counter(ReservationExpiryService.METRIC_ORDERS);
+        double units = counter(ReservationExpiryService.METRIC_UNITS);
+
+        ReservationExpiryService.Result result = reservationExpiryService.sweep();
+
+        assertThat(result.orders()).isEqualTo(2);
+        assertThat(result.units()).isEqualTo(12);
+        assertThat(counter(ReservationExpiryService.METRIC_ORDERS)).isEqualTo(orders + 2);
+        assertThat(counter(ReservationExpiryService.METRIC_UNITS)).isEqualTo(units + 12);
+
+        assertThat(orderRepository.findById(stale).orElseThrow())
+                .satisfies(o -> assertThat(o.getStatus()).isEqualTo(Order.Status.CANCELLED))
+                .satisfies(o -> assertThat(o.getCancelledAt()).isNotNull());
+        assertThat(orderRepository.findById(strictStale).orElseThrow().getStatus()).isEqualTo(Order.Status.CANCELLED);
+        assertThat(orderRepository.findById(fresh).orElseThrow().getStatus()).isEqualTo(Order.Status.PLACED);
+        assertThat(orderRepository.findById(accepted).orElseThrow().getStatus()).isEqualTo(Order.Status.ACCEPTED);
+
+        assertThat(productRepository.findById(rice.getId()).orElseThrow())
+                .extracting(Product::getStock, Product::getReservedStock).containsExactly(50, 2);
+        assertThat(productRepository.findById(dal.getId()).orElseThrow())
+                .extracting(Product::getStock, Product::getReservedStock).containsExactly(49, 0);
+        assertThat(productRepository.findById(oil.getId()).orElseThrow().getReservedStock()).isZero();
+
+        // status rollups moved with the orders
+        assertThat(analyticsService.getWholesalerSummary(standard.getUser().getEmail()).get("pendingOrders"))
+                .isEqualTo(1L);
+        assertThat(analyticsService.getWholesalerSummary(strict.getUser().getEmail()).get("pendingOrders"))
+                .isEqualTo(0L);
+
+        assertThat(reservationExpiryService.sweep().orders()).isZero();
+    }
+
+    @Test
+    void skipsOrdersLockedByAnotherTransaction() throws Exception {
+        reservationExpiryService.sweep();
+        Wholesaler wholesaler = data.wholesaler();
+        Product rice = data.product(wholesaler, 50, 10.0);
+        UUID busy = checkout(wholesaler, rice, 3, null, 0);
+        UUID idle = checkout(wholesaler, rice, 4, null, 0);
+        age(busy, 72);
+        age(idle, 72);
+
+        // e.g. the wholesaler is accepting this order right now
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> holder = CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(tx -> {
+            orderRepository.findForUpdateById(busy);
+            locked.countDown();
+            try {
+                release.await(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        assertThat(locked.await(30, TimeUnit.SECONDS)).isTrue();
+
+        try {
+            assertThat(reservationExpiryService.sweep().orders()).isEqualTo(1);
+            assertThat(orderRepository.findById(idle).orElseThrow().getStatus()).isEqualTo(Order.Status.CANCELLED);
+            assertThat(orderRepository.findById(busy).orElseThrow().getStatus()).isEqualTo(Order.Status.PLACED);
+        } finally {
+            release.countDown();
+            holder.get(30, TimeUnit.SECONDS);
+        }
+
+        // picked up on the next run once the lock is gone
+        assertThat(reservationExpiryService.sweep().orders()).isEqualTo(1);
+        assertThat(productRepository.findById(rice.getId()).orElseThrow().getReservedStock()).isZero();
+    }
+
+    private void age(UUID orderId, int hours) {
+        jdbcTemplate.update("UPDATE orders SET placed_at = ? WHERE id = ?",
+                Timestamp.valueOf(LocalDateTime.now().minusHours(hours)), orderId);
+    }
+
+    private double counter(String name) {
+        return meterRegistry.get(name).counter().count();
+    }
+
+    // one retailer order with up to two lines
+    private UUID checkout(Wholesaler wholesaler, Product a, int qtyA, Product b, int qtyB) {
+        Retailer retailer = data.connectedRetailer(wholesaler);
+        cartService.addItem(retailer.getId(), wholesaler.getId(), a.getId(), qtyA);
+        if (b != null) {
+            cartService.addItem(retailer.getId(), wholesaler.getId(), b.getId(), qtyB);
+        }
+        return orderService.checkoutFromCart(retailer.getUser().getEmail(), OrderCheckoutRequest.builder()
+                .wholesalerId(wholesaler.getId().toString())
+                .build()).getOrderId();
+    }
+}
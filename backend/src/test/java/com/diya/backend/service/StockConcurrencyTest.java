@@ -0,0 +1,157 @@
+package com.diya.backend.service;
+
+import com.diya.backend.dto.OrderCheckoutRequest;
+import com.diya.backend.dto.product.ProductUpdateRequest;
+import com.diya.backend.entity.Order;
+import com.diya.backend.entity.Product;
+import com.diya.backend.entity.Retailer;
+import com.diya.backend.entity.Wholesaler;
+import com.diya.backend.repository.OrderRepository;
+import com.diya.backend.repository.ProductRepository;
+import com.diya.backend.support.TestData;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 100 buyers hit one SKU at once, then their orders are accepted and
+ * cancelled concurrently: stock and reservedStock must match the orders
+ * exactly (no lost updates, no oversell).
+ *
+ * The retry budget is raised so that every action must get through: with
+ * 65 writers on one row the default 12 attempts can, rarely, run out on a
+ * slow machine, and a loose failure bound would also hide broken retries.
+ */
+@SpringBootTest(properties = "diya.stock.retry.max-attempts=40")
+@Import(TestData.class)
+class StockConcurrencyTest {
+
+    private static final int BUYERS = 100;
+    private static final int STOCK = 60;
+
+    @Autowired
+    private TestData data;
+    @Autowired
+    private OrderService orderService;
+    @Autowired
+    private ProductService productService;
+    @Autowired
+    private AnalyticsService analyticsService;
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Test
+    void stockAndReservationsStayConsistentUnderParallelBuyers() throws Exception {
+        Wholesaler wholesaler = data.wholesaler();
+        String wholesalerLogin = wholesaler.getUser().getEmail();
+        Product sku = data.product(wholesaler, STOCK, 10.0);
+        List<Retailer> buyers = new ArrayList<>();
+        for (int i = 0; i < BUYERS; i++) {
+            Retailer retailer = data.connectedRetailer(wholesaler);
+            data.cart(retailer, wholesaler, sku, 1);
+            buyers.add(retailer);
+        }
+        analyticsService.getWholesalerSummary(wholesalerLogin); // rollups seeded up front
+
+        // 1) everyone checks out at once: exactly STOCK orders get through
+        List<Callable<UUID>> checkouts = buyers.stream().<Callable<UUID>>map(r -> () -> orderService
+                .checkoutFromCart(r.getUser().getEmail(), OrderCheckoutRequest.builder()
+                        .wholesalerId(wholesaler.getId().toString())
+                        .build())
+                .getOrderId()).toList();
+        Map<Retailer, UUID> placed = new LinkedHashMap<>();
+        List<String> refused = new ArrayList<>();
+        List<Future<UUID>> results = runAll(checkouts);
+        for (int i = 0; i < BUYERS; i++) {
+            try {
+                placed.put(buyers.get(i), results.get(i).get());
+            } catch (ExecutionException e) {
+                refused.add(e.getCause().getMessage());
+            }
+        }
+        assertThat(placed).hasSize(STOCK);
+        assertThat(refused).hasSize(BUYERS - STOCK).allMatch(m -> m.startsWith("Insufficient stock"));
+        assertConsistent(sku);
+
+        // 2) accept half, let the other half cancel, and edit the product meanwhile - all at once
+        List<Callable<Object>> actions = new ArrayList<>();
+        int n = 0;
+        for (Map.Entry<Retailer, UUID> e : placed.entrySet()) {
+            UUID orderId = e.getValue();
+            if (n++ % 2 == 0) {
+                actions.add(() -> orderService.wholesalerUpdateOrderStatus(wholesalerLogin, orderId, "ACCEPTED"));
+            } else {
+                String retailerLogin = e.getKey().getUser().getEmail();
+                actions.add(() -> orderService.retailerCancelOrder(retailerLogin, orderId));
+            }
+        }
+        for (int i = 0; i < 5; i++) {
+            ProductUpdateRequest rename = new ProductUpdateRequest();
+            rename.setName("Basmati " + i);
+            actions.add(() -> productService.updateProduct(wholesalerLogin, "EMAIL", sku.getId(), rename));
+        }
+        // every action goes through; a give-up here means the retries are not doing their job
+        List<String> failures = new ArrayList<>();
+        for (Future<Object> f : runAll(actions)) {
+            try {
+                f.get();
+            } catch (ExecutionException e) {
+                failures.add(String.valueOf(e.getCause()));
+            }
+        }
+        assertThat(failures).isEmpty();
+        assertConsistent(sku);
+
+        Product after = productRepository.findById(sku.getId()).orElseThrow();
+        assertThat(after.getVersion()).isGreaterThan(sku.getVersion());
+    }
+
+    // stock dropped by exactly the accepted qty, reserved equals the still-open orders
+    private void assertConsistent(Product sku) {
+        List<Order> orders = orderRepository.findByWholesaler(sku.getWholesaler());
+        long accepted = orders.stream().filter(o -> o.getStatus() == Order.Status.ACCEPTED).count();
+        long open = orders.stream().filter(o -> o.getStatus() == Order.Status.PLACED).count();
+
+        Product now = productRepository.findById(sku.getId()).orElseThrow();
+        assertThat(now.getStock()).isEqualTo(STOCK - (int) accepted);
+        assertThat(now.getReservedStock()).isEqualTo((int) open);
+    }
+
+    private static <T> List<Future<T>> runAll(List<Callable<T>> tasks) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(tasks.size());
+        try {
+            CountDownLatch ready = new CountDownLatch(tasks.size());
+            CountDownLatch go = new CountDownLatch(1);
+            List<Future<T>> futures = new ArrayList<>();
+            for (Callable<T> task : tasks) {
+                futures.add(pool.submit(() -> {
+                    ready.countDown();
+                    go.await();
+                    return task.call();
+                }));
+            }
+            ready.await();
+            go.countDown();
+            for (Future<T> f : futures) {
+                try {
+                    f.get(120, TimeUnit.SECONDS);
+                } catch (ExecutionException ignored) {
+                    // inspected by the caller
+                } catch (TimeoutException e) {
+                    throw new IllegalStateException("task did not finish", e);
+                }
+            }
+            return futures;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
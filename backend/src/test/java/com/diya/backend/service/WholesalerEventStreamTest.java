@@ -0,0 +1,256 @@
+package com.diya.backend.service;
+
+import com.diya.backend.dto.OrderCheckoutRequest;
+import com.diya.backend.entity.Product;
+import com.diya.backend.entity.Retailer;
+import com.diya.backend.entity.Wholesaler;
+import com.diya.backend.support.TestData;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Import(TestData.class)
+class WholesalerEventStreamTest {
+
+    @Autowired
+    private TestData data;
+    @Autowired
+    private WholesalerEventStream eventStream;
+    @Autowired
+    private OrderService orderService;
+    @Autowired
+    private CartService cartService;
+    @Autowired
+    private PaymentService paymentService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void pushesOrderAndPaymentEventsToTheWholesalersStreamsOnly() throws Exception {
+        Wholesaler wholesaler = data.wholesaler();
+        Wholesaler other = data.wholesaler();
+        Retailer retailer = data.connectedRetailer(wholesaler);
+        Product rice = data.product(wholesaler, 20, 10.0);
+
+        Recording mine = new Recording();
+        Recording theirs = new Recording();
+        WholesalerEventStream.Subscription sub = eventStream.register(wholesaler.getId(), mine, null);
+        WholesalerEventStream.Subscription otherSub = eventStream.register(other.getId(), theirs, null);
+        long before = maxId();
+
+        try {
+            cartService.addItem(retailer.getId(), rice.getId(), 2);
+            UUID orderId = orderService.checkoutFromCart(retailer.getUser().getEmail(), OrderCheckoutRequest.builder()
+                    .wholesalerId(wholesaler.getId().toString())
+                    .build()).getOrderId();
+            orderService.wholesalerUpdateOrderStatus(wholesaler.getUser().getEmail(), orderId, "ACCEPTED");
+            paymentService.recordPayment(retailer.getUser().getEmail(), orderId, 20.0, "UPI", "UTR1", null);
+
+            eventStream.poll();
+
+            mine.await(3);
+            assertThat(mine.names()).containsExactly("order-placed", "order-status", "payment-pending");
+            assertThat(mine.events.get(0).data().get("id")).isEqualTo(orderId);
+            assertThat(mine.events.get(1).data()).containsEntry("to", "ACCEPTED");
+            assertThat(mine.events.get(2).data()).containsEntry("orderId", orderId.toString());
+            assertThat(theirs.events).isEmpty();
+
+            // reconnect with Last-Event-ID: the missed events are replayed, then live ones follow
+            Recording resumed = new Recording();
+            WholesalerEventStream.Subscription resumedSub = eventStream.register(wholesaler.getId(), resumed,
+                    mine.events.get(0).id());
+            try {
+                resumed.await(2);
+                assertThat(resumed.names()).containsExactly("order-status", "payment-pending");
+                assertThat(resumed.events.get(0).id()).isGreaterThan(before);
+
+                eventStream.poll(); // nothing new: the replayed events are not sent twice
+                orderService.wholesalerUpdateOrderStatus(wholesaler.getUser().getEmail(), orderId, "PACKING");
+                eventStream.poll();
+                resumed.await(3);
+                mine.await(4);
+                assertThat(resumed.names()).containsExactly("order-status", "payment-pending", "order-status");
+            } finally {
+                eventStream.unregister(resumedSub);
+            }
+        } finally {
+            eventStream.unregister(sub);
+            eventStream.unregister(otherSub);
+        }
+    }
+
+    @Test
+    void aNewStreamGetsEventsCommittedBeforeTheNextPoll() throws Exception {
+        Wholesaler wholesaler = data.wholesaler();
+        Recording first = new Recording();
+
+        // the tail starts at subscribe time, not at the first poll after it
+        WholesalerEventStream.Subscription sub = eventStream.register(wholesaler.getId(), first, null);
+        try {
+            UUID orderId = UUID.randomUUID();
+            insertOrderPlaced(wholesaler, orderId);
+            eventStream.poll();
+
+            first.await(1);
+            assertThat(first.events.get(0).data().get("id")).isEqualTo(orderId);
+        } finally {
+            eventStream.unregister(sub);
+        }
+    }
+
+    @Test
+    void aRowBelowTheStartingMaxThatCommitsLateIsStillPushed() throws Exception {
+        Wholesaler wholesaler = data.wholesaler();
+        // an id allocated before the stream opens whose row is not visible yet
+        UUID lateOrderId = UUID.randomUUID();
+        insertOrderPlaced(wholesaler, lateOrderId);
+        long lateId = maxId();
+        jdbcTemplate.update("DELETE FROM outbox_events WHERE id = ?", lateId);
+        insertOrderPlaced(wholesaler, UUID.randomUUID());
+
+        Recording stream = new Recording();
+        WholesalerEventStream.Subscription sub = eventStream.register(wholesaler.getId(), stream, null);
+        try {
+            jdbcTemplate.update("INSERT INTO outbox_events (id, event_type, aggregate_id, wholesaler_id, payload, "
+                    + "created_at, attempts) VALUES (?, 'ORDER_PLACED', ?, ?, '{}', CURRENT_TIMESTAMP, 0)",
+                    lateId, lateOrderId, wholesaler.getId());
+            eventStream.poll();
+
+            stream.await(1);
+            assertThat(stream.events.get(0).id()).isEqualTo(lateId);
+        } finally {
+            eventStream.unregister(sub);
+        }
+    }
+
+    @Test
+    void aStreamOpenedWhileTheLastOneClosesStaysRegistered() throws Exception {
+        Wholesaler wholesaler = data.wholesaler();
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            for (int i = 0; i < 100; i++) {
+                WholesalerEventStream.Subscription old = eventStream.register(wholesaler.getId(), new Recording(), null);
+                Recording opened = new Recording();
+                CyclicBarrier start = new CyclicBarrier(2);
+                Future<?> close = pool.submit(() -> {
+                    start.await();
+                    eventStream.unregister(old);
+                    return null;
+                });
+                Future<WholesalerEventStream.Subscription> open = pool.submit(() -> {
+                    start.await();
+                    return eventStream.register(wholesaler.getId(), opened, null);
+                });
+                close.get(5, TimeUnit.SECONDS);
+                WholesalerEventStream.Subscription sub = open.get(5, TimeUnit.SECONDS);
+                try {
+                    UUID orderId = UUID.randomUUID();
+                    insertOrderPlaced(wholesaler, orderId);
+                    eventStream.poll();
+
+                    opened.await(1);
+                    assertThat(opened.events.get(0).data().get("id")).isEqualTo(orderId);
+                } finally {
+                    eventStream.unregister(sub);
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void dropsAConsumerThatCannotKeepUp() throws Exception {
+        Wholesaler wholesaler = data.wholesaler();
+        CountDownLatch stuck = new CountDownLatch(1);
+        Recording slow = new Recording() {
+            @Override
+            public void send(WholesalerEventStream.PushEvent event) {
+                try {
+                    stuck.await(30, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.send(event);
+            }
+        };
+        double dropped = meterRegistry.get(WholesalerEventStream.METRIC_DROPPED).counter().count();
+        double open = meterRegistry.get(WholesalerEventStream.METRIC_CONNECTIONS).gauge().value();
+
+        WholesalerEventStream.Subscription sub = eventStream.register(wholesaler.getId(), slow, null);
+        eventStream.poll();
+        try {
+            // more than the queue holds (64) while the client is stuck on the first one
+            for (int i = 0; i < 80; i++) {
+                insertOrderPlaced(wholesaler, UUID.randomUUID());
+            }
+            eventStream.poll();
+
+            assertThat(sub.isClosed()).isTrue();
+            assertThat(slow.closed.await(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(meterRegistry.get(WholesalerEventStream.METRIC_DROPPED).counter().count())
+                    .isEqualTo(dropped + 1);
+            assertThat(meterRegistry.get(WholesalerEventStream.METRIC_CONNECTIONS).gauge().value()).isEqualTo(open);
+        } finally {
+            stuck.countDown();
+            eventStream.unregister(sub);
+        }
+    }
+
+    private void insertOrderPlaced(Wholesaler wholesaler, UUID orderId) {
+        jdbcTemplate.update("INSERT INTO outbox_events (event_type, aggregate_id, wholesaler_id, payload, "
+                + "created_at, attempts) VALUES ('ORDER_PLACED', ?, ?, '{}', CURRENT_TIMESTAMP, 0)",
+                orderId, wholesaler.getId());
+    }
+
+    private long maxId() {
+        return jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM outbox_events", Long.class);
+    }
+
+    private static class Recording implements WholesalerEventStream.Sink {
+        final List<WholesalerEventStream.PushEvent> events = new CopyOnWriteArrayList<>();
+        final CountDownLatch closed = new CountDownLatch(1);
+
+        @Override
+        public void send(WholesalerEventStream.PushEvent event) {
+            if (event.name() != null) { // not a heartbeat
+                events.add(event);
+            }
+        }
+
+        @Override
+        public void close() {
+            closed.countDown();
+        }
+
+        List<String> names() {
+            return events.stream().map(WholesalerEventStream.PushEvent::name).toList();
+        }
+
+        void await(int count) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 5000;
+            while (events.size() < count && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertThat(events).hasSizeGreaterThanOrEqualTo(count);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.diya.backend.support;
+
+import com.diya.backend.entity.*;
+import com.diya.backend.repository.*;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.test.context.TestComponent;
+
+import java.util.UUID;
+
+/**
+ * Builders for the minimal entity graph the service tests need
+ * (users, profiles, connections, categories, products, carts).
+ */
+@TestComponent
+@RequiredArgsConstructor
+public class TestData {
+
+    private final UserRepository userRepository;
+    private final WholesalerRepository wholesalerRepository;
+    private final RetailerRepository retailerRepository;
+    private final ConnectionRepository connectionRepository;
+    private final ProductRepository productRepository;
+    private final CartRepository cartRepository;
+    private final CategoryRepository categoryRepository;
+
+    public static String tag() {
+        return UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    public Wholesaler wholesaler() {
+        String tag = tag();
+        User user = userRepository.save(User.builder()
+                .email("wh-" + tag + "@test.diya")
+                .password("x")
+                .name("Wholesaler " + tag)
+                .role(User.Role.WHOLESALER)
+                .build());
+
+        return wholesalerRepository.save(Wholesaler.builder()
+                .user(user)
+                .handle("wh" + tag)
+                .inviteCode("INV-" + tag)
+                .businessName("Lakshmi Traders " + tag)
+                .city("Hyderabad")
+                .build());
+    }
+
+    public Retailer retailer(String name, String city) {
+        String tag = tag();
+        User user = userRepository.save(User.builder()
+                .email("rt-" + tag + "@test.diya")
+                .password("x")
+                .name(name)
+                .role(User.Role.RETAILER)
+                .build());
+
+        return retailerRepository.save(Retailer.builder()
+                .user(user)
+                .shopName("Kirana " + tag)
+                .city(city)
+                .state("Telangana")
+                .build());
+    }
+
+    public Retailer connectedRetailer(Wholesaler wholesaler) {
+        Retailer retailer = retailer("Retailer " + tag(), "Hyderabad");
+        connectionRepository.save(Connection.builder()
+                .wholesaler(wholesaler)
+                .retailer(retailer)
+                .status(Connection.Status.APPROVED)
+                .build());
+        return retailer;
+    }
+
+    public Category category(Wholesaler wholesaler) {
+        return categoryRepository.save(Category.builder()
+                .wholesaler(wholesaler)
+                .name("Category " + tag())
+                .build());
+    }
+
+    public Product product(Wholesaler wholesaler, int stock, double price) {
+        String tag = tag();
+        return productRepository.save(Product.builder()
+                .wholesaler(wholesaler)
+                .sku("SKU-" + tag)
+                .name("Product " + tag)
+                .unit("pc")
+                .price(price)
+                .mrp(price)
+                .stock(stock)
+                .build());
+    }
+
+    public Cart cart(Retailer retailer, Wholesaler wholesaler, Product product, int qty) {
+        Cart cart = Cart.builder()
+                .retailer(retailer)
+                .wholesaler(wholesaler)
+                .build();
+        cart.getItems().add(CartItem.builder()
+                .cart(cart)
+                .product(product)
+                .quantity(qty)
+                .priceAtTime(product.getPrice())
+                .mrpAtTime(product.getMrp())
+                .stockSnapshot(product.getStock())
+                .build());
+        return cartRepository.save(cart);
+    }
+}